@@ -48,6 +48,7 @@ public class TrackingConcurrentMergeScheduler extends ConcurrentMergeScheduler {
     private final CounterMetric currentMergesSizeInBytes = new CounterMetric();
     private final CounterMetric totalMergeStoppedTime = new CounterMetric();
     private final CounterMetric totalMergeThrottledTime = new CounterMetric();
+    private final CounterMetric totalMergesWrittenBytes = new CounterMetric();
 
     private final Set<OnGoingMerge> onGoingMerges = ConcurrentCollections.newConcurrentSet();
     private final Set<OnGoingMerge> readOnlyOnGoingMerges = Collections.unmodifiableSet(onGoingMerges);
@@ -93,6 +94,13 @@ public class TrackingConcurrentMergeScheduler extends ConcurrentMergeScheduler {
         return totalMergeThrottledTime.count();
     }
 
+    /**
+     * The bytes written by completed merges, as seen by their rate limiters.
+     */
+    public long totalMergeWrittenBytes() {
+        return totalMergesWrittenBytes.count();
+    }
+
     public Set<OnGoingMerge> onGoingMerges() {
         return readOnlyOnGoingMerges;
     }
@@ -134,6 +142,7 @@ public class TrackingConcurrentMergeScheduler extends ConcurrentMergeScheduler {
 
             totalMergeStoppedTime.inc(stoppedMS);
             totalMergeThrottledTime.inc(throttledMS);
+            totalMergesWrittenBytes.inc(merge.rateLimiter.getTotalBytesWritten());
 
             String message = String.format(Locale.ROOT,
                                            "merge segment [%s] done: took [%s], [%,.1f MB], [%,d docs], [%s stopped], [%s throttled], [%,.1f MB written], [%,.1f MB/sec throttle]",
@@ -154,6 +163,16 @@ public class TrackingConcurrentMergeScheduler extends ConcurrentMergeScheduler {
         }
     }
 
+    /**
+     * Sets the IO rate non forced merges are throttled to and applies it to the running merges. This
+     * only has an effect when the auto IO throttle is enabled, and the auto throttle may move the rate
+     * again when new merges get registered.
+     */
+    protected synchronized void setTargetMBPerSec(double mbPerSec) {
+        targetMBPerSec = mbPerSec;
+        updateMergeThreads();
+    }
+
     /**
      * A callback allowing for custom logic before an actual merge starts.
      */
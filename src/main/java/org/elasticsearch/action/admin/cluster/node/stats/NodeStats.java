@@ -32,11 +32,13 @@ import org.elasticsearch.http.HttpStats;
 import org.elasticsearch.indices.NodeIndicesStats;
 import org.elasticsearch.indices.breaker.AllCircuitBreakerStats;
 import org.elasticsearch.indices.breaker.CircuitBreakerStats;
+import org.elasticsearch.indices.cache.filter.terms.TermsLookupCacheStats;
 import org.elasticsearch.monitor.fs.FsStats;
 import org.elasticsearch.monitor.jvm.JvmStats;
 import org.elasticsearch.monitor.network.NetworkStats;
 import org.elasticsearch.monitor.os.OsStats;
 import org.elasticsearch.monitor.process.ProcessStats;
+import org.elasticsearch.script.ScriptStats;
 import org.elasticsearch.threadpool.ThreadPoolStats;
 import org.elasticsearch.transport.TransportStats;
 
@@ -80,13 +82,20 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
     @Nullable
     private AllCircuitBreakerStats breaker;
 
+    @Nullable
+    private TermsLookupCacheStats termsLookupCache;
+
+    @Nullable
+    private ScriptStats script;
+
     NodeStats() {
     }
 
     public NodeStats(DiscoveryNode node, long timestamp, @Nullable NodeIndicesStats indices,
                      @Nullable OsStats os, @Nullable ProcessStats process, @Nullable JvmStats jvm, @Nullable ThreadPoolStats threadPool,
                      @Nullable NetworkStats network, @Nullable FsStats fs, @Nullable TransportStats transport, @Nullable HttpStats http,
-                     @Nullable AllCircuitBreakerStats breaker) {
+                     @Nullable AllCircuitBreakerStats breaker, @Nullable TermsLookupCacheStats termsLookupCache,
+                     @Nullable ScriptStats script) {
         super(node);
         this.timestamp = timestamp;
         this.indices = indices;
@@ -99,6 +108,8 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         this.transport = transport;
         this.http = http;
         this.breaker = breaker;
+        this.termsLookupCache = termsLookupCache;
+        this.script = script;
     }
 
     public long getTimestamp() {
@@ -181,6 +192,22 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         return this.breaker;
     }
 
+    /**
+     * Statistics of the cache of the terms looked up by terms filters.
+     */
+    @Nullable
+    public TermsLookupCacheStats getTermsLookupCache() {
+        return this.termsLookupCache;
+    }
+
+    /**
+     * Statistics of the script compilations and of the cache of compiled scripts.
+     */
+    @Nullable
+    public ScriptStats getScriptStats() {
+        return this.script;
+    }
+
     public static NodeStats readNodeStats(StreamInput in) throws IOException {
         NodeStats nodeInfo = new NodeStats();
         nodeInfo.readFrom(in);
@@ -219,7 +246,12 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
             http = HttpStats.readHttpStats(in);
         }
         breaker = AllCircuitBreakerStats.readOptionalAllCircuitBreakerStats(in);
-
+        if (in.readBoolean()) {
+            termsLookupCache = TermsLookupCacheStats.readTermsLookupCacheStats(in);
+        }
+        if (in.readBoolean()) {
+            script = ScriptStats.readScriptStats(in);
+        }
     }
 
     @Override
@@ -281,6 +313,8 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
             http.writeTo(out);
         }
         out.writeOptionalStreamable(breaker);
+        out.writeOptionalStreamable(termsLookupCache);
+        out.writeOptionalStreamable(script);
     }
 
     @Override
@@ -331,6 +365,12 @@ public class NodeStats extends NodeOperationResponse implements ToXContent {
         if (getBreaker() != null) {
             getBreaker().toXContent(builder, params);
         }
+        if (getTermsLookupCache() != null) {
+            getTermsLookupCache().toXContent(builder, params);
+        }
+        if (getScriptStats() != null) {
+            getScriptStats().toXContent(builder, params);
+        }
 
         return builder;
     }
@@ -41,6 +41,8 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
     private boolean transport;
     private boolean http;
     private boolean breaker;
+    private boolean termsLookupCache;
+    private boolean script;
 
     protected NodesStatsRequest() {
     }
@@ -67,6 +69,8 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         this.transport = true;
         this.http = true;
         this.breaker = true;
+        this.termsLookupCache = true;
+        this.script = true;
         return this;
     }
 
@@ -84,6 +88,8 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         this.transport = false;
         this.http = false;
         this.breaker = false;
+        this.termsLookupCache = false;
+        this.script = false;
         return this;
     }
 
@@ -240,6 +246,30 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         return this;
     }
 
+    public boolean termsLookupCache() {
+        return this.termsLookupCache;
+    }
+
+    /**
+     * Should the stats of the cache of the terms looked up by terms filters be returned.
+     */
+    public NodesStatsRequest termsLookupCache(boolean termsLookupCache) {
+        this.termsLookupCache = termsLookupCache;
+        return this;
+    }
+
+    public boolean script() {
+        return this.script;
+    }
+
+    /**
+     * Should the script compilation and script cache stats be returned.
+     */
+    public NodesStatsRequest script(boolean script) {
+        this.script = script;
+        return this;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -253,6 +283,8 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         transport = in.readBoolean();
         http = in.readBoolean();
         breaker = in.readBoolean();
+        termsLookupCache = in.readBoolean();
+        script = in.readBoolean();
     }
 
     @Override
@@ -268,6 +300,8 @@ public class NodesStatsRequest extends NodesOperationRequest<NodesStatsRequest>
         out.writeBoolean(transport);
         out.writeBoolean(http);
         out.writeBoolean(breaker);
+        out.writeBoolean(termsLookupCache);
+        out.writeBoolean(script);
     }
 
 }
@@ -62,6 +62,22 @@ public class NodesStatsRequestBuilder extends NodesOperationRequestBuilder<Nodes
         return this;
     }
 
+    /**
+     * Should the stats of the cache of the terms looked up by terms filters be returned.
+     */
+    public NodesStatsRequestBuilder setTermsLookupCache(boolean termsLookupCache) {
+        request.termsLookupCache(termsLookupCache);
+        return this;
+    }
+
+    /**
+     * Should the script compilation and script cache stats be returned.
+     */
+    public NodesStatsRequestBuilder setScript(boolean script) {
+        request.script(script);
+        return this;
+    }
+
     /**
      * Should the node indices stats be returned.
      */
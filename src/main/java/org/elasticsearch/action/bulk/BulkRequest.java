@@ -246,7 +246,17 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
     }
 
     public BulkRequest add(BytesReference data, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String defaultRouting, @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
-        XContent xContent = XContentFactory.xContent(data);
+        addComplete(data, XContentFactory.xContent(data), defaultIndex, defaultType, defaultRouting, payload, allowExplicitIndex);
+        return this;
+    }
+
+    /**
+     * Adds the complete actions of a framed data in binary format, and returns the number of bytes consumed. A trailing
+     * partial line, or an action line whose source line has not been seen yet, is not consumed so it can be added again
+     * once more data is available.
+     */
+    public int addComplete(BytesReference data, XContent xContent, @Nullable String defaultIndex, @Nullable String defaultType, @Nullable String defaultRouting, @Nullable Object payload, boolean allowExplicitIndex) throws Exception {
+        int consumed = 0;
         int from = 0;
         int length = data.length();
         byte marker = xContent.streamSeparator();
@@ -264,6 +274,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
                 // Move to START_OBJECT
                 XContentParser.Token token = parser.nextToken();
                 if (token == null) {
+                    consumed = from;
                     continue;
                 }
                 assert token == XContentParser.Token.START_OBJECT;
@@ -327,6 +338,7 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
 
                 if ("delete".equals(action)) {
                     add(new DeleteRequest(index, type, id).routing(routing).parent(parent).version(version).versionType(versionType), payload);
+                    consumed = from;
                 } else {
                     nextMarker = findNextMarker(marker, from, data, length);
                     if (nextMarker == -1) {
@@ -374,10 +386,11 @@ public class BulkRequest extends ActionRequest<BulkRequest> implements Composite
                     }
                     // move pointers
                     from = nextMarker + 1;
+                    consumed = from;
                 }
             }
         }
-        return this;
+        return consumed;
     }
 
     /**
@@ -394,6 +394,7 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         final long version = operation.version();
         indexRequest.versionType(indexRequest.versionType().versionTypeForReplicationAndRecovery());
         indexRequest.version(version);
+        indexRequest.seqNo(operation.seqNo());
 
         assert indexRequest.versionType().validateVersionForWrites(indexRequest.version());
 
@@ -407,6 +408,7 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
         // update the request with the version so it will go to the replicas
         deleteRequest.versionType(delete.versionType().versionTypeForReplicationAndRecovery());
         deleteRequest.version(delete.version());
+        deleteRequest.seqNo(delete.seqNo());
 
         assert deleteRequest.versionType().validateVersionForWrites(deleteRequest.version());
 
@@ -535,6 +537,7 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                     if (update != null) {
                         throw new RetryOnReplicaException(shardId, "Mappings are not available on the replica yet, triggered update: " + update);
                     }
+                    operation.seqNo(indexRequest.seqNo());
                     operation.execute(indexShard);
                 } catch (Throwable e) {
                     // if its not an ignore replica failure, we need to make sure to bubble up the failure
@@ -547,6 +550,7 @@ public class TransportShardBulkAction extends TransportShardReplicationOperation
                 DeleteRequest deleteRequest = (DeleteRequest) item.request();
                 try {
                     Engine.Delete delete = indexShard.prepareDelete(deleteRequest.type(), deleteRequest.id(), deleteRequest.version(), deleteRequest.versionType(), Engine.Operation.Origin.REPLICA);
+                    delete.seqNo(deleteRequest.seqNo());
                     indexShard.delete(delete);
                 } catch (Throwable e) {
                     // if its not an ignore replica failure, we need to make sure to bubble up the failure
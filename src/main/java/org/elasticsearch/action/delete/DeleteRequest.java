@@ -28,6 +28,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.lucene.uid.Versions;
 import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 
 import java.io.IOException;
 
@@ -53,6 +54,7 @@ public class DeleteRequest extends ShardReplicationOperationRequest<DeleteReques
     private boolean refresh;
     private long version = Versions.MATCH_ANY;
     private VersionType versionType = VersionType.INTERNAL;
+    private long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
 
     public DeleteRequest() {
     }
@@ -224,6 +226,18 @@ public class DeleteRequest extends ShardReplicationOperationRequest<DeleteReques
         return this.versionType;
     }
 
+    /**
+     * Sets the sequence number the primary assigned to the operation, sent along to the replicas.
+     */
+    public DeleteRequest seqNo(long seqNo) {
+        this.seqNo = seqNo;
+        return this;
+    }
+
+    public long seqNo() {
+        return this.seqNo;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -233,6 +247,7 @@ public class DeleteRequest extends ShardReplicationOperationRequest<DeleteReques
         refresh = in.readBoolean();
         version = in.readLong();
         versionType = VersionType.fromValue(in.readByte());
+        seqNo = in.readLong();
     }
 
     @Override
@@ -244,6 +259,7 @@ public class DeleteRequest extends ShardReplicationOperationRequest<DeleteReques
         out.writeBoolean(refresh);
         out.writeLong(version);
         out.writeByte(versionType.getValue());
+        out.writeLong(seqNo);
     }
 
     @Override
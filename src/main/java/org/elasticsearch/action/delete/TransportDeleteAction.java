@@ -135,6 +135,7 @@ public class TransportDeleteAction extends TransportShardReplicationOperationAct
         // update the request with teh version so it will go to the replicas
         request.versionType(delete.versionType().versionTypeForReplicationAndRecovery());
         request.version(delete.version());
+        request.seqNo(delete.seqNo());
 
         assert request.versionType().validateVersionForWrites(request.version());
 
@@ -154,6 +155,7 @@ public class TransportDeleteAction extends TransportShardReplicationOperationAct
     protected void shardOperationOnReplica(ShardId shardId, DeleteRequest request) {
         IndexShard indexShard = indicesService.indexServiceSafe(shardId.getIndex()).shardSafe(shardId.id());
         Engine.Delete delete = indexShard.prepareDelete(request.type(), request.id(), request.version(), request.versionType(), Engine.Operation.Origin.REPLICA);
+        delete.seqNo(request.seqNo());
 
         indexShard.delete(delete);
 
@@ -29,6 +29,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 
 import java.io.IOException;
 import java.util.Arrays;
@@ -50,6 +51,7 @@ public class ShardDeleteByQueryRequest extends ShardReplicationOperationRequest<
     @Nullable
     private String[] filteringAliases;
     private long nowInMillis;
+    private long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
 
     private OriginalIndices originalIndices;
 
@@ -103,6 +105,17 @@ public class ShardDeleteByQueryRequest extends ShardReplicationOperationRequest<
         return nowInMillis;
     }
 
+    void seqNo(long seqNo) {
+        this.seqNo = seqNo;
+    }
+
+    /**
+     * The sequence number the primary assigned to the delete by query, sent along to the replicas.
+     */
+    long seqNo() {
+        return seqNo;
+    }
+
     @Override
     public String[] indices() {
         return originalIndices.indices();
@@ -135,6 +148,7 @@ public class ShardDeleteByQueryRequest extends ShardReplicationOperationRequest<
         }
 
         nowInMillis = in.readVLong();
+        seqNo = in.readLong();
         originalIndices = OriginalIndices.readOriginalIndices(in);
     }
 
@@ -161,6 +175,7 @@ public class ShardDeleteByQueryRequest extends ShardReplicationOperationRequest<
             out.writeVInt(0);
         }
         out.writeVLong(nowInMillis);
+        out.writeLong(seqNo);
         OriginalIndices.writeOriginalIndices(originalIndices, out);
     }
 
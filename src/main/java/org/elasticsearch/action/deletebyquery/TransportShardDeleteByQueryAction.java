@@ -98,6 +98,8 @@ public class TransportShardDeleteByQueryAction extends TransportShardReplication
             Engine.DeleteByQuery deleteByQuery = indexShard.prepareDeleteByQuery(request.source(), request.filteringAliases(), Engine.Operation.Origin.PRIMARY, request.types());
             SearchContext.current().parsedQuery(new ParsedQuery(deleteByQuery.query()));
             indexShard.deleteByQuery(deleteByQuery);
+            // pass the sequence number on to the replicas
+            request.seqNo(deleteByQuery.seqNo());
         } finally {
             try (SearchContext searchContext = SearchContext.current()) {
                 SearchContext.removeCurrent();
@@ -117,6 +119,7 @@ public class TransportShardDeleteByQueryAction extends TransportShardReplication
                 pageCacheRecycler, bigArrays, threadPool.estimatedTimeInMillisCounter()));
         try {
             Engine.DeleteByQuery deleteByQuery = indexShard.prepareDeleteByQuery(request.source(), request.filteringAliases(), Engine.Operation.Origin.REPLICA, request.types());
+            deleteByQuery.seqNo(request.seqNo());
             SearchContext.current().parsedQuery(new ParsedQuery(deleteByQuery.query()));
             indexShard.deleteByQuery(deleteByQuery);
         } finally {
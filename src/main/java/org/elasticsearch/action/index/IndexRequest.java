@@ -40,6 +40,7 @@ import org.elasticsearch.common.xcontent.*;
 import org.elasticsearch.index.VersionType;
 import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.index.mapper.internal.TimestampFieldMapper;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 
 import java.io.IOException;
 import java.util.Locale;
@@ -145,6 +146,7 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
     private boolean refresh = false;
     private long version = Versions.MATCH_ANY;
     private VersionType versionType = VersionType.INTERNAL;
+    private long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
 
     private XContentType contentType = Requests.INDEX_CONTENT_TYPE;
 
@@ -552,6 +554,18 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         return this.versionType;
     }
 
+    /**
+     * Sets the sequence number the primary assigned to the operation, sent along to the replicas.
+     */
+    public IndexRequest seqNo(long seqNo) {
+        this.seqNo = seqNo;
+        return this;
+    }
+
+    public long seqNo() {
+        return this.seqNo;
+    }
+
     /**
      * Has the id been auto generated?
      */
@@ -661,6 +675,7 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         version = in.readLong();
         versionType = VersionType.fromValue(in.readByte());
         autoGeneratedId = in.readBoolean();
+        seqNo = in.readLong();
     }
 
     @Override
@@ -678,6 +693,7 @@ public class IndexRequest extends ShardReplicationOperationRequest<IndexRequest>
         out.writeLong(version);
         out.writeByte(versionType.getValue());
         out.writeBoolean(autoGeneratedId);
+        out.writeLong(seqNo);
     }
 
     @Override
@@ -218,6 +218,7 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
         final long version = operation.version();
         request.version(version);
         request.versionType(request.versionType().versionTypeForReplicationAndRecovery());
+        request.seqNo(operation.seqNo());
 
         assert request.versionType().validateVersionForWrites(request.version());
         return new Tuple<>(new IndexResponse(shardRequest.shardId.getIndex(), request.type(), request.id(), version, created), shardRequest.request);
@@ -241,6 +242,7 @@ public class TransportIndexAction extends TransportShardReplicationOperationActi
         if (update != null) {
             throw new RetryOnReplicaException(shardId, "Mappings are not available on the replica yet, triggered update: " + update);
         }
+        operation.seqNo(request.seqNo());
         operation.execute(indexShard);
         if (request.refresh()) {
             try {
@@ -24,16 +24,20 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.StatusToXContent;
+import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.Aggregations;
+import org.elasticsearch.search.internal.InternalSearchHits;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.suggest.Suggest;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.elasticsearch.action.search.ShardSearchFailure.readShardSearchFailure;
 import static org.elasticsearch.search.internal.InternalSearchResponse.readInternalSearchResponse;
@@ -177,6 +181,49 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        toXContentHeader(builder, params);
+        internalResponse.toXContent(builder, params);
+        return builder;
+    }
+
+    /**
+     * Splits {@link #toXContent(XContentBuilder, Params)} into parts that each render at most <tt>hitsPerPart</tt>
+     * hits, so the response can be rendered incrementally. The parts must be rendered in order into the same builder.
+     */
+    public List<ToXContent> toXContentParts(int hitsPerPart) {
+        final InternalSearchHits hits = internalResponse.internalHits();
+        List<ToXContent> parts = new ArrayList<>();
+        parts.add(new ToXContent() {
+            @Override
+            public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+                toXContentHeader(builder, params);
+                hits.toXContentStart(builder, params);
+                return builder;
+            }
+        });
+        for (int i = 0; i < hits.internalHits().length; i += hitsPerPart) {
+            final int from = i;
+            final int to = Math.min(i + hitsPerPart, hits.internalHits().length);
+            parts.add(new ToXContent() {
+                @Override
+                public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+                    hits.toXContentHits(builder, params, from, to);
+                    return builder;
+                }
+            });
+        }
+        parts.add(new ToXContent() {
+            @Override
+            public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+                hits.toXContentEnd(builder, params);
+                internalResponse.toXContentAfterHits(builder, params);
+                return builder;
+            }
+        });
+        return parts;
+    }
+
+    private void toXContentHeader(XContentBuilder builder, Params params) throws IOException {
         if (scrollId != null) {
             builder.field(Fields._SCROLL_ID, scrollId);
         }
@@ -206,8 +253,6 @@ public class SearchResponse extends ActionResponse implements StatusToXContent {
         }
 
         builder.endObject();
-        internalResponse.toXContent(builder, params);
-        return builder;
     }
 
     public static SearchResponse readSearchResponse(StreamInput in) throws IOException {
@@ -69,18 +69,27 @@ import static org.elasticsearch.action.search.type.TransportSearchHelper.interna
  */
 public abstract class TransportSearchTypeAction extends TransportAction<SearchRequest, SearchResponse> {
 
+    /**
+     * The number of shards a search needs to target before the shards are pre-filtered with a can match round trip.
+     */
+    public static final String PRE_FILTER_SHARD_SIZE = "action.search.pre_filter_shard_size";
+    public static final int DEFAULT_PRE_FILTER_SHARD_SIZE = 128;
+
     protected final ClusterService clusterService;
 
     protected final SearchServiceTransportAction searchService;
 
     protected final SearchPhaseController searchPhaseController;
 
+    private final int preFilterShardSize;
+
     public TransportSearchTypeAction(Settings settings, ThreadPool threadPool, ClusterService clusterService,
                                      SearchServiceTransportAction searchService, SearchPhaseController searchPhaseController, ActionFilters actionFilters) {
         super(settings, SearchAction.NAME, threadPool, actionFilters);
         this.clusterService = clusterService;
         this.searchService = searchService;
         this.searchPhaseController = searchPhaseController;
+        this.preFilterShardSize = settings.getAsInt(PRE_FILTER_SHARD_SIZE, DEFAULT_PRE_FILTER_SHARD_SIZE);
     }
 
     protected abstract class BaseAsyncAction<FirstResult extends SearchPhaseResult> extends AbstractAsyncAction {
@@ -136,9 +145,78 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
                 listener.onResponse(new SearchResponse(InternalSearchResponse.empty(), null, 0, 0, buildTookInMillis(), ShardSearchFailure.EMPTY_ARRAY));
                 return;
             }
+            if (request.scroll() == null && shardsIts.size() >= preFilterShardSize) {
+                performCanMatchPhase();
+            } else {
+                performFirstPhases(new boolean[shardsIts.size()]);
+            }
+        }
+
+        /**
+         * Asks one copy of each shard whether the request can match any of its documents, so that shards ruled out by
+         * the min and max values of a required range (typically older time based indices) are not searched at all.
+         * Shards that fail to answer are searched as usual.
+         */
+        void performCanMatchPhase() {
+            final boolean[] skippedShards = new boolean[shardsIts.size()];
+            final AtomicInteger pendingShards = new AtomicInteger(shardsIts.size());
+            int shardIndex = -1;
+            for (final ShardIterator shardIt : shardsIts) {
+                final int index = ++shardIndex;
+                final ShardRouting shard = shardIt.nextOrNull();
+                shardIt.reset();
+                final DiscoveryNode node = shard == null ? null : nodes.get(shard.currentNodeId());
+                if (node == null) {
+                    onCanMatchResult(skippedShards, pendingShards);
+                    continue;
+                }
+                String[] filteringAliases = clusterState.metaData().filteringAliases(shard.index(), request.indices());
+                ShardSearchTransportRequest shardRequest = internalSearchRequest(shard, shardsIts.size(), request, filteringAliases, startTime());
+                searchService.sendCanMatch(node, shardRequest, new ActionListener<SearchServiceTransportAction.CanMatchResponse>() {
+                    @Override
+                    public void onResponse(SearchServiceTransportAction.CanMatchResponse response) {
+                        skippedShards[index] = response.canMatch() == false;
+                        onCanMatchResult(skippedShards, pendingShards);
+                    }
+
+                    @Override
+                    public void onFailure(Throwable t) {
+                        if (logger.isTraceEnabled()) {
+                            logger.trace("{}: failed to check if [{}] can match, searching the shard", t, shard.shortSummary(), request);
+                        }
+                        onCanMatchResult(skippedShards, pendingShards);
+                    }
+                });
+            }
+        }
+
+        private void onCanMatchResult(boolean[] skippedShards, AtomicInteger pendingShards) {
+            if (pendingShards.decrementAndGet() == 0) {
+                performFirstPhases(skippedShards);
+            }
+        }
+
+        void performFirstPhases(boolean[] skippedShards) {
+            boolean allSkipped = true;
+            for (boolean skipped : skippedShards) {
+                allSkipped &= skipped;
+            }
+            if (allSkipped) {
+                // we still need a single shard response to build an (empty) response with the right shape, search
+                // a shard with an active copy on a known node so that the response is empty rather than failed
+                skippedShards[searchableShardIndex()] = false;
+            }
             int shardIndex = -1;
             for (final ShardIterator shardIt : shardsIts) {
                 shardIndex++;
+                if (skippedShards[shardIndex]) {
+                    if (logger.isTraceEnabled()) {
+                        logger.trace("{}: skipping shard, [{}] can't match any of its documents", shardIt.shardId(), request);
+                    }
+                    // a skipped shard counts as successful, none of its copies will be tried
+                    onShardDone(shardIt, shardIt.remaining());
+                    continue;
+                }
                 final ShardRouting shard = shardIt.nextOrNull();
                 if (shard != null) {
                     performFirstPhase(shardIndex, shardIt, shard);
@@ -149,6 +227,27 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
             }
         }
 
+        /**
+         * Returns the index of the first shard that has an active copy on a known node, the first shard if there is none
+         */
+        private int searchableShardIndex() {
+            int shardIndex = -1;
+            for (ShardIterator shardIt : shardsIts) {
+                shardIndex++;
+                ShardRouting shard;
+                while ((shard = shardIt.nextOrNull()) != null) {
+                    if (nodes.get(shard.currentNodeId()) != null) {
+                        break;
+                    }
+                }
+                shardIt.reset();
+                if (shard != null) {
+                    return shardIndex;
+                }
+            }
+            return 0;
+        }
+
         void performFirstPhase(final int shardIndex, final ShardIterator shardIt, final ShardRouting shard) {
             if (shard == null) {
                 // no more active shards... (we should not really get here, but just for safety)
@@ -177,13 +276,17 @@ public abstract class TransportSearchTypeAction extends TransportAction<SearchRe
         void onFirstPhaseResult(int shardIndex, ShardRouting shard, FirstResult result, ShardIterator shardIt) {
             result.shardTarget(new SearchShardTarget(shard.currentNodeId(), shard.index(), shard.id()));
             processFirstPhaseResult(shardIndex, shard, result);
+            // increment all the "future" shards to update the total ops since we some may work and some may not...
+            // and when that happens, we break on total ops, so we must maintain them
+            onShardDone(shardIt, shardIt.remaining() + 1);
+        }
+
+        private void onShardDone(ShardIterator shardIt, int ops) {
             // we need to increment successful ops first before we compare the exit condition otherwise if we
             // are fast we could concurrently update totalOps but then preempt one of the threads which can
             // cause the successor to read a wrong value from successfulOps if second phase is very fast ie. count etc.
             successfulOps.incrementAndGet();
-            // increment all the "future" shards to update the total ops since we some may work and some may not...
-            // and when that happens, we break on total ops, so we must maintain them
-            final int xTotalOps = totalOps.addAndGet(shardIt.remaining() + 1);
+            final int xTotalOps = totalOps.addAndGet(ops);
             if (xTotalOps == expectedTotalOps) {
                 try {
                     innerMoveToSecondPhase();
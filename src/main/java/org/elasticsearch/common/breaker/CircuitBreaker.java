@@ -32,6 +32,7 @@ public interface CircuitBreaker {
     public static final String PARENT = "parent";
     public static final String FIELDDATA = "fielddata";
     public static final String REQUEST = "request";
+    public static final String IN_FLIGHT_REQUESTS = "in_flight_requests";
 
     public static enum Type {
         // A regular or child MemoryCircuitBreaker
@@ -0,0 +1,198 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.bytes;
+
+import com.google.common.base.Charsets;
+import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.io.stream.InputStreamStreamInput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.channels.GatheringByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link BytesReference} over a sequence of other references, without copying them. Slices that fall
+ * within a single reference are slices of that reference.
+ */
+public class CompositeBytesReference implements BytesReference {
+
+    private final BytesReference[] references;
+    // the offset of each reference, followed by the total length
+    private final int[] offsets;
+
+    public CompositeBytesReference(BytesReference... references) {
+        List<BytesReference> flattened = new ArrayList<>(references.length);
+        for (BytesReference reference : references) {
+            if (reference instanceof CompositeBytesReference) {
+                Collections.addAll(flattened, ((CompositeBytesReference) reference).references);
+            } else if (reference.length() > 0) {
+                flattened.add(reference);
+            }
+        }
+        this.references = flattened.toArray(new BytesReference[flattened.size()]);
+        this.offsets = new int[this.references.length + 1];
+        for (int i = 0; i < this.references.length; i++) {
+            offsets[i + 1] = offsets[i] + this.references[i].length();
+        }
+    }
+
+    /**
+     * Returns the index of the reference that holds the byte at the given offset.
+     */
+    private int referenceIndex(int offset) {
+        int index = Arrays.binarySearch(offsets, 0, references.length, offset);
+        return index >= 0 ? index : -(index + 1) - 1;
+    }
+
+    @Override
+    public byte get(int index) {
+        int i = referenceIndex(index);
+        return references[i].get(index - offsets[i]);
+    }
+
+    @Override
+    public int length() {
+        return offsets[references.length];
+    }
+
+    @Override
+    public BytesReference slice(int from, int length) {
+        if (from < 0 || length < 0 || (from + length) > length()) {
+            throw new ElasticsearchIllegalArgumentException("can't slice a buffer with length [" + length() + "], with slice parameters from [" + from + "], length [" + length + "]");
+        }
+        if (length == 0) {
+            return BytesArray.EMPTY;
+        }
+        int first = referenceIndex(from);
+        int last = referenceIndex(from + length - 1);
+        if (first == last) {
+            return references[first].slice(from - offsets[first], length);
+        }
+        BytesReference[] slices = new BytesReference[last - first + 1];
+        slices[0] = references[first].slice(from - offsets[first], offsets[first + 1] - from);
+        for (int i = first + 1; i < last; i++) {
+            slices[i - first] = references[i];
+        }
+        slices[slices.length - 1] = references[last].slice(0, from + length - offsets[last]);
+        return new CompositeBytesReference(slices);
+    }
+
+    @Override
+    public StreamInput streamInput() {
+        List<InputStream> streams = new ArrayList<>(references.length);
+        for (BytesReference reference : references) {
+            streams.add(reference.streamInput());
+        }
+        return new InputStreamStreamInput(new SequenceInputStream(Collections.enumeration(streams)));
+    }
+
+    @Override
+    public void writeTo(OutputStream os) throws IOException {
+        for (BytesReference reference : references) {
+            reference.writeTo(os);
+        }
+    }
+
+    @Override
+    public void writeTo(GatheringByteChannel channel) throws IOException {
+        for (BytesReference reference : references) {
+            reference.writeTo(channel);
+        }
+    }
+
+    @Override
+    public byte[] toBytes() {
+        byte[] bytes = new byte[length()];
+        for (int i = 0; i < references.length; i++) {
+            BytesArray array = references[i].toBytesArray();
+            System.arraycopy(array.array(), array.arrayOffset(), bytes, offsets[i], array.length());
+        }
+        return bytes;
+    }
+
+    @Override
+    public BytesArray toBytesArray() {
+        return new BytesArray(toBytes());
+    }
+
+    @Override
+    public BytesArray copyBytesArray() {
+        return toBytesArray();
+    }
+
+    @Override
+    public ChannelBuffer toChannelBuffer() {
+        ChannelBuffer[] buffers = new ChannelBuffer[references.length];
+        for (int i = 0; i < references.length; i++) {
+            buffers[i] = references[i].toChannelBuffer();
+        }
+        return ChannelBuffers.wrappedBuffer(buffers);
+    }
+
+    @Override
+    public boolean hasArray() {
+        return false;
+    }
+
+    @Override
+    public byte[] array() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int arrayOffset() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String toUtf8() {
+        return new String(toBytes(), Charsets.UTF_8);
+    }
+
+    @Override
+    public BytesRef toBytesRef() {
+        return new BytesRef(toBytes());
+    }
+
+    @Override
+    public BytesRef copyBytesRef() {
+        return toBytesRef();
+    }
+
+    @Override
+    public int hashCode() {
+        return Helper.bytesHashCode(this);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return Helper.bytesEqual(this, (BytesReference) obj);
+    }
+}
@@ -0,0 +1,498 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.ElasticsearchIllegalStateException;
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A concurrent cache bounded by the total weight of its entries, built with a {@link CacheBuilder}.
+ * <p/>
+ * The cache is striped into segments that each own a share of the maximum weight. Reads are lock free, a hit
+ * only looks up the segment's concurrent map and sets the reference bit of the entry. Writes take the lock of
+ * their segment and evict with the clock (second chance) algorithm: the hand walks the entries of the segment
+ * in insertion order, entries that were read since the hand last passed them get another round and the others
+ * are evicted, until the segment fits its share again. Compared to a LRU this keeps reads free of any queue
+ * or lock.
+ * <p/>
+ * Entries are weighed once, when they are added, and the very same weight is subtracted when they are removed,
+ * so {@link #weight()} is always the sum of the weights of the entries in the cache. Removal listeners are
+ * notified outside of the segment locks, on the thread that caused the removal.
+ */
+public class Cache<K, V> {
+
+    private final Segment<K, V>[] segments;
+    private final int segmentShift;
+    private final int segmentMask;
+
+    private final Weigher<K, V> weigher;
+    @Nullable
+    private final RemovalListener<K, V> removalListener;
+    private final long expireAfterAccessNanos;
+
+    @SuppressWarnings("unchecked")
+    Cache(long maximumWeight, Weigher<K, V> weigher, @Nullable RemovalListener<K, V> removalListener, long expireAfterAccessNanos, int concurrencyLevel) {
+        this.weigher = weigher;
+        this.removalListener = removalListener;
+        this.expireAfterAccessNanos = expireAfterAccessNanos;
+        // don't split small caches into segments that can only hold a handful of entries each
+        int shift = 0;
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount < (1 << 16) && (maximumWeight < 0 || segmentCount * 20L <= maximumWeight)) {
+            shift++;
+            segmentCount <<= 1;
+        }
+        this.segmentShift = 32 - shift;
+        this.segmentMask = segmentCount - 1;
+        this.segments = new Segment[segmentCount];
+        // spread the remainder so that the shares of the segments sum up to the maximum weight
+        long remainder = maximumWeight < 0 ? 0 : maximumWeight % segmentCount;
+        for (int i = 0; i < segmentCount; i++) {
+            long segmentMaximumWeight = -1;
+            if (maximumWeight >= 0) {
+                segmentMaximumWeight = maximumWeight / segmentCount + (i < remainder ? 1 : 0);
+            }
+            segments[i] = new Segment<>(this, segmentMaximumWeight);
+        }
+    }
+
+    /**
+     * Returns the value of the key, or <tt>null</tt> if the key is not in the cache.
+     */
+    public V get(K key) {
+        return segmentFor(key).get(key, now());
+    }
+
+    /**
+     * Returns the value of the key, computing it with the loader and adding it to the cache if the key is missing.
+     * Concurrent callers for the same missing key wait for a single load. A failure of the loader, including a
+     * <tt>null</tt> value, is thrown to every waiting caller wrapped in an {@link ExecutionException}.
+     */
+    public V computeIfAbsent(final K key, final CacheLoader<K, V> loader) throws ExecutionException {
+        final Segment<K, V> segment = segmentFor(key);
+        V value = segment.get(key, now());
+        if (value != null) {
+            return value;
+        }
+        FutureTask<V> load = new FutureTask<>(new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                // the previous load of the key may have finished between our lookup and the registration of this one
+                V value = segment.get(key, now());
+                if (value == null) {
+                    value = loader.load(key);
+                    if (value == null) {
+                        throw new ElasticsearchIllegalStateException("loader returned a null value for key [" + key + "]");
+                    }
+                    segment.put(key, value, now());
+                }
+                return value;
+            }
+        });
+        FutureTask<V> pending = segment.loads.putIfAbsent(key, load);
+        if (pending == null) {
+            pending = load;
+            try {
+                load.run();
+            } finally {
+                segment.loads.remove(key, load);
+            }
+        }
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return pending.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Adds the value to the cache, replacing the current value of the key if there is one.
+     */
+    public void put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("null keys and values are not supported");
+        }
+        segmentFor(key).put(key, value, now());
+    }
+
+    /**
+     * Removes the key from the cache, if it is there.
+     */
+    public void invalidate(K key) {
+        segmentFor(key).remove(key, null, RemovalNotification.RemovalReason.INVALIDATED);
+    }
+
+    /**
+     * Removes all the entries of the cache.
+     */
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            segment.invalidateAll();
+        }
+    }
+
+    /**
+     * Removes expired entries and compacts the eviction order of every segment. Expired entries are otherwise only
+     * removed when they are read or reached by the eviction hand.
+     */
+    public void cleanUp() {
+        long now = now();
+        for (Segment<K, V> segment : segments) {
+            segment.cleanUp(now);
+        }
+    }
+
+    /**
+     * The number of entries in the cache.
+     */
+    public long count() {
+        long count = 0;
+        for (Segment<K, V> segment : segments) {
+            count += segment.map.size();
+        }
+        return count;
+    }
+
+    /**
+     * The sum of the weights of the entries in the cache.
+     */
+    public long weight() {
+        long weight = 0;
+        for (Segment<K, V> segment : segments) {
+            weight += segment.weight;
+        }
+        return weight;
+    }
+
+    /**
+     * The keys of the cache. Iteration is weakly consistent and never throws a
+     * {@link java.util.ConcurrentModificationException}, removing a key through the iterator invalidates it.
+     */
+    public Iterable<K> keys() {
+        return new Iterable<K>() {
+            @Override
+            public Iterator<K> iterator() {
+                return new CacheIterator<K>() {
+                    @Override
+                    K extract(Entry<K, V> entry) {
+                        return entry.key;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * The values of the cache, see {@link #keys()}.
+     */
+    public Iterable<V> values() {
+        return new Iterable<V>() {
+            @Override
+            public Iterator<V> iterator() {
+                return new CacheIterator<V>() {
+                    @Override
+                    V extract(Entry<K, V> entry) {
+                        return entry.value;
+                    }
+                };
+            }
+        };
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        // the hash codes of the keys are combinations of user hash codes, make sure the high bits are well spread
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        hash ^= hash >>> 16;
+        return segments[(hash >>> segmentShift) & segmentMask];
+    }
+
+    private long now() {
+        return expireAfterAccessNanos > 0 ? System.nanoTime() : 0;
+    }
+
+    private boolean isExpired(Entry<K, V> entry, long now) {
+        return expireAfterAccessNanos > 0 && now - entry.accessTime >= expireAfterAccessNanos;
+    }
+
+    private void notifyRemovals(List<RemovalNotification<K, V>> notifications) {
+        if (removalListener != null) {
+            for (RemovalNotification<K, V> notification : notifications) {
+                removalListener.onRemoval(notification);
+            }
+        }
+    }
+
+    static final class Entry<K, V> {
+        final K key;
+        final V value;
+        final long weight;
+        volatile boolean referenced;
+        volatile long accessTime;
+        // guarded by the segment lock
+        boolean removed;
+
+        Entry(K key, V value, long weight, long now) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.accessTime = now;
+        }
+    }
+
+    static final class Segment<K, V> {
+
+        final Cache<K, V> cache;
+        final long maximumWeight;
+
+        final ConcurrentMap<K, Entry<K, V>> map = ConcurrentCollections.newConcurrentMap();
+        final ConcurrentMap<K, FutureTask<V>> loads = ConcurrentCollections.newConcurrentMap();
+
+        final ReentrantLock lock = new ReentrantLock();
+        // the clock, in the order the hand visits the entries, removed entries are dropped lazily when the hand reaches them
+        final ArrayDeque<Entry<K, V>> clock = new ArrayDeque<>();
+        int removedInClock;
+        // only written under the lock
+        volatile long weight;
+
+        Segment(Cache<K, V> cache, long maximumWeight) {
+            this.cache = cache;
+            this.maximumWeight = maximumWeight;
+        }
+
+        V get(K key, long now) {
+            Entry<K, V> entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (cache.isExpired(entry, now)) {
+                remove(key, entry, RemovalNotification.RemovalReason.EXPIRED);
+                return null;
+            }
+            // avoid writing to shared memory on every hit
+            if (entry.referenced == false) {
+                entry.referenced = true;
+            }
+            if (cache.expireAfterAccessNanos > 0) {
+                entry.accessTime = now;
+            }
+            return entry.value;
+        }
+
+        void put(K key, V value, long now) {
+            Entry<K, V> entry = new Entry<>(key, value, cache.weigher.weigh(key, value), now);
+            List<RemovalNotification<K, V>> notifications = new ArrayList<>(1);
+            lock.lock();
+            try {
+                Entry<K, V> previous = map.put(key, entry);
+                if (previous != null) {
+                    unlink(previous);
+                    notifications.add(new RemovalNotification<>(previous.key, previous.value, RemovalNotification.RemovalReason.REPLACED));
+                }
+                clock.addLast(entry);
+                weight += entry.weight;
+                evict(now, notifications);
+            } finally {
+                lock.unlock();
+            }
+            cache.notifyRemovals(notifications);
+        }
+
+        /**
+         * Removes the entry of the key, only if it is the expected entry when one is provided.
+         */
+        void remove(K key, @Nullable Entry<K, V> expected, RemovalNotification.RemovalReason reason) {
+            if (map.containsKey(key) == false) {
+                return;
+            }
+            Entry<K, V> entry;
+            lock.lock();
+            try {
+                entry = map.get(key);
+                if (entry == null || (expected != null && entry != expected)) {
+                    return;
+                }
+                map.remove(key);
+                unlink(entry);
+            } finally {
+                lock.unlock();
+            }
+            cache.notifyRemovals(Collections.singletonList(new RemovalNotification<>(entry.key, entry.value, reason)));
+        }
+
+        void invalidateAll() {
+            List<RemovalNotification<K, V>> notifications = new ArrayList<>();
+            lock.lock();
+            try {
+                for (Entry<K, V> entry : clock) {
+                    if (entry.removed == false) {
+                        entry.removed = true;
+                        notifications.add(new RemovalNotification<>(entry.key, entry.value, RemovalNotification.RemovalReason.INVALIDATED));
+                    }
+                }
+                map.clear();
+                clock.clear();
+                removedInClock = 0;
+                weight = 0;
+            } finally {
+                lock.unlock();
+            }
+            cache.notifyRemovals(notifications);
+        }
+
+        void cleanUp(long now) {
+            List<RemovalNotification<K, V>> notifications = new ArrayList<>();
+            lock.lock();
+            try {
+                for (Iterator<Entry<K, V>> it = clock.iterator(); it.hasNext(); ) {
+                    Entry<K, V> entry = it.next();
+                    if (entry.removed) {
+                        it.remove();
+                    } else if (cache.isExpired(entry, now)) {
+                        it.remove();
+                        map.remove(entry.key, entry);
+                        entry.removed = true;
+                        weight -= entry.weight;
+                        notifications.add(new RemovalNotification<>(entry.key, entry.value, RemovalNotification.RemovalReason.EXPIRED));
+                    }
+                }
+                removedInClock = 0;
+            } finally {
+                lock.unlock();
+            }
+            cache.notifyRemovals(notifications);
+        }
+
+        /**
+         * Marks an entry that was removed from the map as removed, it stays in the clock until the hand reaches it.
+         */
+        private void unlink(Entry<K, V> entry) {
+            assert lock.isHeldByCurrentThread();
+            entry.removed = true;
+            weight -= entry.weight;
+            removedInClock++;
+        }
+
+        private void evict(long now, List<RemovalNotification<K, V>> notifications) {
+            assert lock.isHeldByCurrentThread();
+            if (maximumWeight >= 0) {
+                // terminates: every entry the hand gives a second chance is evicted at the latest on the next round
+                while (weight > maximumWeight) {
+                    Entry<K, V> entry = clock.pollFirst();
+                    if (entry == null) {
+                        throw new ElasticsearchIllegalStateException("cache segment weighs [" + weight + "] but has no entries");
+                    }
+                    if (entry.removed) {
+                        removedInClock--;
+                        continue;
+                    }
+                    boolean expired = cache.isExpired(entry, now);
+                    if (entry.referenced && expired == false) {
+                        entry.referenced = false;
+                        clock.addLast(entry);
+                    } else {
+                        map.remove(entry.key, entry);
+                        entry.removed = true;
+                        weight -= entry.weight;
+                        notifications.add(new RemovalNotification<>(entry.key, entry.value,
+                                expired ? RemovalNotification.RemovalReason.EXPIRED : RemovalNotification.RemovalReason.EVICTED));
+                    }
+                }
+            }
+            // replaced and invalidated entries are only dropped by the hand, don't let them pile up
+            if (removedInClock > 16 && removedInClock > clock.size() / 2) {
+                for (Iterator<Entry<K, V>> it = clock.iterator(); it.hasNext(); ) {
+                    if (it.next().removed) {
+                        it.remove();
+                    }
+                }
+                removedInClock = 0;
+            }
+        }
+    }
+
+    private abstract class CacheIterator<T> implements Iterator<T> {
+
+        private int segment = 0;
+        private Iterator<Entry<K, V>> current = segments[0].map.values().iterator();
+        private Entry<K, V> next;
+        private Entry<K, V> last;
+
+        abstract T extract(Entry<K, V> entry);
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (current.hasNext()) {
+                    next = current.next();
+                } else if (++segment < segments.length) {
+                    current = segments[segment].map.values().iterator();
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public T next() {
+            if (hasNext() == false) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = null;
+            return extract(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException("next was not called or the entry was already removed");
+            }
+            segmentFor(last.key).remove(last.key, last, RemovalNotification.RemovalReason.INVALIDATED);
+            last = null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Builds a {@link Cache}. Without a maximum weight the cache is unbounded, without a weigher every entry weighs
+ * <tt>1</tt>, so that the maximum weight is a maximum number of entries.
+ */
+public class CacheBuilder<K, V> {
+
+    private long maximumWeight = -1;
+    private Weigher<K, V> weigher;
+    private RemovalListener<K, V> removalListener;
+    private long expireAfterAccessNanos = -1;
+    private int concurrencyLevel = 16;
+
+    public static <K, V> CacheBuilder<K, V> builder() {
+        return new CacheBuilder<>();
+    }
+
+    private CacheBuilder() {
+    }
+
+    public CacheBuilder<K, V> setMaximumWeight(long maximumWeight) {
+        if (maximumWeight < 0) {
+            throw new ElasticsearchIllegalArgumentException("maximum weight must be >= 0 but was: " + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        return this;
+    }
+
+    public CacheBuilder<K, V> setExpireAfterAccess(TimeValue expireAfterAccess) {
+        if (expireAfterAccess.nanos() <= 0) {
+            throw new ElasticsearchIllegalArgumentException("expire after access must be > 0 but was: " + expireAfterAccess);
+        }
+        this.expireAfterAccessNanos = expireAfterAccess.nanos();
+        return this;
+    }
+
+    public CacheBuilder<K, V> setConcurrencyLevel(int concurrencyLevel) {
+        if (concurrencyLevel <= 0) {
+            throw new ElasticsearchIllegalArgumentException("concurrency_level must be > 0 but was: " + concurrencyLevel);
+        }
+        this.concurrencyLevel = concurrencyLevel;
+        return this;
+    }
+
+    public CacheBuilder<K, V> weigher(Weigher<K, V> weigher) {
+        this.weigher = weigher;
+        return this;
+    }
+
+    public CacheBuilder<K, V> removalListener(RemovalListener<K, V> removalListener) {
+        this.removalListener = removalListener;
+        return this;
+    }
+
+    public Cache<K, V> build() {
+        Weigher<K, V> weigher = this.weigher;
+        if (weigher == null) {
+            weigher = new Weigher<K, V>() {
+                @Override
+                public long weigh(K key, V value) {
+                    return 1;
+                }
+            };
+        }
+        return new Cache<>(maximumWeight, weigher, removalListener, expireAfterAccessNanos, concurrencyLevel);
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+/**
+ * The key and value of an entry that was removed from a {@link Cache}, and the reason it was removed.
+ */
+public class RemovalNotification<K, V> {
+
+    public enum RemovalReason {
+        /** the entry was replaced by a {@link Cache#put(Object, Object) put} of the same key */
+        REPLACED,
+        /** the entry was explicitly invalidated */
+        INVALIDATED,
+        /** the entry was evicted to keep the cache under its maximum weight */
+        EVICTED,
+        /** the entry was not accessed within the expire after access time */
+        EXPIRED
+    }
+
+    private final K key;
+    private final V value;
+    private final RemovalReason removalReason;
+
+    public RemovalNotification(K key, V value, RemovalReason removalReason) {
+        this.key = key;
+        this.value = value;
+        this.removalReason = removalReason;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    public RemovalReason getRemovalReason() {
+        return removalReason;
+    }
+
+    /**
+     * Returns <tt>true</tt> if the entry was removed by the cache itself, either because of its weight or because
+     * it expired, and not because it was replaced or explicitly invalidated.
+     */
+    public boolean wasEvicted() {
+        return removalReason == RemovalReason.EVICTED || removalReason == RemovalReason.EXPIRED;
+    }
+}
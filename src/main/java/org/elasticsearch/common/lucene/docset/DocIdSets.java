@@ -53,7 +53,46 @@ public class DocIdSets {
     }
 
     /**
-     * Converts to a cacheable {@link DocIdSet}
+     * The ways a cacheable {@link DocIdSet} can be represented, from the most to the least compact for sparse sets.
+     */
+    public static enum Representation {
+        EMPTY("empty"),
+        SORTED_INTS("sorted_ints"),
+        ROARING("roaring"),
+        BITSET("bitset"),
+        OTHER("other");
+
+        private final String name;
+
+        Representation(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    /**
+     * Returns how the given {@link DocIdSet} is represented.
+     */
+    public static Representation representation(@Nullable DocIdSet set) {
+        if (isEmpty(set)) {
+            return Representation.EMPTY;
+        } else if (set instanceof SortedIntDocIdSet) {
+            return Representation.SORTED_INTS;
+        } else if (set instanceof RoaringDocIdSet) {
+            return Representation.ROARING;
+        } else if (set instanceof BitDocIdSet) {
+            return Representation.BITSET;
+        }
+        return Representation.OTHER;
+    }
+
+    /**
+     * Converts to a cacheable {@link DocIdSet}, picking the most compact representation given the density of the set:
+     * a sorted array of doc ids for very sparse sets, a {@link RoaringDocIdSet} for other sparse sets and the bit set the
+     * set may already be for dense ones.
      * <p/>
      * This never returns <code>null</code>.
      */
@@ -69,17 +108,49 @@ public class DocIdSets {
         if (firstDoc == DocIdSetIterator.NO_MORE_DOCS) {
             return DocIdSet.EMPTY;
         }
-        if (set instanceof BitDocIdSet) {
+        if (set instanceof SortedIntDocIdSet) {
             return set;
         }
+        if (set instanceof RoaringDocIdSet) {
+            return compact((RoaringDocIdSet) set);
+        }
+        if (set instanceof BitDocIdSet) {
+            // only re-encode bit sets that are sparse enough to shrink
+            final long cardinality = ((BitDocIdSet) set).bits().approximateCardinality();
+            if (set.ramBytesUsed() <= ramBytesUsedWhenSparse(reader.maxDoc(), cardinality)) {
+                return set;
+            }
+        }
 
         final RoaringDocIdSet.Builder builder = new RoaringDocIdSet.Builder(reader.maxDoc());
         builder.add(firstDoc);
         for (int doc = it.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = it.nextDoc()) {
            builder.add(doc);
         }
+        return compact(builder.build());
+    }
 
-        return builder.build();
+    private static DocIdSet compact(RoaringDocIdSet roaring) throws IOException {
+        // roaring sets have a fixed overhead per block of 65536 docs, which dominates for very sparse sets
+        final int cardinality = roaring.cardinality();
+        if (SortedIntDocIdSet.ramBytesUsed(cardinality) < roaring.ramBytesUsed()) {
+            final int[] docs = new int[cardinality];
+            final DocIdSetIterator roaringIt = roaring.iterator();
+            for (int i = 0; i < cardinality; i++) {
+                docs[i] = roaringIt.nextDoc();
+            }
+            return new SortedIntDocIdSet(docs);
+        }
+        return roaring;
+    }
+
+    /**
+     * A lower bound of the memory a set with the given cardinality would take if it was encoded as a sparse set.
+     */
+    private static long ramBytesUsedWhenSparse(int maxDoc, long cardinality) {
+        // a roaring set stores up to 4096 docs per block of 65536 docs as shorts, and denser blocks as bit sets
+        final long numBlocks = (maxDoc + 65535L) >>> 16;
+        return Math.min(cardinality * RamUsageEstimator.NUM_BYTES_SHORT, numBlocks * 8192L);
     }
 
     /**
@@ -0,0 +1,124 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A {@link DocIdSet} backed by a sorted array of doc ids, the most compact representation of very sparse sets.
+ */
+public class SortedIntDocIdSet extends DocIdSet {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(SortedIntDocIdSet.class);
+
+    private final int[] docs;
+
+    /**
+     * Creates a set of the given doc ids, which must be sorted and free of duplicates. The array is not copied.
+     */
+    public SortedIntDocIdSet(int[] docs) {
+        this.docs = docs;
+    }
+
+    /**
+     * Returns the number of bytes a set of the given number of doc ids takes.
+     */
+    public static long ramBytesUsed(int cardinality) {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.alignObjectSize(RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + (long) RamUsageEstimator.NUM_BYTES_INT * cardinality);
+    }
+
+    public int cardinality() {
+        return docs.length;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return BASE_RAM_BYTES_USED + RamUsageEstimator.sizeOf(docs);
+    }
+
+    @Override
+    public DocIdSetIterator iterator() throws IOException {
+        return new Iterator(docs);
+    }
+
+    @Override
+    public String toString() {
+        return "SortedIntDocIdSet(cardinality=" + docs.length + ")";
+    }
+
+    static final class Iterator extends DocIdSetIterator {
+
+        private final int[] docs;
+        private int index = -1;
+        private int doc = -1;
+
+        Iterator(int[] docs) {
+            this.docs = docs;
+        }
+
+        @Override
+        public int docID() {
+            return doc;
+        }
+
+        @Override
+        public int nextDoc() throws IOException {
+            if (++index < docs.length) {
+                return doc = docs[index];
+            }
+            index = docs.length;
+            return doc = NO_MORE_DOCS;
+        }
+
+        @Override
+        public int advance(int target) throws IOException {
+            int from = index + 1;
+            if (from >= docs.length) {
+                index = docs.length;
+                return doc = NO_MORE_DOCS;
+            }
+            // gallop first since targets are usually close to the current doc, then binary search within the bounds found
+            int bound = 1;
+            while (from + bound < docs.length && docs[from + bound] < target) {
+                bound <<= 1;
+            }
+            int found = Arrays.binarySearch(docs, from + (bound >>> 1), Math.min(from + bound + 1, docs.length), target);
+            if (found < 0) {
+                found = -1 - found;
+            }
+            if (found >= docs.length) {
+                index = docs.length;
+                return doc = NO_MORE_DOCS;
+            }
+            index = found;
+            return doc = docs[index];
+        }
+
+        @Override
+        public long cost() {
+            return docs.length;
+        }
+    }
+}
@@ -29,4 +29,9 @@ public abstract class CachedFilter extends Filter {
     public static boolean isCached(Filter filter) {
         return filter instanceof CachedFilter;
     }
+
+    /**
+     * The filter whose results get cached.
+     */
+    public abstract Filter getFilter();
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.search;
+
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.lucene.search.function.FiltersFunctionScoreQuery;
+import org.elasticsearch.common.lucene.search.function.FunctionScoreQuery;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Skips segments that can't match a query because a numeric range the query requires lies outside
+ * of the min and max value the segment holds for the field. The min and max are read from the terms
+ * dictionary of the segment, the same way the field stats API computes them. Only ranges that are
+ * required by the query are considered, that is ranges in must or filter clauses, in filtered queries,
+ * constant score and function score queries, and the should clauses of a boolean query that needs at
+ * least one of them to match. Anything else is assumed to possibly match.
+ */
+public final class SegmentRangePruning {
+
+    private SegmentRangePruning() {
+    }
+
+    /**
+     * Returns the leaves the query may match documents in, the list itself if there is none to skip.
+     */
+    public static List<LeafReaderContext> matchingLeaves(Query query, List<LeafReaderContext> leaves) throws IOException {
+        List<LeafReaderContext> matching = null;
+        for (int i = 0; i < leaves.size(); i++) {
+            LeafReaderContext leaf = leaves.get(i);
+            if (canMatch(query, leaf.reader())) {
+                if (matching != null) {
+                    matching.add(leaf);
+                }
+            } else if (matching == null) {
+                matching = new ArrayList<>(leaves.size() - 1);
+                matching.addAll(leaves.subList(0, i));
+            }
+        }
+        return matching == null ? leaves : matching;
+    }
+
+    /**
+     * Returns <tt>false</tt> if the query can't match any document of the segment.
+     */
+    public static boolean canMatch(Query query, LeafReader reader) throws IOException {
+        if (query instanceof NumericRangeQuery) {
+            return canMatch((NumericRangeQuery<?>) query, reader);
+        } else if (query instanceof QueryWrapperFilter) {
+            return canMatch(((QueryWrapperFilter) query).getQuery(), reader);
+        } else if (query instanceof CachedFilter) {
+            return canMatch(((CachedFilter) query).getFilter(), reader);
+        } else if (query instanceof FilteredQuery) {
+            FilteredQuery filteredQuery = (FilteredQuery) query;
+            return canMatch(filteredQuery.getFilter(), reader) && canMatch(filteredQuery.getQuery(), reader);
+        } else if (query instanceof ConstantScoreQuery) {
+            return canMatch(((ConstantScoreQuery) query).getQuery(), reader);
+        } else if (query instanceof FunctionScoreQuery) {
+            return canMatch(((FunctionScoreQuery) query).getSubQuery(), reader);
+        } else if (query instanceof FiltersFunctionScoreQuery) {
+            return canMatch(((FiltersFunctionScoreQuery) query).getSubQuery(), reader);
+        } else if (query instanceof BooleanQuery) {
+            return canMatch((BooleanQuery) query, reader);
+        }
+        return true;
+    }
+
+    private static boolean canMatch(BooleanQuery query, LeafReader reader) throws IOException {
+        boolean hasRequired = false;
+        int shoulds = 0;
+        boolean anyShouldCanMatch = false;
+        for (BooleanClause clause : query.clauses()) {
+            if (clause.getOccur() == BooleanClause.Occur.MUST || clause.getOccur() == BooleanClause.Occur.FILTER) {
+                hasRequired = true;
+                if (canMatch(clause.getQuery(), reader) == false) {
+                    return false;
+                }
+            } else if (clause.getOccur() == BooleanClause.Occur.SHOULD) {
+                shoulds++;
+                anyShouldCanMatch = anyShouldCanMatch || canMatch(clause.getQuery(), reader);
+            }
+        }
+        boolean shouldRequired = hasRequired == false || query.getMinimumNumberShouldMatch() > 0;
+        return shoulds == 0 || shouldRequired == false || anyShouldCanMatch;
+    }
+
+    private static boolean canMatch(NumericRangeQuery<?> query, LeafReader reader) throws IOException {
+        Terms terms = reader.terms(query.getField());
+        if (terms == null) {
+            // no document of the segment has a value for the field
+            return false;
+        }
+        Number min = query.getMin();
+        Number max = query.getMax();
+        if (min == null && max == null) {
+            return true;
+        }
+        Number type = min != null ? min : max;
+        long segmentMin;
+        long segmentMax;
+        if (type instanceof Long || type instanceof Double) {
+            segmentMin = NumericUtils.getMinLong(terms);
+            segmentMax = NumericUtils.getMaxLong(terms);
+        } else if (type instanceof Integer || type instanceof Float) {
+            segmentMin = NumericUtils.getMinInt(terms);
+            segmentMax = NumericUtils.getMaxInt(terms);
+        } else {
+            return true;
+        }
+        if (min != null) {
+            long lower = sortableLong(min);
+            if (segmentMax < lower || (segmentMax == lower && query.includesMin() == false)) {
+                return false;
+            }
+        }
+        if (max != null) {
+            long upper = sortableLong(max);
+            if (segmentMin > upper || (segmentMin == upper && query.includesMax() == false)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value as it is encoded in the terms dictionary, widened to a long.
+     */
+    private static long sortableLong(Number value) {
+        if (value instanceof Double) {
+            return NumericUtils.doubleToSortableLong(value.doubleValue());
+        } else if (value instanceof Float) {
+            return NumericUtils.floatToSortableInt(value.floatValue());
+        }
+        return value.longValue();
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import jsr166e.LongAdder;
+
+import java.util.Arrays;
+
+/**
+ * A lock free histogram over a fixed set of upper bounds. A value is counted in the first bucket
+ * whose (inclusive) upper bound is greater or equal to it, values above the last bound are counted
+ * in an additional overflow bucket.
+ */
+public class HistogramMetric implements Metric {
+
+    private final long[] bounds;
+    private final LongAdder[] buckets;
+    private final MeanMetric mean = new MeanMetric();
+
+    public HistogramMetric(long... bounds) {
+        for (int i = 1; i < bounds.length; i++) {
+            if (bounds[i] <= bounds[i - 1]) {
+                throw new IllegalArgumentException("histogram bounds must be strictly increasing, got " + Arrays.toString(bounds));
+            }
+        }
+        this.bounds = bounds.clone();
+        this.buckets = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void inc(long value) {
+        int index = Arrays.binarySearch(bounds, value);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        buckets[index].increment();
+        mean.inc(value);
+    }
+
+    /**
+     * The upper bounds of the buckets, the overflow bucket is not included.
+     */
+    public long[] bounds() {
+        return bounds.clone();
+    }
+
+    /**
+     * The count of each bucket, the last entry is the overflow bucket.
+     */
+    public long[] counts() {
+        long[] counts = new long[buckets.length];
+        for (int i = 0; i < buckets.length; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return counts;
+    }
+
+    public long count() {
+        return mean.count();
+    }
+
+    public long sum() {
+        return mean.sum();
+    }
+
+    public void clear() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        mean.clear();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util;
+
+/**
+ * A count-min sketch of small saturating counters that estimates how often a key has been seen recently. Once as
+ * many increments as the window size have been recorded, all counters are halved so that keys which are not seen
+ * anymore fade away. Estimates never under count, but can over count when keys collide.
+ */
+public final class FrequencySketch {
+
+    /**
+     * The maximum frequency a key can reach, higher counts are not needed to tell hot keys from cold ones.
+     */
+    public static final int MAX_FREQUENCY = 15;
+
+    private static final int DEPTH = 4;
+    private static final int MAX_WIDTH = 1 << 24;
+    private static final int[] SEEDS = new int[]{0x97cb3127, 0xb7e15163, 0xc2b2ae35, 0x27d4eb2f};
+
+    private final byte[] table;
+    private final int width;
+    private final int windowSize;
+    private int additions;
+
+    public FrequencySketch(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("window size must be positive, got [" + windowSize + "]");
+        }
+        this.windowSize = windowSize;
+        // one counter per row for every addition of the window keeps over counting low
+        int width = Integer.highestOneBit(Math.min(Math.max(windowSize, 16), MAX_WIDTH));
+        if (width < windowSize && width < MAX_WIDTH) {
+            width <<= 1;
+        }
+        this.width = width;
+        this.table = new byte[DEPTH * width];
+    }
+
+    public int windowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Records one occurrence of the key with the given hash.
+     */
+    public synchronized void increment(int hash) {
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = index(hash, row);
+            if (table[index] < MAX_FREQUENCY) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= windowSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Returns the estimated number of recent occurrences of the key with the given hash, at most {@link #MAX_FREQUENCY}.
+     */
+    public synchronized int frequency(int hash) {
+        int frequency = MAX_FREQUENCY;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, table[index(hash, row)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] >>= 1;
+        }
+        additions >>>= 1;
+    }
+
+    private int index(int hash, int row) {
+        // murmur3 finalizer, seeded differently for every row
+        int h = hash + SEEDS[row];
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return row * width + (h & (width - 1));
+    }
+}
@@ -85,6 +85,11 @@ public class HttpServer extends AbstractLifecycleComponent<HttpServer> {
         public void dispatchRequest(HttpRequest request, HttpChannel channel) {
             server.internalDispatchRequest(request, channel);
         }
+
+        @Override
+        public RestContentConsumer dispatchStreamingRequest(HttpRequest request, HttpChannel channel) throws Exception {
+            return server.internalDispatchStreamingRequest(request, channel);
+        }
     }
 
     @Override
@@ -124,6 +129,13 @@ public class HttpServer extends AbstractLifecycleComponent<HttpServer> {
         restController.dispatchRequest(request, channel);
     }
 
+    public RestContentConsumer internalDispatchStreamingRequest(final HttpRequest request, final HttpChannel channel) throws Exception {
+        if (request.rawPath().startsWith("/_plugin/")) {
+            return null;
+        }
+        return restController.dispatchStreamingRequest(request, channel);
+    }
+
 
     class PluginSiteFilter extends RestFilter {
 
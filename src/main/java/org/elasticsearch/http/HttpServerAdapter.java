@@ -19,10 +19,21 @@
 
 package org.elasticsearch.http;
 
+import org.elasticsearch.common.Nullable;
+import org.elasticsearch.rest.RestContentConsumer;
+
 /**
  *
  */
 public interface HttpServerAdapter {
 
     void dispatchRequest(HttpRequest request, HttpChannel channel);
+
+    /**
+     * Dispatches a request whose content is received in chunks, returns the consumer of the content or <tt>null</tt>
+     * if the request should be dispatched through {@link #dispatchRequest(HttpRequest, HttpChannel)} once its full
+     * content has been received.
+     */
+    @Nullable
+    RestContentConsumer dispatchStreamingRequest(HttpRequest request, HttpChannel channel) throws Exception;
 }
@@ -22,6 +22,7 @@ package org.elasticsearch.http;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -32,14 +33,27 @@ public class HttpStats implements Streamable, ToXContent {
 
     private long serverOpen;
     private long totalOpen;
+    private long recycledResponses;
+    private long recycledResponseSize;
+    private long allocatedResponses;
+    private long allocatedResponseSize;
 
     HttpStats() {
 
     }
 
     public HttpStats(long serverOpen, long totalOpen) {
+        this(serverOpen, totalOpen, 0, 0, 0, 0);
+    }
+
+    public HttpStats(long serverOpen, long totalOpen, long recycledResponses, long recycledResponseSize,
+                     long allocatedResponses, long allocatedResponseSize) {
         this.serverOpen = serverOpen;
         this.totalOpen = totalOpen;
+        this.recycledResponses = recycledResponses;
+        this.recycledResponseSize = recycledResponseSize;
+        this.allocatedResponses = allocatedResponses;
+        this.allocatedResponseSize = allocatedResponseSize;
     }
 
     public long getServerOpen() {
@@ -50,6 +64,28 @@ public class HttpStats implements Streamable, ToXContent {
         return this.totalOpen;
     }
 
+    /**
+     * The number of responses whose content was written from recycled pages.
+     */
+    public long getRecycledResponses() {
+        return this.recycledResponses;
+    }
+
+    public ByteSizeValue getRecycledResponseSize() {
+        return new ByteSizeValue(recycledResponseSize);
+    }
+
+    /**
+     * The number of responses whose content had to be allocated on the heap.
+     */
+    public long getAllocatedResponses() {
+        return this.allocatedResponses;
+    }
+
+    public ByteSizeValue getAllocatedResponseSize() {
+        return new ByteSizeValue(allocatedResponseSize);
+    }
+
     public static HttpStats readHttpStats(StreamInput in) throws IOException {
         HttpStats stats = new HttpStats();
         stats.readFrom(in);
@@ -60,18 +96,33 @@ public class HttpStats implements Streamable, ToXContent {
     public void readFrom(StreamInput in) throws IOException {
         serverOpen = in.readVLong();
         totalOpen = in.readVLong();
+        recycledResponses = in.readVLong();
+        recycledResponseSize = in.readVLong();
+        allocatedResponses = in.readVLong();
+        allocatedResponseSize = in.readVLong();
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(serverOpen);
         out.writeVLong(totalOpen);
+        out.writeVLong(recycledResponses);
+        out.writeVLong(recycledResponseSize);
+        out.writeVLong(allocatedResponses);
+        out.writeVLong(allocatedResponseSize);
     }
 
     static final class Fields {
         static final XContentBuilderString HTTP = new XContentBuilderString("http");
         static final XContentBuilderString CURRENT_OPEN = new XContentBuilderString("current_open");
         static final XContentBuilderString TOTAL_OPENED = new XContentBuilderString("total_opened");
+        static final XContentBuilderString RESPONSES = new XContentBuilderString("responses");
+        static final XContentBuilderString RECYCLED = new XContentBuilderString("recycled");
+        static final XContentBuilderString RECYCLED_SIZE = new XContentBuilderString("recycled_size");
+        static final XContentBuilderString RECYCLED_SIZE_IN_BYTES = new XContentBuilderString("recycled_size_in_bytes");
+        static final XContentBuilderString ALLOCATED = new XContentBuilderString("allocated");
+        static final XContentBuilderString ALLOCATED_SIZE = new XContentBuilderString("allocated_size");
+        static final XContentBuilderString ALLOCATED_SIZE_IN_BYTES = new XContentBuilderString("allocated_size_in_bytes");
     }
 
     @Override
@@ -79,6 +130,12 @@ public class HttpStats implements Streamable, ToXContent {
         builder.startObject(Fields.HTTP);
         builder.field(Fields.CURRENT_OPEN, serverOpen);
         builder.field(Fields.TOTAL_OPENED, totalOpen);
+        builder.startObject(Fields.RESPONSES);
+        builder.field(Fields.RECYCLED, recycledResponses);
+        builder.byteSizeField(Fields.RECYCLED_SIZE_IN_BYTES, Fields.RECYCLED_SIZE, recycledResponseSize);
+        builder.field(Fields.ALLOCATED, allocatedResponses);
+        builder.byteSizeField(Fields.ALLOCATED_SIZE_IN_BYTES, Fields.ALLOCATED_SIZE, allocatedResponseSize);
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -0,0 +1,130 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty;
+
+import org.elasticsearch.http.netty.pipelining.OrderedUpstreamMessageEvent;
+import org.jboss.netty.channel.Channel;
+import org.jboss.netty.channel.ChannelEvent;
+import org.jboss.netty.channel.ChannelHandler;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelPipeline;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
+import org.jboss.netty.handler.codec.http.HttpMessage;
+
+/**
+ * A {@link HttpChunkAggregator} that can sit behind the {@link org.elasticsearch.http.netty.pipelining.HttpPipeliningHandler}:
+ * the aggregated request of a chunked request keeps the sequence the pipelining handler assigned to the request,
+ * so that its response is written in order.
+ */
+public class ESHttpChunkAggregator extends HttpChunkAggregator {
+
+    // the event of the chunked request that is being aggregated, if it was assigned a sequence
+    private OrderedUpstreamMessageEvent orderedEvent;
+
+    public ESHttpChunkAggregator(int maxContentLength) {
+        super(maxContentLength);
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        if (e.getMessage() instanceof HttpMessage) {
+            orderedEvent = e instanceof OrderedUpstreamMessageEvent ? (OrderedUpstreamMessageEvent) e : null;
+        }
+        if (orderedEvent == null || e.getMessage() instanceof HttpChunk == false) {
+            super.messageReceived(ctx, e);
+            return;
+        }
+        super.messageReceived(new OrderingContext(ctx, orderedEvent.getSequence()), e);
+        if (((HttpChunk) e.getMessage()).isLast()) {
+            orderedEvent = null;
+        }
+    }
+
+    /**
+     * Passes the aggregated request on with the sequence of the request it was aggregated from.
+     */
+    private static class OrderingContext implements ChannelHandlerContext {
+
+        private final ChannelHandlerContext ctx;
+        private final int sequence;
+
+        OrderingContext(ChannelHandlerContext ctx, int sequence) {
+            this.ctx = ctx;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void sendUpstream(ChannelEvent e) {
+            if (e instanceof MessageEvent && ((MessageEvent) e).getMessage() instanceof HttpMessage) {
+                MessageEvent event = (MessageEvent) e;
+                ctx.sendUpstream(new OrderedUpstreamMessageEvent(sequence, event.getChannel(), event.getMessage(), event.getRemoteAddress()));
+            } else {
+                ctx.sendUpstream(e);
+            }
+        }
+
+        @Override
+        public void sendDownstream(ChannelEvent e) {
+            ctx.sendDownstream(e);
+        }
+
+        @Override
+        public Channel getChannel() {
+            return ctx.getChannel();
+        }
+
+        @Override
+        public ChannelPipeline getPipeline() {
+            return ctx.getPipeline();
+        }
+
+        @Override
+        public String getName() {
+            return ctx.getName();
+        }
+
+        @Override
+        public ChannelHandler getHandler() {
+            return ctx.getHandler();
+        }
+
+        @Override
+        public boolean canHandleUpstream() {
+            return ctx.canHandleUpstream();
+        }
+
+        @Override
+        public boolean canHandleDownstream() {
+            return ctx.canHandleDownstream();
+        }
+
+        @Override
+        public Object getAttachment() {
+            return ctx.getAttachment();
+        }
+
+        @Override
+        public void setAttachment(Object attachment) {
+            ctx.setAttachment(attachment);
+        }
+    }
+}
@@ -67,6 +67,14 @@ public class HttpRequestHandler extends SimpleChannelUpstreamHandler {
         super.messageReceived(ctx, e);
     }
 
+    @Override
+    public void channelInterestChanged(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        if (e.getChannel().isWritable()) {
+            NettyHttpChannel.resumeStreamingResponses(e.getChannel());
+        }
+        super.channelInterestChanged(ctx, e);
+    }
+
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         serverTransport.exceptionCaught(ctx, e);
@@ -0,0 +1,135 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty;
+
+import org.elasticsearch.common.bytes.ChannelBufferBytesReference;
+import org.elasticsearch.http.netty.pipelining.OrderedUpstreamMessageEvent;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestContentConsumer;
+import org.elasticsearch.rest.support.RestUtils;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.jboss.netty.buffer.ChannelBuffers;
+import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
+import org.jboss.netty.channel.MessageEvent;
+import org.jboss.netty.channel.SimpleChannelUpstreamHandler;
+import org.jboss.netty.handler.codec.http.HttpChunk;
+import org.jboss.netty.handler.codec.http.HttpHeaders;
+import org.jboss.netty.handler.codec.http.HttpRequest;
+import org.jboss.netty.util.CharsetUtil;
+
+import java.nio.channels.ClosedChannelException;
+import java.util.regex.Pattern;
+
+import static org.jboss.netty.channel.Channels.succeededFuture;
+import static org.jboss.netty.channel.Channels.write;
+
+/**
+ * Sits in front of the chunk aggregator and offers chunked requests to the streaming rest handlers. When
+ * a handler accepts the request its chunks are handed to the handler's {@link RestContentConsumer} as they
+ * are received, instead of being aggregated up to <tt>http.max_content_length</tt>. All other requests are
+ * passed through untouched.
+ * <p/>
+ * The handler sits behind the pipelining handler, so the response of a streamed request is written in the order
+ * the request was received in.
+ */
+public class HttpStreamingHandler extends SimpleChannelUpstreamHandler {
+
+    private static final ChannelBuffer CONTINUE = ChannelBuffers.copiedBuffer("HTTP/1.1 100 Continue\r\n\r\n", CharsetUtil.US_ASCII);
+
+    private final NettyHttpServerTransport serverTransport;
+    private final Pattern corsPattern;
+    private final boolean httpPipeliningEnabled;
+    private final boolean detailedErrorsEnabled;
+
+    // only accessed from the channel's worker thread
+    private RestContentConsumer consumer;
+    private boolean discarding;
+
+    public HttpStreamingHandler(NettyHttpServerTransport serverTransport, boolean detailedErrorsEnabled) {
+        this.serverTransport = serverTransport;
+        this.corsPattern = RestUtils.getCorsSettingRegex(serverTransport.settings());
+        this.httpPipeliningEnabled = serverTransport.pipelining;
+        this.detailedErrorsEnabled = detailedErrorsEnabled;
+    }
+
+    @Override
+    public void messageReceived(ChannelHandlerContext ctx, MessageEvent e) throws Exception {
+        Object msg = e.getMessage();
+        if (msg instanceof HttpRequest && ((HttpRequest) msg).isChunked()) {
+            HttpRequest request = (HttpRequest) msg;
+            NettyHttpRequest httpRequest = new NettyHttpRequest(request, e.getChannel());
+            NettyHttpChannel httpChannel;
+            if (httpPipeliningEnabled && e instanceof OrderedUpstreamMessageEvent) {
+                httpChannel = new NettyHttpChannel(serverTransport, httpRequest, corsPattern, (OrderedUpstreamMessageEvent) e, detailedErrorsEnabled);
+            } else {
+                httpChannel = new NettyHttpChannel(serverTransport, httpRequest, corsPattern, detailedErrorsEnabled);
+            }
+            RestContentConsumer consumer;
+            try {
+                consumer = serverTransport.dispatchStreamingRequest(httpRequest, httpChannel);
+            } catch (Throwable t) {
+                httpChannel.sendResponse(new BytesRestResponse(httpChannel, t));
+                discarding = true;
+                return;
+            }
+            if (consumer == null) {
+                ctx.sendUpstream(e);
+                return;
+            }
+            if (HttpHeaders.is100ContinueExpected(request)) {
+                write(ctx, succeededFuture(ctx.getChannel()), CONTINUE.duplicate());
+            }
+            this.consumer = consumer;
+        } else if (msg instanceof HttpChunk && (consumer != null || discarding)) {
+            HttpChunk chunk = (HttpChunk) msg;
+            if (consumer != null) {
+                try {
+                    if (chunk.getContent().readable()) {
+                        consumer.onContent(new ChannelBufferBytesReference(chunk.getContent()));
+                    }
+                    if (chunk.isLast()) {
+                        consumer.onContentEnd();
+                    }
+                } catch (Throwable t) {
+                    consumer.onFailure(t);
+                    consumer = null;
+                    discarding = true;
+                }
+            }
+            if (chunk.isLast()) {
+                consumer = null;
+                discarding = false;
+            }
+        } else {
+            ctx.sendUpstream(e);
+        }
+    }
+
+    @Override
+    public void channelClosed(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        if (consumer != null) {
+            RestContentConsumer consumer = this.consumer;
+            this.consumer = null;
+            consumer.onFailure(new ClosedChannelException());
+        }
+        super.channelClosed(ctx, e);
+    }
+}
@@ -21,26 +21,37 @@ package org.elasticsearch.http.netty;
 
 import com.google.common.base.Strings;
 import org.apache.lucene.util.BytesRef;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.io.stream.ReleasableBytesStreamOutput;
 import org.elasticsearch.common.lease.Releasable;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.netty.NettyUtils;
 import org.elasticsearch.common.netty.ReleaseChannelFutureListener;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.http.HttpChannel;
 import org.elasticsearch.http.netty.pipelining.OrderedDownstreamChannelEvent;
 import org.elasticsearch.http.netty.pipelining.OrderedUpstreamMessageEvent;
+import org.elasticsearch.rest.BytesRestResponse;
 import org.elasticsearch.rest.RestResponse;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.StreamingRestResponse;
 import org.elasticsearch.rest.support.RestUtils;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.buffer.ChannelBuffers;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.handler.codec.http.*;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
 import static org.elasticsearch.http.netty.NettyHttpServerTransport.*;
@@ -51,6 +62,23 @@ import static org.jboss.netty.handler.codec.http.HttpHeaders.Names.*;
  */
 public class NettyHttpChannel extends HttpChannel {
 
+    private static final ESLogger logger = Loggers.getLogger(NettyHttpChannel.class);
+
+    static final int STREAMING_CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * The maximum number of chunks of a streaming response that may wait to be written before generating its
+     * content pauses
+     */
+    static final int MAX_PENDING_CHUNKS = 4;
+
+    private static final ChannelLocal<Set<ChunkedContentOutputStream>> PAUSED_STREAMS = new ChannelLocal<Set<ChunkedContentOutputStream>>(true) {
+        @Override
+        protected Set<ChunkedContentOutputStream> initialValue(Channel channel) {
+            return ConcurrentCollections.newConcurrentSet();
+        }
+    };
+
     private final NettyHttpServerTransport transport;
     private final Channel channel;
     private final org.jboss.netty.handler.codec.http.HttpRequest nettyRequest;
@@ -75,6 +103,16 @@ public class NettyHttpChannel extends HttpChannel {
         return new ReleasableBytesStreamOutput(transport.bigArrays);
     }
 
+    @Override
+    public void suspendContent() {
+        channel.setReadable(false);
+    }
+
+    @Override
+    public void resumeContent() {
+        channel.setReadable(true);
+    }
+
 
     @Override
     public void sendResponse(RestResponse response) {
@@ -133,6 +171,11 @@ public class NettyHttpChannel extends HttpChannel {
             }
         }
 
+        if (response instanceof StreamingRestResponse && http10 == false && transport.streaming) {
+            sendStreamingResponse(resp, (StreamingRestResponse) response, close);
+            return;
+        }
+
         BytesReference content = response.content();
         ChannelBuffer buffer;
         boolean addedReleaseListener = false;
@@ -151,19 +194,7 @@ public class NettyHttpChannel extends HttpChannel {
             }
 
             if (transport.resetCookies) {
-                String cookieString = nettyRequest.headers().get(HttpHeaders.Names.COOKIE);
-                if (cookieString != null) {
-                    CookieDecoder cookieDecoder = new CookieDecoder();
-                    Set<Cookie> cookies = cookieDecoder.decode(cookieString);
-                    if (!cookies.isEmpty()) {
-                        // Reset the cookies if necessary.
-                        CookieEncoder cookieEncoder = new CookieEncoder(true);
-                        for (Cookie cookie : cookies) {
-                            cookieEncoder.addCookie(cookie);
-                        }
-                        resp.headers().add(HttpHeaders.Names.SET_COOKIE, cookieEncoder.encode());
-                    }
-                }
+                resetCookies(resp);
             }
 
             ChannelFuture future;
@@ -179,6 +210,11 @@ public class NettyHttpChannel extends HttpChannel {
             if (content instanceof Releasable) {
                 future.addListener(new ReleaseChannelFutureListener((Releasable) content));
                 addedReleaseListener = true;
+                transport.recycledResponses.inc();
+                transport.recycledResponseBytes.inc(content.length());
+            } else {
+                transport.allocatedResponses.inc();
+                transport.allocatedResponseBytes.inc(content.length());
             }
 
             if (close) {
@@ -192,6 +228,236 @@ public class NettyHttpChannel extends HttpChannel {
         }
     }
 
+    /**
+     * Writes the content of a streaming response using chunked transfer encoding, as it is generated. The
+     * response headers are only written with the first chunk, so a failure to generate the beginning of the
+     * content is still reported like for any other response. A failure after that aborts the response by
+     * closing the connection, so the client can't mistake the partial response for a complete one.
+     */
+    private void sendStreamingResponse(org.jboss.netty.handler.codec.http.HttpResponse resp, StreamingRestResponse response, boolean close) {
+        if (!resp.headers().contains(HttpHeaders.Names.CONTENT_TYPE)) {
+            resp.headers().add(HttpHeaders.Names.CONTENT_TYPE, response.contentType());
+        }
+        resp.headers().remove(HttpHeaders.Names.CONTENT_LENGTH);
+        resp.headers().set(HttpHeaders.Names.TRANSFER_ENCODING, HttpHeaders.Values.CHUNKED);
+        resp.setChunked(true);
+        if (transport.resetCookies) {
+            resetCookies(resp);
+        }
+
+        ChunkedContentOutputStream out = new ChunkedContentOutputStream(resp, response, close);
+        try {
+            out.produce();
+        } catch (Throwable t) {
+            throw ExceptionsHelper.convertToRuntime(t);
+        }
+    }
+
+    /**
+     * Resumes the streaming responses of the channel that paused because it was not writable. Called once the
+     * channel becomes writable again.
+     */
+    static void resumeStreamingResponses(Channel channel) {
+        for (ChunkedContentOutputStream out : PAUSED_STREAMS.get(channel)) {
+            out.resume();
+        }
+    }
+
+    private void resetCookies(org.jboss.netty.handler.codec.http.HttpResponse resp) {
+        String cookieString = nettyRequest.headers().get(HttpHeaders.Names.COOKIE);
+        if (cookieString != null) {
+            CookieDecoder cookieDecoder = new CookieDecoder();
+            Set<Cookie> cookies = cookieDecoder.decode(cookieString);
+            if (!cookies.isEmpty()) {
+                // Reset the cookies if necessary.
+                CookieEncoder cookieEncoder = new CookieEncoder(true);
+                for (Cookie cookie : cookies) {
+                    cookieEncoder.addCookie(cookie);
+                }
+                resp.headers().add(HttpHeaders.Names.SET_COOKIE, cookieEncoder.encode());
+            }
+        }
+    }
+
+    /**
+     * Generates the content of a streaming response and writes it as http chunks of {@link #STREAMING_CHUNK_SIZE}
+     * bytes. Each chunk is buffered in recycled pages, which are released once the chunk has been written.
+     * <p/>
+     * Generation pauses between parts of the content once the channel stops being writable, or more than
+     * {@link #MAX_PENDING_CHUNKS} chunks wait to be written (e.g. behind an earlier pipelined response), so a slow
+     * client doesn't make the whole response pile up in memory. It is resumed on the netty worker thread once the
+     * channel becomes writable again or the pending chunks are written, no thread waits for the client meanwhile.
+     */
+    private class ChunkedContentOutputStream extends OutputStream {
+
+        private final org.jboss.netty.handler.codec.http.HttpResponse resp;
+        private final StreamingRestResponse response;
+        private final boolean close;
+        private final AtomicBoolean paused = new AtomicBoolean();
+        private final AtomicInteger pendingChunks = new AtomicInteger();
+        // only accessed by the thread generating the content, hand offs go through the paused flag
+        private ReleasableBytesStreamOutput buffer;
+        private int subsequence;
+        private boolean headersWritten;
+
+        ChunkedContentOutputStream(org.jboss.netty.handler.codec.http.HttpResponse resp, StreamingRestResponse response, boolean close) {
+            this.resp = resp;
+            this.response = response;
+            this.close = close;
+        }
+
+        private boolean canWrite() {
+            return channel.isWritable() && pendingChunks.get() < MAX_PENDING_CHUNKS;
+        }
+
+        /**
+         * Generates content until the response is complete or the channel can't take more. Failures that happen
+         * once the headers were written abort the response by closing the connection, earlier failures are thrown.
+         */
+        void produce() throws Throwable {
+            try {
+                do {
+                    while (canWrite()) {
+                        if (response.writeNext(this) == false) {
+                            ChannelFuture future = finish();
+                            if (close) {
+                                future.addListener(ChannelFutureListener.CLOSE);
+                            }
+                            return;
+                        }
+                    }
+                    // hand what was generated so far over to netty, so no pages are held while paused
+                    if (buffer != null && buffer.size() > 0) {
+                        writeChunk();
+                    }
+                    PAUSED_STREAMS.get(channel).add(this);
+                    paused.set(true);
+                    // the channel may have caught up before we paused, in which case nobody else resumes us
+                } while (canWrite() && unpause());
+            } catch (Throwable t) {
+                release();
+                if (headersWritten == false) {
+                    throw t;
+                }
+                logger.debug("failed to stream response content for uri [{}], closing connection {}", t, request.uri(), channel);
+                channel.close();
+            }
+        }
+
+        private boolean unpause() {
+            if (paused.compareAndSet(true, false)) {
+                PAUSED_STREAMS.get(channel).remove(this);
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Resumes generating the content if it paused and the channel can take more.
+         */
+        void resume() {
+            if (canWrite() && unpause()) {
+                try {
+                    produce();
+                } catch (Throwable t) {
+                    // nothing was sent yet, so the failure can still be reported like for any other response
+                    try {
+                        sendResponse(new BytesRestResponse(NettyHttpChannel.this, t));
+                    } catch (Throwable inner) {
+                        logger.debug("failed to send failure response for uri [{}], closing connection {}", inner, request.uri(), channel);
+                        channel.close();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            ensureBuffer().writeByte((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                ReleasableBytesStreamOutput buffer = ensureBuffer();
+                int toCopy = Math.min(len, STREAMING_CHUNK_SIZE - buffer.size());
+                buffer.writeBytes(b, off, toCopy);
+                off += toCopy;
+                len -= toCopy;
+            }
+        }
+
+        private ReleasableBytesStreamOutput ensureBuffer() throws IOException {
+            if (buffer != null && buffer.size() == STREAMING_CHUNK_SIZE) {
+                writeChunk();
+            }
+            if (buffer == null) {
+                buffer = new ReleasableBytesStreamOutput(STREAMING_CHUNK_SIZE, transport.bigArrays);
+            }
+            return buffer;
+        }
+
+        /**
+         * Releases the pages of a chunk that was not handed over to netty, in case generating the content failed.
+         */
+        void release() {
+            if (buffer != null) {
+                buffer.bytes().close();
+                buffer = null;
+            }
+        }
+
+        private ChannelFuture finish() throws IOException {
+            if (buffer != null && buffer.size() > 0) {
+                writeChunk();
+            } else if (headersWritten == false) {
+                write(resp, false);
+                headersWritten = true;
+            }
+            release();
+            transport.recycledResponses.inc();
+            return write(HttpChunk.LAST_CHUNK, true);
+        }
+
+        private void writeChunk() throws IOException {
+            if (headersWritten == false) {
+                write(resp, false);
+                headersWritten = true;
+            }
+            // the pages are handed over to netty and released once the chunk is written
+            ReleasablePagedBytesReference bytes = buffer.bytes();
+            buffer = null;
+            ChannelFuture future = null;
+            pendingChunks.incrementAndGet();
+            try {
+                future = write(new DefaultHttpChunk(bytes.toChannelBuffer()), false);
+                future.addListener(new ReleaseChannelFutureListener(bytes));
+                future.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        pendingChunks.decrementAndGet();
+                        resume();
+                    }
+                });
+            } finally {
+                if (future == null) {
+                    pendingChunks.decrementAndGet();
+                    bytes.close();
+                }
+            }
+            transport.recycledResponseBytes.inc(bytes.length());
+        }
+
+        private ChannelFuture write(Object message, boolean last) {
+            if (orderedUpstreamMessageEvent != null) {
+                OrderedDownstreamChannelEvent downstreamChannelEvent = new OrderedDownstreamChannelEvent(orderedUpstreamMessageEvent, subsequence++, last, message);
+                channel.getPipeline().sendDownstream(downstreamChannelEvent);
+                return downstreamChannelEvent.getFuture();
+            }
+            return channel.write(message);
+        }
+    }
+
     private static final HttpResponseStatus TOO_MANY_REQUESTS = new HttpResponseStatus(429, "Too Many Requests");
 
     private HttpResponseStatus getStatus(RestStatus status) {
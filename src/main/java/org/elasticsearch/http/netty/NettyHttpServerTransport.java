@@ -23,6 +23,7 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.Booleans;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.netty.NettyUtils;
 import org.elasticsearch.common.netty.OpenChannelsHandler;
 import org.elasticsearch.common.network.NetworkService;
@@ -39,12 +40,12 @@ import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.http.*;
 import org.elasticsearch.http.netty.pipelining.HttpPipeliningHandler;
 import org.elasticsearch.monitor.jvm.JvmInfo;
+import org.elasticsearch.rest.RestContentConsumer;
 import org.elasticsearch.transport.BindTransportException;
 import org.jboss.netty.bootstrap.ServerBootstrap;
 import org.jboss.netty.channel.*;
 import org.jboss.netty.channel.socket.nio.NioServerSocketChannelFactory;
 import org.jboss.netty.channel.socket.oio.OioServerSocketChannelFactory;
-import org.jboss.netty.handler.codec.http.HttpChunkAggregator;
 import org.jboss.netty.handler.codec.http.HttpContentCompressor;
 import org.jboss.netty.handler.codec.http.HttpRequestDecoder;
 import org.jboss.netty.handler.timeout.ReadTimeoutException;
@@ -78,6 +79,7 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
     public static final String SETTING_HTTP_COMPRESSION = "http.compression";
     public static final String SETTING_HTTP_COMPRESSION_LEVEL = "http.compression_level";
     public static final String SETTING_HTTP_DETAILED_ERRORS_ENABLED = "http.detailed_errors.enabled";
+    public static final String SETTING_HTTP_STREAMING = "http.streaming";
 
     public static final boolean DEFAULT_SETTING_PIPELINING = true;
     public static final int DEFAULT_SETTING_PIPELINING_MAX_EVENTS = 10000;
@@ -112,6 +114,8 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
 
     protected final boolean detailedErrorsEnabled;
 
+    protected final boolean streaming;
+
     protected int publishPort;
 
     protected final String tcpNoDelay;
@@ -135,6 +139,12 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
 
     protected volatile HttpServerAdapter httpServerAdapter;
 
+    // responses whose content was written from recycled pages, and the ones whose content was allocated on the heap
+    final CounterMetric recycledResponses = new CounterMetric();
+    final CounterMetric recycledResponseBytes = new CounterMetric();
+    final CounterMetric allocatedResponses = new CounterMetric();
+    final CounterMetric allocatedResponseBytes = new CounterMetric();
+
     @Inject
     public NettyHttpServerTransport(Settings settings, NetworkService networkService, BigArrays bigArrays) {
         super(settings);
@@ -166,6 +176,7 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
         this.tcpSendBufferSize = settings.getAsBytesSize("http.netty.tcp_send_buffer_size", settings.getAsBytesSize(TCP_SEND_BUFFER_SIZE, TCP_DEFAULT_SEND_BUFFER_SIZE));
         this.tcpReceiveBufferSize = settings.getAsBytesSize("http.netty.tcp_receive_buffer_size", settings.getAsBytesSize(TCP_RECEIVE_BUFFER_SIZE, TCP_DEFAULT_RECEIVE_BUFFER_SIZE));
         this.detailedErrorsEnabled = settings.getAsBoolean(SETTING_HTTP_DETAILED_ERRORS_ENABLED, true);
+        this.streaming = settings.getAsBoolean(SETTING_HTTP_STREAMING, true);
 
         long defaultReceiverPredictor = 512 * 1024;
         if (JvmInfo.jvmInfo().getMem().getDirectMemoryMax().bytes() > 0) {
@@ -324,13 +335,18 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
     @Override
     public HttpStats stats() {
         OpenChannelsHandler channels = serverOpenChannels;
-        return new HttpStats(channels == null ? 0 : channels.numberOfOpenChannels(), channels == null ? 0 : channels.totalChannels());
+        return new HttpStats(channels == null ? 0 : channels.numberOfOpenChannels(), channels == null ? 0 : channels.totalChannels(),
+                recycledResponses.count(), recycledResponseBytes.count(), allocatedResponses.count(), allocatedResponseBytes.count());
     }
 
     protected void dispatchRequest(HttpRequest request, HttpChannel channel) {
         httpServerAdapter.dispatchRequest(request, channel);
     }
 
+    protected RestContentConsumer dispatchStreamingRequest(HttpRequest request, HttpChannel channel) throws Exception {
+        return httpServerAdapter.dispatchStreamingRequest(request, channel);
+    }
+
     protected void exceptionCaught(ChannelHandlerContext ctx, ExceptionEvent e) throws Exception {
         if (e.getCause() instanceof ReadTimeoutException) {
             if (logger.isTraceEnabled()) {
@@ -387,11 +403,6 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
             }
             pipeline.addLast("decoder", requestDecoder);
             pipeline.addLast("decoder_compress", new ESHttpContentDecompressor(transport.compression));
-            HttpChunkAggregator httpChunkAggregator = new HttpChunkAggregator((int) transport.maxContentLength.bytes());
-            if (transport.maxCompositeBufferComponents != -1) {
-                httpChunkAggregator.setMaxCumulationBufferComponents(transport.maxCompositeBufferComponents);
-            }
-            pipeline.addLast("aggregator", httpChunkAggregator);
             pipeline.addLast("encoder", new ESHttpResponseEncoder());
             if (transport.compression) {
                 pipeline.addLast("encoder_compress", new HttpContentCompressor(transport.compressionLevel));
@@ -399,6 +410,15 @@ public class NettyHttpServerTransport extends AbstractLifecycleComponent<HttpSer
             if (transport.pipelining) {
                 pipeline.addLast("pipelining", new HttpPipeliningHandler(transport.pipeliningMaxEvents));
             }
+            // streamed requests are taken off before the aggregator, but after pipelining so their responses are ordered
+            if (transport.streaming) {
+                pipeline.addLast("streaming", new HttpStreamingHandler(transport, transport.detailedErrorsEnabled));
+            }
+            ESHttpChunkAggregator httpChunkAggregator = new ESHttpChunkAggregator((int) transport.maxContentLength.bytes());
+            if (transport.maxCompositeBufferComponents != -1) {
+                httpChunkAggregator.setMaxCumulationBufferComponents(transport.maxCompositeBufferComponents);
+            }
+            pipeline.addLast("aggregator", httpChunkAggregator);
             pipeline.addLast("handler", requestHandler);
             return pipeline;
         }
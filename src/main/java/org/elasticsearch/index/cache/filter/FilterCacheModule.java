@@ -20,7 +20,6 @@
 package org.elasticsearch.index.cache.filter;
 
 import org.apache.lucene.search.QueryCachingPolicy;
-import org.apache.lucene.search.UsageTrackingQueryCachingPolicy;
 import org.elasticsearch.common.inject.AbstractModule;
 import org.elasticsearch.common.inject.Scopes;
 import org.elasticsearch.common.settings.Settings;
@@ -54,7 +53,7 @@ public class FilterCacheModule extends AbstractModule {
         if (settings.getAsBoolean(FilterCacheSettings.FILTER_CACHE_EVERYTHING, false)) {
             bind(QueryCachingPolicy.class).toInstance(QueryCachingPolicy.ALWAYS_CACHE);
         } else {
-            bind(QueryCachingPolicy.class).toInstance(new UsageTrackingQueryCachingPolicy());
+            bind(QueryCachingPolicy.class).toInstance(new FrequencySketchQueryCachingPolicy(settings));
         }
     }
 }
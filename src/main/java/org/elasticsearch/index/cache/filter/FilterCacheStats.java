@@ -22,6 +22,7 @@ package org.elasticsearch.index.cache.filter;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.lucene.docset.DocIdSets;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
@@ -35,18 +36,38 @@ public class FilterCacheStats implements Streamable, ToXContent {
 
     long memorySize;
     long evictions;
+    long hitCount;
+    long missCount;
+    long cacheCount;
+    long[] representationCounts = new long[DocIdSets.Representation.values().length];
+    long[] representationSizes = new long[DocIdSets.Representation.values().length];
 
     public FilterCacheStats() {
     }
 
-    public FilterCacheStats(long memorySize, long evictions) {
+    public FilterCacheStats(long memorySize, long evictions, long hitCount, long missCount, long cacheCount,
+                            long[] representationCounts, long[] representationSizes) {
+        assert representationCounts.length == DocIdSets.Representation.values().length;
+        assert representationSizes.length == DocIdSets.Representation.values().length;
         this.memorySize = memorySize;
         this.evictions = evictions;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.cacheCount = cacheCount;
+        this.representationCounts = representationCounts;
+        this.representationSizes = representationSizes;
     }
 
     public void add(FilterCacheStats stats) {
         this.memorySize += stats.memorySize;
         this.evictions += stats.evictions;
+        this.hitCount += stats.hitCount;
+        this.missCount += stats.missCount;
+        this.cacheCount += stats.cacheCount;
+        for (int i = 0; i < representationCounts.length; i++) {
+            this.representationCounts[i] += stats.representationCounts[i];
+            this.representationSizes[i] += stats.representationSizes[i];
+        }
     }
 
     public long getMemorySizeInBytes() {
@@ -61,6 +82,41 @@ public class FilterCacheStats implements Streamable, ToXContent {
         return this.evictions;
     }
 
+    /**
+     * The number of times a filter was found in the cache for a segment.
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * The number of times a filter was not found in the cache for a segment, whether it was then cached or not.
+     */
+    public long getMissCount() {
+        return this.missCount;
+    }
+
+    /**
+     * The number of times a filter was admitted into the cache for a segment.
+     */
+    public long getCacheCount() {
+        return this.cacheCount;
+    }
+
+    /**
+     * The number of cached entries that use the given representation.
+     */
+    public long getCount(DocIdSets.Representation representation) {
+        return representationCounts[representation.ordinal()];
+    }
+
+    /**
+     * The memory taken by the cached entries that use the given representation.
+     */
+    public ByteSizeValue getMemorySize(DocIdSets.Representation representation) {
+        return new ByteSizeValue(representationSizes[representation.ordinal()]);
+    }
+
     public static FilterCacheStats readFilterCacheStats(StreamInput in) throws IOException {
         FilterCacheStats stats = new FilterCacheStats();
         stats.readFrom(in);
@@ -71,12 +127,32 @@ public class FilterCacheStats implements Streamable, ToXContent {
     public void readFrom(StreamInput in) throws IOException {
         memorySize = in.readVLong();
         evictions = in.readVLong();
+        hitCount = in.readVLong();
+        missCount = in.readVLong();
+        cacheCount = in.readVLong();
+        int size = in.readVInt();
+        for (int i = 0; i < size; i++) {
+            long count = in.readVLong();
+            long sizeInBytes = in.readVLong();
+            if (i < representationCounts.length) {
+                representationCounts[i] = count;
+                representationSizes[i] = sizeInBytes;
+            }
+        }
     }
 
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(memorySize);
         out.writeVLong(evictions);
+        out.writeVLong(hitCount);
+        out.writeVLong(missCount);
+        out.writeVLong(cacheCount);
+        out.writeVInt(representationCounts.length);
+        for (int i = 0; i < representationCounts.length; i++) {
+            out.writeVLong(representationCounts[i]);
+            out.writeVLong(representationSizes[i]);
+        }
     }
 
     @Override
@@ -84,6 +160,17 @@ public class FilterCacheStats implements Streamable, ToXContent {
         builder.startObject(Fields.FILTER_CACHE);
         builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, memorySize);
         builder.field(Fields.EVICTIONS, getEvictions());
+        builder.field(Fields.HIT_COUNT, getHitCount());
+        builder.field(Fields.MISS_COUNT, getMissCount());
+        builder.field(Fields.CACHE_COUNT, getCacheCount());
+        builder.startObject(Fields.REPRESENTATIONS);
+        for (DocIdSets.Representation representation : DocIdSets.Representation.values()) {
+            builder.startObject(representation.getName());
+            builder.field(Fields.COUNT, getCount(representation));
+            builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, representationSizes[representation.ordinal()]);
+            builder.endObject();
+        }
+        builder.endObject();
         builder.endObject();
         return builder;
     }
@@ -93,5 +180,10 @@ public class FilterCacheStats implements Streamable, ToXContent {
         static final XContentBuilderString MEMORY_SIZE = new XContentBuilderString("memory_size");
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
         static final XContentBuilderString EVICTIONS = new XContentBuilderString("evictions");
+        static final XContentBuilderString HIT_COUNT = new XContentBuilderString("hit_count");
+        static final XContentBuilderString MISS_COUNT = new XContentBuilderString("miss_count");
+        static final XContentBuilderString CACHE_COUNT = new XContentBuilderString("cache_count");
+        static final XContentBuilderString REPRESENTATIONS = new XContentBuilderString("representations");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
     }
 }
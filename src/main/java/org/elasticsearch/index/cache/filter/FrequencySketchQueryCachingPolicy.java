@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.filter;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.queries.TermsQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiTermQuery;
+import org.apache.lucene.search.MultiTermQueryWrapperFilter;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.FrequencySketch;
+
+import java.io.IOException;
+
+/**
+ * The default <code>auto</code> filter caching policy. Filters are only admitted into the cache once they have been
+ * used often enough within a window of recently used filters, and only on segments that are large enough to be worth
+ * caching. Usage is tracked in a {@link FrequencySketch}, which makes it cheap to keep a window that is much larger
+ * than the number of filters that fit in the cache, so that one-off filters don't get to evict the ones that are
+ * reused over and over.
+ */
+public class FrequencySketchQueryCachingPolicy implements QueryCachingPolicy {
+
+    public static final String MIN_FREQUENCY = "index.cache.filter.admission.min_frequency";
+    public static final String COSTLY_MIN_FREQUENCY = "index.cache.filter.admission.costly_min_frequency";
+    public static final String WINDOW_SIZE = "index.cache.filter.admission.window_size";
+    public static final String MIN_SEGMENT_SIZE = "index.cache.filter.admission.min_segment_size";
+
+    public static final int DEFAULT_MIN_FREQUENCY = 5;
+    public static final int DEFAULT_COSTLY_MIN_FREQUENCY = 2;
+    public static final int DEFAULT_WINDOW_SIZE = 4096;
+    public static final int DEFAULT_MIN_SEGMENT_SIZE = 1000;
+
+    private final FrequencySketch sketch;
+    private final int minFrequency;
+    private final int costlyMinFrequency;
+    private final int minSegmentSize;
+    private final QueryCachingPolicy segmentPolicy;
+
+    public FrequencySketchQueryCachingPolicy(Settings settings) {
+        this(settings.getAsInt(WINDOW_SIZE, DEFAULT_WINDOW_SIZE), settings.getAsInt(MIN_FREQUENCY, DEFAULT_MIN_FREQUENCY),
+                settings.getAsInt(COSTLY_MIN_FREQUENCY, DEFAULT_COSTLY_MIN_FREQUENCY), settings.getAsInt(MIN_SEGMENT_SIZE, DEFAULT_MIN_SEGMENT_SIZE),
+                QueryCachingPolicy.CacheOnLargeSegments.DEFAULT);
+    }
+
+    public FrequencySketchQueryCachingPolicy(int windowSize, int minFrequency, int costlyMinFrequency, int minSegmentSize, QueryCachingPolicy segmentPolicy) {
+        if (minFrequency > FrequencySketch.MAX_FREQUENCY || costlyMinFrequency > FrequencySketch.MAX_FREQUENCY) {
+            throw new IllegalArgumentException("min frequency can't be greater than [" + FrequencySketch.MAX_FREQUENCY + "], got ["
+                    + minFrequency + "] and [" + costlyMinFrequency + "]");
+        }
+        this.sketch = new FrequencySketch(windowSize);
+        this.minFrequency = minFrequency;
+        this.costlyMinFrequency = costlyMinFrequency;
+        this.minSegmentSize = minSegmentSize;
+        this.segmentPolicy = segmentPolicy;
+    }
+
+    @Override
+    public void onUse(Query query) {
+        sketch.increment(query.hashCode());
+    }
+
+    @Override
+    public boolean shouldCache(Query query, LeafReaderContext context) throws IOException {
+        if (query instanceof MatchAllDocsQuery) {
+            return false;
+        }
+        if (context.reader().maxDoc() < minSegmentSize) {
+            // tiny segments are fast to evaluate and are likely to be merged away soon
+            return false;
+        }
+        if (segmentPolicy.shouldCache(query, context) == false) {
+            return false;
+        }
+        return frequency(query) >= minFrequency(query);
+    }
+
+    /**
+     * Returns the estimated number of times the query has been used in the recent window.
+     */
+    public int frequency(Query query) {
+        return sketch.frequency(query.hashCode());
+    }
+
+    int minFrequency(Query query) {
+        return isCostly(query) ? costlyMinFrequency : minFrequency;
+    }
+
+    /**
+     * Whether building the doc id set of the query requires visiting all of its matches anyway, in which case caching
+     * the result costs little more than not caching it.
+     */
+    static boolean isCostly(Query query) {
+        if (query instanceof QueryWrapperFilter) {
+            query = ((QueryWrapperFilter) query).getQuery();
+        }
+        return query instanceof MultiTermQuery
+                || query instanceof MultiTermQueryWrapperFilter
+                || query instanceof TermsQuery
+                || (query instanceof BooleanQuery && ((BooleanQuery) query).clauses().isEmpty() == false && allCostly((BooleanQuery) query));
+    }
+
+    private static boolean allCostly(BooleanQuery query) {
+        for (BooleanClause clause : query.clauses()) {
+            if (isCostly(clause.getQuery()) == false) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
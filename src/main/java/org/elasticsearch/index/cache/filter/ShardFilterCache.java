@@ -19,9 +19,9 @@
 
 package org.elasticsearch.index.cache.filter;
 
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
 import org.apache.lucene.search.DocIdSet;
+import org.elasticsearch.common.cache.RemovalListener;
+import org.elasticsearch.common.cache.RemovalNotification;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
 import org.elasticsearch.common.metrics.CounterMetric;
@@ -37,6 +37,11 @@ public class ShardFilterCache extends AbstractIndexShardComponent implements Rem
 
     final CounterMetric evictionsMetric = new CounterMetric();
     final CounterMetric totalMetric = new CounterMetric();
+    final CounterMetric hitCount = new CounterMetric();
+    final CounterMetric missCount = new CounterMetric();
+    final CounterMetric cacheCount = new CounterMetric();
+    final CounterMetric[] representationCounts = newCounters();
+    final CounterMetric[] representationSizes = newCounters();
 
     @Inject
     public ShardFilterCache(ShardId shardId, @IndexSettings Settings indexSettings) {
@@ -44,11 +49,30 @@ public class ShardFilterCache extends AbstractIndexShardComponent implements Rem
     }
 
     public FilterCacheStats stats() {
-        return new FilterCacheStats(totalMetric.count(), evictionsMetric.count());
+        long[] counts = new long[representationCounts.length];
+        long[] sizes = new long[representationSizes.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = representationCounts[i].count();
+            sizes[i] = representationSizes[i].count();
+        }
+        return new FilterCacheStats(totalMetric.count(), evictionsMetric.count(), hitCount.count(), missCount.count(), cacheCount.count(), counts, sizes);
+    }
+
+    public void onHit() {
+        hitCount.inc();
+    }
+
+    public void onMiss() {
+        missCount.inc();
     }
 
-    public void onCached(long sizeInBytes) {
+    public void onCached(DocIdSet docIdSet) {
+        long sizeInBytes = DocIdSets.sizeInBytes(docIdSet);
+        int representation = DocIdSets.representation(docIdSet).ordinal();
+        cacheCount.inc();
         totalMetric.inc(sizeInBytes);
+        representationCounts[representation].inc();
+        representationSizes[representation].inc(sizeInBytes);
     }
 
     @Override
@@ -56,8 +80,21 @@ public class ShardFilterCache extends AbstractIndexShardComponent implements Rem
         if (removalNotification.wasEvicted()) {
             evictionsMetric.inc();
         }
-        if (removalNotification.getValue() != null) {
-            totalMetric.dec(DocIdSets.sizeInBytes(removalNotification.getValue()));
+        DocIdSet docIdSet = removalNotification.getValue();
+        if (docIdSet != null) {
+            long sizeInBytes = DocIdSets.sizeInBytes(docIdSet);
+            int representation = DocIdSets.representation(docIdSet).ordinal();
+            totalMetric.dec(sizeInBytes);
+            representationCounts[representation].dec();
+            representationSizes[representation].dec(sizeInBytes);
+        }
+    }
+
+    private static CounterMetric[] newCounters() {
+        CounterMetric[] counters = new CounterMetric[DocIdSets.Representation.values().length];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new CounterMetric();
         }
+        return counters;
     }
 }
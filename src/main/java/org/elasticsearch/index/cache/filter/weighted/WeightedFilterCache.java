@@ -19,11 +19,8 @@
 
 package org.elasticsearch.index.cache.filter.weighted;
 
-import com.google.common.cache.Cache;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.Weigher;
-
 import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.search.BitsFilteredDocIdSet;
@@ -33,6 +30,9 @@ import org.apache.lucene.search.QueryCachingPolicy;
 import org.apache.lucene.util.Bits;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.RemovalListener;
+import org.elasticsearch.common.cache.Weigher;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.HashedBytesRef;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
@@ -45,6 +45,7 @@ import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.cache.filter.FilterCache;
+import org.elasticsearch.index.cache.filter.ShardFilterCache;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
@@ -144,6 +145,18 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
         return new FilterCacheFilterWrapper(filterToCache, cacheKey, cachePolicy, this);
     }
 
+    @Nullable
+    private ShardFilterCache shardFilterCache(LeafReader reader) {
+        ShardId shardId = ShardUtils.extractShardId(reader);
+        if (shardId != null) {
+            IndexShard shard = indexService.shard(shardId.id());
+            if (shard != null) {
+                return shard.filterCache();
+            }
+        }
+        return null;
+    }
+
     static class FilterCacheFilterWrapper extends CachedFilter {
 
         private final Filter filter;
@@ -158,6 +171,11 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
             this.cache = cache;
         }
 
+        @Override
+        public Filter getFilter() {
+            return filter;
+        }
+
         @Override
         public DocIdSet getDocIdSet(LeafReaderContext context, Bits acceptDocs) throws IOException {
             if (context.ord == 0) {
@@ -166,11 +184,18 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
             FilterCacheKey cacheKey = new FilterCacheKey(context.reader().getCoreCacheKey(), filterCacheKey);
             Cache<FilterCacheKey, DocIdSet> innerCache = cache.indicesFilterCache.cache();
 
-            DocIdSet cacheValue = innerCache.getIfPresent(cacheKey);
+            DocIdSet cacheValue = innerCache.get(cacheKey);
+            final ShardFilterCache shardFilterCache = cache.shardFilterCache(context.reader());
             final DocIdSet ret;
             if (cacheValue != null) {
+                if (shardFilterCache != null) {
+                    shardFilterCache.onHit();
+                }
                 ret = cacheValue;
             } else {
+                if (shardFilterCache != null) {
+                    shardFilterCache.onMiss();
+                }
                 final DocIdSet uncached = filter.getDocIdSet(context, null);
                 if (cachePolicy.shouldCache(filter, context)) {
                     if (!cache.seenReaders.containsKey(context.reader().getCoreCacheKey())) {
@@ -186,13 +211,9 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
                     cacheValue = DocIdSets.toCacheable(context.reader(), uncached);
                     // we might put the same one concurrently, that's fine, it will be replaced and the removal
                     // will be called
-                    ShardId shardId = ShardUtils.extractShardId(context.reader());
-                    if (shardId != null) {
-                        IndexShard shard = cache.indexService.shard(shardId.id());
-                        if (shard != null) {
-                            cacheKey.removalListener = shard.filterCache();
-                            shard.filterCache().onCached(DocIdSets.sizeInBytes(cacheValue));
-                        }
+                    if (shardFilterCache != null) {
+                        cacheKey.removalListener = shardFilterCache;
+                        shardFilterCache.onCached(cacheValue);
                     }
                     innerCache.put(cacheKey, cacheValue);
                     ret = cacheValue;
@@ -223,7 +244,7 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
     }
 
 
-    /** A weigher for the Guava filter cache that uses a minimum entry size */
+    /** A weigher for the filter cache that uses a minimum entry size */
     public static class FilterCacheValueWeigher implements Weigher<WeightedFilterCache.FilterCacheKey, DocIdSet> {
 
         private final int minimumEntrySize;
@@ -233,9 +254,8 @@ public class WeightedFilterCache extends AbstractIndexComponent implements Filte
         }
 
         @Override
-        public int weigh(FilterCacheKey key, DocIdSet value) {
-            int weight = (int) Math.min(DocIdSets.sizeInBytes(value), Integer.MAX_VALUE);
-            return Math.max(weight, this.minimumEntrySize);
+        public long weigh(FilterCacheKey key, DocIdSet value) {
+            return Math.max(DocIdSets.sizeInBytes(value), this.minimumEntrySize);
         }
     }
 
@@ -19,10 +19,10 @@
 
 package org.elasticsearch.index.cache.query;
 
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
 import org.apache.lucene.search.DocIdSet;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.RemovalListener;
+import org.elasticsearch.common.cache.RemovalNotification;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lucene.docset.DocIdSets;
 import org.elasticsearch.common.metrics.CounterMetric;
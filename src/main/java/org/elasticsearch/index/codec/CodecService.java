@@ -32,6 +32,7 @@ import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.index.AbstractIndexComponent;
 import org.elasticsearch.index.Index;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.merge.policy.TimeSeriesMergePolicyProvider;
 import org.elasticsearch.index.settings.IndexSettings;
 
 /**
@@ -70,10 +71,11 @@ public class CodecService extends AbstractIndexComponent {
             codecs.put(DEFAULT_CODEC, new Lucene50Codec());
             codecs.put(BEST_COMPRESSION_CODEC, new Lucene50Codec(Mode.BEST_COMPRESSION));
         } else {
+            String timeField = TimeSeriesMergePolicyProvider.timeField(indexSettings);
             codecs.put(DEFAULT_CODEC, 
-                    new PerFieldMappingPostingFormatCodec(Mode.BEST_SPEED, mapperService, logger));
+                    new PerFieldMappingPostingFormatCodec(Mode.BEST_SPEED, mapperService, timeField, logger));
             codecs.put(BEST_COMPRESSION_CODEC, 
-                    new PerFieldMappingPostingFormatCodec(Mode.BEST_COMPRESSION, mapperService, logger));
+                    new PerFieldMappingPostingFormatCodec(Mode.BEST_COMPRESSION, mapperService, timeField, logger));
         }
         codecs.put(LUCENE_DEFAULT_CODEC, Codec.getDefault());
         for (String codec : Codec.availableCodecs()) {
@@ -25,9 +25,12 @@ import org.apache.lucene.codecs.lucene50.Lucene50Codec;
 import org.apache.lucene.codecs.lucene50.Lucene50StoredFieldsFormat;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.index.codec.postingsformat.TimeRangePostingsFormat;
 import org.elasticsearch.index.mapper.FieldMappers;
 import org.elasticsearch.index.mapper.MapperService;
 import org.elasticsearch.index.mapper.core.CompletionFieldMapper;
+import org.elasticsearch.index.mapper.core.DateFieldMapper;
+import org.elasticsearch.index.mapper.core.LongFieldMapper;
 import org.elasticsearch.search.suggest.completion.Completion090PostingsFormat;
 import org.elasticsearch.search.suggest.completion.Completion090PostingsFormat.CompletionLookupProvider;
 
@@ -41,19 +44,31 @@ import java.util.Map;
  * allows users to change the low level postings format for individual fields
  * per index in real time via the mapping API. If no specific postings format is
  * configured for a specific field the default postings format is used.
+ * The time field of time based indices is written with a {@link TimeRangePostingsFormat}
+ * so that its per segment range gets recorded.
  */
 // LUCENE UPGRADE: make sure to move to a new codec depending on the lucene version
 public class PerFieldMappingPostingFormatCodec extends Lucene50Codec {
     private final ESLogger logger;
     private final MapperService mapperService;
+    private final String timeField;
+    private final PostingsFormat timeRangePostingsFormat = new TimeRangePostingsFormat();
 
     static {
         assert Codec.forName(Lucene.LATEST_CODEC).getClass().isAssignableFrom(PerFieldMappingPostingFormatCodec.class) : "PerFieldMappingPostingFormatCodec must subclass the latest lucene codec: " + Lucene.LATEST_CODEC;
     }
 
     public PerFieldMappingPostingFormatCodec(Lucene50StoredFieldsFormat.Mode compressionMode, MapperService mapperService, ESLogger logger) {
+        this(compressionMode, mapperService, null, logger);
+    }
+
+    /**
+     * @param timeField the field to record the per segment range of, or <tt>null</tt> to not record any
+     */
+    public PerFieldMappingPostingFormatCodec(Lucene50StoredFieldsFormat.Mode compressionMode, MapperService mapperService, String timeField, ESLogger logger) {
         super(compressionMode);
         this.mapperService = mapperService;
+        this.timeField = timeField;
         this.logger = logger;
     }
 
@@ -67,6 +82,8 @@ public class PerFieldMappingPostingFormatCodec extends Lucene50Codec {
             final CompletionFieldMapper mapper = (CompletionFieldMapper) indexName.mapper();
             final PostingsFormat defaultFormat = super.getPostingsFormatForField(field);
             return mapper.postingsFormat(defaultFormat);
+        } else if (field.equals(timeField) && (indexName.mapper() instanceof DateFieldMapper || indexName.mapper() instanceof LongFieldMapper)) {
+            return timeRangePostingsFormat;
         }
         return super.getPostingsFormatForField(field);
     }
@@ -0,0 +1,116 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.codec.postingsformat;
+
+import org.apache.lucene.codecs.FieldsConsumer;
+import org.apache.lucene.codecs.FieldsProducer;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene50.Lucene50PostingsFormat;
+import org.apache.lucene.index.Fields;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentReadState;
+import org.apache.lucene.index.SegmentWriteState;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.util.NumericUtils;
+import org.elasticsearch.common.lucene.Lucene;
+
+import java.io.IOException;
+
+/**
+ * A postings format for long encoded numeric fields (typically the timestamp of time based data) that
+ * records the min and max value of each field it is used for as attributes of the segment it writes.
+ * The range is recorded when a segment is flushed and again when segments are merged, so it is
+ * available for every segment without having to open it, see {@link #readRange(SegmentInfo, String)}.
+ * The postings themselves are written by a {@link Lucene50PostingsFormat}.
+ */
+public class TimeRangePostingsFormat extends PostingsFormat {
+
+    public static final String NAME = "es_time_range";
+
+    private final PostingsFormat delegate;
+
+    public TimeRangePostingsFormat() {
+        super(NAME);
+        this.delegate = new Lucene50PostingsFormat();
+        assert delegate.getName().equals(Lucene.LATEST_POSTINGS_FORMAT);
+    }
+
+    @Override
+    public FieldsConsumer fieldsConsumer(SegmentWriteState state) throws IOException {
+        return new TimeRangeFieldsConsumer(delegate.fieldsConsumer(state), state.segmentInfo);
+    }
+
+    @Override
+    public FieldsProducer fieldsProducer(SegmentReadState state) throws IOException {
+        return delegate.fieldsProducer(state);
+    }
+
+    /**
+     * Returns the min and max value of the field recorded for the segment, or <tt>null</tt> if the
+     * segment has no recorded range for it, because it has no values for the field or was written
+     * without this postings format.
+     */
+    public static long[] readRange(SegmentInfo info, String field) {
+        String min = info.getAttribute(minAttribute(field));
+        String max = info.getAttribute(maxAttribute(field));
+        if (min == null || max == null) {
+            return null;
+        }
+        return new long[]{Long.parseLong(min), Long.parseLong(max)};
+    }
+
+    static String minAttribute(String field) {
+        return NAME + "." + field + ".min";
+    }
+
+    static String maxAttribute(String field) {
+        return NAME + "." + field + ".max";
+    }
+
+    static final class TimeRangeFieldsConsumer extends FieldsConsumer {
+
+        private final FieldsConsumer delegate;
+        private final SegmentInfo segmentInfo;
+
+        TimeRangeFieldsConsumer(FieldsConsumer delegate, SegmentInfo segmentInfo) {
+            this.delegate = delegate;
+            this.segmentInfo = segmentInfo;
+        }
+
+        @Override
+        public void write(Fields fields) throws IOException {
+            // called on flush and, through the default merge implementation, on merge
+            for (String field : fields) {
+                Terms terms = fields.terms(field);
+                if (terms == null || terms.getMin() == null) {
+                    continue;
+                }
+                segmentInfo.putAttribute(minAttribute(field), Long.toString(NumericUtils.getMinLong(terms)));
+                segmentInfo.putAttribute(maxAttribute(field), Long.toString(NumericUtils.getMaxLong(terms)));
+            }
+            delegate.write(fields);
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+}
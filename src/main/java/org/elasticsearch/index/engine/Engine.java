@@ -47,6 +47,7 @@ import org.elasticsearch.index.mapper.DocumentMapper;
 import org.elasticsearch.index.mapper.ParseContext.Document;
 import org.elasticsearch.index.mapper.ParsedDocument;
 import org.elasticsearch.index.mapper.Uid;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.Store;
@@ -67,6 +68,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  */
 public abstract class Engine implements Closeable {
 
+    /**
+     * The commit user data key of the sync id, shared by the commits of copies of a shard that hold the same documents
+     */
+    public static final String SYNC_COMMIT_ID = "sync_id";
+
     protected final ShardId shardId;
     protected final ESLogger logger;
     protected final EngineConfig engineConfig;
@@ -456,6 +462,50 @@ public abstract class Engine implements Closeable {
 
     public abstract void recover(RecoveryHandler recoveryHandler) throws EngineException;
 
+    /**
+     * Returns the id of the operation history this engine belongs to or <code>null</code> if the engine does not track one.
+     * Two copies of a shard sharing a history id have applied operations with the same sequence numbers from the same primary.
+     */
+    @Nullable
+    public abstract String historyUUID();
+
+    /**
+     * Returns the highest sequence number below which all operations have been applied to this engine.
+     */
+    public abstract long localCheckpoint();
+
+    /**
+     * Returns the highest sequence number issued or applied by this engine.
+     */
+    public abstract long maxSeqNo();
+
+    /**
+     * Starts a new operation history, called when this engine starts to assign sequence numbers as a primary
+     * and its operations may diverge from what other copies of the shard have seen.
+     */
+    public abstract void startNewHistory();
+
+    /**
+     * Adopts the operation history of the primary at the end of a peer recovery. All operations up to and including
+     * the given sequence number have been applied to this engine.
+     */
+    public abstract void adoptHistory(String historyUUID, long maxSeqNo);
+
+    /**
+     * Commits the given sync id if this engine holds exactly the operations of the given history up to and including
+     * <code>maxSeqNo</code>. Commits of different copies carrying the same sync id hold the same documents, a recovery
+     * between them doesn't need to copy any files.
+     *
+     * @return <code>true</code> if the sync id was committed, <code>false</code> if this engine has operations the
+     *         primary did not report or misses some
+     */
+    public abstract boolean syncFlush(String syncId, String historyUUID, long maxSeqNo) throws EngineException;
+
+    /**
+     * Returns the number of bytes the index writer currently uses for buffered documents and deletes
+     */
+    public abstract long indexBufferRAMBytesUsed();
+
     /** fail engine due to some error. the engine will also be closed. */
     public void failEngine(String reason, Throwable failure) {
         assert failure != null;
@@ -603,6 +653,7 @@ public abstract class Engine implements Closeable {
         private final VersionType versionType;
         private final Origin origin;
         private final boolean canHaveDuplicates;
+        private long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
 
         private final long startTime;
         private long endTime;
@@ -672,6 +723,17 @@ public abstract class Engine implements Closeable {
             return this.versionType;
         }
 
+        /**
+         * The sequence number of the operation, {@link SequenceNumbers#UNASSIGNED_SEQ_NO} until the primary assigned one.
+         */
+        public long seqNo() {
+            return this.seqNo;
+        }
+
+        public void seqNo(long seqNo) {
+            this.seqNo = seqNo;
+        }
+
         public boolean canHaveDuplicates() {
             return this.canHaveDuplicates;
         }
@@ -780,6 +842,7 @@ public abstract class Engine implements Closeable {
         private final VersionType versionType;
         private final Origin origin;
         private boolean found;
+        private long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
 
         private final long startTime;
         private long endTime;
@@ -801,6 +864,7 @@ public abstract class Engine implements Closeable {
 
         public Delete(Delete template, VersionType versionType) {
             this(template.type(), template.id(), template.uid(), template.version(), versionType, template.origin(), template.startTime(), template.found());
+            this.seqNo = template.seqNo();
         }
 
         @Override
@@ -845,6 +909,17 @@ public abstract class Engine implements Closeable {
             return this.found;
         }
 
+        /**
+         * The sequence number of the operation, {@link SequenceNumbers#UNASSIGNED_SEQ_NO} until the primary assigned one.
+         */
+        public long seqNo() {
+            return this.seqNo;
+        }
+
+        public void seqNo(long seqNo) {
+            this.seqNo = seqNo;
+        }
+
         /**
          * Returns operation start time in nanoseconds.
          */
@@ -872,6 +947,7 @@ public abstract class Engine implements Closeable {
         private final String[] types;
         private final BitDocIdSetFilter parentFilter;
         private final Operation.Origin origin;
+        private long seqNo = SequenceNumbers.UNASSIGNED_SEQ_NO;
 
         private final long startTime;
         private long endTime;
@@ -919,6 +995,17 @@ public abstract class Engine implements Closeable {
             return this.origin;
         }
 
+        /**
+         * The sequence number of the operation, {@link SequenceNumbers#UNASSIGNED_SEQ_NO} until the primary assigned one.
+         */
+        public long seqNo() {
+            return this.seqNo;
+        }
+
+        public void seqNo(long seqNo) {
+            this.seqNo = seqNo;
+        }
+
         /**
          * Returns operation start time in nanoseconds.
          */
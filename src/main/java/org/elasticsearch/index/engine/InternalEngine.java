@@ -31,6 +31,7 @@ import org.apache.lucene.util.InfoStream;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.cluster.routing.DjbHashFunction;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lease.Releasables;
@@ -49,6 +50,8 @@ import org.elasticsearch.index.merge.policy.ElasticsearchMergePolicy;
 import org.elasticsearch.index.merge.policy.MergePolicyProvider;
 import org.elasticsearch.index.merge.scheduler.MergeSchedulerProvider;
 import org.elasticsearch.index.search.nested.IncludeNestedDocsQuery;
+import org.elasticsearch.index.seqno.LocalCheckpointTracker;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.TranslogRecoveryPerformer;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.index.translog.TruncatedTranslogException;
@@ -108,6 +111,11 @@ public class InternalEngine extends Engine {
 
     private final IndexThrottle throttle;
 
+    private final LocalCheckpointTracker localCheckpointTracker;
+    private volatile String historyUUID;
+    // every operation with a higher sequence number is contained in the current translog
+    private volatile long translogStartSeqNo;
+
     public InternalEngine(EngineConfig engineConfig, boolean skipInitialTranslogRecovery) throws EngineException {
         super(engineConfig);
         this.versionMap = new LiveVersionMap();
@@ -131,9 +139,20 @@ public class InternalEngine extends Engine {
             throttle = new IndexThrottle();
             this.searcherFactory = new SearchFactory(engineConfig);
             final Tuple<Long, Long> translogId; // nextTranslogId, currentTranslogId
+            final String committedSyncId;
+            final long committedMaxSeqNo;
             try {
                 writer = createWriter();
                 indexWriter = writer;
+                final Map<String, String> commitUserData = writer.getCommitData();
+                final long maxSeqNo = SequenceNumbers.readSeqNo(commitUserData, SequenceNumbers.MAX_SEQ_NO_KEY);
+                final long localCheckpoint = SequenceNumbers.readSeqNo(commitUserData, SequenceNumbers.LOCAL_CHECKPOINT_KEY);
+                localCheckpointTracker = new LocalCheckpointTracker(maxSeqNo, Math.min(localCheckpoint, maxSeqNo));
+                translogStartSeqNo = maxSeqNo;
+                final String committedHistoryUUID = commitUserData.get(SequenceNumbers.HISTORY_UUID_KEY);
+                historyUUID = committedHistoryUUID == null ? Strings.randomBase64UUID() : committedHistoryUUID;
+                committedSyncId = commitUserData.get(SYNC_COMMIT_ID);
+                committedMaxSeqNo = maxSeqNo;
                 translogId = loadTranslogIds(writer, translog);
             } catch (IOException e) {
                 throw new EngineCreationFailureException(shardId, "failed to create engine", e);
@@ -155,6 +174,11 @@ public class InternalEngine extends Engine {
                 } else {
                     flush(true, true);
                 }
+                // the commit made on opening drops the sync id, keep it if the translog didn't add any operations
+                // so copies that share it can still recover from each other without copying files
+                if (committedSyncId != null && localCheckpointTracker.maxSeqNo() == committedMaxSeqNo) {
+                    syncFlush(committedSyncId, historyUUID, committedMaxSeqNo);
+                }
             } catch (IOException | EngineException ex) {
                 throw new EngineCreationFailureException(shardId, "failed to recover from translog", ex);
             }
@@ -186,7 +210,7 @@ public class InternalEngine extends Engine {
             return new Tuple<>(currentTranslogId, nextTranslogId);
         }
          // translog id is not in the metadata - fix this inconsistency some code relies on this and old indices might not have it.
-        writer.setCommitData(Collections.singletonMap(Translog.TRANSLOG_ID_KEY, Long.toString(nextTranslogId)));
+        writer.setCommitData(commitUserData(nextTranslogId, translogStartSeqNo));
         commitIndexWriter(writer);
         logger.debug("no translog ID present in the current commit - creating one");
         return new Tuple<>(null, nextTranslogId);
@@ -261,13 +285,17 @@ public class InternalEngine extends Engine {
     public void create(Create create) throws EngineException {
         try (ReleasableLock lock = readLock.acquire()) {
             ensureOpen();
-            if (create.origin() == Operation.Origin.RECOVERY) {
-                // Don't throttle recovery operations
-                innerCreate(create);
-            } else {
-                try (Releasable r = throttle.acquireThrottle()) {
+            try {
+                if (create.origin() == Operation.Origin.RECOVERY) {
+                    // Don't throttle recovery operations
                     innerCreate(create);
+                } else {
+                    try (Releasable r = throttle.acquireThrottle()) {
+                        innerCreate(create);
+                    }
                 }
+            } finally {
+                localCheckpointTracker.markSeqNoAsCompleted(create.seqNo());
             }
             flushNeeded = true;
         } catch (OutOfMemoryError | IllegalStateException | IOException t) {
@@ -341,6 +369,9 @@ public class InternalEngine extends Engine {
             }
         }
 
+        if (create.origin() == Operation.Origin.PRIMARY) {
+            create.seqNo(localCheckpointTracker.generateSeqNo());
+        }
         create.updateVersion(updatedVersion);
 
         if (doUpdate) {
@@ -368,13 +399,17 @@ public class InternalEngine extends Engine {
         final boolean created;
         try (ReleasableLock lock = readLock.acquire()) {
             ensureOpen();
-            if (index.origin() == Operation.Origin.RECOVERY) {
-                // Don't throttle recovery operations
-                created = innerIndex(index);
-            } else {
-                try (Releasable r = throttle.acquireThrottle()) {
+            try {
+                if (index.origin() == Operation.Origin.RECOVERY) {
+                    // Don't throttle recovery operations
                     created = innerIndex(index);
+                } else {
+                    try (Releasable r = throttle.acquireThrottle()) {
+                        created = innerIndex(index);
+                    }
                 }
+            } finally {
+                localCheckpointTracker.markSeqNoAsCompleted(index.seqNo());
             }
             flushNeeded = true;
         } catch (OutOfMemoryError | IllegalStateException | IOException t) {
@@ -438,6 +473,9 @@ public class InternalEngine extends Engine {
             updatedVersion = index.versionType().updateVersion(currentVersion, expectedVersion);
 
             final boolean created;
+            if (index.origin() == Operation.Origin.PRIMARY) {
+                index.seqNo(localCheckpointTracker.generateSeqNo());
+            }
             index.updateVersion(updatedVersion);
             if (currentVersion == Versions.NOT_FOUND) {
                 // document does not exists, we can optimize for create
@@ -472,8 +510,12 @@ public class InternalEngine extends Engine {
     public void delete(Delete delete) throws EngineException {
         try (ReleasableLock lock = readLock.acquire()) {
             ensureOpen();
-            // NOTE: we don't throttle this when merges fall behind because delete-by-id does not create new segments:
-            innerDelete(delete);
+            try {
+                // NOTE: we don't throttle this when merges fall behind because delete-by-id does not create new segments:
+                innerDelete(delete);
+            } finally {
+                localCheckpointTracker.markSeqNoAsCompleted(delete.seqNo());
+            }
             flushNeeded = true;
         } catch (OutOfMemoryError | IllegalStateException | IOException t) {
             maybeFailEngine("delete", t);
@@ -516,6 +558,9 @@ public class InternalEngine extends Engine {
                 }
             }
             updatedVersion = delete.versionType().updateVersion(currentVersion, expectedVersion);
+            if (delete.origin() == Operation.Origin.PRIMARY) {
+                delete.seqNo(localCheckpointTracker.generateSeqNo());
+            }
             final boolean found;
             if (currentVersion == Versions.NOT_FOUND) {
                 // doc does not exist and no prior deletes
@@ -565,12 +610,17 @@ public class InternalEngine extends Engine {
                 query = delete.query();
             }
 
+            if (delete.origin() == Operation.Origin.PRIMARY) {
+                delete.seqNo(localCheckpointTracker.generateSeqNo());
+            }
             indexWriter.deleteDocuments(query);
             translog.add(new Translog.DeleteByQuery(delete));
             flushNeeded = true;
         } catch (Throwable t) {
             maybeFailEngine("delete_by_query", t);
             throw new DeleteByQueryFailedEngineException(shardId, delete, t);
+        } finally {
+            localCheckpointTracker.markSeqNoAsCompleted(delete.seqNo());
         }
 
         // TODO: This is heavy, since we refresh, but we must do this because we don't know which documents were in fact deleted (i.e., our
@@ -653,7 +703,9 @@ public class InternalEngine extends Engine {
                         try {
                             long translogId = translogIdGenerator.incrementAndGet();
                             translog.newTransientTranslog(translogId);
-                            indexWriter.setCommitData(Collections.singletonMap(Translog.TRANSLOG_ID_KEY, Long.toString(translogId)));
+                            // operations issued from now on are added to the new translog as well
+                            final long newTranslogStartSeqNo = localCheckpointTracker.maxSeqNo();
+                            indexWriter.setCommitData(commitUserData(translogId, newTranslogStartSeqNo));
                             logger.trace("starting commit for flush; commitTranslog=true");
                             commitIndexWriter(indexWriter);
                             logger.trace("finished commit for flush");
@@ -663,6 +715,7 @@ public class InternalEngine extends Engine {
                             // so items added to current will still be around for realtime get
                             // when tans overrides it
                             translog.makeTransientCurrent();
+                            translogStartSeqNo = newTranslogStartSeqNo;
 
                         } catch (Throwable e) {
                             try {
@@ -682,7 +735,7 @@ public class InternalEngine extends Engine {
                     // other flushes use flushLock
                     try {
                         long translogId = translog.currentId();
-                        indexWriter.setCommitData(Collections.singletonMap(Translog.TRANSLOG_ID_KEY, Long.toString(translogId)));
+                        indexWriter.setCommitData(commitUserData(translogId, translogStartSeqNo));
                         logger.trace("starting commit for flush; commitTranslog=false");
                         commitIndexWriter(indexWriter);
                         logger.trace("finished commit for flush");
@@ -879,6 +932,104 @@ public class InternalEngine extends Engine {
         }
     }
 
+    /**
+     * Builds the user data of the next commit. The local checkpoint has to be read before the commit is made,
+     * all operations up to and including it have been added to the index writer and are part of the commit.
+     */
+    private Map<String, String> commitUserData(long translogId, long translogStartSeqNo) {
+        return commitUserData(translogId, translogStartSeqNo, null);
+    }
+
+    private Map<String, String> commitUserData(long translogId, long translogStartSeqNo, @Nullable String syncId) {
+        final Map<String, String> userData = new HashMap<>();
+        userData.put(Translog.TRANSLOG_ID_KEY, Long.toString(translogId));
+        userData.put(SequenceNumbers.HISTORY_UUID_KEY, historyUUID);
+        userData.put(SequenceNumbers.LOCAL_CHECKPOINT_KEY, Long.toString(localCheckpointTracker.checkpoint()));
+        userData.put(SequenceNumbers.MAX_SEQ_NO_KEY, Long.toString(localCheckpointTracker.maxSeqNo()));
+        userData.put(SequenceNumbers.TRANSLOG_START_SEQ_NO_KEY, Long.toString(translogStartSeqNo));
+        if (syncId != null) {
+            userData.put(SYNC_COMMIT_ID, syncId);
+        }
+        return userData;
+    }
+
+    @Override
+    public String historyUUID() {
+        return historyUUID;
+    }
+
+    @Override
+    public long localCheckpoint() {
+        return localCheckpointTracker.checkpoint();
+    }
+
+    @Override
+    public long maxSeqNo() {
+        return localCheckpointTracker.maxSeqNo();
+    }
+
+    @Override
+    public void startNewHistory() {
+        try (ReleasableLock lock = writeLock.acquire()) {
+            ensureOpen();
+            historyUUID = Strings.randomBase64UUID();
+            localCheckpointTracker.fastForward(localCheckpointTracker.maxSeqNo());
+            logger.debug("started new operation history [{}] at seq no [{}]", historyUUID, localCheckpointTracker.maxSeqNo());
+        }
+    }
+
+    @Override
+    public void adoptHistory(String historyUUID, long maxSeqNo) {
+        try (ReleasableLock lock = writeLock.acquire()) {
+            ensureOpen();
+            this.historyUUID = historyUUID;
+            localCheckpointTracker.fastForward(maxSeqNo);
+            logger.debug("adopted operation history [{}] up to seq no [{}]", historyUUID, maxSeqNo);
+        }
+    }
+
+    @Override
+    public boolean syncFlush(String syncId, String expectedHistoryUUID, long expectedMaxSeqNo) throws EngineException {
+        // commit everything we have first, the sync commit must not contain any new documents
+        flush(false, true);
+        try (ReleasableLock lock = writeLock.acquire()) {
+            ensureOpen();
+            if (expectedHistoryUUID.equals(historyUUID) == false) {
+                logger.trace("can't sync commit [{}], history [{}] differs from expected [{}]", syncId, historyUUID, expectedHistoryUUID);
+                return false;
+            }
+            final long maxSeqNo = localCheckpointTracker.maxSeqNo();
+            final long checkpoint = localCheckpointTracker.checkpoint();
+            if (maxSeqNo != expectedMaxSeqNo || checkpoint != expectedMaxSeqNo) {
+                logger.trace("can't sync commit [{}], expected all operations up to [{}] but max seq no is [{}] and checkpoint [{}]",
+                        syncId, expectedMaxSeqNo, maxSeqNo, checkpoint);
+                return false;
+            }
+            if (indexWriter.hasUncommittedChanges()) {
+                logger.trace("can't sync commit [{}], index writer has uncommitted changes", syncId);
+                return false;
+            }
+            try {
+                indexWriter.setCommitData(commitUserData(translog.currentId(), translogStartSeqNo, syncId));
+                commitIndexWriter(indexWriter);
+            } catch (Throwable e) {
+                FlushFailedEngineException ex = new FlushFailedEngineException(shardId, e);
+                maybeFailEngine("sync commit", ex);
+                throw ex;
+            }
+            store.incRef();
+            try {
+                lastCommittedSegmentInfos = store.readLastCommittedSegmentsInfo();
+            } catch (Throwable e) {
+                logger.warn("failed to read latest segment infos on sync commit", e);
+            } finally {
+                store.decRef();
+            }
+            logger.debug("committed sync id [{}] at seq no [{}]", syncId, expectedMaxSeqNo);
+            return true;
+        }
+    }
+
     @Override
     protected boolean maybeFailEngine(String source, Throwable t) {
         boolean shouldFail = super.maybeFailEngine(source, t);
@@ -909,6 +1060,11 @@ public class InternalEngine extends Engine {
         return lastCommittedSegmentInfos;
     }
 
+    @Override
+    public long indexBufferRAMBytesUsed() {
+        return indexWriter.ramBytesUsed();
+    }
+
     @Override
     protected final void writerSegmentStats(SegmentsStats stats) {
         stats.addVersionMapMemoryInBytes(versionMap.ramBytesUsed());
@@ -31,6 +31,7 @@ import org.elasticsearch.common.lucene.index.ElasticsearchDirectoryReader;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ReleasableLock;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.IndexShardException;
 
 import java.io.IOException;
@@ -206,6 +207,43 @@ public class ShadowEngine extends Engine {
         throw new UnsupportedOperationException("Can not recover from a shadow engine");
     }
 
+    @Override
+    public String historyUUID() {
+        return null;
+    }
+
+    @Override
+    public long localCheckpoint() {
+        return SequenceNumbers.NO_OPS_PERFORMED;
+    }
+
+    @Override
+    public long maxSeqNo() {
+        return SequenceNumbers.NO_OPS_PERFORMED;
+    }
+
+    @Override
+    public void startNewHistory() {
+        // shadow engines read the primary's files and never apply operations, there is no history to track
+    }
+
+    @Override
+    public void adoptHistory(String historyUUID, long maxSeqNo) {
+        // shadow engines read the primary's files and never apply operations, there is no history to track
+    }
+
+    @Override
+    public boolean syncFlush(String syncId, String historyUUID, long maxSeqNo) {
+        // shadow engines share the primary's files, there is nothing to sync
+        return false;
+    }
+
+    @Override
+    public long indexBufferRAMBytesUsed() {
+        // shadow engines don't have an index writer
+        return 0;
+    }
+
     @Override
     protected SearcherManager getSearcherManager() {
         return searcherManager;
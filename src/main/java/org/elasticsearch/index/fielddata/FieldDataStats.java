@@ -25,6 +25,7 @@ import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
 import org.elasticsearch.common.io.stream.Streamable;
 import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.ToXContent;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
@@ -37,6 +38,10 @@ public class FieldDataStats implements Streamable, ToXContent {
 
     long memorySize;
     long evictions;
+    long heapLoads;
+    long heapLoadTimeInMillis;
+    long docValuesLoads;
+    long docValuesLoadTimeInMillis;
     @Nullable
     ObjectLongOpenHashMap<String> fields;
 
@@ -44,15 +49,24 @@ public class FieldDataStats implements Streamable, ToXContent {
 
     }
 
-    public FieldDataStats(long memorySize, long evictions, @Nullable ObjectLongOpenHashMap<String> fields) {
+    public FieldDataStats(long memorySize, long evictions, long heapLoads, long heapLoadTimeInMillis,
+                          long docValuesLoads, long docValuesLoadTimeInMillis, @Nullable ObjectLongOpenHashMap<String> fields) {
         this.memorySize = memorySize;
         this.evictions = evictions;
+        this.heapLoads = heapLoads;
+        this.heapLoadTimeInMillis = heapLoadTimeInMillis;
+        this.docValuesLoads = docValuesLoads;
+        this.docValuesLoadTimeInMillis = docValuesLoadTimeInMillis;
         this.fields = fields;
     }
 
     public void add(FieldDataStats stats) {
         this.memorySize += stats.memorySize;
         this.evictions += stats.evictions;
+        this.heapLoads += stats.heapLoads;
+        this.heapLoadTimeInMillis += stats.heapLoadTimeInMillis;
+        this.docValuesLoads += stats.docValuesLoads;
+        this.docValuesLoadTimeInMillis += stats.docValuesLoadTimeInMillis;
         if (stats.fields != null) {
             if (fields == null) fields = new ObjectLongOpenHashMap<>();
             final boolean[] states = stats.fields.allocated;
@@ -78,6 +92,28 @@ public class FieldDataStats implements Streamable, ToXContent {
         return this.evictions;
     }
 
+    /**
+     * The number of times field data was uninverted on the heap from the inverted index.
+     */
+    public long getHeapLoads() {
+        return this.heapLoads;
+    }
+
+    public TimeValue getHeapLoadTime() {
+        return new TimeValue(heapLoadTimeInMillis);
+    }
+
+    /**
+     * The number of times a cached structure, like global ordinals, was built on top of doc values.
+     */
+    public long getDocValuesLoads() {
+        return this.docValuesLoads;
+    }
+
+    public TimeValue getDocValuesLoadTime() {
+        return new TimeValue(docValuesLoadTimeInMillis);
+    }
+
     @Nullable
     public ObjectLongOpenHashMap<String> getFields() {
         return fields;
@@ -93,6 +129,10 @@ public class FieldDataStats implements Streamable, ToXContent {
     public void readFrom(StreamInput in) throws IOException {
         memorySize = in.readVLong();
         evictions = in.readVLong();
+        heapLoads = in.readVLong();
+        heapLoadTimeInMillis = in.readVLong();
+        docValuesLoads = in.readVLong();
+        docValuesLoadTimeInMillis = in.readVLong();
         if (in.readBoolean()) {
             int size = in.readVInt();
             fields = new ObjectLongOpenHashMap<>(size);
@@ -106,6 +146,10 @@ public class FieldDataStats implements Streamable, ToXContent {
     public void writeTo(StreamOutput out) throws IOException {
         out.writeVLong(memorySize);
         out.writeVLong(evictions);
+        out.writeVLong(heapLoads);
+        out.writeVLong(heapLoadTimeInMillis);
+        out.writeVLong(docValuesLoads);
+        out.writeVLong(docValuesLoadTimeInMillis);
         if (fields == null) {
             out.writeBoolean(false);
         } else {
@@ -128,6 +172,16 @@ public class FieldDataStats implements Streamable, ToXContent {
         builder.startObject(Fields.FIELDDATA);
         builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, memorySize);
         builder.field(Fields.EVICTIONS, getEvictions());
+        builder.startObject(Fields.LOADS);
+        builder.startObject(Fields.HEAP);
+        builder.field(Fields.COUNT, heapLoads);
+        builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, heapLoadTimeInMillis);
+        builder.endObject();
+        builder.startObject(Fields.DOC_VALUES);
+        builder.field(Fields.COUNT, docValuesLoads);
+        builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, docValuesLoadTimeInMillis);
+        builder.endObject();
+        builder.endObject();
         if (fields != null) {
             builder.startObject(Fields.FIELDS);
             final boolean[] states = fields.allocated;
@@ -152,5 +206,11 @@ public class FieldDataStats implements Streamable, ToXContent {
         static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
         static final XContentBuilderString EVICTIONS = new XContentBuilderString("evictions");
         static final XContentBuilderString FIELDS = new XContentBuilderString("fields");
+        static final XContentBuilderString LOADS = new XContentBuilderString("loads");
+        static final XContentBuilderString HEAP = new XContentBuilderString("heap");
+        static final XContentBuilderString DOC_VALUES = new XContentBuilderString("doc_values");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString TIME = new XContentBuilderString("time");
+        static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
     }
 }
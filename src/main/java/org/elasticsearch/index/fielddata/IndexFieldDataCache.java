@@ -47,7 +47,11 @@ public interface IndexFieldDataCache {
 
     interface Listener {
 
-        void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, Accountable ramUsage);
+        /**
+         * Called once field data has been loaded into the cache. {@code docValues} tells whether the loaded
+         * data was built on top of doc values, as opposed to being uninverted on the heap from the inverted index.
+         */
+        void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, Accountable ramUsage, boolean docValues, long loadTimeInNanos);
 
         void onUnload(FieldMapper.Names fieldNames, FieldDataType fieldDataType, boolean wasEvicted, long sizeInBytes);
     }
@@ -53,6 +53,11 @@ public class IndexFieldDataService extends AbstractIndexComponent {
 
     public static final String FIELDDATA_CACHE_KEY = "index.fielddata.cache";
     public static final String FIELDDATA_CACHE_VALUE_NODE = "node";
+    /**
+     * Whether field data of fields that have no doc values may be uninverted on the heap without the field
+     * explicitly asking for it through its <code>fielddata.format</code>.
+     */
+    public static final String FIELDDATA_IMPLICIT_HEAP_LOADING = "index.fielddata.implicit_heap_loading";
 
     private static final String DISABLED_FORMAT = "disabled";
     private static final String DOC_VALUES_FORMAT = "doc_values";
@@ -60,11 +65,13 @@ public class IndexFieldDataService extends AbstractIndexComponent {
     private static final String PAGED_BYTES_FORMAT = "paged_bytes";
     private static final String FST_FORMAT = "fst";
     private static final String COMPRESSED_FORMAT = "compressed";
+    private static final String MMAP_FORMAT = "mmap";
 
     private final static ImmutableMap<String, IndexFieldData.Builder> buildersByType;
     private final static ImmutableMap<String, IndexFieldData.Builder> docValuesBuildersByType;
     private final static ImmutableMap<Tuple<String, String>, IndexFieldData.Builder> buildersByTypeAndFormat;
     private final CircuitBreakerService circuitBreakerService;
+    private final boolean implicitHeapLoading;
 
     static {
         buildersByType = MapBuilder.<String, IndexFieldData.Builder>newMapBuilder()
@@ -98,6 +105,7 @@ public class IndexFieldDataService extends AbstractIndexComponent {
         buildersByTypeAndFormat = MapBuilder.<Tuple<String, String>, IndexFieldData.Builder>newMapBuilder()
                 .put(Tuple.tuple("string", PAGED_BYTES_FORMAT), new PagedBytesIndexFieldData.Builder())
                 .put(Tuple.tuple("string", FST_FORMAT), new FSTBytesIndexFieldData.Builder())
+                .put(Tuple.tuple("string", MMAP_FORMAT), new MMapBytesIndexFieldData.Builder())
                 .put(Tuple.tuple("string", DOC_VALUES_FORMAT), new DocValuesIndexFieldData.Builder())
                 .put(Tuple.tuple("string", DISABLED_FORMAT), new DisabledIndexFieldData.Builder())
 
@@ -153,6 +161,7 @@ public class IndexFieldDataService extends AbstractIndexComponent {
         super(index, indexSettings);
         this.indicesFieldDataCache = indicesFieldDataCache;
         this.circuitBreakerService = circuitBreakerService;
+        this.implicitHeapLoading = indexSettings.getAsBoolean(FIELDDATA_IMPLICIT_HEAP_LOADING, true);
     }
 
     // we need to "inject" the index service to not create cyclic dep
@@ -243,7 +252,9 @@ public class IndexFieldDataService extends AbstractIndexComponent {
                     IndexFieldData.Builder builder = null;
                     String format = type.getFormat(indexSettings);
                     if (format != null && FieldDataType.DOC_VALUES_FORMAT_VALUE.equals(format) && !docValues) {
-                        logger.warn("field [" + fieldNames.fullName() + "] has no doc values, will use default field data format");
+                        if (implicitHeapLoading) {
+                            logger.warn("field [" + fieldNames.fullName() + "] has no doc values, will use default field data format");
+                        }
                         format = null;
                     }
                     if (format != null) {
@@ -255,6 +266,11 @@ public class IndexFieldDataService extends AbstractIndexComponent {
                     if (builder == null && docValues) {
                         builder = docValuesBuildersByType.get(type.getType());
                     }
+                    if (builder == null && implicitHeapLoading == false && docValuesBuildersByType.containsKey(type.getType())) {
+                        // the field could have been backed by doc values, don't silently uninvert it on the heap
+                        builder = new DisabledIndexFieldData.Builder("the field has no doc values and [" + FIELDDATA_IMPLICIT_HEAP_LOADING
+                                + "] is disabled, either enable doc values on the field or set its field data format explicitly");
+                    }
                     if (builder == null) {
                         builder = buildersByType.get(type.getType());
                     }
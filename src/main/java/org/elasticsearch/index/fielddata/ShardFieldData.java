@@ -23,6 +23,7 @@ import com.carrotsearch.hppc.ObjectLongOpenHashMap;
 import org.apache.lucene.util.Accountable;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.regex.Regex;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
@@ -34,6 +35,7 @@ import org.elasticsearch.index.shard.ShardId;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  */
@@ -41,6 +43,8 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
 
     final CounterMetric evictionsMetric = new CounterMetric();
     final CounterMetric totalMetric = new CounterMetric();
+    final MeanMetric heapLoadsMetric = new MeanMetric();
+    final MeanMetric docValuesLoadsMetric = new MeanMetric();
 
     final ConcurrentMap<String, CounterMetric> perFieldTotals = ConcurrentCollections.newConcurrentMap();
 
@@ -66,11 +70,18 @@ public class ShardFieldData extends AbstractIndexShardComponent implements Index
         if (perFieldTotals.containsKey(ParentFieldMapper.NAME)) {
             memorySize -= perFieldTotals.get(ParentFieldMapper.NAME).count();
         }
-        return new FieldDataStats(memorySize, evictionsMetric.count(), fieldTotals);
+        return new FieldDataStats(memorySize, evictionsMetric.count(),
+                heapLoadsMetric.count(), TimeUnit.NANOSECONDS.toMillis(heapLoadsMetric.sum()),
+                docValuesLoadsMetric.count(), TimeUnit.NANOSECONDS.toMillis(docValuesLoadsMetric.sum()), fieldTotals);
     }
 
     @Override
-    public void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, Accountable ramUsage) {
+    public void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, Accountable ramUsage, boolean docValues, long loadTimeInNanos) {
+        if (docValues) {
+            docValuesLoadsMetric.inc(loadTimeInNanos);
+        } else {
+            heapLoadsMetric.inc(loadTimeInNanos);
+        }
         totalMetric.inc(ramUsage.ramBytesUsed());
         String keyFieldName = fieldNames.indexName();
         CounterMetric total = perFieldTotals.get(keyFieldName);
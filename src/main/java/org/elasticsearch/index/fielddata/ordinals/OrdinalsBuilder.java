@@ -163,6 +163,22 @@ public final class OrdinalsBuilder implements Closeable {
             Arrays.fill(sizes, 1); // reserve the 1st slice on every level
         }
 
+        long ramBytesUsed() {
+            long size = positions.ramBytesUsed() + firstOrdinals.ramBytesUsed();
+            if (firstNextLevelSlices != null) {
+                size += firstNextLevelSlices.ramBytesUsed();
+            }
+            for (int level = 0; level < ordinals.length; level++) {
+                if (ordinals[level] != null) {
+                    size += ordinals[level].ramBytesUsed();
+                }
+                if (nextLevelSlices[level] != null) {
+                    size += nextLevelSlices[level].ramBytesUsed();
+                }
+            }
+            return size;
+        }
+
         /**
          * Allocate a new slice and return its ID.
          */
@@ -290,6 +306,14 @@ public final class OrdinalsBuilder implements Closeable {
         this(maxDoc, DEFAULT_ACCEPTABLE_OVERHEAD_RATIO);
     }
 
+    /**
+     * Returns the memory used by the ordinals added so far. This memory is transient, it is released once
+     * the builder isn't referenced anymore.
+     */
+    public long ramBytesUsed() {
+        return ordinals.ramBytesUsed();
+    }
+
     /**
      * Returns a shared {@link LongsRef} instance for the given doc ID holding all ordinals associated with it.
      */
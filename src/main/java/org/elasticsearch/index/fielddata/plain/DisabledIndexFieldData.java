@@ -39,16 +39,37 @@ import org.elasticsearch.indices.breaker.CircuitBreakerService;
 public final class DisabledIndexFieldData extends AbstractIndexFieldData<AtomicFieldData> {
 
     public static class Builder implements IndexFieldData.Builder {
+
+        private final String reason;
+
+        public Builder() {
+            this(null);
+        }
+
+        /**
+         * @param reason an explanation appended to the failure message, or <code>null</code>
+         */
+        public Builder(String reason) {
+            this.reason = reason;
+        }
+
         @Override
         public IndexFieldData<AtomicFieldData> build(Index index, @IndexSettings Settings indexSettings, FieldMapper<?> mapper,
                                                         IndexFieldDataCache cache, CircuitBreakerService breakerService, MapperService mapperService) {
             // Ignore Circuit Breaker
-            return new DisabledIndexFieldData(index, indexSettings, mapper.names(), mapper.fieldDataType(), cache);
+            return new DisabledIndexFieldData(index, indexSettings, mapper.names(), mapper.fieldDataType(), cache, reason);
         }
     }
 
+    private final String reason;
+
     public DisabledIndexFieldData(Index index, Settings indexSettings, Names fieldNames, FieldDataType fieldDataType, IndexFieldDataCache cache) {
+        this(index, indexSettings, fieldNames, fieldDataType, cache, null);
+    }
+
+    public DisabledIndexFieldData(Index index, Settings indexSettings, Names fieldNames, FieldDataType fieldDataType, IndexFieldDataCache cache, String reason) {
         super(index, indexSettings, fieldNames, fieldDataType, cache);
+        this.reason = reason;
     }
 
     @Override
@@ -62,7 +83,11 @@ public final class DisabledIndexFieldData extends AbstractIndexFieldData<AtomicF
     }
 
     private ElasticsearchIllegalStateException fail() {
-        return new ElasticsearchIllegalStateException("Field data loading is forbidden on " + getFieldNames().name());
+        String message = "Field data loading is forbidden on " + getFieldNames().name();
+        if (reason != null) {
+            message += ", " + reason;
+        }
+        return new ElasticsearchIllegalStateException(message);
     }
 
 }
@@ -0,0 +1,220 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.RandomAccessOrds;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.LongValues;
+import org.apache.lucene.util.RamUsageEstimator;
+import org.apache.lucene.util.packed.DirectReader;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.index.fielddata.AbstractRandomAccessOrds;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Ordinals based field data that reads the terms and the ordinals of a segment from a file written by
+ * {@link MMapBytesIndexFieldData}. Nothing but the file metadata lives on the heap, the file itself is
+ * memory mapped.
+ */
+public class MMapBytesAtomicFieldData extends AbstractAtomicOrdinalsFieldData {
+
+    private static final long BASE_RAM_BYTES_USED = RamUsageEstimator.shallowSizeOfInstance(MMapBytesAtomicFieldData.class);
+
+    private final IndexInput input;
+    private final long ramBytesUsed;
+    private final boolean multiValued;
+    private final long valueCount;
+
+    private final long termBytesOffset;
+    private final long termOffsetsOffset;
+    private final int termOffsetsBits;
+    private final long docOffsetsOffset;
+    private final int docOffsetsBits;
+    private final long ordsOffset;
+    private final int ordsBits;
+    private final long ordsEnd;
+
+    MMapBytesAtomicFieldData(IndexInput input, boolean inHeap, boolean multiValued, long valueCount,
+                             long termBytesOffset, long termOffsetsOffset, int termOffsetsBits,
+                             long docOffsetsOffset, int docOffsetsBits, long ordsOffset, int ordsBits, long ordsEnd) {
+        this.input = input;
+        // the file only counts against the heap if it could not be mapped
+        this.ramBytesUsed = BASE_RAM_BYTES_USED + (inHeap ? input.length() : 0);
+        this.multiValued = multiValued;
+        this.valueCount = valueCount;
+        this.termBytesOffset = termBytesOffset;
+        this.termOffsetsOffset = termOffsetsOffset;
+        this.termOffsetsBits = termOffsetsBits;
+        this.docOffsetsOffset = docOffsetsOffset;
+        this.docOffsetsBits = docOffsetsBits;
+        this.ordsOffset = ordsOffset;
+        this.ordsBits = ordsBits;
+        this.ordsEnd = ordsEnd;
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return ramBytesUsed;
+    }
+
+    @Override
+    public Collection<Accountable> getChildResources() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void close() {
+        // the input is opened without the unmap hack, the mapping is released once all its clones are
+        // garbage collected which makes sure searches that still hold the values never see an unmapped buffer
+    }
+
+    @Override
+    public RandomAccessOrds getOrdinalsValues() {
+        final IndexInput termBytes;
+        final LongValues termOffsets;
+        final LongValues docOffsets;
+        final LongValues ords;
+        try {
+            // slicing is cheap, but the slices are not thread safe so every consumer gets its own
+            synchronized (input) {
+                termBytes = input.slice("terms", termBytesOffset, termOffsetsOffset - termBytesOffset);
+                termOffsets = DirectReader.getInstance(input.randomAccessSlice(termOffsetsOffset, docOffsetsOffset - termOffsetsOffset), termOffsetsBits);
+                docOffsets = DirectReader.getInstance(input.randomAccessSlice(docOffsetsOffset, ordsOffset - docOffsetsOffset), docOffsetsBits);
+                ords = DirectReader.getInstance(input.randomAccessSlice(ordsOffset, ordsEnd - ordsOffset), ordsBits);
+            }
+        } catch (IOException e) {
+            throw new ElasticsearchException("failed to read field data from [" + input + "]", e);
+        }
+        final Terms terms = new Terms(termBytes, termOffsets);
+        if (multiValued) {
+            return new MultiDocs(valueCount, docOffsets, ords, terms);
+        } else {
+            return (RandomAccessOrds) DocValues.singleton(new SingleDocs((int) valueCount, docOffsets, ords, terms));
+        }
+    }
+
+    private static class Terms {
+
+        private final IndexInput bytes;
+        private final LongValues offsets;
+        private final BytesRefBuilder scratch = new BytesRefBuilder();
+
+        Terms(IndexInput bytes, LongValues offsets) {
+            this.bytes = bytes;
+            this.offsets = offsets;
+        }
+
+        BytesRef lookupOrd(long ord) {
+            final long start = offsets.get(ord);
+            final int length = (int) (offsets.get(ord + 1) - start);
+            scratch.grow(length);
+            try {
+                bytes.seek(start);
+                bytes.readBytes(scratch.bytes(), 0, length);
+            } catch (IOException e) {
+                throw new ElasticsearchException("failed to read term for ordinal [" + ord + "]", e);
+            }
+            scratch.setLength(length);
+            return scratch.get();
+        }
+    }
+
+    private static class SingleDocs extends SortedDocValues {
+
+        private final int valueCount;
+        private final LongValues docOffsets;
+        private final LongValues ords;
+        private final Terms terms;
+
+        SingleDocs(int valueCount, LongValues docOffsets, LongValues ords, Terms terms) {
+            this.valueCount = valueCount;
+            this.docOffsets = docOffsets;
+            this.ords = ords;
+            this.terms = terms;
+        }
+
+        @Override
+        public int getOrd(int docId) {
+            final long startOffset = docOffsets.get(docId);
+            final long endOffset = docOffsets.get(docId + 1);
+            return startOffset == endOffset ? -1 : (int) ords.get(startOffset);
+        }
+
+        @Override
+        public BytesRef lookupOrd(int ord) {
+            return terms.lookupOrd(ord);
+        }
+
+        @Override
+        public int getValueCount() {
+            return valueCount;
+        }
+    }
+
+    private static class MultiDocs extends AbstractRandomAccessOrds {
+
+        private final long valueCount;
+        private final LongValues docOffsets;
+        private final LongValues ords;
+        private final Terms terms;
+        private long offset;
+        private int cardinality;
+
+        MultiDocs(long valueCount, LongValues docOffsets, LongValues ords, Terms terms) {
+            this.valueCount = valueCount;
+            this.docOffsets = docOffsets;
+            this.ords = ords;
+            this.terms = terms;
+        }
+
+        @Override
+        public long getValueCount() {
+            return valueCount;
+        }
+
+        @Override
+        public void doSetDocument(int docId) {
+            offset = docOffsets.get(docId);
+            cardinality = (int) (docOffsets.get(docId + 1) - offset);
+        }
+
+        @Override
+        public int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        public long ordAt(int index) {
+            return ords.get(offset + index);
+        }
+
+        @Override
+        public BytesRef lookupOrd(long ord) {
+            return terms.lookupOrd(ord);
+        }
+    }
+}
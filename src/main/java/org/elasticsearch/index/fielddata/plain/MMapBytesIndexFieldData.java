@@ -0,0 +1,343 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata.plain;
+
+import org.apache.lucene.codecs.CodecUtil;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.SegmentInfo;
+import org.apache.lucene.index.SegmentReader;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
+import org.apache.lucene.store.IndexOutput;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IOUtils;
+import org.apache.lucene.util.LongsRef;
+import org.apache.lucene.util.StringHelper;
+import org.apache.lucene.util.packed.DirectWriter;
+import org.apache.lucene.util.packed.PackedInts;
+import org.apache.lucene.util.packed.PackedLongValues;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.Index;
+import org.elasticsearch.index.fielddata.AtomicOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.FieldDataType;
+import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.IndexOrdinalsFieldData;
+import org.elasticsearch.index.fielddata.ordinals.OrdinalsBuilder;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.index.settings.IndexSettings;
+import org.elasticsearch.index.shard.ShardPath;
+import org.elasticsearch.index.store.DirectoryUtils;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * String field data that uninverts a segment once and persists its terms and ordinals to a file in the
+ * <code>fielddata</code> directory of the shard, next to its <code>index</code> directory. The file is memory
+ * mapped, so the field data hardly uses any heap, and it is reused when the segment is loaded again, for
+ * instance after the field data got evicted or after a restart of the node.
+ * <p/>
+ * Files are keyed by the segment name and checked against the unique id of the segment, files of segments
+ * that don't exist anymore are removed whenever a new file is written. Segments that are not backed by a
+ * file system directory, or that were written before segments had a unique id, are uninverted into the same
+ * format on the heap.
+ * <p/>
+ * The memory the ordinals take while a segment gets uninverted is accounted to the field data circuit breaker
+ * until the file is written.
+ */
+public class MMapBytesIndexFieldData extends AbstractIndexOrdinalsFieldData {
+
+    static final String CODEC_NAME = "ESFieldData";
+    static final int VERSION_START = 0;
+    static final int VERSION_CURRENT = VERSION_START;
+    static final String EXTENSION = "esfd";
+    static final String TEMP_EXTENSION = "tmp";
+
+    /**
+     * How many terms to uninvert between checks of the transient memory against the circuit breaker.
+     */
+    private static final int BREAKER_CHECK_INTERVAL = 1 << 10;
+
+    public static class Builder implements IndexFieldData.Builder {
+
+        @Override
+        public IndexOrdinalsFieldData build(Index index, @IndexSettings Settings indexSettings, FieldMapper<?> mapper,
+                                            IndexFieldDataCache cache, CircuitBreakerService breakerService, MapperService mapperService) {
+            return new MMapBytesIndexFieldData(index, indexSettings, mapper.names(), mapper.fieldDataType(), cache, breakerService);
+        }
+    }
+
+    /**
+     * Identifies what the file was built from: the field and the settings that filter its terms.
+     */
+    private final String signature;
+    private final String suffix;
+
+    MMapBytesIndexFieldData(Index index, @IndexSettings Settings indexSettings, FieldMapper.Names fieldNames, FieldDataType fieldDataType,
+                            IndexFieldDataCache cache, CircuitBreakerService breakerService) {
+        super(index, indexSettings, fieldNames, fieldDataType, cache, breakerService);
+        this.signature = fieldNames.indexName() + fieldDataType.getSettings().getByPrefix("filter.").getAsMap();
+        this.suffix = Integer.toHexString(StringHelper.murmurhash3_x86_32(new BytesRef(signature), 0));
+    }
+
+    @Override
+    public AtomicOrdinalsFieldData loadDirect(LeafReaderContext context) throws Exception {
+        final LeafReader reader = context.reader();
+        final CircuitBreaker breaker = breakerService.getBreaker(CircuitBreaker.FIELDDATA);
+        NonEstimatingEstimator estimator = new NonEstimatingEstimator(breaker);
+        AtomicOrdinalsFieldData data;
+        final Terms terms = reader.terms(getFieldNames().indexName());
+        if (terms == null) {
+            data = AbstractAtomicOrdinalsFieldData.empty();
+        } else {
+            final SegmentInfo segmentInfo = segmentInfo(reader);
+            // segments written before Lucene 5 have no id, a persisted file could not be told apart from
+            // the file of another segment that got the same name
+            final FSDirectory segmentDirectory = segmentInfo == null || segmentInfo.getId() == null ? null : DirectoryUtils.getLeaf(segmentInfo.dir, FSDirectory.class);
+            if (segmentDirectory == null) {
+                // nowhere to persist to, uninvert into a heap based copy of the file
+                Directory directory = new RAMDirectory();
+                String fileName = "fielddata." + EXTENSION;
+                write(directory, fileName, reader, terms, new byte[StringHelper.ID_LENGTH], breaker);
+                data = open(directory, fileName, reader, new byte[StringHelper.ID_LENGTH], true);
+            } else {
+                data = loadPersisted(segmentDirectory.getDirectory(), segmentInfo, reader, terms, breaker);
+            }
+        }
+        estimator.afterLoad(null, data.ramBytesUsed());
+        return data;
+    }
+
+    private AtomicOrdinalsFieldData loadPersisted(Path indexPath, SegmentInfo segmentInfo, LeafReader reader, Terms terms,
+                                                  CircuitBreaker breaker) throws IOException {
+        final Path path = indexPath.resolveSibling(ShardPath.FIELDDATA_FOLDER_NAME);
+        Files.createDirectories(path);
+        final MMapDirectory directory = new MMapDirectory(path);
+        // never unmap explicitly, the field data might still be in use by a search when it gets evicted
+        directory.setUseUnmap(false);
+        final String fileName = segmentInfo.name + "_" + suffix + "." + EXTENSION;
+        try {
+            return open(directory, fileName, reader, segmentInfo.getId(), false);
+        } catch (IOException e) {
+            // missing, stale (the segment name was reused) or broken, build it again
+            logger.trace("failed to open field data file [{}] for field [{}], building it", e, fileName, getFieldNames().fullName());
+        }
+        final String tempFileName = fileName + "." + Strings.randomBase64UUID() + "." + TEMP_EXTENSION;
+        boolean success = false;
+        try {
+            write(directory, tempFileName, reader, terms, segmentInfo.getId(), breaker);
+            directory.renameFile(tempFileName, fileName);
+            success = true;
+        } finally {
+            if (success == false) {
+                IOUtils.deleteFilesIgnoringExceptions(directory, tempFileName);
+            }
+        }
+        deleteUnusedFiles(directory, indexPath);
+        return open(directory, fileName, reader, segmentInfo.getId(), false);
+    }
+
+    /**
+     * Deletes the files of segments that are gone from the index, merged away or removed by a recovery.
+     */
+    private void deleteUnusedFiles(Directory directory, Path indexPath) {
+        try {
+            for (String file : directory.listAll()) {
+                if (file.endsWith("." + EXTENSION) == false && file.endsWith("." + TEMP_EXTENSION) == false) {
+                    continue;
+                }
+                final int separator = file.indexOf('_', 1);
+                if (separator == -1) {
+                    continue;
+                }
+                final String segmentName = file.substring(0, separator);
+                if (Files.exists(indexPath.resolve(segmentName + ".si")) == false) {
+                    IOUtils.deleteFilesIgnoringExceptions(directory, file);
+                }
+            }
+        } catch (IOException e) {
+            logger.debug("failed to clean up field data files in [{}]", e, indexPath);
+        }
+    }
+
+    private void write(Directory directory, String fileName, LeafReader reader, Terms terms, byte[] segmentId,
+                       CircuitBreaker breaker) throws IOException {
+        final long numTerms;
+        if (regex == null && frequency == null) {
+            numTerms = terms.size();
+        } else {
+            numTerms = -1;
+        }
+        final float acceptableTransientOverheadRatio = fieldDataType.getSettings().getAsFloat(
+                PagedBytesIndexFieldData.FilterSettingFields.ACCEPTABLE_TRANSIENT_OVERHEAD_RATIO, OrdinalsBuilder.DEFAULT_ACCEPTABLE_OVERHEAD_RATIO);
+        long transientBytes = 0;
+        try (IndexOutput out = directory.createOutput(fileName, IOContext.DEFAULT);
+             OrdinalsBuilder builder = new OrdinalsBuilder(numTerms, reader.maxDoc(), acceptableTransientOverheadRatio)) {
+            CodecUtil.writeIndexHeader(out, CODEC_NAME, VERSION_CURRENT, segmentId, suffix);
+            out.writeString(signature);
+
+            // the terms are written while the segment gets uninverted, their offsets once all are known
+            final long termBytesOffset = out.getFilePointer();
+            final PackedLongValues.Builder termOffsets = PackedLongValues.monotonicBuilder(PackedInts.COMPACT);
+            final TermsEnum termsEnum = filter(terms, reader);
+            if (termsEnum != null) {
+                PostingsEnum docsEnum = null;
+                for (BytesRef term = termsEnum.next(); term != null; term = termsEnum.next()) {
+                    if ((builder.nextOrdinal() + 1) % BREAKER_CHECK_INTERVAL == 0) {
+                        transientBytes = accountTransientBytes(breaker, transientBytes, builder, termOffsets);
+                    }
+                    termOffsets.add(out.getFilePointer() - termBytesOffset);
+                    out.writeBytes(term.bytes, term.offset, term.length);
+                    docsEnum = termsEnum.postings(null, docsEnum, PostingsEnum.NONE);
+                    for (int docId = docsEnum.nextDoc(); docId != DocIdSetIterator.NO_MORE_DOCS; docId = docsEnum.nextDoc()) {
+                        builder.addDoc(docId);
+                    }
+                }
+            }
+            final long termBytesLength = out.getFilePointer() - termBytesOffset;
+            termOffsets.add(termBytesLength);
+            transientBytes = accountTransientBytes(breaker, transientBytes, builder, termOffsets);
+
+            final long termOffsetsOffset = out.getFilePointer();
+            final int termOffsetsBits = DirectWriter.bitsRequired(termBytesLength);
+            final PackedLongValues termOffsetValues = termOffsets.build();
+            final DirectWriter termOffsetsWriter = DirectWriter.getInstance(out, termOffsetValues.size(), termOffsetsBits);
+            for (PackedLongValues.Iterator it = termOffsetValues.iterator(); it.hasNext(); ) {
+                termOffsetsWriter.add(it.next());
+            }
+            termOffsetsWriter.finish();
+
+            final int maxDoc = reader.maxDoc();
+            final long totalOrds = builder.getTotalNumOrds();
+            final long docOffsetsOffset = out.getFilePointer();
+            final int docOffsetsBits = DirectWriter.bitsRequired(totalOrds);
+            final DirectWriter docOffsetsWriter = DirectWriter.getInstance(out, maxDoc + 1, docOffsetsBits);
+            long offset = 0;
+            for (int docId = 0; docId < maxDoc; docId++) {
+                docOffsetsWriter.add(offset);
+                offset += builder.docOrds(docId).length;
+            }
+            docOffsetsWriter.add(offset);
+            docOffsetsWriter.finish();
+
+            final long valueCount = builder.getValueCount();
+            final long ordsOffset = out.getFilePointer();
+            final int ordsBits = DirectWriter.bitsRequired(Math.max(0, valueCount - 1));
+            final DirectWriter ordsWriter = DirectWriter.getInstance(out, totalOrds, ordsBits);
+            for (int docId = 0; docId < maxDoc; docId++) {
+                final LongsRef docOrds = builder.docOrds(docId);
+                for (int i = 0; i < docOrds.length; i++) {
+                    ordsWriter.add(docOrds.longs[docOrds.offset + i]);
+                }
+            }
+            ordsWriter.finish();
+
+            final long metaOffset = out.getFilePointer();
+            out.writeVInt(maxDoc);
+            out.writeVLong(valueCount);
+            out.writeByte((byte) (builder.getNumMultiValuesDocs() > 0 ? 1 : 0));
+            out.writeVLong(termBytesOffset);
+            out.writeVLong(termOffsetsOffset);
+            out.writeVInt(termOffsetsBits);
+            out.writeVLong(docOffsetsOffset);
+            out.writeVInt(docOffsetsBits);
+            out.writeVLong(ordsOffset);
+            out.writeVInt(ordsBits);
+            out.writeLong(metaOffset);
+            CodecUtil.writeFooter(out);
+        } finally {
+            breaker.addWithoutBreaking(-transientBytes);
+        }
+    }
+
+    /**
+     * Adds the growth of the memory used to uninvert a segment to the breaker, returns the bytes that are now accounted.
+     */
+    private long accountTransientBytes(CircuitBreaker breaker, long accountedBytes, OrdinalsBuilder builder,
+                                       PackedLongValues.Builder termOffsets) {
+        final long usedBytes = builder.ramBytesUsed() + termOffsets.ramBytesUsed();
+        if (usedBytes <= accountedBytes) {
+            return accountedBytes;
+        }
+        breaker.addEstimateBytesAndMaybeBreak(usedBytes - accountedBytes, getFieldNames().fullName());
+        return usedBytes;
+    }
+
+    private MMapBytesAtomicFieldData open(Directory directory, String fileName, LeafReader reader, byte[] segmentId, boolean inHeap) throws IOException {
+        final IndexInput input = directory.openInput(fileName, IOContext.READ);
+        boolean success = false;
+        try {
+            CodecUtil.checkIndexHeader(input, CODEC_NAME, VERSION_START, VERSION_CURRENT, segmentId, suffix);
+            final String fileSignature = input.readString();
+            if (signature.equals(fileSignature) == false) {
+                throw new IOException("field data file [" + fileName + "] was built for [" + fileSignature + "] and not for [" + signature + "]");
+            }
+            CodecUtil.retrieveChecksum(input);
+            input.seek(input.length() - CodecUtil.footerLength() - 8);
+            final long metaOffset = input.readLong();
+            input.seek(metaOffset);
+            final int maxDoc = input.readVInt();
+            if (maxDoc != reader.maxDoc()) {
+                throw new IOException("field data file [" + fileName + "] has [" + maxDoc + "] documents but the segment has [" + reader.maxDoc() + "]");
+            }
+            final long valueCount = input.readVLong();
+            final boolean multiValued = input.readByte() == 1;
+            final long termBytesOffset = input.readVLong();
+            final long termOffsetsOffset = input.readVLong();
+            final int termOffsetsBits = input.readVInt();
+            final long docOffsetsOffset = input.readVLong();
+            final int docOffsetsBits = input.readVInt();
+            final long ordsOffset = input.readVLong();
+            final int ordsBits = input.readVInt();
+            MMapBytesAtomicFieldData data = new MMapBytesAtomicFieldData(input, inHeap, multiValued, valueCount,
+                    termBytesOffset, termOffsetsOffset, termOffsetsBits, docOffsetsOffset, docOffsetsBits, ordsOffset, ordsBits, metaOffset);
+            success = true;
+            return data;
+        } finally {
+            if (success == false) {
+                IOUtils.closeWhileHandlingException(input);
+            }
+        }
+    }
+
+    private static SegmentInfo segmentInfo(LeafReader reader) {
+        if (reader instanceof SegmentReader) {
+            return ((SegmentReader) reader).getSegmentInfo().info;
+        } else if (reader instanceof FilterLeafReader) {
+            return segmentInfo(FilterLeafReader.unwrap(reader));
+        }
+        return null;
+    }
+}
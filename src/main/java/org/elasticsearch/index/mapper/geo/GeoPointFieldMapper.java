@@ -471,11 +471,6 @@ public class GeoPointFieldMapper extends AbstractFieldMapper<GeoPoint> implement
         return new FieldDataType("geo_point");
     }
     
-    @Override
-    protected boolean defaultDocValues() {
-        return false;
-    }
-
     public DoubleFieldMapper latMapper() {
         return latMapper;
     }
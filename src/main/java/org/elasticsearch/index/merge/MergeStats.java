@@ -52,12 +52,15 @@ public class MergeStats implements Streamable, ToXContent {
 
     private long totalBytesPerSecAutoThrottle;
 
+    /** Total bytes written by merges, used to compute the rate merges write at. */
+    private long totalWrittenSizeInBytes;
+
     public MergeStats() {
 
     }
 
     public void add(long totalMerges, long totalMergeTime, long totalNumDocs, long totalSizeInBytes, long currentMerges, long currentNumDocs, long currentSizeInBytes,
-                    long stoppedTimeMillis, long throttledTimeMillis, double mbPerSecAutoThrottle) {
+                    long stoppedTimeMillis, long throttledTimeMillis, double mbPerSecAutoThrottle, long totalWrittenSizeInBytes) {
         this.total += totalMerges;
         this.totalTimeInMillis += totalMergeTime;
         this.totalNumDocs += totalNumDocs;
@@ -67,6 +70,7 @@ public class MergeStats implements Streamable, ToXContent {
         this.currentSizeInBytes += currentSizeInBytes;
         this.totalStoppedTimeInMillis += stoppedTimeMillis;
         this.totalThrottledTimeInMillis += throttledTimeMillis;
+        this.totalWrittenSizeInBytes += totalWrittenSizeInBytes;
         long bytesPerSecAutoThrottle = (long) (mbPerSecAutoThrottle * 1024 * 1024);
         if (this.totalBytesPerSecAutoThrottle == Long.MAX_VALUE || bytesPerSecAutoThrottle == Long.MAX_VALUE) {
             this.totalBytesPerSecAutoThrottle = Long.MAX_VALUE;
@@ -88,6 +92,7 @@ public class MergeStats implements Streamable, ToXContent {
         this.currentSizeInBytes += mergeStats.currentSizeInBytes;
         this.totalStoppedTimeInMillis += mergeStats.totalStoppedTimeInMillis;
         this.totalThrottledTimeInMillis += mergeStats.totalThrottledTimeInMillis;
+        this.totalWrittenSizeInBytes += mergeStats.totalWrittenSizeInBytes;
         if (this.totalBytesPerSecAutoThrottle == Long.MAX_VALUE || mergeStats.totalBytesPerSecAutoThrottle == Long.MAX_VALUE) {
             this.totalBytesPerSecAutoThrottle = Long.MAX_VALUE;
         } else {
@@ -160,6 +165,28 @@ public class MergeStats implements Streamable, ToXContent {
         return totalBytesPerSecAutoThrottle;
     }
 
+    /**
+     * The total bytes written by merges.
+     */
+    public long getTotalWrittenSizeInBytes() {
+        return this.totalWrittenSizeInBytes;
+    }
+
+    public ByteSizeValue getTotalWrittenSize() {
+        return new ByteSizeValue(totalWrittenSizeInBytes);
+    }
+
+    /**
+     * The average rate, in bytes per second, merges wrote at while they were not stopped.
+     */
+    public long getTotalBytesPerSec() {
+        long millis = totalTimeInMillis - totalStoppedTimeInMillis;
+        if (millis <= 0) {
+            return 0;
+        }
+        return totalWrittenSizeInBytes * 1000 / millis;
+    }
+
     /**
      * The current number of merges executing.
      */
@@ -198,6 +225,8 @@ public class MergeStats implements Streamable, ToXContent {
         builder.timeValueField(Fields.TOTAL_STOPPED_TIME_IN_MILLIS, Fields.TOTAL_STOPPED_TIME, totalStoppedTimeInMillis);
         builder.timeValueField(Fields.TOTAL_THROTTLED_TIME_IN_MILLIS, Fields.TOTAL_THROTTLED_TIME, totalThrottledTimeInMillis);
         builder.byteSizeField(Fields.TOTAL_THROTTLE_BYTES_PER_SEC_IN_BYTES, Fields.TOTAL_THROTTLE_BYTES_PER_SEC, totalBytesPerSecAutoThrottle);
+        builder.byteSizeField(Fields.TOTAL_WRITTEN_SIZE_IN_BYTES, Fields.TOTAL_WRITTEN_SIZE, totalWrittenSizeInBytes);
+        builder.byteSizeField(Fields.TOTAL_RATE_IN_BYTES, Fields.TOTAL_RATE, getTotalBytesPerSec());
         builder.endObject();
         return builder;
     }
@@ -220,6 +249,10 @@ public class MergeStats implements Streamable, ToXContent {
         static final XContentBuilderString TOTAL_SIZE_IN_BYTES = new XContentBuilderString("total_size_in_bytes");
         static final XContentBuilderString TOTAL_THROTTLE_BYTES_PER_SEC_IN_BYTES = new XContentBuilderString("total_auto_throttle_in_bytes");
         static final XContentBuilderString TOTAL_THROTTLE_BYTES_PER_SEC = new XContentBuilderString("total_auto_throttle");
+        static final XContentBuilderString TOTAL_WRITTEN_SIZE = new XContentBuilderString("total_written_size");
+        static final XContentBuilderString TOTAL_WRITTEN_SIZE_IN_BYTES = new XContentBuilderString("total_written_size_in_bytes");
+        static final XContentBuilderString TOTAL_RATE = new XContentBuilderString("total_rate");
+        static final XContentBuilderString TOTAL_RATE_IN_BYTES = new XContentBuilderString("total_rate_in_bytes");
     }
 
     @Override
@@ -235,6 +268,7 @@ public class MergeStats implements Streamable, ToXContent {
         totalStoppedTimeInMillis = in.readVLong();
         totalThrottledTimeInMillis = in.readVLong();
         totalBytesPerSecAutoThrottle = in.readVLong();
+        totalWrittenSizeInBytes = in.readVLong();
     }
 
     @Override
@@ -250,5 +284,6 @@ public class MergeStats implements Streamable, ToXContent {
         out.writeVLong(totalStoppedTimeInMillis);
         out.writeVLong(totalThrottledTimeInMillis);
         out.writeVLong(totalBytesPerSecAutoThrottle);
+        out.writeVLong(totalWrittenSizeInBytes);
     }
 }
@@ -31,10 +31,12 @@ public class OnGoingMerge {
 
     private final String id;
     private final List<SegmentCommitInfo> mergedSegments;
+    private final long totalBytesSize;
 
     public OnGoingMerge(MergePolicy.OneMerge merge) {
         this.id = Integer.toString(System.identityHashCode(merge));
         this.mergedSegments = merge.segments;
+        this.totalBytesSize = merge.totalBytesSize();
     }
 
     /**
@@ -50,4 +52,11 @@ public class OnGoingMerge {
     public List<SegmentCommitInfo> getMergedSegments() {
         return mergedSegments;
     }
+
+    /**
+     * The total size in bytes of the segments that are being merged.
+     */
+    public long getTotalBytesSize() {
+        return totalBytesSize;
+    }
 }
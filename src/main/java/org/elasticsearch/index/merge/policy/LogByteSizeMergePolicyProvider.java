@@ -36,16 +36,21 @@ public class LogByteSizeMergePolicyProvider extends AbstractMergePolicyProvider<
 
     private final IndexSettingsService indexSettingsService;
     private final ApplySettings applySettings = new ApplySettings();
-    private final LogByteSizeMergePolicy mergePolicy = new LogByteSizeMergePolicy();
+    private final LogByteSizeMergePolicy mergePolicy;
 
     public static final ByteSizeValue DEFAULT_MIN_MERGE_SIZE = new ByteSizeValue((long) (LogByteSizeMergePolicy.DEFAULT_MIN_MERGE_MB * 1024 * 1024), ByteSizeUnit.BYTES);
     public static final ByteSizeValue DEFAULT_MAX_MERGE_SIZE = new ByteSizeValue((long) LogByteSizeMergePolicy.DEFAULT_MAX_MERGE_MB, ByteSizeUnit.MB);
 
     @Inject
     public LogByteSizeMergePolicyProvider(Store store, IndexSettingsService indexSettingsService) {
+        this(store, indexSettingsService, new LogByteSizeMergePolicy());
+    }
+
+    protected LogByteSizeMergePolicyProvider(Store store, IndexSettingsService indexSettingsService, LogByteSizeMergePolicy mergePolicy) {
         super(store);
         Preconditions.checkNotNull(store, "Store must be provided to merge policy");
         this.indexSettingsService = indexSettingsService;
+        this.mergePolicy = mergePolicy;
 
         ByteSizeValue minMergeSize = indexSettings.getAsBytesSize("index.merge.policy.min_merge_size", DEFAULT_MIN_MERGE_SIZE);
         ByteSizeValue maxMergeSize = indexSettings.getAsBytesSize("index.merge.policy.max_merge_size", DEFAULT_MAX_MERGE_SIZE);
@@ -0,0 +1,117 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.LogByteSizeMergePolicy;
+import org.apache.lucene.index.MergeTrigger;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.elasticsearch.index.codec.postingsformat.TimeRangePostingsFormat;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link LogByteSizeMergePolicy} for append mostly, time based data. The log merge policies only merge
+ * segments that are adjacent in the order they are presented in, this policy presents the segments ordered
+ * by the range of the time field recorded by {@link TimeRangePostingsFormat} instead of by the order they
+ * were written in. Merged segments then cover a continuous time range, so range filters on the time field
+ * can skip whole segments, and segments holding older data stop being merged with new ones once they
+ * reached the max merge size. Segments without a recorded range are ordered after the ones that have one.
+ */
+public class TimeSeriesMergePolicy extends LogByteSizeMergePolicy {
+
+    private final String timeField;
+
+    public TimeSeriesMergePolicy(String timeField) {
+        this.timeField = timeField;
+    }
+
+    public String getTimeField() {
+        return timeField;
+    }
+
+    @Override
+    public MergeSpecification findMerges(MergeTrigger mergeTrigger, SegmentInfos infos, IndexWriter writer) throws IOException {
+        return super.findMerges(mergeTrigger, sortByTime(infos), writer);
+    }
+
+    @Override
+    public MergeSpecification findForcedMerges(SegmentInfos infos, int maxSegmentCount, Map<SegmentCommitInfo, Boolean> segmentsToMerge, IndexWriter writer) throws IOException {
+        return super.findForcedMerges(sortByTime(infos), maxSegmentCount, segmentsToMerge, writer);
+    }
+
+    @Override
+    public MergeSpecification findForcedDeletesMerges(SegmentInfos infos, IndexWriter writer) throws IOException {
+        return super.findForcedDeletesMerges(sortByTime(infos), writer);
+    }
+
+    /**
+     * Returns the segments ordered by the min and then the max value of the time field. The sort is
+     * stable, segments without a recorded range keep their relative order at the end.
+     */
+    SegmentInfos sortByTime(SegmentInfos infos) {
+        List<TimeRangedSegment> segments = new ArrayList<>(infos.size());
+        for (SegmentCommitInfo info : infos) {
+            segments.add(new TimeRangedSegment(info, TimeRangePostingsFormat.readRange(info.info, timeField)));
+        }
+        Collections.sort(segments, TIME_RANGE_COMPARATOR);
+        // the merges we return must hold the same segment instances as the writer, so we can't clone the infos
+        SegmentInfos sorted = new SegmentInfos();
+        for (TimeRangedSegment segment : segments) {
+            sorted.add(segment.info);
+        }
+        return sorted;
+    }
+
+    @Override
+    public String toString() {
+        return "[" + getClass().getSimpleName() + "->" + timeField + "]";
+    }
+
+    private static final Comparator<TimeRangedSegment> TIME_RANGE_COMPARATOR = new Comparator<TimeRangedSegment>() {
+        @Override
+        public int compare(TimeRangedSegment o1, TimeRangedSegment o2) {
+            if (o1.range == null || o2.range == null) {
+                return o1.range == null ? (o2.range == null ? 0 : 1) : -1;
+            }
+            int cmp = Long.compare(o1.range[0], o2.range[0]);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return Long.compare(o1.range[1], o2.range[1]);
+        }
+    };
+
+    private static final class TimeRangedSegment {
+        final SegmentCommitInfo info;
+        final long[] range;
+
+        TimeRangedSegment(SegmentCommitInfo info, long[] range) {
+            this.info = info;
+            this.range = range;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.policy;
+
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.index.settings.IndexSettingsService;
+import org.elasticsearch.index.store.Store;
+
+/**
+ * Provides a {@link TimeSeriesMergePolicy}, configured with the same settings as the
+ * {@link LogByteSizeMergePolicyProvider log_byte_size} merge policy and the time field to order
+ * segments by, <tt>index.merge.policy.time_field</tt> (defaults to <tt>@timestamp</tt>).
+ */
+public class TimeSeriesMergePolicyProvider extends LogByteSizeMergePolicyProvider {
+
+    public static final String INDEX_MERGE_POLICY_TIME_FIELD = "index.merge.policy.time_field";
+    public static final String DEFAULT_TIME_FIELD = "@timestamp";
+
+    @Inject
+    public TimeSeriesMergePolicyProvider(Store store, IndexSettingsService indexSettingsService) {
+        super(store, indexSettingsService, new TimeSeriesMergePolicy(store.indexSettings().get(INDEX_MERGE_POLICY_TIME_FIELD, DEFAULT_TIME_FIELD)));
+        logger.debug("using [time_series] merge policy with time_field[{}]", ((TimeSeriesMergePolicy) getMergePolicy()).getTimeField());
+    }
+
+    /**
+     * Returns the field the per segment range should be recorded for, or <tt>null</tt> if the index
+     * doesn't order its segments by time.
+     */
+    public static String timeField(Settings indexSettings) {
+        String timeField = indexSettings.get(INDEX_MERGE_POLICY_TIME_FIELD);
+        if (timeField == null && "time_series".equals(indexSettings.get(MergePolicyModule.MERGE_POLICY_TYPE_KEY))) {
+            timeField = DEFAULT_TIME_FIELD;
+        }
+        return timeField;
+    }
+}
@@ -26,9 +26,11 @@ import org.apache.lucene.index.MergePolicy;
 import org.apache.lucene.index.MergeScheduler;
 import org.apache.lucene.index.TrackingConcurrentMergeScheduler;
 import org.apache.lucene.store.Directory;
+import org.elasticsearch.cluster.settings.Validator;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.index.merge.MergeStats;
 import org.elasticsearch.index.merge.OnGoingMerge;
@@ -38,6 +40,7 @@ import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.IOException;
+import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.CopyOnWriteArraySet;
 
@@ -52,10 +55,49 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
     public static final String MAX_THREAD_COUNT = "index.merge.scheduler.max_thread_count";
     public static final String MAX_MERGE_COUNT = "index.merge.scheduler.max_merge_count";
     public static final String AUTO_THROTTLE = "index.merge.scheduler.auto_throttle";
+    public static final String AUTO_THROTTLE_MODE = "index.merge.scheduler.auto_throttle_mode";
+    public static final String BACKLOG_DRAIN_TIME = "index.merge.scheduler.backlog_drain_time";
+
+    /**
+     * How the merge IO rate is adjusted when {@link #AUTO_THROTTLE} is enabled.
+     */
+    public static final Validator AUTO_THROTTLE_MODE_VALIDATOR = new Validator() {
+        @Override
+        public String validate(String setting, String value) {
+            try {
+                AutoThrottleMode.fromString(value);
+                return null;
+            } catch (IllegalArgumentException e) {
+                return "the value of " + setting + " must be one of: [lucene, backlog]";
+            }
+        }
+    };
+
+    public static enum AutoThrottleMode {
+        /**
+         * Lucene's auto throttle, which moves the rate up and down depending on how many merges are requested over time.
+         */
+        LUCENE,
+        /**
+         * Sets the rate to what is needed to keep up with the incoming merge bytes and drain the pending merges
+         * within {@link #BACKLOG_DRAIN_TIME}.
+         */
+        BACKLOG;
+
+        public static AutoThrottleMode fromString(String mode) {
+            try {
+                return valueOf(mode.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("unknown merge auto throttle mode [" + mode + "]");
+            }
+        }
+    }
 
     private volatile int maxThreadCount;
     private volatile int maxMergeCount;
     private volatile boolean autoThrottle;
+    private volatile AutoThrottleMode autoThrottleMode;
+    private volatile TimeValue backlogDrainTime;
 
     private Set<CustomConcurrentMergeScheduler> schedulers = new CopyOnWriteArraySet<>();
 
@@ -66,7 +108,10 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
         this.maxThreadCount = indexSettings.getAsInt(MAX_THREAD_COUNT, Math.max(1, Math.min(4, EsExecutors.boundedNumberOfProcessors(indexSettings) / 2)));
         this.maxMergeCount = indexSettings.getAsInt(MAX_MERGE_COUNT, maxThreadCount + 5);
         this.autoThrottle = indexSettings.getAsBoolean(AUTO_THROTTLE, true);
-        logger.debug("using [concurrent] merge scheduler with max_thread_count[{}], max_merge_count[{}], auto_throttle[{}]", maxThreadCount, maxMergeCount, autoThrottle);
+        this.autoThrottleMode = AutoThrottleMode.fromString(indexSettings.get(AUTO_THROTTLE_MODE, AutoThrottleMode.LUCENE.name()));
+        this.backlogDrainTime = indexSettings.getAsTime(BACKLOG_DRAIN_TIME, TimeValue.timeValueSeconds(30));
+        logger.debug("using [concurrent] merge scheduler with max_thread_count[{}], max_merge_count[{}], auto_throttle[{}], auto_throttle_mode[{}], backlog_drain_time[{}]",
+                maxThreadCount, maxMergeCount, autoThrottle, autoThrottleMode, backlogDrainTime);
 
         indexSettingsService.addListener(applySettings);
     }
@@ -95,7 +140,8 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
                            scheduler.currentMerges(), scheduler.currentMergesNumDocs(), scheduler.currentMergesSizeInBytes(),
                            scheduler.totalMergeStoppedTimeMillis(),
                            scheduler.totalMergeThrottledTimeMillis(),
-                           autoThrottle ? scheduler.getIORateLimitMBPerSec() : Double.POSITIVE_INFINITY);
+                           autoThrottle ? scheduler.getIORateLimitMBPerSec() : Double.POSITIVE_INFINITY,
+                           scheduler.totalMergeWrittenBytes());
         }
         return mergeStats;
     }
@@ -124,10 +170,13 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
 
         private final ConcurrentMergeSchedulerProvider provider;
 
+        private final MergeBacklogThrottle backlogThrottle;
+
         private CustomConcurrentMergeScheduler(ESLogger logger, ShardId shardId, ConcurrentMergeSchedulerProvider provider) {
             super(logger);
             this.shardId = shardId;
             this.provider = provider;
+            this.backlogThrottle = new MergeBacklogThrottle(provider.backlogDrainTime);
         }
 
         @Override
@@ -155,15 +204,35 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
         @Override
         protected void beforeMerge(OnGoingMerge merge) {
             super.beforeMerge(merge);
+            backlogThrottle.onMerge(merge.getTotalBytesSize(), System.currentTimeMillis());
+            maybeUpdateBacklogThrottle();
             provider.beforeMerge(merge);
         }
 
         @Override
         protected void afterMerge(OnGoingMerge merge) {
             super.afterMerge(merge);
+            maybeUpdateBacklogThrottle();
             provider.afterMerge(merge);
         }
 
+        /**
+         * Moves the IO rate to what the merge backlog requires, only when throttling by backlog. Called whenever
+         * a merge starts or ends, the rate set by Lucene's auto throttle when the merge got registered is overridden.
+         */
+        private void maybeUpdateBacklogThrottle() {
+            if (provider.autoThrottle == false || provider.autoThrottleMode != AutoThrottleMode.BACKLOG) {
+                return;
+            }
+            double mbPerSec = backlogThrottle.targetMBPerSec(currentMergesSizeInBytes());
+            if (logger.isTraceEnabled()) {
+                logger.trace("updating merge IO rate to [{}] MB/sec, pending merges [{}] bytes, incoming merges [{}] bytes/sec",
+                        String.format(Locale.ROOT, "%.1f", mbPerSec), currentMergesSizeInBytes(),
+                        String.format(Locale.ROOT, "%.1f", backlogThrottle.incomingBytesPerSec()));
+            }
+            setTargetMBPerSec(mbPerSec);
+        }
+
         @Override
         protected boolean maybeStall(IndexWriter writer) {
             // Don't stall here, because we do our own index throttling (in InternalEngine.IndexThrottle) when merges can't keep up
@@ -204,6 +273,24 @@ public class ConcurrentMergeSchedulerProvider extends MergeSchedulerProvider {
                     }
                 }
             }
+
+            String autoThrottleMode = settings.get(AUTO_THROTTLE_MODE);
+            if (autoThrottleMode != null) {
+                AutoThrottleMode mode = AutoThrottleMode.fromString(autoThrottleMode);
+                if (mode != ConcurrentMergeSchedulerProvider.this.autoThrottleMode) {
+                    logger.info("updating [{}] from [{}] to [{}]", AUTO_THROTTLE_MODE, ConcurrentMergeSchedulerProvider.this.autoThrottleMode, mode);
+                    ConcurrentMergeSchedulerProvider.this.autoThrottleMode = mode;
+                }
+            }
+
+            TimeValue backlogDrainTime = settings.getAsTime(BACKLOG_DRAIN_TIME, ConcurrentMergeSchedulerProvider.this.backlogDrainTime);
+            if (backlogDrainTime.equals(ConcurrentMergeSchedulerProvider.this.backlogDrainTime) == false) {
+                logger.info("updating [{}] from [{}] to [{}]", BACKLOG_DRAIN_TIME, ConcurrentMergeSchedulerProvider.this.backlogDrainTime, backlogDrainTime);
+                ConcurrentMergeSchedulerProvider.this.backlogDrainTime = backlogDrainTime;
+                for (CustomConcurrentMergeScheduler scheduler : schedulers) {
+                    scheduler.backlogThrottle.drainTime(backlogDrainTime);
+                }
+            }
         }
     }
 }
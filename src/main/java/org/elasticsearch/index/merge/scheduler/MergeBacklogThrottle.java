@@ -0,0 +1,95 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.scheduler;
+
+import org.elasticsearch.common.unit.TimeValue;
+
+/**
+ * Computes the IO rate merges should be throttled to from the merge backlog of a shard. The rate
+ * is the highest of the rate at which new merge bytes are coming in (which follows the indexing
+ * rate, since every flushed segment eventually gets merged) and the rate needed to drain the bytes
+ * of the currently pending merges within the configured drain time. The result is bounded by
+ * {@link #MIN_MB_PER_SEC} and {@link #MAX_MB_PER_SEC}.
+ */
+final class MergeBacklogThrottle {
+
+    /**
+     * The lowest rate merges are throttled to, matches the floor Lucene uses for its own auto throttle.
+     */
+    static final double MIN_MB_PER_SEC = 5.0;
+
+    /**
+     * The highest rate merges are throttled to, matches the ceiling Lucene uses for its own auto throttle.
+     */
+    static final double MAX_MB_PER_SEC = 10240.0;
+
+    /**
+     * The weight of the latest sample in the exponentially weighted incoming merge bytes rate.
+     */
+    static final double INCOMING_RATE_ALPHA = 0.3;
+
+    private volatile TimeValue drainTime;
+
+    private long lastMergeMillis = -1;
+    private double incomingBytesPerSec;
+
+    MergeBacklogThrottle(TimeValue drainTime) {
+        this.drainTime = drainTime;
+    }
+
+    TimeValue drainTime() {
+        return drainTime;
+    }
+
+    void drainTime(TimeValue drainTime) {
+        this.drainTime = drainTime;
+    }
+
+    /**
+     * Records that a merge of the given size started.
+     */
+    synchronized void onMerge(long mergeBytes, long nowMillis) {
+        if (lastMergeMillis == -1) {
+            lastMergeMillis = nowMillis;
+            return;
+        }
+        // don't let merges that get kicked off together spike the rate
+        double seconds = Math.max(1.0, (nowMillis - lastMergeMillis) / 1000.0);
+        incomingBytesPerSec = INCOMING_RATE_ALPHA * (mergeBytes / seconds) + (1 - INCOMING_RATE_ALPHA) * incomingBytesPerSec;
+        lastMergeMillis = nowMillis;
+    }
+
+    /**
+     * The exponentially weighted rate, in bytes per second, at which merge bytes came in.
+     */
+    synchronized double incomingBytesPerSec() {
+        return incomingBytesPerSec;
+    }
+
+    /**
+     * The rate, in MB per second, merges should be throttled to given the bytes of the pending merges.
+     */
+    synchronized double targetMBPerSec(long backlogBytes) {
+        double drainSeconds = Math.max(1.0, drainTime.secondsFrac());
+        double bytesPerSec = Math.max(incomingBytesPerSec, backlogBytes / drainSeconds);
+        double mbPerSec = bytesPerSec / 1024 / 1024;
+        return Math.min(MAX_MB_PER_SEC, Math.max(MIN_MB_PER_SEC, mbPerSec));
+    }
+}
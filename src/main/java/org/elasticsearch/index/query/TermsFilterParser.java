@@ -36,6 +36,7 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.support.XContentMapValues;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.mapper.MapperService;
+import org.elasticsearch.indices.cache.filter.terms.IndicesTermsLookupCache;
 import org.elasticsearch.indices.cache.filter.terms.TermsLookup;
 
 import java.io.IOException;
@@ -48,6 +49,7 @@ public class TermsFilterParser implements FilterParser {
 
     public static final String NAME = "terms";
     private Client client;
+    private IndicesTermsLookupCache termsLookupCache;
 
     @Deprecated
     public static final String EXECUTION_KEY = "execution";
@@ -66,6 +68,11 @@ public class TermsFilterParser implements FilterParser {
         this.client = client;
     }
 
+    @Inject(optional = true)
+    public void setTermsLookupCache(IndicesTermsLookupCache termsLookupCache) {
+        this.termsLookupCache = termsLookupCache;
+    }
+
     @Override
     public Filter parse(QueryParseContext parseContext) throws IOException, QueryParsingException {
         XContentParser parser = parseContext.parser();
@@ -161,10 +168,14 @@ public class TermsFilterParser implements FilterParser {
 
         if (lookupId != null) {
             final TermsLookup lookup = new TermsLookup(lookupIndex, lookupType, lookupId, lookupRouting, lookupPath, parseContext);
-            final GetResponse getResponse = client.get(new GetRequest(lookup.getIndex(), lookup.getType(), lookup.getId()).preference("_local").routing(lookup.getRouting())).actionGet();
-            if (getResponse.isExists()) {
-                List<Object> values = XContentMapValues.extractRawValues(lookup.getPath(), getResponse.getSourceAsMap());
-                terms.addAll(values);
+            if (termsLookupCache != null) {
+                terms.addAll(termsLookupCache.terms(lookup));
+            } else {
+                final GetResponse getResponse = client.get(new GetRequest(lookup.getIndex(), lookup.getType(), lookup.getId()).preference("_local").routing(lookup.getRouting())).actionGet();
+                if (getResponse.isExists()) {
+                    List<Object> values = XContentMapValues.extractRawValues(lookup.getPath(), getResponse.getSourceAsMap());
+                    terms.addAll(values);
+                }
             }
         }
 
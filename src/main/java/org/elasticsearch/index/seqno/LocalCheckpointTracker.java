@@ -0,0 +1,169 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.seqno;
+
+import com.carrotsearch.hppc.LongObjectOpenHashMap;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
+import org.apache.lucene.util.FixedBitSet;
+
+/**
+ * Keeps track of the sequence numbers of the operations applied to a shard. The local checkpoint is the
+ * highest sequence number below which all operations have been processed, operations that complete out
+ * of order are kept aside until the gap below them is filled.
+ * <p/>
+ * Operations above the checkpoint are recorded in bit sets covering {@link #BIT_SET_SIZE} consecutive
+ * sequence numbers each, which are dropped once the checkpoint moved past them. Nothing is ever forgotten,
+ * a gap costs one bit per operation completed above it.
+ */
+public class LocalCheckpointTracker {
+
+    /**
+     * The number of sequence numbers covered by each bit set
+     */
+    static final int BIT_SET_SIZE = 1024;
+
+    private final LongObjectOpenHashMap<FixedBitSet> processed = new LongObjectOpenHashMap<>();
+
+    private long checkpoint;
+
+    private long maxSeqNo;
+
+    public LocalCheckpointTracker(long maxSeqNo, long checkpoint) {
+        if (checkpoint > maxSeqNo) {
+            throw new IllegalArgumentException("checkpoint [" + checkpoint + "] must be less or equal to max seq no [" + maxSeqNo + "]");
+        }
+        this.maxSeqNo = maxSeqNo;
+        this.checkpoint = checkpoint;
+    }
+
+    /**
+     * Issues the next sequence number, used by primaries.
+     */
+    public synchronized long generateSeqNo() {
+        return ++maxSeqNo;
+    }
+
+    /**
+     * Marks the operation with the given sequence number as processed.
+     */
+    public synchronized void markSeqNoAsCompleted(long seqNo) {
+        if (seqNo < 0) {
+            return;
+        }
+        if (seqNo > maxSeqNo) {
+            maxSeqNo = seqNo;
+        }
+        if (seqNo <= checkpoint) {
+            return;
+        }
+        final long key = bitSetKey(seqNo);
+        FixedBitSet bitSet = processed.get(key);
+        if (bitSet == null) {
+            bitSet = new FixedBitSet(BIT_SET_SIZE);
+            processed.put(key, bitSet);
+        }
+        bitSet.set(bitSetOffset(seqNo));
+        if (seqNo == checkpoint + 1) {
+            updateCheckpoint();
+        }
+    }
+
+    /**
+     * Moves the checkpoint (and the max sequence number if needed) to the given sequence number, all
+     * operations up to and including it are considered processed.
+     */
+    public synchronized void fastForward(long seqNo) {
+        if (seqNo > maxSeqNo) {
+            maxSeqNo = seqNo;
+        }
+        if (seqNo > checkpoint) {
+            checkpoint = seqNo;
+            final long firstKey = bitSetKey(checkpoint + 1);
+            final long[] keys = processed.keys().toArray();
+            for (long key : keys) {
+                if (key < firstKey) {
+                    processed.remove(key);
+                }
+            }
+            updateCheckpoint();
+        }
+    }
+
+    /**
+     * Moves the checkpoint over the operations that completed right above it, dropping the bit sets it moves past.
+     */
+    private void updateCheckpoint() {
+        long key = bitSetKey(checkpoint + 1);
+        FixedBitSet bitSet = processed.get(key);
+        while (bitSet != null && bitSet.get(bitSetOffset(checkpoint + 1))) {
+            checkpoint++;
+            if (bitSetOffset(checkpoint + 1) == 0) {
+                // all operations of the bit set are processed
+                processed.remove(key);
+                key++;
+                bitSet = processed.get(key);
+            }
+        }
+    }
+
+    private static long bitSetKey(long seqNo) {
+        return seqNo / BIT_SET_SIZE;
+    }
+
+    private static int bitSetOffset(long seqNo) {
+        return (int) (seqNo % BIT_SET_SIZE);
+    }
+
+    /**
+     * The highest sequence number for which this and all lower operations have been processed.
+     */
+    public synchronized long checkpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * The highest sequence number issued or processed so far.
+     */
+    public synchronized long maxSeqNo() {
+        return maxSeqNo;
+    }
+
+    /**
+     * The number of operations above the checkpoint that were processed
+     */
+    synchronized int pendingCount() {
+        int count = 0;
+        for (LongObjectCursor<FixedBitSet> cursor : processed) {
+            for (int offset = 0; offset < BIT_SET_SIZE; offset++) {
+                if (cursor.value.get(offset) && cursor.key * BIT_SET_SIZE + offset > checkpoint) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The number of bit sets currently held
+     */
+    synchronized int bitSetCount() {
+        return processed.size();
+    }
+}
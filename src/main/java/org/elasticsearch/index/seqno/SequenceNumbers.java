@@ -0,0 +1,72 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.seqno;
+
+import java.util.Map;
+
+/**
+ * Constants and commit user data keys used to track the sequence of operations applied to a shard.
+ */
+public final class SequenceNumbers {
+
+    /**
+     * The sequence number of an operation that has not been assigned one, for instance an operation
+     * replayed from a transaction log or sent by a node that does not assign sequence numbers.
+     */
+    public static final long UNASSIGNED_SEQ_NO = -2;
+
+    /**
+     * The local checkpoint and max sequence number of a shard that has not processed any operation.
+     */
+    public static final long NO_OPS_PERFORMED = -1;
+
+    /**
+     * Commit user data key of the id of the operation history the commit belongs to.
+     */
+    public static final String HISTORY_UUID_KEY = "history_uuid";
+
+    /**
+     * Commit user data key of the local checkpoint, all operations up to and including it are contained in the commit.
+     */
+    public static final String LOCAL_CHECKPOINT_KEY = "local_checkpoint";
+
+    /**
+     * Commit user data key of the highest sequence number that was assigned or seen when the commit was made.
+     */
+    public static final String MAX_SEQ_NO_KEY = "max_seq_no";
+
+    /**
+     * Commit user data key of the lowest sequence number that is guaranteed to be contained in the transaction
+     * log associated with the commit, every operation above it can be replayed from that transaction log.
+     */
+    public static final String TRANSLOG_START_SEQ_NO_KEY = "translog_start_seq_no";
+
+    private SequenceNumbers() {
+    }
+
+    /**
+     * Reads a sequence number from commit user data, returning {@link #NO_OPS_PERFORMED} if the commit
+     * was written without sequence numbers.
+     */
+    public static long readSeqNo(Map<String, String> commitUserData, String key) {
+        final String value = commitUserData.get(key);
+        return value == null ? NO_OPS_PERFORMED : Long.parseLong(value);
+    }
+}
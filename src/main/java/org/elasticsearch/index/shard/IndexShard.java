@@ -52,6 +52,7 @@ import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.search.Queries;
+import org.elasticsearch.common.metrics.CounterMetric;
 import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
@@ -104,6 +105,7 @@ import org.elasticsearch.index.recovery.RecoveryStats;
 import org.elasticsearch.index.refresh.RefreshStats;
 import org.elasticsearch.index.search.stats.SearchStats;
 import org.elasticsearch.index.search.stats.ShardSearchService;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.settings.IndexSettingsService;
 import org.elasticsearch.index.similarity.SimilarityService;
 import org.elasticsearch.index.store.Store;
@@ -193,6 +195,7 @@ public class IndexShard extends AbstractIndexShardComponent {
 
     private final MeanMetric refreshMetric = new MeanMetric();
     private final MeanMetric flushMetric = new MeanMetric();
+    private final CounterMetric indexingBytes = new CounterMetric();
 
     private final ShardEngineFailListener failedEngineListener = new ShardEngineFailListener();
 
@@ -348,6 +351,18 @@ public class IndexShard extends AbstractIndexShardComponent {
                 if (!newRouting.primary() && currentRouting.primary()) {
                     logger.warn("suspect illegal state: trying to move shard from primary mode to replica mode");
                 }
+                if (newRouting.primary() && !currentRouting.primary() && currentRouting.active()) {
+                    // a promoted replica might have missed operations other copies have seen, they must not
+                    // be able to recover from it based on operations only
+                    Engine engine = engineUnsafe();
+                    if (engine != null) {
+                        try {
+                            engine.startNewHistory();
+                        } catch (EngineClosedException e) {
+                            // the shard is closing, nothing to track anymore
+                        }
+                    }
+                }
                 // if its the same routing, return
                 if (currentRouting.equals(newRouting)) {
                     this.shardRouting = newRouting; // might have a new version
@@ -480,6 +495,7 @@ public class IndexShard extends AbstractIndexShardComponent {
             }
             engine().create(create);
             create.endTime(System.nanoTime());
+            indexingBytes.inc(create.source().length());
         } catch (Throwable ex) {
             indexingService.postCreate(create, ex);
             throw ex;
@@ -515,6 +531,7 @@ public class IndexShard extends AbstractIndexShardComponent {
             }
             created = engine().index(index);
             index.endTime(System.nanoTime());
+            indexingBytes.inc(index.source().length());
         } catch (Throwable ex) {
             indexingService.postIndex(index, ex);
             throw ex;
@@ -710,6 +727,19 @@ public class IndexShard extends AbstractIndexShardComponent {
         flushMetric.inc(System.nanoTime() - time);
     }
 
+    /**
+     * Commits the given sync id if this shard holds all operations of the given history up to <code>maxSeqNo</code>
+     * and no others, see {@link Engine#syncFlush(String, String, long)}.
+     */
+    public boolean syncFlush(String syncId, String historyUUID, long maxSeqNo) throws ElasticsearchException {
+        verifyStarted();
+        logger.trace("trying to sync commit [{}] for history [{}] up to seq no [{}]", syncId, historyUUID, maxSeqNo);
+        long time = System.nanoTime();
+        boolean synced = engine().syncFlush(syncId, historyUUID, maxSeqNo);
+        flushMetric.inc(System.nanoTime() - time);
+        return synced;
+    }
+
     public void optimize(OptimizeRequest optimize) throws ElasticsearchException {
         verifyStarted();
         if (logger.isTraceEnabled()) {
@@ -836,6 +866,11 @@ public class IndexShard extends AbstractIndexShardComponent {
         // but we need to make sure we don't loose deletes until we are done recovering
         engineConfig.setEnableGcDeletes(false);
         createNewEngine(skipTranslogRecovery, engineConfig);
+        if (shardRouting.primary() && recoveryState.getType() != RecoveryState.Type.RELOCATION) {
+            // a primary recovered from its own store or a snapshot starts a new history since other copies might
+            // have seen operations it never received
+            engine().startNewHistory();
+        }
         return engineConfig.getTranslogRecoveryPerformer().getRecoveredTypes();
     }
 
@@ -881,7 +916,17 @@ public class IndexShard extends AbstractIndexShardComponent {
      * note that you should still call {@link #postRecovery(String)}.
      */
     public void finalizeRecovery() {
+        finalizeRecovery(null, SequenceNumbers.NO_OPS_PERFORMED);
+    }
+
+    /**
+     * perform the last stages of a peer recovery, adopting the operation history of the recovery source if it has one.
+     */
+    public void finalizeRecovery(@Nullable String historyUUID, long maxSeqNo) {
         recoveryState().setStage(RecoveryState.Stage.FINALIZE);
+        if (historyUUID != null) {
+            engine().adoptHistory(historyUUID, maxSeqNo);
+        }
         // clear unreferenced files
         translog.clearUnreferenced();
         engine().refresh("recovery_finalization");
@@ -993,6 +1038,29 @@ public class IndexShard extends AbstractIndexShardComponent {
         translog().updateBuffer(shardTranslogBufferSize);
     }
 
+    /**
+     * Returns the total number of source bytes of the documents indexed into this shard
+     */
+    public long indexingBytes() {
+        return indexingBytes.count();
+    }
+
+    /**
+     * Returns the number of bytes the index writer of this shard currently uses for buffered documents,
+     * or 0 if the engine is not started.
+     */
+    public long indexBufferRAMBytesUsed() {
+        Engine engine = engineUnsafe();
+        if (engine == null) {
+            return 0;
+        }
+        try {
+            return engine.indexBufferRAMBytesUsed();
+        } catch (AlreadyClosedException ex) {
+            return 0;
+        }
+    }
+
     public void markAsInactive() {
         updateBufferSize(EngineConfig.INACTIVE_SHARD_INDEXING_BUFFER, Translog.INACTIVE_SHARD_TRANSLOG_BUFFER);
     }
@@ -36,6 +36,7 @@ import java.util.List;
 public final class ShardPath {
     public static final String INDEX_FOLDER_NAME = "index";
     public static final String TRANSLOG_FOLDER_NAME = "translog";
+    public static final String FIELDDATA_FOLDER_NAME = "fielddata";
 
     private final Path path;
     private final String indexUUID;
@@ -173,6 +173,13 @@ public class IndexShardSnapshotStatus {
         processedSize += size;
     }
 
+    /**
+     * Adds bytes that were processed for files that are still in progress
+     */
+    public synchronized void addProcessedSize(long size) {
+        processedSize += size;
+    }
+
     /**
      * Number of files
      *
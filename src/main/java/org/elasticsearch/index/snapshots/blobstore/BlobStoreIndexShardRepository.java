@@ -32,10 +32,12 @@ import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.RateLimiter;
 import org.apache.lucene.util.BytesRef;
 import org.apache.lucene.util.BytesRefBuilder;
+import org.elasticsearch.ElasticsearchParseException;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cluster.ClusterService;
 import org.elasticsearch.cluster.metadata.SnapshotId;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.blobstore.BlobContainer;
 import org.elasticsearch.common.blobstore.BlobMetaData;
@@ -57,15 +59,26 @@ import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.indices.recovery.RecoveryState;
+import org.elasticsearch.repositories.FileTransferLimiter;
 import org.elasticsearch.repositories.RepositoryName;
 import org.elasticsearch.repositories.RepositoryVerificationException;
+import org.elasticsearch.threadpool.ThreadPool;
 
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.math.BigInteger;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static com.google.common.collect.Lists.newArrayList;
 import static org.elasticsearch.repositories.blobstore.BlobStoreRepository.testBlobPrefix;
@@ -88,6 +101,10 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private final ClusterService clusterService;
 
+    private final ThreadPool threadPool;
+
+    private final FileTransferLimiter fileTransferLimiter;
+
     private RateLimiter snapshotRateLimiter;
 
     private RateLimiter restoreRateLimiter;
@@ -96,28 +113,43 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
     private RateLimitingInputStream.Listener snapshotThrottleListener;
 
+    private BlobContainer sharedBlobContainer;
+
+    private BlobContainer sharedBlobReferencesContainer;
+
     private static final String SNAPSHOT_PREFIX = "snapshot-";
 
+    private static final String SHARED_BLOB_PREFIX = "blob-";
+
+    private static final String TEMP_SHARED_BLOB_PREFIX = "pending-";
+
+    private static final String SHARED_BLOB_REFERENCES = "refs";
+
     @Inject
-    public BlobStoreIndexShardRepository(Settings settings, RepositoryName repositoryName, IndicesService indicesService, ClusterService clusterService) {
+    public BlobStoreIndexShardRepository(Settings settings, RepositoryName repositoryName, IndicesService indicesService, ClusterService clusterService,
+                                         ThreadPool threadPool, FileTransferLimiter fileTransferLimiter) {
         super(settings);
         this.repositoryName = repositoryName.name();
         this.indicesService = indicesService;
         this.clusterService = clusterService;
+        this.threadPool = threadPool;
+        this.fileTransferLimiter = fileTransferLimiter;
     }
 
     /**
      * Called by {@link org.elasticsearch.repositories.blobstore.BlobStoreRepository} on repository startup
      *
-     * @param blobStore blob store
-     * @param basePath  base path to blob store
-     * @param chunkSize chunk size
+     * @param blobStore                  blob store
+     * @param basePath                   base path to blob store
+     * @param chunkSize                  chunk size
      */
     public void initialize(BlobStore blobStore, BlobPath basePath, ByteSizeValue chunkSize,
                            RateLimiter snapshotRateLimiter, RateLimiter restoreRateLimiter,
                            final RateLimiterListener rateLimiterListener) {
         this.blobStore = blobStore;
         this.basePath = basePath;
+        this.sharedBlobContainer = blobStore.blobContainer(basePath.add("blobs"));
+        this.sharedBlobReferencesContainer = blobStore.blobContainer(basePath.add(SHARED_BLOB_REFERENCES));
         this.chunkSize = chunkSize;
         this.snapshotRateLimiter = snapshotRateLimiter;
         this.restoreRateLimiter = restoreRateLimiter;
@@ -210,6 +242,249 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         context.delete();
     }
 
+    /**
+     * Records the snapshot as a reference of all shared blobs that the given shards of the snapshot use.
+     * <p/>
+     * Called on the master node when the snapshot is finalized, shards that have no snapshot file are ignored. Each
+     * reference is a blob of its own, named after the shared blob and the snapshot, so recording and releasing the
+     * references of a snapshot never rewrites the references of other snapshots.
+     *
+     * @param snapshotId snapshot id
+     * @param shardIds   shards of the snapshot
+     */
+    public synchronized void addSharedBlobReferences(SnapshotId snapshotId, Collection<ShardId> shardIds) throws IOException {
+        Set<String> sharedBlobs = new TreeSet<>();
+        for (ShardId shardId : shardIds) {
+            Context context = new Context(snapshotId, shardId);
+            String snapshotBlobName = snapshotBlobName(snapshotId);
+            if (!context.blobContainer.blobExists(snapshotBlobName)) {
+                continue;
+            }
+            try (InputStream stream = context.blobContainer.openInput(snapshotBlobName)) {
+                for (FileInfo fileInfo : readSnapshot(stream).indexFiles()) {
+                    if (isSharedBlob(fileInfo)) {
+                        sharedBlobs.add(fileInfo.name());
+                    }
+                }
+            }
+        }
+        if (!sharedBlobs.isEmpty()) {
+            // the list of the referenced blobs is written first, so that deleting the snapshot finds all its references
+            writeSharedBlobReferences(snapshotId, sharedBlobs);
+            for (String sharedBlob : sharedBlobs) {
+                try (OutputStream output = sharedBlobReferencesContainer.createOutput(sharedBlobReferenceName(sharedBlob, snapshotId))) {
+                    // the reference is the name of the blob, it has no content
+                }
+            }
+        }
+        // all shards of the snapshot are done, blobs that were uploaded by failed or aborted shards are not
+        // referenced by any snapshot file and would otherwise stay in the repository forever
+        deleteUnreferencedSharedBlobs(snapshotId);
+    }
+
+    /**
+     * Deletes shared blobs that are not referenced by any snapshot and leftover parts of interrupted uploads.
+     * <p/>
+     * Only one snapshot can run at a time, so this is safe to call once all shards of the running snapshot are done.
+     */
+    private void deleteUnreferencedSharedBlobs(SnapshotId snapshotId) {
+        final Set<String> referenced = new HashSet<>();
+        final ImmutableMap<String, BlobMetaData> blobs;
+        try {
+            for (String referenceName : sharedBlobReferencesContainer.listBlobs().keySet()) {
+                int index = referenceName.indexOf('.');
+                if (referenceName.startsWith(SHARED_BLOB_PREFIX) && index > 0) {
+                    referenced.add(referenceName.substring(0, index));
+                }
+            }
+            blobs = sharedBlobContainer.listBlobs();
+        } catch (IOException e) {
+            logger.debug("[{}] failed to list shared blobs", e, snapshotId);
+            return;
+        }
+        for (String blobName : blobs.keySet()) {
+            if (blobName.startsWith(TEMP_SHARED_BLOB_PREFIX)
+                    || (blobName.startsWith(SHARED_BLOB_PREFIX) && !referenced.contains(FileInfo.canonicalName(blobName)))) {
+                try {
+                    sharedBlobContainer.deleteBlob(blobName);
+                } catch (IOException e) {
+                    logger.debug("[{}] error deleting unreferenced shared blob [{}]", e, snapshotId, blobName);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the references of the snapshot and deletes the shared blobs that are not referenced by any snapshot
+     * anymore. Only the references of the shared blobs that the snapshot uses are read and deleted.
+     *
+     * @param snapshotId snapshot id
+     */
+    public synchronized void releaseSharedBlobReferences(SnapshotId snapshotId) throws IOException {
+        final String referencesBlobName = sharedBlobReferencesBlobName(snapshotId);
+        if (!sharedBlobReferencesContainer.blobExists(referencesBlobName)) {
+            return;
+        }
+        Set<String> sharedBlobs = readSharedBlobReferences(snapshotId);
+        // delete the references first, a failure while deleting only leaves unreferenced blobs behind
+        for (String sharedBlob : sharedBlobs) {
+            String referenceName = sharedBlobReferenceName(sharedBlob, snapshotId);
+            if (sharedBlobReferencesContainer.blobExists(referenceName)) {
+                sharedBlobReferencesContainer.deleteBlob(referenceName);
+            }
+        }
+        for (String sharedBlob : sharedBlobs) {
+            try {
+                if (!sharedBlobReferencesContainer.listBlobsByPrefix(sharedBlob + ".").isEmpty()) {
+                    continue;
+                }
+                for (String blobName : sharedBlobContainer.listBlobsByPrefix(sharedBlob).keySet()) {
+                    if (sharedBlob.equals(FileInfo.canonicalName(blobName))) {
+                        sharedBlobContainer.deleteBlob(blobName);
+                    }
+                }
+            } catch (IOException e) {
+                logger.debug("[{}] error deleting shared blob [{}]", e, snapshotId, sharedBlob);
+            }
+        }
+        sharedBlobReferencesContainer.deleteBlob(referencesBlobName);
+    }
+
+    /**
+     * Returns the name of the blob that records that the snapshot references the shared blob. Shared blob names
+     * don't contain dots, so the references of a shared blob are all blobs that start with its name and a dot.
+     */
+    private static String sharedBlobReferenceName(String sharedBlob, SnapshotId snapshotId) {
+        return sharedBlob + "." + snapshotId.getSnapshot();
+    }
+
+    /**
+     * Returns the name of the blob that lists the shared blobs the snapshot references
+     */
+    private static String sharedBlobReferencesBlobName(SnapshotId snapshotId) {
+        return SNAPSHOT_PREFIX + snapshotId.getSnapshot();
+    }
+
+    /**
+     * Returns the names of the shared blobs the snapshot references
+     */
+    Set<String> readSharedBlobReferences(SnapshotId snapshotId) throws IOException {
+        Set<String> sharedBlobs = new TreeSet<>();
+        try (InputStream stream = sharedBlobReferencesContainer.openInput(sharedBlobReferencesBlobName(snapshotId));
+             XContentParser parser = XContentFactory.xContent(XContentType.JSON).createParser(stream)) {
+            XContentParser.Token token = parser.nextToken();
+            if (token != XContentParser.Token.START_ARRAY) {
+                throw new ElasticsearchParseException("unexpected token [" + token + "]");
+            }
+            while (parser.nextToken() != XContentParser.Token.END_ARRAY) {
+                sharedBlobs.add(parser.text());
+            }
+        }
+        return sharedBlobs;
+    }
+
+    private void writeSharedBlobReferences(SnapshotId snapshotId, Set<String> sharedBlobs) throws IOException {
+        try (OutputStream output = sharedBlobReferencesContainer.createOutput(sharedBlobReferencesBlobName(snapshotId))) {
+            XContentBuilder builder = XContentFactory.contentBuilder(XContentType.JSON, output);
+            builder.startArray();
+            for (String sharedBlob : sharedBlobs) {
+                builder.value(sharedBlob);
+            }
+            builder.endArray();
+            builder.flush();
+        }
+    }
+
+    /**
+     * Runs the file transfers concurrently. The calling thread takes part in the work and up to
+     * {@code repositories.max_concurrent_file_transfers - 1} additional workers are forked to the generic thread pool,
+     * each transfer holds one of the node wide transfer permits while it runs, shared by all repositories. Remaining transfers are skipped after
+     * the first failure, which is rethrown once all workers are done.
+     *
+     * @param transfers file transfers to execute
+     */
+    void executeFileTransfers(List<? extends Callable<Void>> transfers) throws IOException {
+        final ConcurrentLinkedQueue<Callable<Void>> queue = new ConcurrentLinkedQueue<Callable<Void>>(transfers);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final int workers = Math.min(fileTransferLimiter.maxConcurrentFileTransfers(), transfers.size()) - 1;
+        final CountDownLatch latch = new CountDownLatch(Math.max(0, workers));
+        for (int i = 0; i < workers; i++) {
+            threadPool.generic().execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        drainFileTransfers(queue, failure);
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+        drainFileTransfers(queue, failure);
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+        }
+        Throwable t = failure.get();
+        if (t != null) {
+            if (t instanceof IOException) {
+                throw (IOException) t;
+            }
+            throw ExceptionsHelper.convertToRuntime(t);
+        }
+    }
+
+    private void drainFileTransfers(ConcurrentLinkedQueue<Callable<Void>> queue, AtomicReference<Throwable> failure) {
+        Callable<Void> transfer;
+        while (failure.get() == null && (transfer = queue.poll()) != null) {
+            try {
+                fileTransferLimiter.acquire();
+                try {
+                    transfer.call();
+                } finally {
+                    fileTransferLimiter.release();
+                }
+            } catch (Throwable t) {
+                failure.compareAndSet(null, t);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the file is stored in the repository wide shared blob container
+     */
+    static boolean isSharedBlob(FileInfo fileInfo) {
+        return fileInfo.name().startsWith(SHARED_BLOB_PREFIX);
+    }
+
+    /**
+     * Returns true if the file is a new shared blob that is uploaded under its pending name
+     */
+    static boolean isPendingSharedBlob(FileInfo fileInfo) {
+        return fileInfo.name().startsWith(TEMP_SHARED_BLOB_PREFIX);
+    }
+
+    /**
+     * Returns the prefix of the names of shared blobs with the checksum and length of the file
+     */
+    static String sharedBlobPrefix(StoreFileMetaData md) {
+        return SHARED_BLOB_PREFIX + md.checksum() + "-" + Long.toString(md.length(), Character.MAX_RADIX) + "-";
+    }
+
+    static String sharedBlobName(StoreFileMetaData md, MessageDigest digest) {
+        return sharedBlobPrefix(md) + new BigInteger(1, digest.digest()).toString(Character.MAX_RADIX);
+    }
+
+    static MessageDigest sharedBlobDigest() throws IOException {
+        try {
+            return MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException("SHA-1 is not available", e);
+        }
+    }
+
     @Override
     public String toString() {
         return "BlobStoreIndexShardRepository[" +
@@ -276,6 +551,13 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             blobContainer = blobStore.blobContainer(basePath.add("indices").add(snapshotShardId.getIndex()).add(Integer.toString(snapshotShardId.getId())));
         }
 
+        /**
+         * Returns the container the file is stored in, either the shard container or the shared blob container
+         */
+        protected BlobContainer blobContainer(FileInfo fileInfo) {
+            return fileInfo != null && isSharedBlob(fileInfo) ? sharedBlobContainer : blobContainer;
+        }
+
         /**
          * Delete shard snapshot
          */
@@ -471,20 +753,45 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                         // to ensure we don't double the space in the repo since old snapshots
                         // don't have this hash we try to read that hash from the blob store
                         // in a bwc compatible way.
-                        maybeRecalculateMetadataHash(blobContainer, fileInfo, metadata);
+                        maybeRecalculateMetadataHash(blobContainer(fileInfo), fileInfo, metadata);
                     }  catch (Throwable e) {
                         logger.warn("{} Can't calculate hash from blob for file [{}] [{}]", e, shardId, fileInfo.physicalName(), fileInfo.metadata());
                     }
-                    if (fileInfo == null || !fileInfo.isSame(md) || !snapshotFileExistsInBlobs(fileInfo, blobs)) {
-                        // commit point file does not exists in any commit point, or has different length, or does not fully exists in the listed blobs
-                        snapshotRequired = true;
+                    try {
+                        if (fileInfo == null || !fileInfo.isSame(md) || !snapshotFileExists(fileInfo, blobs)) {
+                            // commit point file does not exists in any commit point, or has different length, or does not fully exists in the listed blobs
+                            snapshotRequired = true;
+                        }
+                        if (snapshotRequired) {
+                            fileInfo = null;
+                            if (md.checksum() != null && !md.hasLegacyChecksum()) {
+                                // the same content might have been uploaded already by another shard or an earlier snapshot,
+                                // the file is only hashed upfront if a blob with the same checksum and length exists
+                                String sharedBlobPrefix = sharedBlobPrefix(md);
+                                if (!sharedBlobContainer.listBlobsByPrefix(sharedBlobPrefix).isEmpty()) {
+                                    String sharedBlobName = sharedBlobName(md);
+                                    fileInfo = findSharedBlob(sharedBlobName, md);
+                                    if (fileInfo != null) {
+                                        logger.trace("[{}] [{}] reusing shared blob [{}] for [{}]", shardId, snapshotId, sharedBlobName, fileName);
+                                        snapshotRequired = false;
+                                    }
+                                }
+                                if (fileInfo == null) {
+                                    // new content is uploaded under a pending name and hashed while it is uploaded
+                                    fileInfo = new BlobStoreIndexShardSnapshot.FileInfo(TEMP_SHARED_BLOB_PREFIX + Strings.randomBase64UUID(), md, chunkSize);
+                                }
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new IndexShardSnapshotFailedException(shardId, "Failed to look up blobs for [" + fileName + "]", e);
                     }
 
                     if (snapshotRequired) {
                         indexNumberOfFiles++;
                         indexTotalFilesSize += md.length();
-                        // create a new FileInfo
-                        BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo = new BlobStoreIndexShardSnapshot.FileInfo(fileNameFromGeneration(++generation), md, chunkSize);
+                        // files with legacy checksums can't be content addressed and are stored in the shard container
+                        BlobStoreIndexShardSnapshot.FileInfo snapshotFileInfo = fileInfo != null ? fileInfo :
+                                new BlobStoreIndexShardSnapshot.FileInfo(fileNameFromGeneration(++generation), md, chunkSize);
                         indexCommitPointFiles.add(snapshotFileInfo);
                         filesToSnapshot.add(snapshotFileInfo);
                     } else {
@@ -496,11 +803,17 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
 
                 snapshotStatus.updateStage(IndexShardSnapshotStatus.Stage.STARTED);
 
-                for (FileInfo snapshotFileInfo : filesToSnapshot) {
-                    try {
-                        snapshotFile(snapshotFileInfo);
-                    } catch (IOException e) {
-                        throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
+                final Map<String, FileInfo> publishedSharedBlobs;
+                try {
+                    publishedSharedBlobs = snapshotFiles(filesToSnapshot);
+                } catch (IOException e) {
+                    throw new IndexShardSnapshotFailedException(shardId, "Failed to perform snapshot (index files)", e);
+                }
+                // pending shared blobs are referenced under the content addressed name they were published with
+                for (int i = 0; i < indexCommitPointFiles.size(); i++) {
+                    FileInfo published = publishedSharedBlobs.get(indexCommitPointFiles.get(i).name());
+                    if (published != null) {
+                        indexCommitPointFiles.set(i, published);
                     }
                 }
 
@@ -536,15 +849,54 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         }
 
         /**
-         * Snapshot individual file
-         * <p/>
-         * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
-         * added to the {@code failures} list
+         * Snapshots the files concurrently. New shared blobs are uploaded under their pending name and published
+         * under their content addressed name once the upload computed their digest.
          *
-         * @param fileInfo file to be snapshotted
+         * @param files files to be snapshotted
+         * @return the published shared blobs by their pending name
+         */
+        private Map<String, FileInfo> snapshotFiles(List<FileInfo> files) throws IOException {
+            final Map<String, FileInfo> published = new ConcurrentHashMap<>();
+            List<Callable<Void>> transfers = newArrayList();
+            for (final FileInfo fileInfo : files) {
+                transfers.add(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        if (isPendingSharedBlob(fileInfo)) {
+                            published.put(fileInfo.name(), snapshotSharedBlob(fileInfo));
+                        } else {
+                            snapshotFile(fileInfo, blobContainer, null);
+                        }
+                        return null;
+                    }
+                });
+            }
+            try {
+                executeFileTransfers(transfers);
+            } catch (Throwable t) {
+                for (FileInfo fileInfo : files) {
+                    if (isPendingSharedBlob(fileInfo)) {
+                        try {
+                            sharedBlobContainer.deleteBlobsByPrefix(fileInfo.name());
+                        } catch (IOException e) {
+                            logger.debug("[{}] [{}] failed to delete pending blobs [{}]", e, shardId, snapshotId, fileInfo.name());
+                        }
+                    }
+                }
+                throw t;
+            }
+            return published;
+        }
+
+        /**
+         * Snapshot individual file to the given container
+         *
+         * @param fileInfo  file to be snapshotted
+         * @param container container the file is uploaded to
+         * @param digest    digest that is updated with the file content, might be null
          * @throws IOException
          */
-        private void snapshotFile(final BlobStoreIndexShardSnapshot.FileInfo fileInfo) throws IOException {
+        private void snapshotFile(final BlobStoreIndexShardSnapshot.FileInfo fileInfo, BlobContainer container, @Nullable MessageDigest digest) throws IOException {
             final String file = fileInfo.physicalName();
             final byte[] buffer = new byte[BUFFER_SIZE];
             try (IndexInput indexInput = store.openVerifyingInput(file, IOContext.READONCE, fileInfo.metadata())) {
@@ -552,15 +904,19 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                     final InputStreamIndexInput inputStreamIndexInput = new InputStreamIndexInput(indexInput, fileInfo.partBytes());
                     InputStream inputStream = snapshotRateLimiter == null ? inputStreamIndexInput :  new RateLimitingInputStream(inputStreamIndexInput, snapshotRateLimiter, snapshotThrottleListener);
                     inputStream = new AbortableInputStream(inputStream, fileInfo.physicalName());
-                    try (OutputStream output = blobContainer.createOutput(fileInfo.partName(i))) {
+                    if (digest != null) {
+                        inputStream = new DigestInputStream(inputStream, digest);
+                    }
+                    try (OutputStream output = container.createOutput(fileInfo.partName(i))) {
                         int len;
                         while ((len = inputStream.read(buffer)) > 0) {
                             output.write(buffer, 0, len);
+                            snapshotStatus.addProcessedSize(len);
                         }
                     }
                 }
                 Store.verify(indexInput);
-                snapshotStatus.addProcessedFile(fileInfo.length());
+                snapshotStatus.addProcessedFile(0);
             } catch (Throwable t) {
                 failStoreIfCorrupted(t);
                 snapshotStatus.addProcessedFile(0);
@@ -568,6 +924,103 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
             }
         }
 
+        /**
+         * Uploads a new shared blob under its pending name, the file is read only once and hashed while it is
+         * uploaded. The parts are then moved to the content addressed name, unless another shard published the
+         * same content in the meantime.
+         *
+         * @param pendingFileInfo file to be snapshotted, named with its pending name
+         * @return file info of the published shared blob
+         */
+        private BlobStoreIndexShardSnapshot.FileInfo snapshotSharedBlob(final BlobStoreIndexShardSnapshot.FileInfo pendingFileInfo) throws IOException {
+            final MessageDigest digest = sharedBlobDigest();
+            snapshotFile(pendingFileInfo, sharedBlobContainer, digest);
+            final StoreFileMetaData md = pendingFileInfo.metadata();
+            final String sharedBlobName = sharedBlobName(md, digest);
+            BlobStoreIndexShardSnapshot.FileInfo existing = findSharedBlob(sharedBlobName, md);
+            if (existing != null) {
+                // the content is already published, the uploaded copy is identical and not needed
+                sharedBlobContainer.deleteBlobsByPrefix(pendingFileInfo.name());
+                return existing;
+            }
+            final BlobStoreIndexShardSnapshot.FileInfo fileInfo = new BlobStoreIndexShardSnapshot.FileInfo(sharedBlobName, md, chunkSize);
+            for (int i = 0; i < fileInfo.numberOfParts(); i++) {
+                final String partName = fileInfo.partName(i);
+                if (!sharedBlobContainer.blobExists(partName)) {
+                    try {
+                        sharedBlobContainer.move(pendingFileInfo.partName(i), partName);
+                        continue;
+                    } catch (IOException e) {
+                        // another shard may have published the same content between the check and the move
+                        if (!sharedBlobContainer.blobExists(partName)) {
+                            throw e;
+                        }
+                    }
+                }
+                sharedBlobContainer.deleteBlob(pendingFileInfo.partName(i));
+            }
+            return fileInfo;
+        }
+
+        /**
+         * Returns the content addressed name of the file in the shared blob container, the name is built from
+         * the checksum, the length and a SHA-1 digest of the file content. Reads and verifies the whole file, it
+         * is subject to the snapshot rate limit just like an upload.
+         *
+         * @param md file metadata
+         * @return shared blob name
+         */
+        private String sharedBlobName(StoreFileMetaData md) throws IOException {
+            final MessageDigest digest = sharedBlobDigest();
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            try (IndexInput indexInput = store.openVerifyingInput(md.name(), IOContext.READONCE, md)) {
+                InputStream inputStream = new InputStreamIndexInput(indexInput, md.length());
+                if (snapshotRateLimiter != null) {
+                    inputStream = new RateLimitingInputStream(inputStream, snapshotRateLimiter, snapshotThrottleListener);
+                }
+                inputStream = new AbortableInputStream(inputStream, md.name());
+                int len;
+                while ((len = inputStream.read(buffer)) != -1) {
+                    digest.update(buffer, 0, len);
+                }
+                Store.verify(indexInput);
+            } catch (Throwable t) {
+                failStoreIfCorrupted(t);
+                throw t;
+            }
+            return sharedBlobName(md, digest);
+        }
+
+        /**
+         * Looks up a fully uploaded shared blob, the returned file info uses the part size the blob was uploaded with
+         *
+         * @param sharedBlobName content addressed blob name
+         * @param md             file metadata
+         * @return file info of the shared blob or null if the blob doesn't exist
+         */
+        private BlobStoreIndexShardSnapshot.FileInfo findSharedBlob(String sharedBlobName, StoreFileMetaData md) throws IOException {
+            ImmutableMap<String, BlobMetaData> blobs = sharedBlobContainer.listBlobsByPrefix(sharedBlobName);
+            BlobStoreIndexShardSnapshot.FileInfo fileInfo;
+            if (blobs.containsKey(sharedBlobName)) {
+                fileInfo = new BlobStoreIndexShardSnapshot.FileInfo(sharedBlobName, md, null);
+            } else if (blobs.containsKey(sharedBlobName + ".part0")) {
+                fileInfo = new BlobStoreIndexShardSnapshot.FileInfo(sharedBlobName, md, new ByteSizeValue(blobs.get(sharedBlobName + ".part0").length()));
+            } else {
+                return null;
+            }
+            return snapshotFileExistsInBlobs(fileInfo, blobs) ? fileInfo : null;
+        }
+
+        /**
+         * Checks if snapshot file already exists in the shard blobs or in the shared blob container
+         */
+        private boolean snapshotFileExists(BlobStoreIndexShardSnapshot.FileInfo fileInfo, ImmutableMap<String, BlobMetaData> blobs) throws IOException {
+            if (isSharedBlob(fileInfo)) {
+                blobs = sharedBlobContainer.listBlobsByPrefix(fileInfo.name());
+            }
+            return snapshotFileExistsInBlobs(fileInfo, blobs);
+        }
+
         private void failStoreIfCorrupted(Throwable t) {
             if (t instanceof CorruptIndexException || t instanceof IndexFormatTooOldException || t instanceof IndexFormatTooNewException) {
                 try {
@@ -726,7 +1179,7 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                         // to ensure we don't double the space in the repo since old snapshots
                         // don't have this hash we try to read that hash from the blob store
                         // in a bwc compatible way.
-                        maybeRecalculateMetadataHash(blobContainer, fileInfo, recoveryTargetMetadata);
+                        maybeRecalculateMetadataHash(blobContainer(fileInfo), fileInfo, recoveryTargetMetadata);
                     }  catch (Throwable e) {
                         // if the index is broken we might not be able to read it
                         logger.warn("{} Can't calculate hash from blog for file [{}] [{}]", e, shardId, fileInfo.physicalName(), fileInfo.metadata());
@@ -766,10 +1219,18 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
                             index.totalRecoverFiles(), new ByteSizeValue(index.totalRecoverBytes()), index.reusedFileCount(), new ByteSizeValue(index.reusedFileCount()));
                 }
                 try {
+                    List<Callable<Void>> transfers = newArrayList();
                     for (final FileInfo fileToRecover : filesToRecover) {
-                        logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
-                        restoreFile(fileToRecover);
+                        transfers.add(new Callable<Void>() {
+                            @Override
+                            public Void call() throws Exception {
+                                logger.trace("[{}] [{}] restoring file [{}]", shardId, snapshotId, fileToRecover.name());
+                                restoreFile(fileToRecover);
+                                return null;
+                            }
+                        });
                     }
+                    executeFileTransfers(transfers);
                 } catch (IOException ex) {
                     throw new IndexShardRestoreFailedException(shardId, "Failed to recover index", ex);
                 }
@@ -792,15 +1253,13 @@ public class BlobStoreIndexShardRepository extends AbstractComponent implements
         }
 
         /**
-         * Restores a file
-         * This is asynchronous method. Upon completion of the operation latch is getting counted down and any failures are
-         * added to the {@code failures} list
+         * Restores a file, files are restored concurrently so this might be called from several threads
          *
          * @param fileInfo file to be restored
          */
         private void restoreFile(final FileInfo fileInfo) throws IOException {
             boolean success = false;
-            try (InputStream stream = new PartSliceStream(blobContainer, fileInfo)) {
+            try (InputStream stream = new PartSliceStream(blobContainer(fileInfo), fileInfo)) {
                 try (final IndexOutput indexOutput = store.createVerifyingOutput(fileInfo.physicalName(), fileInfo.metadata(), IOContext.DEFAULT)) {
                     final byte[] buffer = new byte[BUFFER_SIZE];
                     int length;
@@ -21,12 +21,12 @@ package org.elasticsearch.indices.cache.filter;
 
 import com.carrotsearch.hppc.ObjectOpenHashSet;
 import com.google.common.base.Objects;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
 import org.apache.lucene.search.DocIdSet;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.RemovalListener;
+import org.elasticsearch.common.cache.RemovalNotification;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -41,7 +41,6 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.Iterator;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
 
 public class IndicesFilterCache extends AbstractComponent implements RemovalListener<WeightedFilterCache.FilterCacheKey, DocIdSet> {
 
@@ -130,14 +129,14 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
     }
 
     private void buildCache() {
-        CacheBuilder<WeightedFilterCache.FilterCacheKey, DocIdSet> cacheBuilder = CacheBuilder.newBuilder()
+        CacheBuilder<WeightedFilterCache.FilterCacheKey, DocIdSet> cacheBuilder = CacheBuilder.<WeightedFilterCache.FilterCacheKey, DocIdSet>builder()
                 .removalListener(this)
-                .maximumWeight(sizeInBytes).weigher(new WeightedFilterCache.FilterCacheValueWeigher(minimumEntryWeight));
+                .setMaximumWeight(sizeInBytes).weigher(new WeightedFilterCache.FilterCacheValueWeigher(minimumEntryWeight));
 
-        cacheBuilder.concurrencyLevel(this.concurrencyLevel);
+        cacheBuilder.setConcurrencyLevel(this.concurrencyLevel);
 
         if (expire != null) {
-            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+            cacheBuilder.setExpireAfterAccess(expire);
         }
 
         cache = cacheBuilder.build();
@@ -202,7 +201,7 @@ public class IndicesFilterCache extends AbstractComponent implements RemovalList
                             it.remove();
                         }
                         if (!keys.isEmpty()) {
-                            for (Iterator<WeightedFilterCache.FilterCacheKey> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+                            for (Iterator<WeightedFilterCache.FilterCacheKey> it = cache.keys().iterator(); it.hasNext(); ) {
                                 WeightedFilterCache.FilterCacheKey filterCacheKey = it.next();
                                 if (keys.contains(filterCacheKey.readerKey())) {
                                     // same as invalidate
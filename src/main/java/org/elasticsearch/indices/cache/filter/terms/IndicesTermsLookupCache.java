@@ -0,0 +1,296 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.filter.terms;
+
+import org.apache.lucene.util.RamUsageEstimator;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.support.IndicesOptions;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.cluster.ClusterChangedEvent;
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.ClusterStateListener;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.cluster.routing.ShardIterator;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.RemovalListener;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.cache.Weigher;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.lucene.uid.Versions;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.support.XContentMapValues;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.engine.EngineConfig;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.search.fetch.source.FetchSourceContext;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A node level cache of the terms a terms filter looks up in a document. An entry is only reused while the looked
+ * up document keeps the version it was loaded with: every lookup gets the current version of the document, which
+ * doesn't need to load its source, and reloads the terms when the version changed or the document is gone. The
+ * version is read from the shard directly if it is allocated on this node, otherwise it takes a get request.
+ * <p/>
+ * Entries are keyed by the uuid of the looked up index, and dropped once that index is removed, as a recreated index
+ * starts its versions again. Versions also start again when a document is recreated after its delete was forgotten
+ * (see <tt>index.gc_deletes</tt>), so a version is only trusted if the entry was validated within that interval.
+ */
+public class IndicesTermsLookupCache extends AbstractComponent implements RemovalListener<IndicesTermsLookupCache.Key, IndicesTermsLookupCache.Value>, ClusterStateListener {
+
+    public static final String INDICES_CACHE_FILTER_TERMS_SIZE = "indices.cache.filter.terms.size";
+    public static final String INDICES_CACHE_FILTER_TERMS_EXPIRE_AFTER_ACCESS = "indices.cache.filter.terms.expire_after_access";
+
+    private final Client client;
+    private final ClusterService clusterService;
+    private final IndicesService indicesService;
+    private final Cache<Key, Value> cache;
+
+    final CounterMetric hitCount = new CounterMetric();
+    final CounterMetric missCount = new CounterMetric();
+    final CounterMetric evictionsMetric = new CounterMetric();
+
+    @Inject
+    public IndicesTermsLookupCache(Settings settings, Client client, ClusterService clusterService, IndicesService indicesService) {
+        super(settings);
+        this.client = client;
+        this.clusterService = clusterService;
+        this.indicesService = indicesService;
+        ByteSizeValue size = settings.getAsBytesSize(INDICES_CACHE_FILTER_TERMS_SIZE, new ByteSizeValue(10, ByteSizeUnit.MB));
+        TimeValue expireAfterAccess = settings.getAsTime(INDICES_CACHE_FILTER_TERMS_EXPIRE_AFTER_ACCESS, null);
+        CacheBuilder<Key, Value> builder = CacheBuilder.<Key, Value>builder()
+                .setMaximumWeight(size.bytes()).weigher(new TermsLookupWeigher()).removalListener(this);
+        if (expireAfterAccess != null && expireAfterAccess.millis() > 0) {
+            builder.setExpireAfterAccess(expireAfterAccess);
+        }
+        this.cache = builder.build();
+        logger.debug("using terms lookup cache with size [{}], expire_after_access [{}]", size, expireAfterAccess);
+        clusterService.add(this);
+    }
+
+    /**
+     * Returns the values found under the path of the looked up document, an empty list if the document doesn't exist.
+     */
+    public List<Object> terms(TermsLookup lookup) {
+        final ClusterState state = clusterService.state();
+        final String concreteIndex = state.metaData().concreteSingleIndex(lookup.getIndex(), IndicesOptions.strictSingleIndexNoExpandForbidClosed());
+        final IndexMetaData indexMetaData = state.metaData().index(concreteIndex);
+        final Key key = new Key(lookup, indexMetaData);
+        final GetResponse current = get(state, indexMetaData, lookup, FetchSourceContext.DO_NOT_FETCH_SOURCE);
+        if (current.isExists() == false) {
+            cache.invalidate(key);
+            return Collections.emptyList();
+        }
+        final long now = System.nanoTime();
+        final long gcDeletesNanos = indexMetaData.settings().getAsTime(EngineConfig.INDEX_GC_DELETES_SETTING, EngineConfig.DEFAULT_GC_DELETES).nanos();
+        Value value = cache.get(key);
+        // once the delete of a document is forgotten, a recreated document starts with the same versions again. That
+        // takes at least gc_deletes, if the entry was validated since then its version still identifies the document
+        if (value != null && value.version == current.getVersion() && now - value.validatedNanos < gcDeletesNanos) {
+            value.validatedNanos = now;
+            hitCount.inc();
+            return value.terms;
+        }
+        missCount.inc();
+        final GetResponse getResponse = get(state, indexMetaData, lookup, null);
+        if (getResponse.isExists() == false) {
+            cache.invalidate(key);
+            return Collections.emptyList();
+        }
+        List<Object> terms = Collections.unmodifiableList(XContentMapValues.extractRawValues(lookup.getPath(), getResponse.getSourceAsMap()));
+        // the document might have changed since we got its version, key the terms by the version they were loaded from
+        cache.put(key, new Value(getResponse.getVersion(), terms, now));
+        return terms;
+    }
+
+    /**
+     * Gets the looked up document from the shard on this node, or with a get request if this node has no copy of it
+     */
+    private GetResponse get(ClusterState state, IndexMetaData indexMetaData, TermsLookup lookup, FetchSourceContext fetchSourceContext) {
+        final String index = indexMetaData.index();
+        final String routing = state.metaData().resolveIndexRouting(lookup.getRouting(), lookup.getIndex());
+        // shadow replicas only see the changes of the primary after a refresh, and a missing routing has to fail like a get does
+        if ((routing != null || state.metaData().routingRequired(index, lookup.getType()) == false)
+                && IndexMetaData.isIndexUsingShadowReplicas(indexMetaData.settings()) == false) {
+            final String localNodeId = state.nodes().localNodeId();
+            final ShardIterator shards = clusterService.operationRouting().getShards(state, index, lookup.getType(), lookup.getId(), routing, null);
+            ShardRouting shard;
+            while ((shard = shards.nextOrNull()) != null) {
+                if (shard.active() == false || localNodeId.equals(shard.currentNodeId()) == false) {
+                    continue;
+                }
+                final IndexService indexService = indicesService.indexService(index);
+                final IndexShard indexShard = indexService == null ? null : indexService.shard(shard.id());
+                if (indexShard != null && indexShard.state() == IndexShardState.STARTED) {
+                    return new GetResponse(indexShard.getService().get(lookup.getType(), lookup.getId(), null, true, Versions.MATCH_ANY,
+                            VersionType.INTERNAL, fetchSourceContext, false));
+                }
+            }
+        }
+        GetRequest request = new GetRequest(index, lookup.getType(), lookup.getId()).preference("_local").routing(lookup.getRouting());
+        if (fetchSourceContext != null) {
+            request.fetchSourceContext(fetchSourceContext);
+        }
+        return client.get(request).actionGet();
+    }
+
+    @Override
+    public void clusterChanged(ClusterChangedEvent event) {
+        if (event.metaDataChanged() == false) {
+            return;
+        }
+        // drop the entries of removed indices, a new index with the same name starts with the same versions again
+        for (Iterator<Key> it = cache.keys().iterator(); it.hasNext(); ) {
+            Key key = it.next();
+            IndexMetaData indexMetaData = event.state().metaData().index(key.index);
+            if (indexMetaData == null || indexMetaData.uuid().equals(key.indexUUID) == false) {
+                it.remove();
+            }
+        }
+    }
+
+    public TermsLookupCacheStats stats() {
+        return new TermsLookupCacheStats(cache.weight(), cache.count(), hitCount.count(), missCount.count(), evictionsMetric.count());
+    }
+
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+    public void close() {
+        clusterService.remove(this);
+        cache.invalidateAll();
+    }
+
+    @Override
+    public void onRemoval(RemovalNotification<Key, Value> notification) {
+        if (notification.wasEvicted()) {
+            evictionsMetric.inc();
+        }
+    }
+
+    static class TermsLookupWeigher implements Weigher<Key, Value> {
+
+        @Override
+        public long weigh(Key key, Value value) {
+            return key.ramBytesUsed() + value.ramBytesUsed();
+        }
+    }
+
+    static long ramBytesUsed(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof String) {
+            return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_INT + RamUsageEstimator.NUM_BYTES_OBJECT_REF
+                    + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER + RamUsageEstimator.NUM_BYTES_CHAR * ((String) value).length();
+        }
+        // numbers and booleans
+        return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + RamUsageEstimator.NUM_BYTES_LONG;
+    }
+
+    static class Key {
+        final String index;
+        final String indexUUID;
+        final String type;
+        final String id;
+        final String routing;
+        final String path;
+
+        Key(TermsLookup lookup, IndexMetaData indexMetaData) {
+            this.index = indexMetaData.index();
+            this.indexUUID = indexMetaData.uuid();
+            this.type = lookup.getType();
+            this.id = lookup.getId();
+            this.routing = lookup.getRouting();
+            this.path = lookup.getPath();
+        }
+
+        long ramBytesUsed() {
+            return RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 6 * RamUsageEstimator.NUM_BYTES_OBJECT_REF
+                    + IndicesTermsLookupCache.ramBytesUsed(index) + IndicesTermsLookupCache.ramBytesUsed(indexUUID)
+                    + IndicesTermsLookupCache.ramBytesUsed(type)
+                    + IndicesTermsLookupCache.ramBytesUsed(id) + IndicesTermsLookupCache.ramBytesUsed(routing)
+                    + IndicesTermsLookupCache.ramBytesUsed(path);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            Key key = (Key) o;
+            if (!index.equals(key.index)) return false;
+            if (!indexUUID.equals(key.indexUUID)) return false;
+            if (!type.equals(key.type)) return false;
+            if (!id.equals(key.id)) return false;
+            if (routing != null ? !routing.equals(key.routing) : key.routing != null) return false;
+            return path.equals(key.path);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = index.hashCode();
+            result = 31 * result + indexUUID.hashCode();
+            result = 31 * result + type.hashCode();
+            result = 31 * result + id.hashCode();
+            result = 31 * result + (routing != null ? routing.hashCode() : 0);
+            result = 31 * result + path.hashCode();
+            return result;
+        }
+    }
+
+    static class Value {
+        final long version;
+        final List<Object> terms;
+        final long ramBytesUsed;
+        // the last time the version of the document was checked, see #terms
+        volatile long validatedNanos;
+
+        Value(long version, List<Object> terms, long validatedNanos) {
+            this.version = version;
+            this.terms = terms;
+            this.validatedNanos = validatedNanos;
+            long ramBytesUsed = RamUsageEstimator.NUM_BYTES_OBJECT_HEADER + 2 * RamUsageEstimator.NUM_BYTES_LONG
+                    + RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
+            for (Object term : terms) {
+                ramBytesUsed += RamUsageEstimator.NUM_BYTES_OBJECT_REF + IndicesTermsLookupCache.ramBytesUsed(term);
+            }
+            this.ramBytesUsed = ramBytesUsed;
+        }
+
+        long ramBytesUsed() {
+            return ramBytesUsed;
+        }
+    }
+}
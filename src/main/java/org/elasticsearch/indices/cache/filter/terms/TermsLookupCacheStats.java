@@ -0,0 +1,132 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.indices.cache.filter.terms;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Statistics of the node level cache of the terms looked up by terms filters.
+ */
+public class TermsLookupCacheStats implements Streamable, ToXContent {
+
+    private long memorySize;
+    private long count;
+    private long hitCount;
+    private long missCount;
+    private long evictions;
+
+    TermsLookupCacheStats() {
+    }
+
+    public TermsLookupCacheStats(long memorySize, long count, long hitCount, long missCount, long evictions) {
+        this.memorySize = memorySize;
+        this.count = count;
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictions = evictions;
+    }
+
+    public long getMemorySizeInBytes() {
+        return this.memorySize;
+    }
+
+    public ByteSizeValue getMemorySize() {
+        return new ByteSizeValue(memorySize);
+    }
+
+    /**
+     * The number of lookups that are cached.
+     */
+    public long getCount() {
+        return this.count;
+    }
+
+    /**
+     * The number of lookups that were served from the cache because the version of the looked up document didn't change.
+     */
+    public long getHitCount() {
+        return this.hitCount;
+    }
+
+    /**
+     * The number of lookups that had to load the looked up document, because it wasn't cached or its version changed.
+     */
+    public long getMissCount() {
+        return this.missCount;
+    }
+
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+    public static TermsLookupCacheStats readTermsLookupCacheStats(StreamInput in) throws IOException {
+        TermsLookupCacheStats stats = new TermsLookupCacheStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        memorySize = in.readVLong();
+        count = in.readVLong();
+        hitCount = in.readVLong();
+        missCount = in.readVLong();
+        evictions = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(memorySize);
+        out.writeVLong(count);
+        out.writeVLong(hitCount);
+        out.writeVLong(missCount);
+        out.writeVLong(evictions);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.TERMS_LOOKUP_CACHE);
+        builder.byteSizeField(Fields.MEMORY_SIZE_IN_BYTES, Fields.MEMORY_SIZE, memorySize);
+        builder.field(Fields.COUNT, count);
+        builder.field(Fields.HIT_COUNT, hitCount);
+        builder.field(Fields.MISS_COUNT, missCount);
+        builder.field(Fields.EVICTIONS, evictions);
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString TERMS_LOOKUP_CACHE = new XContentBuilderString("terms_lookup_cache");
+        static final XContentBuilderString MEMORY_SIZE = new XContentBuilderString("memory_size");
+        static final XContentBuilderString MEMORY_SIZE_IN_BYTES = new XContentBuilderString("memory_size_in_bytes");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString HIT_COUNT = new XContentBuilderString("hit_count");
+        static final XContentBuilderString MISS_COUNT = new XContentBuilderString("miss_count");
+        static final XContentBuilderString EVICTIONS = new XContentBuilderString("evictions");
+    }
+}
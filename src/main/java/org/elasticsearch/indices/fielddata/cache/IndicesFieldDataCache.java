@@ -19,12 +19,17 @@
 
 package org.elasticsearch.indices.fielddata.cache;
 
-import com.google.common.cache.*;
 import org.apache.lucene.index.LeafReaderContext;
 import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.SegmentReader;
 import org.apache.lucene.util.Accountable;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.CacheLoader;
+import org.elasticsearch.common.cache.RemovalListener;
+import org.elasticsearch.common.cache.RemovalNotification;
+import org.elasticsearch.common.cache.Weigher;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.logging.ESLogger;
@@ -36,6 +41,7 @@ import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.FieldDataType;
 import org.elasticsearch.index.fielddata.IndexFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldDataCache;
+import org.elasticsearch.index.fielddata.plain.DocValuesIndexFieldData;
 import org.elasticsearch.index.mapper.FieldMapper;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.ShardId;
@@ -45,8 +51,6 @@ import org.elasticsearch.threadpool.ThreadPool;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.TimeUnit;
 
 /**
  */
@@ -72,19 +76,19 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         final String size = settings.get(INDICES_FIELDDATA_CACHE_SIZE_KEY, "-1");
         final long sizeInBytes = settings.getAsMemory(INDICES_FIELDDATA_CACHE_SIZE_KEY, "-1").bytes();
         final TimeValue expire = settings.getAsTime(INDICES_FIELDDATA_CACHE_EXPIRE_KEY, null);
-        CacheBuilder<Key, Accountable> cacheBuilder = CacheBuilder.newBuilder()
+        CacheBuilder<Key, Accountable> cacheBuilder = CacheBuilder.<Key, Accountable>builder()
                 .removalListener(this);
         if (sizeInBytes > 0) {
-            cacheBuilder.maximumWeight(sizeInBytes).weigher(new FieldDataWeigher());
+            cacheBuilder.setMaximumWeight(sizeInBytes).weigher(new FieldDataWeigher());
         }
         // defaults to 4, but this is a busy map for all indices, increase it a bit by default
         final int concurrencyLevel =  settings.getAsInt(FIELDDATA_CACHE_CONCURRENCY_LEVEL, 16);
         if (concurrencyLevel <= 0) {
             throw new ElasticsearchIllegalArgumentException("concurrency_level must be > 0 but was: " + concurrencyLevel);
         }
-        cacheBuilder.concurrencyLevel(concurrencyLevel);
+        cacheBuilder.setConcurrencyLevel(concurrencyLevel);
         if (expire != null && expire.millis() > 0) {
-            cacheBuilder.expireAfterAccess(expire.millis(), TimeUnit.MILLISECONDS);
+            cacheBuilder.setExpireAfterAccess(expire);
         }
         logger.debug("using size [{}] [{}], expire [{}]", size, new ByteSizeValue(sizeInBytes), expire);
         cache = cacheBuilder.build();
@@ -127,8 +131,8 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
     public static class FieldDataWeigher implements Weigher<Key, Accountable> {
 
         @Override
-        public int weigh(Key key, Accountable ramUsage) {
-            int weight = (int) Math.min(ramUsage.ramBytesUsed(), Integer.MAX_VALUE);
+        public long weigh(Key key, Accountable ramUsage) {
+            long weight = ramUsage.ramBytesUsed();
             return weight == 0 ? 1 : weight;
         }
     }
@@ -160,9 +164,9 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         public <FD extends AtomicFieldData, IFD extends IndexFieldData<FD>> FD load(final LeafReaderContext context, final IFD indexFieldData) throws Exception {
             final Key key = new Key(this, context.reader().getCoreCacheKey());
             //noinspection unchecked
-            final Accountable accountable = cache.get(key, new Callable<AtomicFieldData>() {
+            final Accountable accountable = cache.computeIfAbsent(key, new CacheLoader<Key, Accountable>() {
                 @Override
-                public AtomicFieldData call() throws Exception {
+                public Accountable load(Key key) throws Exception {
                     context.reader().addCoreClosedListener(IndexFieldCache.this);
 
                     key.listeners.add(indicesFieldDataCacheListener);
@@ -173,10 +177,13 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                             key.listeners.add(shard.fieldData());
                         }
                     }
+                    final long startTime = System.nanoTime();
                     final AtomicFieldData fieldData = indexFieldData.loadDirect(context);
+                    final long loadTime = System.nanoTime() - startTime;
+                    final boolean docValues = indexFieldData instanceof DocValuesIndexFieldData;
                     for (Listener listener : key.listeners) {
                         try {
-                            listener.onLoad(fieldNames, fieldDataType, fieldData);
+                            listener.onLoad(fieldNames, fieldDataType, fieldData, docValues, loadTime);
                         } catch (Throwable e) {
                             // load anyway since listeners should not throw exceptions
                             logger.error("Failed to call listener on atomic field data loading", e);
@@ -192,9 +199,9 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         public <FD extends AtomicFieldData, IFD extends IndexFieldData.Global<FD>> IFD load(final IndexReader indexReader, final IFD indexFieldData) throws Exception {
             final Key key = new Key(this, indexReader.getCoreCacheKey());
             //noinspection unchecked
-            final Accountable accountable = cache.get(key, new Callable<Accountable>() {
+            final Accountable accountable = cache.computeIfAbsent(key, new CacheLoader<Key, Accountable>() {
                 @Override
-                public Accountable call() throws Exception {
+                public Accountable load(Key key) throws Exception {
                     indexReader.addReaderClosedListener(IndexFieldCache.this);
                     key.listeners.add(indicesFieldDataCacheListener);
                     final ShardId shardId = ShardUtils.extractShardId(indexReader);
@@ -204,10 +211,13 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
                             key.listeners.add(shard.fieldData());
                         }
                     }
+                    final long startTime = System.nanoTime();
                     final Accountable ifd = (Accountable) indexFieldData.localGlobalDirect(indexReader);
+                    final long loadTime = System.nanoTime() - startTime;
+                    final boolean docValues = indexFieldData instanceof DocValuesIndexFieldData;
                     for (Listener listener : key.listeners) {
                         try {
-                            listener.onLoad(fieldNames, fieldDataType, ifd);
+                            listener.onLoad(fieldNames, fieldDataType, ifd, docValues, loadTime);
                         } catch (Throwable e) {
                             // load anyway since listeners should not throw exceptions
                             logger.error("Failed to call listener on global ordinals loading", e);
@@ -231,14 +241,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
 
         @Override
         public void clear() {
-            // Note that cache invalidation in Guava does not immediately remove
-            // values from the cache. In the case of a cache with a rare write or
-            // read rate, it's possible for values to persist longer than desired.
-            //
-            // Note this is intended by the Guava developers, see:
-            // https://code.google.com/p/guava-libraries/wiki/CachesExplained#Eviction
-            // (the "When Does Cleanup Happen" section)
-            for (Key key : cache.asMap().keySet()) {
+            for (Key key : cache.keys()) {
                 if (key.indexCache.index.equals(index)) {
                     cache.invalidate(key);
                 }
@@ -247,7 +250,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
 
         @Override
         public void clear(String fieldName) {
-            for (Key key : cache.asMap().keySet()) {
+            for (Key key : cache.keys()) {
                 if (key.indexCache.index.equals(index)) {
                     if (key.indexCache.fieldNames.fullName().equals(fieldName)) {
                         cache.invalidate(key);
@@ -292,10 +295,9 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
     }
 
     /**
-     * FieldDataCacheCleaner is a scheduled Runnable used to clean a Guava cache
-     * periodically. In this case it is the field data cache, because a cache that
-     * has an entry invalidated may not clean up the entry if it is not read from
-     * or written to after invalidation.
+     * FieldDataCacheCleaner is a scheduled Runnable used to clean the field data
+     * cache periodically, because expired entries that are neither read nor reached
+     * by the eviction are otherwise kept in the cache.
      */
     public class FieldDataCacheCleaner implements Runnable {
 
@@ -304,7 +306,7 @@ public class IndicesFieldDataCache extends AbstractComponent implements RemovalL
         private final ThreadPool threadPool;
         private final TimeValue interval;
 
-        public FieldDataCacheCleaner(Cache cache, ESLogger logger, ThreadPool threadPool, TimeValue interval) {
+        public FieldDataCacheCleaner(Cache<Key, Accountable> cache, ESLogger logger, ThreadPool threadPool, TimeValue interval) {
             this.cache = cache;
             this.logger = logger;
             this.threadPool = threadPool;
@@ -43,7 +43,7 @@ public class IndicesFieldDataCacheListener implements IndexFieldDataCache.Listen
     }
 
     @Override
-    public void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, Accountable fieldData) {
+    public void onLoad(FieldMapper.Names fieldNames, FieldDataType fieldDataType, Accountable fieldData, boolean docValues, long loadTimeInNanos) {
     }
 
     @Override
@@ -0,0 +1,220 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.flush;
+
+import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.IndexRoutingTable;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.concurrent.AbstractRunnable;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.IndexShardState;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.*;
+
+import java.io.IOException;
+
+/**
+ * Writes a shared sync id into the last commit of all copies of a shard once indexing into it stopped. Copies whose
+ * commits carry the same sync id hold the same documents, so a recovery between them completes without comparing
+ * or copying any files, even after the primary started a new operation history on a full cluster restart.
+ * <p/>
+ * The primary commits the sync id first, if all operations it issued completed, and then asks the started replicas
+ * to do the same. A replica only commits it if it holds exactly the operations the primary reported. Syncing is best
+ * effort, a copy that fails to commit the sync id simply recovers by copying files.
+ */
+public class SyncedFlushService extends AbstractComponent {
+
+    public static final String SYNC_ACTION_NAME = "internal:indices/flush/synced/sync";
+
+    private final IndicesService indicesService;
+    private final ClusterService clusterService;
+    private final TransportService transportService;
+    private final ThreadPool threadPool;
+
+    @Inject
+    public SyncedFlushService(Settings settings, IndicesService indicesService, ClusterService clusterService,
+                              TransportService transportService, ThreadPool threadPool) {
+        super(settings);
+        this.indicesService = indicesService;
+        this.clusterService = clusterService;
+        this.transportService = transportService;
+        this.threadPool = threadPool;
+        transportService.registerRequestHandler(SYNC_ACTION_NAME, ShardSyncedFlushRequest.class, ThreadPool.Names.FLUSH, new SyncedFlushTransportHandler());
+    }
+
+    /**
+     * Tries to sync the copies of the given shard in the background. Does nothing unless the primary of the shard is
+     * allocated on this node.
+     */
+    public void attemptSyncedFlush(final ShardId shardId) {
+        threadPool.executor(ThreadPool.Names.FLUSH).execute(new AbstractRunnable() {
+            @Override
+            public void onFailure(Throwable t) {
+                logger.debug("{} synced flush failed", t, shardId);
+            }
+
+            @Override
+            protected void doRun() throws Exception {
+                innerAttemptSyncedFlush(shardId);
+            }
+        });
+    }
+
+    private void innerAttemptSyncedFlush(final ShardId shardId) {
+        final IndexService indexService = indicesService.indexService(shardId.index().name());
+        final IndexShard primary = indexService == null ? null : indexService.shard(shardId.id());
+        if (primary == null || primary.state() != IndexShardState.STARTED || primary.routingEntry().primary() == false) {
+            return;
+        }
+        final Engine engine = primary.engine();
+        final String historyUUID = engine.historyUUID();
+        final long maxSeqNo = engine.maxSeqNo();
+        if (historyUUID == null) {
+            return;
+        }
+        if (engine.localCheckpoint() != maxSeqNo) {
+            logger.trace("{} skipping synced flush, operations up to [{}] are still in flight", shardId, maxSeqNo);
+            return;
+        }
+        final String syncId = Strings.randomBase64UUID();
+        if (primary.syncFlush(syncId, historyUUID, maxSeqNo) == false) {
+            logger.trace("{} skipping synced flush, primary could not commit sync id", shardId);
+            return;
+        }
+
+        final ClusterState state = clusterService.state();
+        final IndexRoutingTable indexRoutingTable = state.routingTable().index(shardId.index().name());
+        if (indexRoutingTable == null) {
+            return;
+        }
+        final ShardSyncedFlushRequest request = new ShardSyncedFlushRequest(shardId, syncId, historyUUID, maxSeqNo);
+        for (ShardRouting shard : indexRoutingTable.shard(shardId.id())) {
+            if (shard.primary() || shard.started() == false) {
+                continue;
+            }
+            final DiscoveryNode node = state.nodes().get(shard.currentNodeId());
+            if (node == null) {
+                continue;
+            }
+            transportService.sendRequest(node, SYNC_ACTION_NAME, request, new BaseTransportResponseHandler<ShardSyncedFlushResponse>() {
+                @Override
+                public ShardSyncedFlushResponse newInstance() {
+                    return new ShardSyncedFlushResponse();
+                }
+
+                @Override
+                public void handleResponse(ShardSyncedFlushResponse response) {
+                    logger.trace("{} replica on {} {} sync id [{}]", shardId, node, response.synced ? "committed" : "did not commit", syncId);
+                }
+
+                @Override
+                public void handleException(TransportException exp) {
+                    logger.debug("{} failed to commit sync id [{}] on replica on {}", exp, shardId, syncId, node);
+                }
+
+                @Override
+                public String executor() {
+                    return ThreadPool.Names.SAME;
+                }
+            });
+        }
+    }
+
+    private class SyncedFlushTransportHandler implements TransportRequestHandler<ShardSyncedFlushRequest> {
+
+        @Override
+        public void messageReceived(ShardSyncedFlushRequest request, TransportChannel channel) throws Exception {
+            IndexShard indexShard = indicesService.indexServiceSafe(request.shardId.index().name()).shardSafe(request.shardId.id());
+            boolean synced = indexShard.syncFlush(request.syncId, request.historyUUID, request.maxSeqNo);
+            channel.sendResponse(new ShardSyncedFlushResponse(synced));
+        }
+    }
+
+    static final class ShardSyncedFlushRequest extends TransportRequest {
+
+        private ShardId shardId;
+        private String syncId;
+        private String historyUUID;
+        private long maxSeqNo;
+
+        ShardSyncedFlushRequest() {
+        }
+
+        ShardSyncedFlushRequest(ShardId shardId, String syncId, String historyUUID, long maxSeqNo) {
+            this.shardId = shardId;
+            this.syncId = syncId;
+            this.historyUUID = historyUUID;
+            this.maxSeqNo = maxSeqNo;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            shardId = ShardId.readShardId(in);
+            syncId = in.readString();
+            historyUUID = in.readString();
+            maxSeqNo = in.readLong();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            shardId.writeTo(out);
+            out.writeString(syncId);
+            out.writeString(historyUUID);
+            out.writeLong(maxSeqNo);
+        }
+    }
+
+    static final class ShardSyncedFlushResponse extends TransportResponse {
+
+        private boolean synced;
+
+        ShardSyncedFlushResponse() {
+        }
+
+        ShardSyncedFlushResponse(boolean synced) {
+            this.synced = synced;
+        }
+
+        @Override
+        public void readFrom(StreamInput in) throws IOException {
+            super.readFrom(in);
+            synced = in.readBoolean();
+        }
+
+        @Override
+        public void writeTo(StreamOutput out) throws IOException {
+            super.writeTo(out);
+            out.writeBoolean(synced);
+        }
+    }
+}
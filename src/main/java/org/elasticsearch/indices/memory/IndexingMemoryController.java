@@ -21,6 +21,7 @@ package org.elasticsearch.indices.memory;
 
 import com.google.common.collect.Lists;
 import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
@@ -37,6 +38,7 @@ import org.elasticsearch.index.shard.IndexShardState;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.flush.SyncedFlushService;
 import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.threadpool.ThreadPool;
 
@@ -50,6 +52,7 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
 
     private final ThreadPool threadPool;
     private final IndicesService indicesService;
+    private final SyncedFlushService syncedFlushService;
 
     private final ByteSizeValue indexingBuffer;
     private final ByteSizeValue minShardIndexBufferSize;
@@ -62,16 +65,20 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
     private final TimeValue inactiveTime;
     private final TimeValue interval;
 
+    private final boolean allocateByIndexingRate;
+    private final boolean refreshOnExceededBudget;
+
     private volatile ScheduledFuture scheduler;
 
     private static final EnumSet<IndexShardState> CAN_UPDATE_INDEX_BUFFER_STATES = EnumSet.of(
             IndexShardState.RECOVERING, IndexShardState.POST_RECOVERY, IndexShardState.STARTED, IndexShardState.RELOCATED);
 
     @Inject
-    public IndexingMemoryController(Settings settings, ThreadPool threadPool, IndicesService indicesService) {
+    public IndexingMemoryController(Settings settings, ThreadPool threadPool, IndicesService indicesService, SyncedFlushService syncedFlushService) {
         super(settings);
         this.threadPool = threadPool;
         this.indicesService = indicesService;
+        this.syncedFlushService = syncedFlushService;
 
         ByteSizeValue indexingBuffer;
         String indexingBufferSetting = this.settings.get("indices.memory.index_buffer_size", "10%");
@@ -118,9 +125,12 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
 
         this.inactiveTime = this.settings.getAsTime("indices.memory.shard_inactive_time", TimeValue.timeValueMinutes(30));
         // we need to have this relatively small to move a shard from inactive to active fast (enough)
-        this.interval = this.settings.getAsTime("indices.memory.interval", TimeValue.timeValueSeconds(30));
+        // and to follow changes of the indexing rates of the shards
+        this.interval = this.settings.getAsTime("indices.memory.interval", TimeValue.timeValueSeconds(5));
+        this.allocateByIndexingRate = this.settings.getAsBoolean("indices.memory.allocate_by_indexing_rate", true);
+        this.refreshOnExceededBudget = this.settings.getAsBoolean("indices.memory.refresh_on_exceeded_budget", false);
 
-        logger.debug("using index_buffer_size [{}], with min_shard_index_buffer_size [{}], max_shard_index_buffer_size [{}], shard_inactive_time [{}]", this.indexingBuffer, this.minShardIndexBufferSize, this.maxShardIndexBufferSize, this.inactiveTime);
+        logger.debug("using index_buffer_size [{}], with min_shard_index_buffer_size [{}], max_shard_index_buffer_size [{}], shard_inactive_time [{}], allocate_by_indexing_rate [{}]", this.indexingBuffer, this.minShardIndexBufferSize, this.maxShardIndexBufferSize, this.inactiveTime, this.allocateByIndexingRate);
 
     }
 
@@ -148,6 +158,58 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         return indexingBuffer;
     }
 
+    /**
+     * Splits the indexing buffer budget between shards proportional to their indexing rates. Shards that would
+     * get more than the maximum are capped and their share is redistributed between the others, shards with
+     * little or no indexing get the minimum. If no shard indexes the budget is split equally.
+     *
+     * @param budget  total indexing buffer of the node
+     * @param rates   indexing rates of the active shards
+     * @param minSize minimum buffer of a shard
+     * @param maxSize maximum buffer of a shard
+     * @return the buffer size of each shard, in the order of the rates
+     */
+    static long[] allocateIndexingBuffers(long budget, double[] rates, long minSize, long maxSize) {
+        final long[] sizes = new long[rates.length];
+        final boolean[] capped = new boolean[rates.length];
+        long remainingBudget = budget;
+        double remainingRate = 0;
+        int remainingShards = rates.length;
+        for (double rate : rates) {
+            remainingRate += rate;
+        }
+        boolean changed = true;
+        while (changed && remainingShards > 0) {
+            changed = false;
+            for (int i = 0; i < rates.length; i++) {
+                if (capped[i] == false && share(remainingBudget, remainingRate, remainingShards, rates[i]) >= maxSize) {
+                    sizes[i] = maxSize;
+                    capped[i] = true;
+                    remainingBudget -= maxSize;
+                    remainingRate -= rates[i];
+                    remainingShards--;
+                    changed = true;
+                }
+            }
+        }
+        for (int i = 0; i < rates.length; i++) {
+            if (capped[i] == false) {
+                sizes[i] = Math.max(minSize, share(remainingBudget, remainingRate, remainingShards, rates[i]));
+            }
+        }
+        return sizes;
+    }
+
+    private static long share(long budget, double totalRate, int shards, double rate) {
+        if (budget <= 0) {
+            return 0;
+        }
+        if (totalRate <= 0) {
+            return budget / shards;
+        }
+        return (long) (budget * (rate / totalRate));
+    }
+
     class ShardsIndicesStatusChecker implements Runnable {
 
         private final Map<ShardId, ShardIndexingStatus> shardsIndicesStatus = new HashMap<>();
@@ -170,12 +232,63 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                 } catch (FlushNotAllowedEngineException e) {
                     // ignore
                 }
+                // no more indexing, mark the commits of all copies so they can recover from each other without copying files
+                ShardRouting routing = indexShard.routingEntry();
+                if (routing != null && routing.primary() && indexShard.state() == IndexShardState.STARTED) {
+                    syncedFlushService.attemptSyncedFlush(indexShard.shardId());
+                }
             }
             if (!changes.isEmpty()) {
                 calcAndSetShardBuffers(activeShards, "[" + changes + "]");
+            } else if (allocateByIndexingRate) {
+                calcAndSetShardBuffers(activeShards, "[indexing rates]");
+            }
+            if (refreshOnExceededBudget) {
+                refreshLargestBufferIfBudgetExceeded();
             }
         }
 
+        /**
+         * Refreshes the shard with the largest indexing buffer if the indexing buffers of all shards use more than
+         * the node wide budget, the shard buffers are only bounded one by one by the index writers.
+         */
+        private void refreshLargestBufferIfBudgetExceeded() {
+            long totalBytesUsed = 0;
+            long largestBytesUsed = 0;
+            IndexShard largestShard = null;
+            for (IndexService indexService : indicesService) {
+                for (IndexShard indexShard : indexService) {
+                    if (indexShard.state() != IndexShardState.STARTED) {
+                        continue;
+                    }
+                    long bytesUsed = indexShard.indexBufferRAMBytesUsed();
+                    totalBytesUsed += bytesUsed;
+                    if (bytesUsed > largestBytesUsed) {
+                        largestBytesUsed = bytesUsed;
+                        largestShard = indexShard;
+                    }
+                }
+            }
+            if (largestShard == null || totalBytesUsed <= indexingBuffer.bytes()) {
+                return;
+            }
+            logger.debug("indexing buffers use [{}] which is more than [{}], refreshing shard {} using [{}]",
+                    new ByteSizeValue(totalBytesUsed), indexingBuffer, largestShard.shardId(), new ByteSizeValue(largestBytesUsed));
+            final IndexShard shard = largestShard;
+            threadPool.executor(ThreadPool.Names.REFRESH).execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        shard.refresh("index buffer budget exceeded");
+                    } catch (EngineClosedException e) {
+                        // ignore
+                    } catch (Throwable t) {
+                        logger.warn("failed to refresh shard {} after the indexing buffer budget was exceeded", t, shard.shardId());
+                    }
+                }
+            });
+        }
+
         /**
          * goes through all existing shards and check whether the changes their active status
          *
@@ -212,6 +325,7 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                                 // inactive for this amount of time, mark it
                                 activeToInactiveIndexingShards.add(indexShard);
                                 status.activeIndexing = false;
+                                status.indexingBufferSize = -1;
                                 changes.add(ShardStatusChangeType.BECAME_INACTIVE);
                                 logger.debug("marking shard [{}][{}] as inactive (inactive_time[{}]) indexing wise, setting size to [{}]", indexShard.shardId().index().name(), indexShard.shardId().id(), inactiveTime, EngineConfig.INACTIVE_SHARD_INDEXING_BUFFER);
                             }
@@ -226,6 +340,7 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                     }
                     status.translogId = translog.currentId();
                     status.translogNumberOfOperations = translog.estimatedNumberOfOperations();
+                    status.updateIndexingRate(indexShard.indexingBytes(), time);
 
                     if (status.activeIndexing) {
                         activeShards++;
@@ -274,14 +389,6 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
             if (activeShards == 0) {
                 return;
             }
-            ByteSizeValue shardIndexingBufferSize = new ByteSizeValue(indexingBuffer.bytes() / activeShards);
-            if (shardIndexingBufferSize.bytes() < minShardIndexBufferSize.bytes()) {
-                shardIndexingBufferSize = minShardIndexBufferSize;
-            }
-            if (shardIndexingBufferSize.bytes() > maxShardIndexBufferSize.bytes()) {
-                shardIndexingBufferSize = maxShardIndexBufferSize;
-            }
-
             ByteSizeValue shardTranslogBufferSize = new ByteSizeValue(translogBuffer.bytes() / activeShards);
             if (shardTranslogBufferSize.bytes() < minShardTranslogBufferSize.bytes()) {
                 shardTranslogBufferSize = minShardTranslogBufferSize;
@@ -290,7 +397,8 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                 shardTranslogBufferSize = maxShardTranslogBufferSize;
             }
 
-            logger.debug("recalculating shard indexing buffer (reason={}), total is [{}] with [{}] active shards, each shard set to indexing=[{}], translog=[{}]", reason, indexingBuffer, activeShards, shardIndexingBufferSize, shardTranslogBufferSize);
+            final List<IndexShard> shards = Lists.newArrayList();
+            final List<ShardIndexingStatus> statuses = Lists.newArrayList();
             for (IndexService indexService : indicesService) {
                 for (IndexShard indexShard : indexService) {
                     IndexShardState state = indexShard.state();
@@ -300,18 +408,39 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
                     }
                     ShardIndexingStatus status = shardsIndicesStatus.get(indexShard.shardId());
                     if (status == null || status.activeIndexing) {
-                        try {
-                            indexShard.updateBufferSize(shardIndexingBufferSize, shardTranslogBufferSize);
-                        } catch (EngineClosedException e) {
-                            // ignore
-                            continue;
-                        } catch (FlushNotAllowedEngineException e) {
-                            // ignore
-                            continue;
-                        } catch (Exception e) {
-                            logger.warn("failed to set shard {} index buffer to [{}]", indexShard.shardId(), shardIndexingBufferSize);
-                        }
+                        shards.add(indexShard);
+                        statuses.add(status);
+                    }
+                }
+            }
+            final double[] rates = new double[shards.size()];
+            for (int i = 0; i < rates.length; i++) {
+                ShardIndexingStatus status = statuses.get(i);
+                rates[i] = allocateByIndexingRate && status != null ? status.indexingBytesPerSec : 0;
+            }
+            final long[] sizes = allocateIndexingBuffers(indexingBuffer.bytes(), rates, minShardIndexBufferSize.bytes(), maxShardIndexBufferSize.bytes());
+
+            logger.debug("recalculating shard indexing buffer (reason={}), total is [{}] with [{}] active shards, indexing=[{}], translog=[{}]", reason, indexingBuffer, activeShards, sizes, shardTranslogBufferSize);
+            for (int i = 0; i < shards.size(); i++) {
+                IndexShard indexShard = shards.get(i);
+                ShardIndexingStatus status = statuses.get(i);
+                long indexingBufferBytes = sizes[i];
+                if (status != null && status.indexingBufferSize != -1 && Math.abs(sizes[i] - status.indexingBufferSize) <= status.indexingBufferSize / 10) {
+                    // don't bother the index writer with small changes, the translog buffer is still updated
+                    indexingBufferBytes = status.indexingBufferSize;
+                }
+                ByteSizeValue shardIndexingBufferSize = new ByteSizeValue(indexingBufferBytes);
+                try {
+                    indexShard.updateBufferSize(shardIndexingBufferSize, shardTranslogBufferSize);
+                    if (status != null) {
+                        status.indexingBufferSize = indexingBufferBytes;
                     }
+                } catch (EngineClosedException e) {
+                    // ignore
+                } catch (FlushNotAllowedEngineException e) {
+                    // ignore
+                } catch (Exception e) {
+                    logger.warn("failed to set shard {} index buffer to [{}]", indexShard.shardId(), shardIndexingBufferSize);
                 }
             }
         }
@@ -327,5 +456,20 @@ public class IndexingMemoryController extends AbstractLifecycleComponent<Indexin
         int translogNumberOfOperations = -1;
         boolean activeIndexing = true;
         long time = -1; // contains the first time we saw this shard with no operations done on it
+        long indexingBufferSize = -1; // the indexing buffer size last set on the shard, -1 if none or inactive
+        long indexingBytes = -1;
+        long indexingBytesTime = -1;
+        double indexingBytesPerSec = 0; // exponentially weighted to smooth out bursts
+
+        void updateIndexingRate(long indexingBytes, long time) {
+            if (this.indexingBytes != -1 && time > indexingBytesTime) {
+                double rate = (indexingBytes - this.indexingBytes) * 1000d / (time - indexingBytesTime);
+                indexingBytesPerSec = INDEXING_RATE_ALPHA * rate + (1 - INDEXING_RATE_ALPHA) * indexingBytesPerSec;
+            }
+            this.indexingBytes = indexingBytes;
+            this.indexingBytesTime = time;
+        }
     }
+
+    static final double INDEXING_RATE_ALPHA = 0.3;
 }
@@ -0,0 +1,68 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.recovery;
+
+/**
+ * Adapts the size of the file chunks sent during phase1 of a recovery to the time the target takes to acknowledge
+ * them. Chunks grow, up to {@link RecoverySettings#maxFileChunkSize()}, while they are acknowledged within half of
+ * {@link RecoverySettings#fileChunkTargetTime()} and shrink back, down to {@link RecoverySettings#fileChunkSize()},
+ * once they take longer than it. Large chunks save per request overhead on fast links while slow or throttled
+ * targets keep getting small ones.
+ */
+final class AdaptiveFileChunkSize {
+
+    private final RecoverySettings recoverySettings;
+    private int chunkSize;
+
+    AdaptiveFileChunkSize(RecoverySettings recoverySettings) {
+        this.recoverySettings = recoverySettings;
+        this.chunkSize = minSize();
+    }
+
+    /**
+     * The size of the next chunk to send.
+     */
+    synchronized int chunkSize() {
+        // the bounds are dynamic, make sure we stay within the current ones
+        return Math.min(Math.max(chunkSize, minSize()), maxSize());
+    }
+
+    /**
+     * Called once a chunk was acknowledged by the target, with the time it took since it was sent.
+     */
+    synchronized void onChunkAcknowledged(long tookInNanos) {
+        final long targetNanos = recoverySettings.fileChunkTargetTime().nanos();
+        final int current = chunkSize();
+        if (tookInNanos <= targetNanos / 2) {
+            chunkSize = (int) Math.min(current * 2l, maxSize());
+        } else if (tookInNanos > targetNanos) {
+            chunkSize = Math.max(current / 2, minSize());
+        } else {
+            chunkSize = current;
+        }
+    }
+
+    private int minSize() {
+        return (int) recoverySettings.fileChunkSize().bytes();
+    }
+
+    private int maxSize() {
+        return (int) Math.max(recoverySettings.maxFileChunkSize().bytes(), recoverySettings.fileChunkSize().bytes());
+    }
+}
@@ -19,8 +19,10 @@
 
 package org.elasticsearch.indices.recovery;
 
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.transport.TransportRequest;
 
@@ -35,12 +37,19 @@ class RecoveryFinalizeRecoveryRequest extends TransportRequest {
 
     private ShardId shardId;
 
+    @Nullable
+    private String historyUUID;
+
+    private long maxSeqNo = SequenceNumbers.NO_OPS_PERFORMED;
+
     RecoveryFinalizeRecoveryRequest() {
     }
 
-    RecoveryFinalizeRecoveryRequest(long recoveryId, ShardId shardId) {
+    RecoveryFinalizeRecoveryRequest(long recoveryId, ShardId shardId, @Nullable String historyUUID, long maxSeqNo) {
         this.recoveryId = recoveryId;
         this.shardId = shardId;
+        this.historyUUID = historyUUID;
+        this.maxSeqNo = maxSeqNo;
     }
 
     public long recoveryId() {
@@ -51,11 +60,28 @@ class RecoveryFinalizeRecoveryRequest extends TransportRequest {
         return shardId;
     }
 
+    /**
+     * The operation history of the recovery source the target adopts, <code>null</code> if the source does not track one.
+     */
+    @Nullable
+    public String historyUUID() {
+        return historyUUID;
+    }
+
+    /**
+     * The highest sequence number of the source at the time all its operations were sent to the target.
+     */
+    public long maxSeqNo() {
+        return maxSeqNo;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
         recoveryId = in.readLong();
         shardId = ShardId.readShardId(in);
+        historyUUID = in.readOptionalString();
+        maxSeqNo = in.readLong();
     }
 
     @Override
@@ -63,5 +89,7 @@ class RecoveryFinalizeRecoveryRequest extends TransportRequest {
         super.writeTo(out);
         out.writeLong(recoveryId);
         shardId.writeTo(out);
+        out.writeOptionalString(historyUUID);
+        out.writeLong(maxSeqNo);
     }
 }
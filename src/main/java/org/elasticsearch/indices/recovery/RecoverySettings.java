@@ -41,6 +41,15 @@ import java.util.concurrent.TimeUnit;
 public class RecoverySettings extends AbstractComponent implements Closeable {
 
     public static final String INDICES_RECOVERY_FILE_CHUNK_SIZE = "indices.recovery.file_chunk_size";
+    /**
+     * the size file chunks may grow to when they are acknowledged faster than `indices.recovery.file_chunk_target_time`.
+     * A value lower or equal to `indices.recovery.file_chunk_size` sends fixed size chunks.
+     */
+    public static final String INDICES_RECOVERY_MAX_FILE_CHUNK_SIZE = "indices.recovery.max_file_chunk_size";
+    /** the round trip time of a file chunk that chunk sizes are adapted to */
+    public static final String INDICES_RECOVERY_FILE_CHUNK_TARGET_TIME = "indices.recovery.file_chunk_target_time";
+    /** how many chunks of a single file are sent without waiting for the target to acknowledge them */
+    public static final String INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS = "indices.recovery.max_concurrent_file_chunks";
     public static final String INDICES_RECOVERY_TRANSLOG_OPS = "indices.recovery.translog_ops";
     public static final String INDICES_RECOVERY_TRANSLOG_SIZE = "indices.recovery.translog_size";
     public static final String INDICES_RECOVERY_COMPRESS = "indices.recovery.compress";
@@ -82,6 +91,9 @@ public class RecoverySettings extends AbstractComponent implements Closeable {
     public static final String INDICES_RECOVERY_MAX_SIZE_PER_SEC = "indices.recovery.max_size_per_sec";
 
     private volatile ByteSizeValue fileChunkSize;
+    private volatile ByteSizeValue maxFileChunkSize;
+    private volatile TimeValue fileChunkTargetTime;
+    private volatile int maxConcurrentFileChunks;
 
     private volatile boolean compress;
     private volatile int translogOps;
@@ -106,6 +118,9 @@ public class RecoverySettings extends AbstractComponent implements Closeable {
         super(settings);
 
         this.fileChunkSize = settings.getAsBytesSize(INDICES_RECOVERY_FILE_CHUNK_SIZE, settings.getAsBytesSize("index.shard.recovery.file_chunk_size", new ByteSizeValue(512, ByteSizeUnit.KB)));
+        this.maxFileChunkSize = settings.getAsBytesSize(INDICES_RECOVERY_MAX_FILE_CHUNK_SIZE, new ByteSizeValue(2, ByteSizeUnit.MB));
+        this.fileChunkTargetTime = settings.getAsTime(INDICES_RECOVERY_FILE_CHUNK_TARGET_TIME, TimeValue.timeValueMillis(500));
+        this.maxConcurrentFileChunks = settings.getAsInt(INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS, 2);
         this.translogOps = settings.getAsInt(INDICES_RECOVERY_TRANSLOG_OPS, settings.getAsInt("index.shard.recovery.translog_ops", 1000));
         this.translogSize = settings.getAsBytesSize(INDICES_RECOVERY_TRANSLOG_SIZE, settings.getAsBytesSize("index.shard.recovery.translog_size", new ByteSizeValue(512, ByteSizeUnit.KB)));
         this.compress = settings.getAsBoolean(INDICES_RECOVERY_COMPRESS, true);
@@ -136,8 +151,8 @@ public class RecoverySettings extends AbstractComponent implements Closeable {
             rateLimiter = new SimpleRateLimiter(maxBytesPerSec.mbFrac());
         }
 
-        logger.debug("using max_bytes_per_sec[{}], concurrent_streams [{}], file_chunk_size [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
-                maxBytesPerSec, concurrentStreams, fileChunkSize, translogSize, translogOps, compress);
+        logger.debug("using max_bytes_per_sec[{}], concurrent_streams [{}], file_chunk_size [{}], max_file_chunk_size [{}], max_concurrent_file_chunks [{}], translog_size [{}], translog_ops [{}], and compress [{}]",
+                maxBytesPerSec, concurrentStreams, fileChunkSize, maxFileChunkSize, maxConcurrentFileChunks, translogSize, translogOps, compress);
 
         nodeSettingsService.addListener(new ApplySettings());
     }
@@ -152,6 +167,18 @@ public class RecoverySettings extends AbstractComponent implements Closeable {
         return fileChunkSize;
     }
 
+    public ByteSizeValue maxFileChunkSize() {
+        return maxFileChunkSize;
+    }
+
+    public TimeValue fileChunkTargetTime() {
+        return fileChunkTargetTime;
+    }
+
+    public int maxConcurrentFileChunks() {
+        return maxConcurrentFileChunks;
+    }
+
     public boolean compress() {
         return compress;
     }
@@ -223,6 +250,18 @@ public class RecoverySettings extends AbstractComponent implements Closeable {
                 RecoverySettings.this.fileChunkSize = fileChunkSize;
             }
 
+            ByteSizeValue maxFileChunkSize = settings.getAsBytesSize(INDICES_RECOVERY_MAX_FILE_CHUNK_SIZE, RecoverySettings.this.maxFileChunkSize);
+            if (!maxFileChunkSize.equals(RecoverySettings.this.maxFileChunkSize)) {
+                logger.info("updating [indices.recovery.max_file_chunk_size] from [{}] to [{}]", RecoverySettings.this.maxFileChunkSize, maxFileChunkSize);
+                RecoverySettings.this.maxFileChunkSize = maxFileChunkSize;
+            }
+
+            int maxConcurrentFileChunks = settings.getAsInt(INDICES_RECOVERY_MAX_CONCURRENT_FILE_CHUNKS, RecoverySettings.this.maxConcurrentFileChunks);
+            if (maxConcurrentFileChunks != RecoverySettings.this.maxConcurrentFileChunks) {
+                logger.info("updating [indices.recovery.max_concurrent_file_chunks] from [{}] to [{}]", RecoverySettings.this.maxConcurrentFileChunks, maxConcurrentFileChunks);
+                RecoverySettings.this.maxConcurrentFileChunks = maxConcurrentFileChunks;
+            }
+
             int translogOps = settings.getAsInt(INDICES_RECOVERY_TRANSLOG_OPS, RecoverySettings.this.translogOps);
             if (translogOps != RecoverySettings.this.translogOps) {
                 logger.info("updating [indices.recovery.translog_ops] from [{}] to [{}]", RecoverySettings.this.translogOps, translogOps);
@@ -255,6 +294,7 @@ public class RecoverySettings extends AbstractComponent implements Closeable {
                 RecoverySettings.this.concurrentSmallFileStreamPool.setMaximumPoolSize(concurrentSmallFileStreams);
             }
 
+            RecoverySettings.this.fileChunkTargetTime = maybeUpdate(RecoverySettings.this.fileChunkTargetTime, settings, INDICES_RECOVERY_FILE_CHUNK_TARGET_TIME);
             RecoverySettings.this.retryDelayNetwork = maybeUpdate(RecoverySettings.this.retryDelayNetwork, settings, INDICES_RECOVERY_RETRY_DELAY_NETWORK);
             RecoverySettings.this.retryDelayStateSync = maybeUpdate(RecoverySettings.this.retryDelayStateSync, settings, INDICES_RECOVERY_RETRY_DELAY_STATE_SYNC);
             RecoverySettings.this.activityTimeout = maybeUpdate(RecoverySettings.this.activityTimeout, settings, INDICES_RECOVERY_ACTIVITY_TIMEOUT);
@@ -51,6 +51,7 @@ import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.deletionpolicy.SnapshotIndexCommit;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.mapper.DocumentMapper;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.IllegalIndexShardStateException;
 import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.IndexShardClosedException;
@@ -59,14 +60,18 @@ import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.index.translog.Translog;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.EmptyTransportResponseHandler;
 import org.elasticsearch.transport.RemoteTransportException;
+import org.elasticsearch.transport.TransportException;
 import org.elasticsearch.transport.TransportRequestOptions;
+import org.elasticsearch.transport.TransportResponse;
 import org.elasticsearch.transport.TransportService;
 
 import java.io.IOException;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -165,6 +170,30 @@ public class RecoverySourceHandler implements Engine.RecoveryHandler {
                             recoverySourceMetadata.asMap().size() + " files", name);
                 }
             }
+            final String syncId = snapshot.getUserData().get(Engine.SYNC_COMMIT_ID);
+            final boolean sameSyncId = syncId != null && syncId.equals(request.syncId());
+            if (sameSyncId || canSkipFileCopy(snapshot)) {
+                // the target either has the same documents or already holds all operations the translog can't give it,
+                // keep its files as they are
+                for (StoreFileMetaData md : request.existingFiles().values()) {
+                    response.phase1ExistingFileNames.add(md.name());
+                    response.phase1ExistingFileSizes.add(md.length());
+                    existingTotalSize += md.length();
+                }
+                response.phase1TotalSize = existingTotalSize;
+                response.phase1ExistingTotalSize = existingTotalSize;
+                if (sameSyncId) {
+                    logger.debug("[{}][{}] recovery [phase1] to {}: skipping file copy, source and target share sync id [{}]",
+                            indexName, shardId, request.targetNode(), syncId);
+                } else {
+                    logger.debug("[{}][{}] recovery [phase1] to {}: skipping file copy, target has all operations up to [{}] of history [{}]",
+                            indexName, shardId, request.targetNode(), request.localCheckpoint(), request.historyUUID());
+                }
+                sendFilesInfo();
+                stopWatch.stop();
+                response.phase1Time = stopWatch.totalTime().millis();
+                return;
+            }
             // Generate a "diff" of all the identical, different, and missing
             // segment files on the target node, using the existing files on
             // the source node
@@ -197,17 +226,7 @@ public class RecoverySourceHandler implements Engine.RecoveryHandler {
             logger.trace("[{}][{}] recovery [phase1] to {}: recovering_files [{}] with total_size [{}], reusing_files [{}] with total_size [{}]",
                     indexName, shardId, request.targetNode(), response.phase1FileNames.size(),
                     new ByteSizeValue(totalSize), response.phase1ExistingFileNames.size(), new ByteSizeValue(existingTotalSize));
-            cancellableThreads.execute(new Interruptable() {
-                @Override
-                public void run() throws InterruptedException {
-                    RecoveryFilesInfoRequest recoveryInfoFilesRequest = new RecoveryFilesInfoRequest(request.recoveryId(), request.shardId(),
-                            response.phase1FileNames, response.phase1FileSizes, response.phase1ExistingFileNames, response.phase1ExistingFileSizes,
-                            shard.translog().estimatedNumberOfOperations());
-                    transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILES_INFO, recoveryInfoFilesRequest,
-                            TransportRequestOptions.options().withTimeout(recoverySettings.internalActionTimeout()),
-                            EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
-                }
-            });
+            sendFilesInfo();
 
 
             // This latch will be used to wait until all files have been transferred to the target node
@@ -219,6 +238,8 @@ public class RecoverySourceHandler implements Engine.RecoveryHandler {
 
             // How many bytes we've copied since we last called RateLimiter.pause
             final AtomicLong bytesSinceLastPause = new AtomicLong();
+            // shared by all files so each new file starts with the chunk size the previous ones settled on
+            final AdaptiveFileChunkSize fileChunkSize = new AdaptiveFileChunkSize(recoverySettings);
 
             for (final String name : response.phase1FileNames) {
                 long fileSize = response.phase1FileSizes.get(fileIndex);
@@ -260,8 +281,6 @@ public class RecoverySourceHandler implements Engine.RecoveryHandler {
                         store.incRef();
                         final StoreFileMetaData md = recoverySourceMetadata.get(name);
                         try (final IndexInput indexInput = store.directory().openInput(name, IOContext.READONCE)) {
-                            final int BUFFER_SIZE = (int) recoverySettings.fileChunkSize().bytes();
-                            final byte[] buf = new byte[BUFFER_SIZE];
                             boolean shouldCompressRequest = recoverySettings.compress();
                             if (CompressorFactory.isCompressed(indexInput)) {
                                 shouldCompressRequest = false;
@@ -274,11 +293,28 @@ public class RecoverySourceHandler implements Engine.RecoveryHandler {
                                     .withType(TransportRequestOptions.Type.RECOVERY)
                                     .withTimeout(recoverySettings.internalActionTimeout());
 
+                            // chunks are sent without waiting for the previous ones to be acknowledged, the target
+                            // puts them back in order. This keeps the link busy while the target writes a chunk.
+                            final int maxConcurrentChunks = recoverySettings.maxConcurrentFileChunks();
+                            final Semaphore chunksInFlight = new Semaphore(maxConcurrentChunks);
+                            final AtomicReference<Throwable> chunkFailure = new AtomicReference<>();
+
                             while (readCount < len) {
                                 if (shard.state() == IndexShardState.CLOSED) { // check if the shard got closed on us
                                     throw new IndexShardClosedException(shard.shardId());
                                 }
-                                int toRead = readCount + BUFFER_SIZE > len ? (int) (len - readCount) : BUFFER_SIZE;
+                                cancellableThreads.execute(new Interruptable() {
+                                    @Override
+                                    public void run() throws InterruptedException {
+                                        chunksInFlight.acquire();
+                                    }
+                                });
+                                if (chunkFailure.get() != null) {
+                                    chunksInFlight.release();
+                                    throw chunkFailure.get();
+                                }
+                                final int chunkSize = fileChunkSize.chunkSize();
+                                int toRead = readCount + chunkSize > len ? (int) (len - readCount) : chunkSize;
                                 final long position = indexInput.getFilePointer();
 
                                 // Pause using the rate limiter, if desired, to throttle the recovery
@@ -293,21 +329,42 @@ public class RecoverySourceHandler implements Engine.RecoveryHandler {
                                         shard.recoveryStats().addThrottleTime(throttleTimeInNanos);
                                     }
                                 }
+                                // each chunk gets its own buffer, it is held until the chunk is acknowledged
+                                final byte[] buf = new byte[toRead];
                                 indexInput.readBytes(buf, 0, toRead, false);
-                                final BytesArray content = new BytesArray(buf, 0, toRead);
+                                final BytesArray content = new BytesArray(buf);
                                 readCount += toRead;
                                 final boolean lastChunk = readCount == len;
                                 final RecoveryFileChunkRequest fileChunkRequest = new RecoveryFileChunkRequest(request.recoveryId(), request.shardId(), md, position,
                                         content, lastChunk, shard.translog().estimatedNumberOfOperations(), throttleTimeInNanos);
-                                cancellableThreads.execute(new Interruptable() {
-                                    @Override
-                                    public void run() throws InterruptedException {
-                                        // Actually send the file chunk to the target node, waiting for it to complete
-                                        transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK,
-                                                fileChunkRequest, requestOptions, EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
-                                    }
-                                });
+                                final long sendTime = System.nanoTime();
+                                transportService.sendRequest(request.targetNode(), RecoveryTarget.Actions.FILE_CHUNK,
+                                        fileChunkRequest, requestOptions, new EmptyTransportResponseHandler(ThreadPool.Names.SAME) {
+                                            @Override
+                                            public void handleResponse(TransportResponse.Empty response) {
+                                                fileChunkSize.onChunkAcknowledged(System.nanoTime() - sendTime);
+                                                chunksInFlight.release();
+                                            }
+
+                                            @Override
+                                            public void handleException(TransportException exp) {
+                                                if (chunkFailure.compareAndSet(null, exp) == false) {
+                                                    chunkFailure.get().addSuppressed(exp);
+                                                }
+                                                chunksInFlight.release();
+                                            }
+                                        });
+                            }
 
+                            // wait for the chunks still in flight before the file counts as transferred
+                            cancellableThreads.execute(new Interruptable() {
+                                @Override
+                                public void run() throws InterruptedException {
+                                    chunksInFlight.acquire(maxConcurrentChunks);
+                                }
+                            });
+                            if (chunkFailure.get() != null) {
+                                throw chunkFailure.get();
                             }
                         } catch (Throwable e) {
                             final Throwable corruptIndexException;
@@ -416,6 +473,43 @@ public class RecoverySourceHandler implements Engine.RecoveryHandler {
         }
     }
 
+    /**
+     * Returns <tt>true</tt> if the target's files can be kept as they are. This is the case if the target belongs to
+     * the same operation history as this shard and the snapshotted commit, and it has applied all operations up to
+     * the point from which the current translog holds every operation. Phase2 and phase3 then replay all operations
+     * the target is missing.
+     */
+    private boolean canSkipFileCopy(SnapshotIndexCommit snapshot) throws IOException {
+        final String historyUUID = request.historyUUID();
+        if (historyUUID == null || request.existingFiles().isEmpty()) {
+            return false;
+        }
+        final Map<String, String> commitUserData = snapshot.getUserData();
+        if (historyUUID.equals(shard.engine().historyUUID()) == false || historyUUID.equals(commitUserData.get(SequenceNumbers.HISTORY_UUID_KEY)) == false) {
+            return false;
+        }
+        final String translogId = commitUserData.get(Translog.TRANSLOG_ID_KEY);
+        if (translogId == null || Long.parseLong(translogId) != shard.translog().currentId()) {
+            return false;
+        }
+        final String translogStartSeqNo = commitUserData.get(SequenceNumbers.TRANSLOG_START_SEQ_NO_KEY);
+        return translogStartSeqNo != null && request.localCheckpoint() >= Long.parseLong(translogStartSeqNo);
+    }
+
+    private void sendFilesInfo() {
+        cancellableThreads.execute(new Interruptable() {
+            @Override
+            public void run() throws InterruptedException {
+                RecoveryFilesInfoRequest recoveryInfoFilesRequest = new RecoveryFilesInfoRequest(request.recoveryId(), request.shardId(),
+                        response.phase1FileNames, response.phase1FileSizes, response.phase1ExistingFileNames, response.phase1ExistingFileSizes,
+                        shard.translog().estimatedNumberOfOperations());
+                transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FILES_INFO, recoveryInfoFilesRequest,
+                        TransportRequestOptions.options().withTimeout(recoverySettings.internalActionTimeout()),
+                        EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
+            }
+        });
+    }
+
     /**
      * Perform phase2 of the recovery process
      *
@@ -490,6 +584,9 @@ public class RecoverySourceHandler implements Engine.RecoveryHandler {
 
         // Send the translog operations to the target node
         totalOperations = sendSnapshot(snapshot);
+        // we hold the write lock, all operations up to the max seq no are part of the snapshots sent to the target
+        final String historyUUID = shard.engine().historyUUID();
+        final long maxSeqNo = shard.engine().maxSeqNo();
 
         cancellableThreads.execute(new Interruptable() {
             @Override
@@ -498,9 +595,9 @@ public class RecoverySourceHandler implements Engine.RecoveryHandler {
                 // clears unreferenced translog files, refreshes the engine now that
                 // new segments are available, and enables garbage collection of
                 // tombstone files. The shard is also moved to the POST_RECOVERY phase
-                // during this time
+                // during this time. The target adopts the operation history of this shard.
                 transportService.submitRequest(request.targetNode(), RecoveryTarget.Actions.FINALIZE,
-                        new RecoveryFinalizeRecoveryRequest(request.recoveryId(), request.shardId()),
+                        new RecoveryFinalizeRecoveryRequest(request.recoveryId(), request.shardId(), historyUUID, maxSeqNo),
                         TransportRequestOptions.options().withTimeout(recoverySettings.internalActionLongTimeout()),
                         EmptyTransportResponseHandler.INSTANCE_SAME).txGet();
             }
@@ -379,6 +379,15 @@ public class RecoveryState implements ToXContent, Streamable {
         static final XContentBuilderString SOURCE_THROTTLE_TIME_IN_MILLIS = new XContentBuilderString("source_throttle_time_in_millis");
         static final XContentBuilderString TARGET_THROTTLE_TIME = new XContentBuilderString("target_throttle_time");
         static final XContentBuilderString TARGET_THROTTLE_TIME_IN_MILLIS = new XContentBuilderString("target_throttle_time_in_millis");
+        static final XContentBuilderString RECOVERED_PER_SEC = new XContentBuilderString("recovered_per_sec");
+        static final XContentBuilderString RECOVERED_PER_SEC_IN_BYTES = new XContentBuilderString("recovered_per_sec_in_bytes");
+    }
+
+    private static long perSec(long count, long timeInMillis) {
+        if (timeInMillis <= 0) {
+            return 0;
+        }
+        return count * 1000 / timeInMillis;
     }
 
     public static class Timer implements Streamable {
@@ -530,6 +539,13 @@ public class RecoveryState implements ToXContent, Streamable {
             this.totalOnStart = total;
         }
 
+        /**
+         * returns the number of translog operations recovered per second, based on the time spent in this stage so far
+         */
+        public synchronized long recoveredOperationsPerSec() {
+            return perSec(recovered, time());
+        }
+
         public synchronized float recoveredPercent() {
             if (total == UNKNOWN) {
                 return -1.f;
@@ -562,6 +578,7 @@ public class RecoveryState implements ToXContent, Streamable {
             builder.field(Fields.TOTAL, total);
             builder.field(Fields.PERCENT, String.format(Locale.ROOT, "%1.1f%%", recoveredPercent()));
             builder.field(Fields.TOTAL_ON_START, totalOnStart);
+            builder.field(Fields.RECOVERED_PER_SEC, recoveredOperationsPerSec());
             builder.timeValueField(Fields.TOTAL_TIME_IN_MILLIS, Fields.TOTAL_TIME, time());
             return builder;
         }
@@ -862,6 +879,13 @@ public class RecoveryState implements ToXContent, Streamable {
             return reused;
         }
 
+        /**
+         * returns the number of bytes copied over per second, based on the time spent in this stage so far
+         */
+        public synchronized long recoveredBytesPerSec() {
+            return perSec(recoveredBytes(), time());
+        }
+
         public synchronized void updateVersion(long version) {
             this.version = version;
         }
@@ -898,6 +922,7 @@ public class RecoveryState implements ToXContent, Streamable {
             builder.byteSizeField(Fields.REUSED_IN_BYTES, Fields.REUSED, totalBytes());
             builder.byteSizeField(Fields.RECOVERED_IN_BYTES, Fields.RECOVERED, recoveredBytes());
             builder.field(Fields.PERCENT, String.format(Locale.ROOT, "%1.1f%%", recoveredBytesPercent()));
+            builder.byteSizeField(Fields.RECOVERED_PER_SEC_IN_BYTES, Fields.RECOVERED_PER_SEC, recoveredBytesPerSec());
             builder.endObject();
 
             builder.startObject(Fields.FILES);
@@ -23,6 +23,7 @@ import org.apache.lucene.store.IOContext;
 import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.logging.ESLogger;
 import org.elasticsearch.common.logging.Loggers;
 import org.elasticsearch.common.util.CancellableThreads;
@@ -34,6 +35,9 @@ import org.elasticsearch.index.store.Store;
 import org.elasticsearch.index.store.StoreFileMetaData;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -65,6 +69,7 @@ public class RecoveryStatus extends AbstractRefCounted {
     private final AtomicBoolean finished = new AtomicBoolean();
 
     private final ConcurrentMap<String, IndexOutput> openIndexOutputs = ConcurrentCollections.newConcurrentMap();
+    private final ConcurrentMap<String, FileChunkWriter> fileChunkWriters = ConcurrentCollections.newConcurrentMap();
     private final Store.LegacyChecksums legacyChecksums = new Store.LegacyChecksums();
 
     private final CancellableThreads cancellableThreads = new CancellableThreads();
@@ -228,6 +233,25 @@ public class RecoveryStatus extends AbstractRefCounted {
         return indexOutput;
     }
 
+    /**
+     * Writes a chunk of the given file to its temporary file. The source sends several chunks of a file without
+     * waiting for each to be acknowledged, so chunks may be handled out of order. Chunks that arrive ahead of
+     * the current write position are held back until the gap before them is filled. Once the last chunk is
+     * written the file is verified, synced and closed.
+     */
+    public void writeFileChunk(StoreFileMetaData fileMetaData, long position, BytesReference content, boolean lastChunk) throws IOException {
+        ensureRefCount();
+        FileChunkWriter writer = fileChunkWriters.get(fileMetaData.name());
+        if (writer == null) {
+            writer = new FileChunkWriter(fileMetaData);
+            FileChunkWriter existing = fileChunkWriters.putIfAbsent(fileMetaData.name(), writer);
+            if (existing != null) {
+                writer = existing;
+            }
+        }
+        writer.write(position, content, lastChunk);
+    }
+
     public void resetRecovery() throws IOException {
         cleanOpenFiles();
         indexShard().performRecoveryRestart();
@@ -245,6 +269,7 @@ public class RecoveryStatus extends AbstractRefCounted {
     }
 
     protected void cleanOpenFiles() {
+        fileChunkWriters.clear();
         // clean open index outputs
         Iterator<Entry<String, IndexOutput>> iterator = openIndexOutputs.entrySet().iterator();
         while (iterator.hasNext()) {
@@ -270,6 +295,73 @@ public class RecoveryStatus extends AbstractRefCounted {
         return shardId + " [" + recoveryId + "]";
     }
 
+    private final class FileChunkWriter {
+
+        private final StoreFileMetaData fileMetaData;
+        // chunks that arrived before the ones preceding them, keyed by position
+        private final Map<Long, FileChunk> pendingChunks = new HashMap<>();
+        private long writePosition = 0;
+
+        FileChunkWriter(StoreFileMetaData fileMetaData) {
+            this.fileMetaData = fileMetaData;
+        }
+
+        synchronized void write(long position, BytesReference content, boolean lastChunk) throws IOException {
+            if (position < writePosition) {
+                throw new ElasticsearchException("received chunk at [" + position + "] of file [" + fileMetaData.name()
+                        + "] but already wrote up to [" + writePosition + "]");
+            }
+            pendingChunks.put(position, new FileChunk(content, lastChunk));
+            FileChunk chunk;
+            while ((chunk = pendingChunks.remove(writePosition)) != null) {
+                innerWrite(writePosition, chunk);
+                writePosition += chunk.content.length();
+            }
+        }
+
+        private void innerWrite(long position, FileChunk chunk) throws IOException {
+            final String name = fileMetaData.name();
+            final IndexOutput indexOutput;
+            if (position == 0) {
+                indexOutput = openAndPutIndexOutput(name, fileMetaData, store);
+            } else {
+                indexOutput = getOpenIndexOutput(name);
+            }
+            BytesReference content = chunk.content;
+            if (!content.hasArray()) {
+                content = content.toBytesArray();
+            }
+            indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
+            state().getIndex().addRecoveredBytesToFile(name, content.length());
+            if (indexOutput.getFilePointer() >= fileMetaData.length() || chunk.lastChunk) {
+                try {
+                    Store.verify(indexOutput);
+                } finally {
+                    // we are done
+                    indexOutput.close();
+                }
+                // write the checksum
+                legacyChecksums.add(fileMetaData);
+                final String temporaryFileName = getTempNameForFile(name);
+                assert Arrays.asList(store.directory().listAll()).contains(temporaryFileName);
+                store.directory().sync(Collections.singleton(temporaryFileName));
+                IndexOutput remove = removeOpenIndexOutputs(name);
+                assert remove == null || remove == indexOutput; // remove maybe null if we got finished
+                fileChunkWriters.remove(name, this);
+            }
+        }
+    }
+
+    private static final class FileChunk {
+        final BytesReference content;
+        final boolean lastChunk;
+
+        FileChunk(BytesReference content, boolean lastChunk) {
+            this.content = content;
+            this.lastChunk = lastChunk;
+        }
+    }
+
     private void ensureRefCount() {
         if (refCount() <= 0) {
             throw new ElasticsearchException("RecoveryStatus is used but it's refcount is 0. Probably a mismatch between incRef/decRef calls");
@@ -24,7 +24,6 @@ import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexFormatTooNewException;
 import org.apache.lucene.index.IndexFormatTooOldException;
 import org.apache.lucene.store.AlreadyClosedException;
-import org.apache.lucene.store.IndexOutput;
 import org.apache.lucene.store.RateLimiter;
 import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.cluster.ClusterService;
@@ -40,7 +39,9 @@ import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.CancellableThreads;
 import org.elasticsearch.common.util.concurrent.AbstractRunnable;
 import org.elasticsearch.index.IndexShardMissingException;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.engine.RecoveryEngineException;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.settings.IndexSettings;
 import org.elasticsearch.index.shard.*;
 import org.elasticsearch.index.store.Store;
@@ -51,8 +52,6 @@ import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -168,8 +167,23 @@ public class RecoveryTarget extends AbstractComponent {
                     new RecoveryFailedException(recoveryStatus.state(), "failed to list local files", e), true);
             return;
         }
+        // the operation history of the local commit allows the source to skip copying files if it can replay all missing operations,
+        // a sync id shared with the source's commit tells it we already have the same documents
+        String historyUUID = null;
+        long localCheckpoint = SequenceNumbers.NO_OPS_PERFORMED;
+        String syncId = null;
+        if (existingFiles.isEmpty() == false) {
+            try {
+                final Map<String, String> commitUserData = recoveryStatus.store().readLastCommittedSegmentsInfo().getUserData();
+                historyUUID = commitUserData.get(SequenceNumbers.HISTORY_UUID_KEY);
+                localCheckpoint = SequenceNumbers.readSeqNo(commitUserData, SequenceNumbers.LOCAL_CHECKPOINT_KEY);
+                syncId = commitUserData.get(Engine.SYNC_COMMIT_ID);
+            } catch (Exception e) {
+                logger.trace("{} failed to read the operation history of the local commit, recovering files", e, recoveryStatus.shardId());
+            }
+        }
         final StartRecoveryRequest request = new StartRecoveryRequest(recoveryStatus.shardId(), recoveryStatus.sourceNode(), clusterService.localNode(),
-                false, existingFiles, recoveryStatus.state().getType(), recoveryStatus.recoveryId());
+                false, existingFiles, recoveryStatus.state().getType(), recoveryStatus.recoveryId(), historyUUID, localCheckpoint, syncId);
 
         final AtomicReference<RecoveryResponse> responseHolder = new AtomicReference<>();
         try {
@@ -286,7 +300,7 @@ public class RecoveryTarget extends AbstractComponent {
         public void messageReceived(RecoveryFinalizeRecoveryRequest request, TransportChannel channel) throws Exception {
             try (RecoveriesCollection.StatusRef statusRef = onGoingRecoveries.getStatusSafe(request.recoveryId(), request.shardId())) {
                 final RecoveryStatus recoveryStatus = statusRef.status();
-                recoveryStatus.indexShard().finalizeRecovery();
+                recoveryStatus.indexShard().finalizeRecovery(request.historyUUID(), request.maxSeqNo());
             }
             channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
@@ -377,22 +391,12 @@ public class RecoveryTarget extends AbstractComponent {
         public void messageReceived(final RecoveryFileChunkRequest request, TransportChannel channel) throws Exception {
             try (RecoveriesCollection.StatusRef statusRef = onGoingRecoveries.getStatusSafe(request.recoveryId(), request.shardId())) {
                 final RecoveryStatus recoveryStatus = statusRef.status();
-                final Store store = recoveryStatus.store();
                 recoveryStatus.state().getTranslog().totalOperations(request.totalTranslogOps());
                 final RecoveryState.Index indexState = recoveryStatus.state().getIndex();
                 if (request.sourceThrottleTimeInNanos() != RecoveryState.Index.UNKNOWN) {
                     indexState.addSourceThrottling(request.sourceThrottleTimeInNanos());
                 }
-                IndexOutput indexOutput;
-                if (request.position() == 0) {
-                    indexOutput = recoveryStatus.openAndPutIndexOutput(request.name(), request.metadata(), store);
-                } else {
-                    indexOutput = recoveryStatus.getOpenIndexOutput(request.name());
-                }
-                BytesReference content = request.content();
-                if (!content.hasArray()) {
-                    content = content.toBytesArray();
-                }
+                final BytesReference content = request.content();
                 RateLimiter rl = recoverySettings.rateLimiter();
                 if (rl != null) {
                     long bytes = bytesSinceLastPause.addAndGet(content.length());
@@ -404,23 +408,7 @@ public class RecoveryTarget extends AbstractComponent {
                         recoveryStatus.indexShard().recoveryStats().addThrottleTime(throttleTimeInNanos);
                     }
                 }
-                indexOutput.writeBytes(content.array(), content.arrayOffset(), content.length());
-                indexState.addRecoveredBytesToFile(request.name(), content.length());
-                if (indexOutput.getFilePointer() >= request.length() || request.lastChunk()) {
-                    try {
-                        Store.verify(indexOutput);
-                    } finally {
-                        // we are done
-                        indexOutput.close();
-                    }
-                    // write the checksum
-                    recoveryStatus.legacyChecksums().add(request.metadata());
-                    final String temporaryFileName = recoveryStatus.getTempNameForFile(request.name());
-                    assert Arrays.asList(store.directory().listAll()).contains(temporaryFileName);
-                    store.directory().sync(Collections.singleton(temporaryFileName));
-                    IndexOutput remove = recoveryStatus.removeOpenIndexOutputs(request.name());
-                    assert remove == null || remove == indexOutput; // remove maybe null if we got finished
-                }
+                recoveryStatus.writeFileChunk(request.metadata(), request.position(), content, request.lastChunk());
             }
             channel.sendResponse(TransportResponse.Empty.INSTANCE);
         }
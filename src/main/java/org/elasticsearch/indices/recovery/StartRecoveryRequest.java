@@ -22,8 +22,10 @@ package org.elasticsearch.indices.recovery;
 import com.google.common.collect.Maps;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.Nullable;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.StoreFileMetaData;
 import org.elasticsearch.transport.TransportRequest;
@@ -50,6 +52,14 @@ public class StartRecoveryRequest extends TransportRequest {
 
     private RecoveryState.Type recoveryType;
 
+    @Nullable
+    private String historyUUID;
+
+    private long localCheckpoint = SequenceNumbers.NO_OPS_PERFORMED;
+
+    @Nullable
+    private String syncId;
+
     StartRecoveryRequest() {
     }
 
@@ -61,9 +71,13 @@ public class StartRecoveryRequest extends TransportRequest {
      * @param targetNode      The node to recover to
      * @param markAsRelocated
      * @param existingFiles
+     * @param historyUUID     The operation history of the target's last commit, <code>null</code> if unknown
+     * @param localCheckpoint The local checkpoint of the target's last commit
+     * @param syncId          The sync id of the target's last commit, <code>null</code> if it has none
      */
     public StartRecoveryRequest(ShardId shardId, DiscoveryNode sourceNode, DiscoveryNode targetNode, boolean markAsRelocated, Map<String,
-                                StoreFileMetaData> existingFiles, RecoveryState.Type recoveryType, long recoveryId) {
+                                StoreFileMetaData> existingFiles, RecoveryState.Type recoveryType, long recoveryId,
+                                @Nullable String historyUUID, long localCheckpoint, @Nullable String syncId) {
         this.recoveryId = recoveryId;
         this.shardId = shardId;
         this.sourceNode = sourceNode;
@@ -71,6 +85,9 @@ public class StartRecoveryRequest extends TransportRequest {
         this.markAsRelocated = markAsRelocated;
         this.existingFiles = existingFiles;
         this.recoveryType = recoveryType;
+        this.historyUUID = historyUUID;
+        this.localCheckpoint = localCheckpoint;
+        this.syncId = syncId;
     }
 
     public long recoveryId() {
@@ -101,6 +118,29 @@ public class StartRecoveryRequest extends TransportRequest {
         return recoveryType;
     }
 
+    /**
+     * The operation history the existing files of the target belong to, <code>null</code> if unknown.
+     */
+    @Nullable
+    public String historyUUID() {
+        return historyUUID;
+    }
+
+    /**
+     * All operations of {@link #historyUUID()} up to and including this sequence number are contained in the existing files of the target.
+     */
+    public long localCheckpoint() {
+        return localCheckpoint;
+    }
+
+    /**
+     * The sync id of the target's last commit, <code>null</code> if it has none.
+     */
+    @Nullable
+    public String syncId() {
+        return syncId;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         super.readFrom(in);
@@ -116,6 +156,9 @@ public class StartRecoveryRequest extends TransportRequest {
             existingFiles.put(md.name(), md);
         }
         recoveryType = RecoveryState.Type.fromId(in.readByte());
+        historyUUID = in.readOptionalString();
+        localCheckpoint = in.readLong();
+        syncId = in.readOptionalString();
     }
 
     @Override
@@ -131,5 +174,8 @@ public class StartRecoveryRequest extends TransportRequest {
             md.writeTo(out);
         }
         out.writeByte(recoveryType.id());
+        out.writeOptionalString(historyUUID);
+        out.writeLong(localCheckpoint);
+        out.writeOptionalString(syncId);
     }
 }
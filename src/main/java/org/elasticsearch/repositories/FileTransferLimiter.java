@@ -0,0 +1,76 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.repositories;
+
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.common.component.AbstractComponent;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.settings.Settings;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * Limits the number of files, or parts of files, that this node uploads to or restores from all its repositories
+ * concurrently, see <tt>repositories.max_concurrent_file_transfers</tt>.
+ */
+public class FileTransferLimiter extends AbstractComponent {
+
+    public static final String MAX_CONCURRENT_FILE_TRANSFERS = "repositories.max_concurrent_file_transfers";
+
+    private final int maxConcurrentFileTransfers;
+
+    private final Semaphore permits;
+
+    @Inject
+    public FileTransferLimiter(Settings settings) {
+        super(settings);
+        this.maxConcurrentFileTransfers = settings.getAsInt(MAX_CONCURRENT_FILE_TRANSFERS, 5);
+        if (maxConcurrentFileTransfers < 1) {
+            throw new ElasticsearchIllegalArgumentException("[" + MAX_CONCURRENT_FILE_TRANSFERS + "] must be at least 1 but was [" + maxConcurrentFileTransfers + "]");
+        }
+        this.permits = new Semaphore(maxConcurrentFileTransfers);
+        logger.debug("using max_concurrent_file_transfers [{}]", maxConcurrentFileTransfers);
+    }
+
+    /**
+     * The maximum number of concurrent file transfers of this node
+     */
+    public int maxConcurrentFileTransfers() {
+        return maxConcurrentFileTransfers;
+    }
+
+    /**
+     * Waits until the node runs less than the maximum number of transfers, {@link #release()} must be called once
+     * the transfer is done.
+     */
+    public void acquire() throws InterruptedException {
+        permits.acquire();
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    /**
+     * The number of transfers that could start right away
+     */
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+}
@@ -61,6 +61,7 @@ public class RepositoriesModule extends AbstractModule {
     @Override
     protected void configure() {
         bind(RepositoriesService.class).asEagerSingleton();
+        bind(FileTransferLimiter.class).asEagerSingleton();
         bind(SnapshotsService.class).asEagerSingleton();
         bind(TransportNodesSnapshotsStatus.class).asEagerSingleton();
         bind(RestoreService.class).asEagerSingleton();
@@ -83,6 +83,10 @@ import static com.google.common.collect.Lists.newArrayList;
  *   |- snapshot-20131011 - JSON serialized Snapshot for snapshot "20131011"
  *   |- metadata-20131011 - JSON serialized MetaData for snapshot "20131011"
  *   .....
+ *   |- blobs/ - content addressed files that are shared between shards and snapshots
+ *   |  |- refs - JSON serialized names of the snapshots that reference each shared file
+ *   |  |- blob-{checksum}-{length}-{digest} - file content, see snapshot-* of the shards for their mappings to real segment files
+ *   |  .....
  *   |- indices/ - data for all indices
  *      |- foo/ - data for index "foo"
  *      |  |- snapshot-20131010 - JSON Serialized IndexMetaData for index "foo"
@@ -313,6 +317,12 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
                     }
                 }
             }
+            // Release the shared blobs, blobs that are not used by other snapshots anymore are deleted
+            try {
+                indexShardRepository.releaseSharedBlobReferences(snapshotId);
+            } catch (IOException | ElasticsearchParseException ex) {
+                logger.warn("[{}] failed to release shared blobs", ex, snapshotId);
+            }
         } catch (IOException ex) {
             throw new RepositoryException(this.repositoryName, "failed to update snapshot in repository", ex);
         }
@@ -325,6 +335,8 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
     @Override
     public Snapshot finalizeSnapshot(SnapshotId snapshotId, ImmutableList<String> indices, long startTime, String failure, int totalShards, ImmutableList<SnapshotShardFailure> shardFailures) {
         try {
+            // Reference the shared blobs before the snapshot becomes visible so deleting other snapshots keeps them
+            indexShardRepository.addSharedBlobReferences(snapshotId, snapshotShardIds(snapshotId, indices));
             String tempBlobName = tempSnapshotBlobName(snapshotId);
             String blobName = snapshotBlobName(snapshotId);
             Snapshot blobStoreSnapshot = new Snapshot(snapshotId.getSnapshot(), indices, startTime, failure, System.currentTimeMillis(), totalShards, shardFailures);
@@ -343,6 +355,29 @@ public abstract class BlobStoreRepository extends AbstractLifecycleComponent<Rep
         }
     }
 
+    /**
+     * Returns the ids of all shards of the indices in the snapshot
+     */
+    private List<ShardId> snapshotShardIds(SnapshotId snapshotId, ImmutableList<String> indices) throws IOException {
+        final MetaData metaData;
+        try {
+            metaData = readSnapshotMetaData(snapshotId, indices, true);
+        } catch (SnapshotMissingException ex) {
+            // the metadata is written before any shard is snapshotted
+            return Collections.emptyList();
+        }
+        List<ShardId> shardIds = newArrayList();
+        for (String index : indices) {
+            IndexMetaData indexMetaData = metaData.index(index);
+            if (indexMetaData != null) {
+                for (int i = 0; i < indexMetaData.getNumberOfShards(); i++) {
+                    shardIds.add(new ShardId(index, i));
+                }
+            }
+        }
+        return shardIds;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -56,7 +56,15 @@ public abstract class BaseRestHandler extends AbstractComponent implements RestH
 
     @Override
     public final void handleRequest(RestRequest request, RestChannel channel) throws Exception {
-        handleRequest(request, channel, new HeadersAndContextCopyClient(client, request, controller.relevantHeaders()));
+        handleRequest(request, channel, client(request));
+    }
+
+    /**
+     * Returns a client that copies the relevant headers and the context of the given request over to the
+     * transport requests it executes.
+     */
+    protected final Client client(RestRequest request) {
+        return new HeadersAndContextCopyClient(client, request, controller.relevantHeaders());
     }
 
     protected abstract void handleRequest(RestRequest request, RestChannel channel, Client client) throws Exception;
@@ -27,6 +27,7 @@ import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentType;
 
 import java.io.IOException;
+import java.io.OutputStream;
 
 /**
  * A channel used to construct bytes / builder based outputs, and send responses.
@@ -48,18 +49,15 @@ public abstract class RestChannel {
     }
 
     public XContentBuilder newBuilder(@Nullable BytesReference autoDetectSource) throws IOException {
-        XContentType contentType = XContentType.fromRestContentType(request.param("format", request.header("Content-Type")));
-        if (contentType == null) {
-            // try and guess it from the auto detect source
-            if (autoDetectSource != null) {
-                contentType = XContentFactory.xContentType(autoDetectSource);
-            }
-        }
-        if (contentType == null) {
-            // default to JSON
-            contentType = XContentType.JSON;
-        }
-        XContentBuilder builder = new XContentBuilder(XContentFactory.xContent(contentType), bytesOutput());
+        return newBuilder(autoDetectSource, bytesOutput());
+    }
+
+    /**
+     * Creates a new builder writing to the provided output, configured based on the request like the builders
+     * returned by {@link #newBuilder(BytesReference)}.
+     */
+    public XContentBuilder newBuilder(@Nullable BytesReference autoDetectSource, OutputStream out) throws IOException {
+        XContentBuilder builder = new XContentBuilder(XContentFactory.xContent(responseContentType(autoDetectSource)), out);
         if (request.paramAsBoolean("pretty", false)) {
             builder.prettyPrint().lfAtEnd();
         }
@@ -77,6 +75,25 @@ public abstract class RestChannel {
         return builder;
     }
 
+    /**
+     * The content type of the responses built by this channel, based on the <tt>format</tt> parameter or
+     * <tt>Content-Type</tt> header of the request, falling back to auto detection and finally to JSON.
+     */
+    public XContentType responseContentType(@Nullable BytesReference autoDetectSource) {
+        XContentType contentType = XContentType.fromRestContentType(request.param("format", request.header("Content-Type")));
+        if (contentType == null) {
+            // try and guess it from the auto detect source
+            if (autoDetectSource != null) {
+                contentType = XContentFactory.xContentType(autoDetectSource);
+            }
+        }
+        if (contentType == null) {
+            // default to JSON
+            contentType = XContentType.JSON;
+        }
+        return contentType;
+    }
+
     /**
      * A channel level bytes output that can be reused. It gets reset on each call to this
      * method.
@@ -102,5 +119,18 @@ public abstract class RestChannel {
         return detailedErrorsEnabled;
     }
 
+    /**
+     * Stops reading the content of a streamed request until {@link #resumeContent()} is called, used to push
+     * back on the client while the content already received is processed. A no-op by default.
+     */
+    public void suspendContent() {
+    }
+
+    /**
+     * Resumes reading the content of a streamed request after {@link #suspendContent()}.
+     */
+    public void resumeContent() {
+    }
+
     public abstract void sendResponse(RestResponse response);
 }
\ No newline at end of file
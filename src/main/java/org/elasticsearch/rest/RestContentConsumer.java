@@ -0,0 +1,45 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+
+/**
+ * Consumes the content of a streamed request as it is received. Methods are called in order from a single
+ * network thread, {@link #onContent(BytesReference)} for each chunk of the content followed by either
+ * {@link #onContentEnd()} or {@link #onFailure(Throwable)}.
+ */
+public interface RestContentConsumer {
+
+    /**
+     * Called with the next chunk of content. The chunk can be retained, it is not reused once this method returns.
+     */
+    void onContent(BytesReference content) throws Exception;
+
+    /**
+     * Called once all the content has been received.
+     */
+    void onContentEnd() throws Exception;
+
+    /**
+     * Called when the content could not be received in full, for example because the connection was closed.
+     */
+    void onFailure(Throwable t);
+}
@@ -180,6 +180,27 @@ public class RestController extends AbstractLifecycleComponent<RestController> {
         }
     }
 
+    /**
+     * Dispatches a request whose content has not been received yet. Returns the consumer the content should be
+     * provided to, or <tt>null</tt> if the request should be dispatched through {@link #dispatchRequest(RestRequest, RestChannel)}
+     * once its full content has been received, which is the case when filters are registered (as they might need the
+     * content) or when the handler does not support streaming.
+     */
+    @Nullable
+    public RestContentConsumer dispatchStreamingRequest(final RestRequest request, final RestChannel channel) throws Exception {
+        if (filters.length > 0) {
+            return null;
+        }
+        if (channel.detailedErrorsEnabled() == false && request.paramAsBoolean("error_trace", false)) {
+            return null;
+        }
+        final RestHandler handler = getHandler(request);
+        if (handler instanceof StreamingRestHandler) {
+            return ((StreamingRestHandler) handler).handleStreamingRequest(request, channel);
+        }
+        return null;
+    }
+
     /**
      * Checks the request parameters against enabled settings for error trace support
      * @param request
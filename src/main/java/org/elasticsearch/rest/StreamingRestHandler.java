@@ -0,0 +1,38 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.Nullable;
+
+/**
+ * A {@link RestHandler} that can start handling a request before its content has been received in full, so
+ * large request bodies don't have to be buffered in memory. Only used when the http transport delivers the
+ * content in chunks and no {@link RestFilter} is registered, otherwise {@link #handleRequest(RestRequest, RestChannel)}
+ * is called once the content has been aggregated.
+ */
+public interface StreamingRestHandler extends RestHandler {
+
+    /**
+     * Starts handling a request whose content will be provided to the returned consumer. Returns <tt>null</tt>
+     * to have the request handled as usual, once its full content is available.
+     */
+    @Nullable
+    RestContentConsumer handleStreamingRequest(RestRequest request, RestChannel channel) throws Exception;
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A response whose content is generated while it is being sent, so it never has to be held in memory in full.
+ * Channels that support it write the content as it is generated (for example using http chunked transfer encoding),
+ * other channels fall back to {@link #content()}, which builds the full content in memory.
+ * <p/>
+ * The content is generated in parts, so a channel can stop generating it while the client is slow to read what was
+ * already sent and resume once it caught up, without holding on to a thread in the meantime.
+ * <p/>
+ * Note, once a channel started writing the content, a failure to generate the rest of it can't be reported with
+ * a different status anymore, the channel is expected to abort the response instead.
+ */
+public abstract class StreamingRestResponse extends RestResponse {
+
+    private BytesReference content;
+
+    /**
+     * Generates the next part of the content of the response into the provided output, returns <tt>false</tt> once
+     * the whole content has been generated. Called repeatedly with the same output, possibly from different threads
+     * but never concurrently, so each call should only generate a bounded part of the content.
+     */
+    public abstract boolean writeNext(OutputStream out) throws IOException;
+
+    @Override
+    public BytesReference content() {
+        if (content == null) {
+            BytesStreamOutput out = new BytesStreamOutput();
+            try {
+                while (writeNext(out)) {
+                }
+            } catch (IOException e) {
+                throw new ElasticsearchException("failed to generate response content", e);
+            }
+            content = out.bytes();
+        }
+        return content;
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A {@link StreamingRestResponse} rendering {@link ToXContent} objects (wrapped in startObject/endObject)
+ * directly into the output of the channel. The content can be split in several parts, each call to
+ * {@link #writeNext(OutputStream)} renders one of them.
+ */
+public class XContentStreamingRestResponse extends StreamingRestResponse {
+
+    private final RestChannel channel;
+    private final RestStatus status;
+    private final Iterator<? extends ToXContent> parts;
+    private final ToXContent.Params params;
+    private XContentBuilder builder;
+
+    public XContentStreamingRestResponse(RestChannel channel, RestStatus status, ToXContent content, ToXContent.Params params) {
+        this(channel, status, Collections.singletonList(content), params);
+    }
+
+    /**
+     * @param parts the parts of the content, rendered one after the other into the same object
+     */
+    public XContentStreamingRestResponse(RestChannel channel, RestStatus status, List<? extends ToXContent> parts, ToXContent.Params params) {
+        this.channel = channel;
+        this.status = status;
+        this.parts = parts.iterator();
+        this.params = params;
+    }
+
+    @Override
+    public String contentType() {
+        return channel.responseContentType(autoDetectSource()).restContentType();
+    }
+
+    @Override
+    public RestStatus status() {
+        return status;
+    }
+
+    @Override
+    public boolean writeNext(OutputStream out) throws IOException {
+        if (builder == null) {
+            builder = channel.newBuilder(autoDetectSource(), out);
+            builder.startObject();
+        }
+        if (parts.hasNext()) {
+            parts.next().toXContent(builder, params);
+            builder.flush();
+            return true;
+        }
+        builder.endObject();
+        builder.flush();
+        return false;
+    }
+
+    private BytesReference autoDetectSource() {
+        RestRequest request = channel.request();
+        return request.hasContent() ? request.content() : null;
+    }
+}
@@ -77,6 +77,8 @@ public class RestNodesStatsAction extends BaseRestHandler {
             nodesStatsRequest.indices(metrics.contains("indices"));
             nodesStatsRequest.process(metrics.contains("process"));
             nodesStatsRequest.breaker(metrics.contains("breaker"));
+            nodesStatsRequest.termsLookupCache(metrics.contains("terms_lookup_cache"));
+            nodesStatsRequest.script(metrics.contains("script"));
 
             // check for index specific metrics
             if (metrics.contains("indices")) {
@@ -32,6 +32,8 @@ import org.elasticsearch.client.Client;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.rest.*;
@@ -50,9 +52,13 @@ import static org.elasticsearch.rest.RestStatus.OK;
  * { "type1" : { "field1" : "value1" } }
  * </pre>
  */
-public class RestBulkAction extends BaseRestHandler {
+public class RestBulkAction extends BaseRestHandler implements StreamingRestHandler {
 
     private final boolean allowExplicitIndex;
+    private final int streamBatchActions;
+    private final ByteSizeValue streamBatchSize;
+    private final int streamConcurrentBatches;
+    private final ByteSizeValue streamMaxActionSize;
 
     @Inject
     public RestBulkAction(Settings settings, RestController controller, Client client) {
@@ -66,6 +72,12 @@ public class RestBulkAction extends BaseRestHandler {
         controller.registerHandler(PUT, "/{index}/{type}/_bulk", this);
 
         this.allowExplicitIndex = settings.getAsBoolean("rest.action.multi.allow_explicit_index", true);
+        this.streamBatchActions = settings.getAsInt("rest.action.bulk.stream.batch_actions", 1000);
+        this.streamBatchSize = settings.getAsBytesSize("rest.action.bulk.stream.batch_size", new ByteSizeValue(5, ByteSizeUnit.MB));
+        this.streamConcurrentBatches = settings.getAsInt("rest.action.bulk.stream.concurrent_batches", 1);
+        // a single action can't be larger than a request that is not streamed
+        this.streamMaxActionSize = settings.getAsBytesSize("rest.action.bulk.stream.max_action_size",
+                settings.getAsBytesSize("http.max_content_length", new ByteSizeValue(100, ByteSizeUnit.MB)));
     }
 
     @Override
@@ -87,59 +99,72 @@ public class RestBulkAction extends BaseRestHandler {
         client.bulk(bulkRequest, new RestBuilderListener<BulkResponse>(channel) {
             @Override
             public RestResponse buildResponse(BulkResponse response, XContentBuilder builder) throws Exception {
-                builder.startObject();
-                builder.field(Fields.TOOK, response.getTookInMillis());
-                builder.field(Fields.ERRORS, response.hasFailures());
-                builder.startArray(Fields.ITEMS);
-                for (BulkItemResponse itemResponse : response) {
-                    builder.startObject();
-                    builder.startObject(itemResponse.getOpType());
-                    builder.field(Fields._INDEX, itemResponse.getIndex());
-                    builder.field(Fields._TYPE, itemResponse.getType());
-                    builder.field(Fields._ID, itemResponse.getId());
-                    long version = itemResponse.getVersion();
-                    if (version != -1) {
-                        builder.field(Fields._VERSION, itemResponse.getVersion());
+                return RestBulkAction.buildResponse(response, builder, request);
+            }
+        });
+    }
+
+    @Override
+    public RestContentConsumer handleStreamingRequest(RestRequest request, RestChannel channel) throws Exception {
+        if (request.paramAsBoolean("stream", false) == false) {
+            return null;
+        }
+        return new RestBulkContentConsumer(request, channel, client(request), allowExplicitIndex, streamBatchActions, streamBatchSize,
+                streamConcurrentBatches, streamMaxActionSize);
+    }
+
+    static RestResponse buildResponse(BulkResponse response, XContentBuilder builder, RestRequest request) throws Exception {
+        builder.startObject();
+        builder.field(Fields.TOOK, response.getTookInMillis());
+        builder.field(Fields.ERRORS, response.hasFailures());
+        builder.startArray(Fields.ITEMS);
+        for (BulkItemResponse itemResponse : response) {
+            builder.startObject();
+            builder.startObject(itemResponse.getOpType());
+            builder.field(Fields._INDEX, itemResponse.getIndex());
+            builder.field(Fields._TYPE, itemResponse.getType());
+            builder.field(Fields._ID, itemResponse.getId());
+            long version = itemResponse.getVersion();
+            if (version != -1) {
+                builder.field(Fields._VERSION, itemResponse.getVersion());
+            }
+            if (itemResponse.isFailed()) {
+                builder.field(Fields.STATUS, itemResponse.getFailure().getStatus().getStatus());
+                builder.field(Fields.ERROR, itemResponse.getFailure().getMessage());
+            } else {
+                ActionWriteResponse.ShardInfo shardInfo = itemResponse.getResponse().getShardInfo();
+                shardInfo.toXContent(builder, request);
+                if (itemResponse.getResponse() instanceof DeleteResponse) {
+                    DeleteResponse deleteResponse = itemResponse.getResponse();
+                    if (deleteResponse.isFound()) {
+                        builder.field(Fields.STATUS, shardInfo.status().getStatus());
+                    } else {
+                        builder.field(Fields.STATUS, RestStatus.NOT_FOUND.getStatus());
+                    }
+                    builder.field(Fields.FOUND, deleteResponse.isFound());
+                } else if (itemResponse.getResponse() instanceof IndexResponse) {
+                    IndexResponse indexResponse = itemResponse.getResponse();
+                    if (indexResponse.isCreated()) {
+                        builder.field(Fields.STATUS, RestStatus.CREATED.getStatus());
+                    } else {
+                        builder.field(Fields.STATUS, shardInfo.status().getStatus());
                     }
-                    if (itemResponse.isFailed()) {
-                        builder.field(Fields.STATUS, itemResponse.getFailure().getStatus().getStatus());
-                        builder.field(Fields.ERROR, itemResponse.getFailure().getMessage());
+                } else if (itemResponse.getResponse() instanceof UpdateResponse) {
+                    UpdateResponse updateResponse = itemResponse.getResponse();
+                    if (updateResponse.isCreated()) {
+                        builder.field(Fields.STATUS, RestStatus.CREATED.getStatus());
                     } else {
-                        ActionWriteResponse.ShardInfo shardInfo = itemResponse.getResponse().getShardInfo();
-                        shardInfo.toXContent(builder, request);
-                        if (itemResponse.getResponse() instanceof DeleteResponse) {
-                            DeleteResponse deleteResponse = itemResponse.getResponse();
-                            if (deleteResponse.isFound()) {
-                                builder.field(Fields.STATUS, shardInfo.status().getStatus());
-                            } else {
-                                builder.field(Fields.STATUS, RestStatus.NOT_FOUND.getStatus());
-                            }
-                            builder.field(Fields.FOUND, deleteResponse.isFound());
-                        } else if (itemResponse.getResponse() instanceof IndexResponse) {
-                            IndexResponse indexResponse = itemResponse.getResponse();
-                            if (indexResponse.isCreated()) {
-                                builder.field(Fields.STATUS, RestStatus.CREATED.getStatus());
-                            } else {
-                                builder.field(Fields.STATUS, shardInfo.status().getStatus());
-                            }
-                        } else if (itemResponse.getResponse() instanceof UpdateResponse) {
-                            UpdateResponse updateResponse = itemResponse.getResponse();
-                            if (updateResponse.isCreated()) {
-                                builder.field(Fields.STATUS, RestStatus.CREATED.getStatus());
-                            } else {
-                                builder.field(Fields.STATUS, shardInfo.status().getStatus());
-                            }
-                        }
+                        builder.field(Fields.STATUS, shardInfo.status().getStatus());
                     }
-                    builder.endObject();
-                    builder.endObject();
                 }
-                builder.endArray();
-
-                builder.endObject();
-                return new BytesRestResponse(OK, builder);
             }
-        });
+            builder.endObject();
+            builder.endObject();
+        }
+        builder.endArray();
+
+        builder.endObject();
+        return new BytesRestResponse(OK, builder);
     }
 
     static final class Fields {
@@ -0,0 +1,274 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.bulk;
+
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.WriteConsistencyLevel;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.bulk.BulkShardRequest;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.Requests;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.bytes.CompositeBytesReference;
+import org.elasticsearch.common.logging.ESLogger;
+import org.elasticsearch.common.logging.Loggers;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.XContent;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestContentConsumer;
+import org.elasticsearch.rest.RestRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses the content of a streamed bulk request as it is received, and executes it in batches of complete actions
+ * once a batch reaches the configured number of actions or size. Only the trailing partial action of the content
+ * received so far is kept around, without copying the chunks it spans, and it fails the request once it gets
+ * larger than the configured maximum. The content of a batch is released once the batch has been executed.
+ * Reading from the client is suspended while more than the configured number of batches are executing.
+ * <p/>
+ * The response has the same format as the one of a regular bulk request, the items of all batches in order.
+ * A failure responds with the error only, batches that were executed or are executing by then stay applied.
+ */
+class RestBulkContentConsumer implements RestContentConsumer {
+
+    private static final ESLogger logger = Loggers.getLogger(RestBulkContentConsumer.class);
+
+    // the number of bytes needed to detect the content type, see XContentFactory#xContentType
+    private static final int CONTENT_TYPE_GUESS_LENGTH = 20;
+
+    private final RestChannel channel;
+    private final Client client;
+    private final boolean allowExplicitIndex;
+    private final int batchActions;
+    private final long batchSizeInBytes;
+    private final int concurrentBatches;
+    private final long maxPendingSizeInBytes;
+
+    private final String defaultIndex;
+    private final String defaultType;
+    private final String defaultRouting;
+    private final WriteConsistencyLevel consistencyLevel;
+    private final TimeValue timeout;
+    private final boolean refresh;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private XContent xContent;
+    // the chunks of the content that has not been added to a batch yet
+    private final List<BytesReference> pending = new ArrayList<>();
+    private long pendingLength;
+    private BulkRequest batch;
+
+    // the items of each executed batch, in execution order, null while the batch is executing
+    private final List<BulkItemResponse[]> batchResponses = new ArrayList<>();
+    private int executingBatches;
+    private boolean suspended;
+    private boolean contentEnded;
+    private boolean failed;
+
+    RestBulkContentConsumer(RestRequest request, RestChannel channel, Client client, boolean allowExplicitIndex,
+                            int batchActions, ByteSizeValue batchSize, int concurrentBatches, ByteSizeValue maxPendingSize) {
+        this.channel = channel;
+        this.client = client;
+        this.allowExplicitIndex = allowExplicitIndex;
+        this.batchActions = batchActions;
+        this.batchSizeInBytes = batchSize.bytes();
+        this.concurrentBatches = concurrentBatches;
+        this.maxPendingSizeInBytes = maxPendingSize.bytes();
+
+        this.defaultIndex = request.param("index");
+        this.defaultType = request.param("type");
+        this.defaultRouting = request.param("routing");
+        String consistencyLevel = request.param("consistency");
+        this.consistencyLevel = consistencyLevel == null ? null : WriteConsistencyLevel.fromString(consistencyLevel);
+        this.timeout = request.paramAsTime("timeout", BulkShardRequest.DEFAULT_TIMEOUT);
+        this.refresh = request.paramAsBoolean("refresh", false);
+        this.batch = newBatch();
+    }
+
+    @Override
+    public synchronized void onContent(BytesReference content) throws Exception {
+        if (failed) {
+            // drain the rest of the content, the failure has been responded with already
+            return;
+        }
+        pending.add(content);
+        pendingLength += content.length();
+        if (xContent == null) {
+            BytesReference data = pendingData();
+            XContentType contentType = XContentFactory.xContentType(data);
+            if (contentType == null && data.length() < CONTENT_TYPE_GUESS_LENGTH) {
+                return;
+            }
+            xContent = XContentFactory.xContent(data);
+        } else if (containsSeparator(content) == false) {
+            // no action can have been completed, don't scan the pending content again
+            ensurePendingSize();
+            return;
+        }
+        BytesReference data = pendingData();
+        pending.clear();
+        // the added actions reference the data, it is released once the batch they end up in has been executed
+        int consumed = batch.addComplete(data, xContent, defaultIndex, defaultType, defaultRouting, null, allowExplicitIndex);
+        pendingLength = data.length() - consumed;
+        if (pendingLength > 0) {
+            pending.add(data.slice(consumed, data.length() - consumed));
+        }
+        if (batch.numberOfActions() >= batchActions || batch.estimatedSizeInBytes() >= batchSizeInBytes) {
+            executeBatch();
+        }
+        ensurePendingSize();
+    }
+
+    private BytesReference pendingData() {
+        if (pending.size() == 1) {
+            return pending.get(0);
+        }
+        return new CompositeBytesReference(pending.toArray(new BytesReference[pending.size()]));
+    }
+
+    private boolean containsSeparator(BytesReference content) {
+        final byte separator = xContent.streamSeparator();
+        for (int i = 0; i < content.length(); i++) {
+            if (content.get(i) == separator) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void ensurePendingSize() {
+        if (pendingLength > maxPendingSizeInBytes) {
+            throw new ElasticsearchIllegalArgumentException("bulk action is larger than [" + new ByteSizeValue(maxPendingSizeInBytes) + "]");
+        }
+    }
+
+    @Override
+    public synchronized void onContentEnd() throws Exception {
+        if (failed) {
+            return;
+        }
+        contentEnded = true;
+        // like a regular bulk request, a trailing line without a line feed is ignored. An empty request
+        // is still executed so it fails validation the same way.
+        if (batch.numberOfActions() > 0 || batchResponses.isEmpty()) {
+            executeBatch();
+        }
+        maybeRespond();
+    }
+
+    @Override
+    public synchronized void onFailure(Throwable t) {
+        if (failed) {
+            return;
+        }
+        failed = true;
+        pending.clear();
+        pendingLength = 0;
+        batch = null;
+        if (suspended) {
+            suspended = false;
+            channel.resumeContent();
+        }
+        try {
+            channel.sendResponse(new BytesRestResponse(channel, t));
+        } catch (Throwable e) {
+            logger.error("failed to send failure response", e);
+        }
+    }
+
+    private BulkRequest newBatch() {
+        BulkRequest bulkRequest = Requests.bulkRequest();
+        bulkRequest.listenerThreaded(false);
+        if (consistencyLevel != null) {
+            bulkRequest.consistencyLevel(consistencyLevel);
+        }
+        bulkRequest.timeout(timeout);
+        bulkRequest.refresh(refresh);
+        return bulkRequest;
+    }
+
+    private void executeBatch() {
+        final BulkRequest bulkRequest = batch;
+        batch = newBatch();
+        final int slot = batchResponses.size();
+        batchResponses.add(null);
+        executingBatches++;
+        if (executingBatches > concurrentBatches && suspended == false) {
+            suspended = true;
+            channel.suspendContent();
+        }
+        client.bulk(bulkRequest, new ActionListener<BulkResponse>() {
+            @Override
+            public void onResponse(BulkResponse response) {
+                onBatchDone(slot, response);
+            }
+
+            @Override
+            public void onFailure(Throwable e) {
+                RestBulkContentConsumer.this.onFailure(e);
+            }
+        });
+    }
+
+    private synchronized void onBatchDone(int slot, BulkResponse response) {
+        if (failed) {
+            return;
+        }
+        batchResponses.set(slot, response.getItems());
+        executingBatches--;
+        if (suspended && executingBatches <= concurrentBatches) {
+            suspended = false;
+            channel.resumeContent();
+        }
+        maybeRespond();
+    }
+
+    private void maybeRespond() {
+        if (contentEnded == false || executingBatches > 0) {
+            return;
+        }
+        int numberOfItems = 0;
+        for (BulkItemResponse[] items : batchResponses) {
+            numberOfItems += items.length;
+        }
+        BulkItemResponse[] allItems = new BulkItemResponse[numberOfItems];
+        int offset = 0;
+        for (BulkItemResponse[] items : batchResponses) {
+            System.arraycopy(items, 0, allItems, offset, items.length);
+            offset += items.length;
+        }
+        BulkResponse response = new BulkResponse(allItems, System.currentTimeMillis() - startTime);
+        try {
+            channel.sendResponse(RestBulkAction.buildResponse(response, channel.newBuilder(), channel.request()));
+        } catch (Throwable t) {
+            onFailure(t);
+        }
+    }
+}
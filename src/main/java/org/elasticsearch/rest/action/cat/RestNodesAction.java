@@ -142,9 +142,14 @@ public class RestNodesAction extends AbstractCatAction {
 
         table.addCell("fielddata.memory_size", "alias:fm,fielddataMemory;default:false;text-align:right;desc:used fielddata cache");
         table.addCell("fielddata.evictions", "alias:fe,fielddataEvictions;default:false;text-align:right;desc:fielddata evictions");
+        table.addCell("fielddata.heap_loads", "alias:fhl,fielddataHeapLoads;default:false;text-align:right;desc:fielddata loaded on the heap");
+        table.addCell("fielddata.doc_values_loads", "alias:fdvl,fielddataDocValuesLoads;default:false;text-align:right;desc:fielddata loaded from doc values");
 
         table.addCell("filter_cache.memory_size", "alias:fcm,filterCacheMemory;default:false;text-align:right;desc:used filter cache");
         table.addCell("filter_cache.evictions", "alias:fce,filterCacheEvictions;default:false;text-align:right;desc:filter cache evictions");
+        table.addCell("filter_cache.hit_count", "alias:fchc,filterCacheHitCount;default:false;text-align:right;desc:filter cache hit counts");
+        table.addCell("filter_cache.miss_count", "alias:fcmc,filterCacheMissCount;default:false;text-align:right;desc:filter cache miss counts");
+        table.addCell("filter_cache.cache_count", "alias:fccc,filterCacheCacheCount;default:false;text-align:right;desc:filter cache admissions");
 
         table.addCell("query_cache.memory_size", "alias:qcm,queryCacheMemory;default:false;text-align:right;desc:used query cache");
         table.addCell("query_cache.evictions", "alias:qce,queryCacheEvictions;default:false;text-align:right;desc:query cache evictions");
@@ -271,10 +276,15 @@ public class RestNodesAction extends AbstractCatAction {
             FieldDataStats fdStats = indicesStats == null ? null : stats.getIndices().getFieldData();
             table.addCell(fdStats == null ? null : fdStats.getMemorySize());
             table.addCell(fdStats == null ? null : fdStats.getEvictions());
+            table.addCell(fdStats == null ? null : fdStats.getHeapLoads());
+            table.addCell(fdStats == null ? null : fdStats.getDocValuesLoads());
 
             FilterCacheStats fcStats = indicesStats == null ? null : indicesStats.getFilterCache();
             table.addCell(fcStats == null ? null : fcStats.getMemorySize());
             table.addCell(fcStats == null ? null : fcStats.getEvictions());
+            table.addCell(fcStats == null ? null : fcStats.getHitCount());
+            table.addCell(fcStats == null ? null : fcStats.getMissCount());
+            table.addCell(fcStats == null ? null : fcStats.getCacheCount());
 
             QueryCacheStats qcStats = indicesStats == null ? null : indicesStats.getQueryCache();
             table.addCell(qcStats == null ? null : qcStats.getMemorySize());
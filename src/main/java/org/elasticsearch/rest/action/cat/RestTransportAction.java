@@ -0,0 +1,123 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.cat;
+
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsRequest;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.common.Table;
+import org.elasticsearch.common.inject.Inject;
+import org.elasticsearch.common.regex.Regex;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.rest.*;
+import org.elasticsearch.rest.action.support.RestResponseListener;
+import org.elasticsearch.rest.action.support.RestTable;
+import org.elasticsearch.transport.TransportActionStats;
+
+import static org.elasticsearch.rest.RestRequest.Method.GET;
+
+/**
+ * Cat API class to display transport level statistics per node and action
+ */
+public class RestTransportAction extends AbstractCatAction {
+
+    @Inject
+    public RestTransportAction(Settings settings, RestController controller, Client client) {
+        super(settings, controller, client);
+        controller.registerHandler(GET, "/_cat/transport", this);
+        controller.registerHandler(GET, "/_cat/transport/{actions}", this);
+    }
+
+    @Override
+    void doRequest(final RestRequest request, final RestChannel channel, final Client client) {
+        final NodesStatsRequest nodesStatsRequest = new NodesStatsRequest();
+        nodesStatsRequest.clear().transport(true);
+
+        client.admin().cluster().nodesStats(nodesStatsRequest, new RestResponseListener<NodesStatsResponse>(channel) {
+            @Override
+            public RestResponse buildResponse(NodesStatsResponse nodeStatses) throws Exception {
+                return RestTable.buildResponse(buildTable(request, nodeStatses), channel);
+            }
+        });
+    }
+
+    @Override
+    void documentation(StringBuilder sb) {
+        sb.append("/_cat/transport\n");
+        sb.append("/_cat/transport/{actions}\n");
+    }
+
+    @Override
+    Table getTableWithHeader(RestRequest request) {
+        Table table = new Table();
+        table.startHeaders()
+                .addCell("id", "default:false;desc:node id")
+                .addCell("host", "alias:h;desc:host name")
+                .addCell("ip", "desc:ip address")
+                .addCell("node", "alias:n;desc:node name")
+                .addCell("action", "alias:a;desc:action name")
+                .addCell("sent.count", "alias:sc,sentCount;text-align:right;desc:number of requests sent")
+                .addCell("sent.size", "alias:ss,sentSize;text-align:right;desc:size of requests sent")
+                .addCell("sent.in_flight", "alias:sif,sentInFlight;text-align:right;desc:number of sent requests waiting for a response")
+                .addCell("sent.response_time", "alias:srt,sentResponseTime;default:false;text-align:right;desc:total time waited for responses")
+                .addCell("sent.avg_response_time", "alias:sart,sentAvgResponseTime;text-align:right;desc:average time waited for a response")
+                .addCell("received.count", "alias:rc,receivedCount;text-align:right;desc:number of requests received")
+                .addCell("received.size", "alias:rs,receivedSize;text-align:right;desc:size of requests received")
+                .addCell("received.in_flight", "alias:rif,receivedInFlight;text-align:right;desc:number of received requests not responded to yet")
+                .addCell("received.response_size", "alias:rrs,receivedResponseSize;text-align:right;desc:size of responses sent for received requests")
+                .endHeaders();
+        return table;
+    }
+
+    private Table buildTable(final RestRequest request, final NodesStatsResponse nodeStatses) {
+        String[] actions = request.paramAsStringArray("actions", null);
+        Table table = getTableWithHeader(request);
+
+        for (NodeStats ns : nodeStatses.getNodes()) {
+            if (ns.getTransport() == null) {
+                continue;
+            }
+            for (TransportActionStats stats : ns.getTransport().getActions()) {
+                if (actions != null && Regex.simpleMatch(actions, stats.getAction()) == false) {
+                    continue;
+                }
+                table.startRow();
+                table.addCell(ns.getNode().id());
+                table.addCell(ns.getNode().getHostName());
+                table.addCell(ns.getNode().getHostAddress());
+                table.addCell(ns.getNode().getName());
+                table.addCell(stats.getAction());
+                table.addCell(stats.getSentCount());
+                table.addCell(stats.getSentSize());
+                table.addCell(stats.getSentInFlight());
+                table.addCell(stats.getResponseTime());
+                table.addCell(stats.getAvgResponseTime());
+                table.addCell(stats.getReceivedCount());
+                table.addCell(stats.getReceivedSize());
+                table.addCell(stats.getReceivedInFlight());
+                table.addCell(stats.getResponseSize());
+                table.endRow();
+            }
+        }
+
+        return table;
+    }
+}
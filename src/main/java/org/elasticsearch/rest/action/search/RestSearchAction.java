@@ -32,7 +32,6 @@ import org.elasticsearch.index.query.QueryStringQueryBuilder;
 import org.elasticsearch.rest.*;
 import org.elasticsearch.rest.action.exists.RestExistsAction;
 import org.elasticsearch.rest.action.support.RestActions;
-import org.elasticsearch.rest.action.support.RestStatusToXContentListener;
 import org.elasticsearch.search.Scroll;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.source.FetchSourceContext;
@@ -49,9 +48,12 @@ import static org.elasticsearch.search.suggest.SuggestBuilders.termSuggestion;
  */
 public class RestSearchAction extends BaseRestHandler {
 
+    private final int streamMinHits;
+
     @Inject
     public RestSearchAction(Settings settings, RestController controller, Client client) {
         super(settings, controller, client);
+        this.streamMinHits = settings.getAsInt(RestSearchResponseListener.SETTING_STREAM_MIN_HITS, RestSearchResponseListener.DEFAULT_STREAM_MIN_HITS);
         controller.registerHandler(GET, "/_search", this);
         controller.registerHandler(POST, "/_search", this);
         controller.registerHandler(GET, "/{index}/_search", this);
@@ -79,7 +81,7 @@ public class RestSearchAction extends BaseRestHandler {
         SearchRequest searchRequest;
         searchRequest = RestSearchAction.parseSearchRequest(request);
         searchRequest.listenerThreaded(false);
-        client.search(searchRequest, new RestStatusToXContentListener<SearchResponse>(channel));
+        client.search(searchRequest, new RestSearchResponseListener(channel, streamMinHits));
     }
 
     public static SearchRequest parseSearchRequest(RestRequest request) {
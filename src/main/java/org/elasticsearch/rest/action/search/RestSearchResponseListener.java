@@ -0,0 +1,71 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.search;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.XContentStreamingRestResponse;
+import org.elasticsearch.rest.action.support.RestResponseListener;
+import org.elasticsearch.search.internal.InternalSearchHits;
+
+/**
+ * Sends search responses holding at least <tt>rest.action.search.stream.min_hits</tt> hits as a
+ * {@link XContentStreamingRestResponse}, so large pages of hits are written out as they are rendered instead
+ * of being built in memory first. The source of each hit is released once it has been written.
+ */
+class RestSearchResponseListener extends RestResponseListener<SearchResponse> {
+
+    static final String SETTING_STREAM_MIN_HITS = "rest.action.search.stream.min_hits";
+    static final int DEFAULT_STREAM_MIN_HITS = 100;
+
+    /**
+     * The number of hits rendered by each part of a streamed response, the channel can pause between parts
+     */
+    static final int STREAM_HITS_PER_PART = 10;
+
+    private static final ImmutableMap<String, String> STREAM_PARAMS = ImmutableMap.of(InternalSearchHits.RELEASE_SOURCES_PARAM, "true");
+
+    private final int streamMinHits;
+
+    /**
+     * @param streamMinHits the minimum number of hits of a response to stream it, <tt>-1</tt> to never stream
+     */
+    RestSearchResponseListener(RestChannel channel, int streamMinHits) {
+        super(channel);
+        this.streamMinHits = streamMinHits;
+    }
+
+    @Override
+    public RestResponse buildResponse(SearchResponse response) throws Exception {
+        if (streamMinHits >= 0 && response.getHits().hits().length >= streamMinHits) {
+            return new XContentStreamingRestResponse(channel, response.status(), response.toXContentParts(STREAM_HITS_PER_PART), new ToXContent.DelegatingMapParams(STREAM_PARAMS, channel.request()));
+        }
+        XContentBuilder builder = channel.newBuilder();
+        builder.startObject();
+        response.toXContent(builder, channel.request());
+        builder.endObject();
+        return new BytesRestResponse(response.status(), builder);
+    }
+}
@@ -34,7 +34,6 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
 import org.elasticsearch.rest.*;
 import org.elasticsearch.rest.action.support.RestActions;
-import org.elasticsearch.rest.action.support.RestStatusToXContentListener;
 import org.elasticsearch.search.Scroll;
 
 import java.io.IOException;
@@ -48,9 +47,12 @@ import static org.elasticsearch.rest.RestRequest.Method.POST;
  */
 public class RestSearchScrollAction extends BaseRestHandler {
 
+    private final int streamMinHits;
+
     @Inject
     public RestSearchScrollAction(Settings settings, RestController controller, Client client) {
         super(settings, controller, client);
+        this.streamMinHits = settings.getAsInt(RestSearchResponseListener.SETTING_STREAM_MIN_HITS, RestSearchResponseListener.DEFAULT_STREAM_MIN_HITS);
 
         controller.registerHandler(GET, "/_search/scroll", this);
         controller.registerHandler(POST, "/_search/scroll", this);
@@ -81,7 +83,7 @@ public class RestSearchScrollAction extends BaseRestHandler {
                 buildFromContent(RestActions.getRestContent(request), searchScrollRequest);
             }
         }
-        client.searchScroll(searchScrollRequest, new RestStatusToXContentListener<SearchResponse>(channel));
+        client.searchScroll(searchScrollRequest, new RestSearchResponseListener(channel, streamMinHits));
     }
 
     public static void buildFromContent(BytesReference content, SearchScrollRequest searchScrollRequest) throws ElasticsearchIllegalArgumentException {
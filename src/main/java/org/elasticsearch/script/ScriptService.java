@@ -20,10 +20,6 @@
 package org.elasticsearch.script;
 
 import com.google.common.base.Charsets;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.RemovalListener;
-import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.ImmutableMap;
 
 import org.apache.lucene.util.IOUtils;
@@ -42,13 +38,21 @@ import org.elasticsearch.action.indexedscripts.put.PutIndexedScriptRequest;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.common.ParseField;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.CacheLoader;
+import org.elasticsearch.common.cache.RemovalListener;
+import org.elasticsearch.common.cache.RemovalNotification;
 import org.elasticsearch.common.collect.Tuple;
 import org.elasticsearch.common.component.AbstractComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
@@ -73,6 +77,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -85,6 +90,7 @@ public class ScriptService extends AbstractComponent implements Closeable {
     public static final String DEFAULT_SCRIPTING_LANGUAGE_SETTING = "script.default_lang";
     public static final String SCRIPT_CACHE_SIZE_SETTING = "script.cache.max_size";
     public static final String SCRIPT_CACHE_EXPIRE_SETTING = "script.cache.expire";
+    public static final String SCRIPT_MAX_COMPILATIONS_PER_MINUTE_SETTING = "script.max_compilations_per_minute";
     public static final String SCRIPT_INDEX = ".scripts";
     public static final String DEFAULT_LANG = GroovyScriptEngineService.NAME;
     public static final String SCRIPT_AUTO_RELOAD_ENABLED_SETTING = "script.auto_reload_enabled";
@@ -100,6 +106,17 @@ public class ScriptService extends AbstractComponent implements Closeable {
     private final Cache<CacheKey, CompiledScript> cache;
     private final Path scriptsDirectory;
 
+    private final MeanMetric compilationsMetric = new MeanMetric();
+    private final CounterMetric cacheHitsMetric = new CounterMetric();
+    private final CounterMetric cacheMissesMetric = new CounterMetric();
+    private final CounterMetric cacheEvictionsMetric = new CounterMetric();
+    private final CounterMetric compilationLimitTriggeredMetric = new CounterMetric();
+
+    private final int maxCompilationsPerMinute;
+    // the token bucket of the compilation rate limiter, refilled with maxCompilationsPerMinute tokens per minute
+    private double availableCompilations;
+    private long lastCompilationTime;
+
     private final ScriptModes scriptModes;
     private final ScriptContextRegistry scriptContextRegistry;
 
@@ -124,16 +141,19 @@ public class ScriptService extends AbstractComponent implements Closeable {
         this.scriptContextRegistry = scriptContextRegistry;
         int cacheMaxSize = settings.getAsInt(SCRIPT_CACHE_SIZE_SETTING, 100);
         TimeValue cacheExpire = settings.getAsTime(SCRIPT_CACHE_EXPIRE_SETTING, null);
-        logger.debug("using script cache with max_size [{}], expire [{}]", cacheMaxSize, cacheExpire);
+        this.maxCompilationsPerMinute = settings.getAsInt(SCRIPT_MAX_COMPILATIONS_PER_MINUTE_SETTING, 100);
+        logger.debug("using script cache with max_size [{}], expire [{}], max_compilations_per_minute [{}]", cacheMaxSize, cacheExpire, maxCompilationsPerMinute);
+        this.availableCompilations = maxCompilationsPerMinute;
+        this.lastCompilationTime = System.nanoTime();
 
         this.defaultLang = settings.get(DEFAULT_SCRIPTING_LANGUAGE_SETTING, DEFAULT_LANG);
 
-        CacheBuilder cacheBuilder = CacheBuilder.newBuilder();
+        CacheBuilder<CacheKey, CompiledScript> cacheBuilder = CacheBuilder.builder();
         if (cacheMaxSize >= 0) {
-            cacheBuilder.maximumSize(cacheMaxSize);
+            cacheBuilder.setMaximumWeight(cacheMaxSize);
         }
         if (cacheExpire != null) {
-            cacheBuilder.expireAfterAccess(cacheExpire.nanos(), TimeUnit.NANOSECONDS);
+            cacheBuilder.setExpireAfterAccess(cacheExpire);
         }
         this.cache = cacheBuilder.removalListener(new ScriptCacheRemovalListener()).build();
 
@@ -256,15 +276,53 @@ public class ScriptService extends AbstractComponent implements Closeable {
             cacheKey = newCacheKey(scriptEngineService, code);
         }
 
-        CompiledScript compiled = cache.getIfPresent(cacheKey);
-        if (compiled == null) {
-            //Either an un-cached inline script or an indexed script
-            compiled = new CompiledScript(lang, scriptEngineService.compile(code));
-            //Since the cache key is the script content itself we don't need to
-            //invalidate/check the cache if an indexed script changes.
-            cache.put(cacheKey, compiled);
+        CompiledScript compiled = cache.get(cacheKey);
+        if (compiled != null) {
+            cacheHitsMetric.inc();
+            return compiled;
+        }
+        cacheMissesMetric.inc();
+        //Either an un-cached inline script or an indexed script. Since the cache key is the script content
+        //itself we don't need to invalidate/check the cache if an indexed script changes. Concurrent requests
+        //for the same script wait for a single compilation.
+        try {
+            return cache.computeIfAbsent(cacheKey, new ScriptCompiler(lang, scriptEngineService, code));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ScriptException("failed to compile script [" + code + "] lang [" + lang + "]", e.getCause());
+        }
+    }
+
+    /**
+     * Takes a token from the compilation rate limiter, or rejects the compilation if the number of
+     * dynamic compilations exceeded the configured rate. A negative rate disables the limiter.
+     */
+    synchronized void checkCompilationLimit() {
+        if (maxCompilationsPerMinute < 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        availableCompilations += (now - lastCompilationTime) * (maxCompilationsPerMinute / (double) TimeUnit.MINUTES.toNanos(1));
+        lastCompilationTime = now;
+        if (availableCompilations > maxCompilationsPerMinute) {
+            availableCompilations = maxCompilationsPerMinute;
+        }
+        if (availableCompilations >= 1) {
+            availableCompilations -= 1;
+        } else {
+            compilationLimitTriggeredMetric.inc();
+            throw new CircuitBreakingException("[script] too many dynamic script compilations within one minute, max: [" +
+                    maxCompilationsPerMinute + "/min]; scripts that differ only in embedded values should pass these values in " +
+                    "the script [params] instead so that they are compiled once, or use file or indexed scripts; the limit can " +
+                    "be changed with the [" + SCRIPT_MAX_COMPILATIONS_PER_MINUTE_SETTING + "] setting");
         }
-        return compiled;
+    }
+
+    public ScriptStats stats() {
+        return new ScriptStats(compilationsMetric.count(), TimeUnit.NANOSECONDS.toMillis(compilationsMetric.sum()), cache.count(),
+                cacheHitsMetric.count(), cacheMissesMetric.count(), cacheEvictionsMetric.count(), compilationLimitTriggeredMetric.count());
     }
 
     public void queryScriptIndex(GetIndexedScriptRequest request, final ActionListener<GetResponse> listener) {
@@ -425,6 +483,31 @@ public class ScriptService extends AbstractComponent implements Closeable {
         }
     }
 
+    /**
+     * Compiles a script that is missing from the cache, once the compilation rate limiter allows it
+     */
+    private class ScriptCompiler implements CacheLoader<CacheKey, CompiledScript> {
+
+        private final String lang;
+        private final ScriptEngineService scriptEngineService;
+        private final String code;
+
+        ScriptCompiler(String lang, ScriptEngineService scriptEngineService, String code) {
+            this.lang = lang;
+            this.scriptEngineService = scriptEngineService;
+            this.code = code;
+        }
+
+        @Override
+        public CompiledScript load(CacheKey key) throws Exception {
+            checkCompilationLimit();
+            long start = System.nanoTime();
+            CompiledScript compiled = new CompiledScript(lang, scriptEngineService.compile(code));
+            compilationsMetric.inc(System.nanoTime() - start);
+            return compiled;
+        }
+    }
+
     /**
      * A small listener for the script cache that calls each
      * {@code ScriptEngineService}'s {@code scriptRemoved} method when the
@@ -434,16 +517,19 @@ public class ScriptService extends AbstractComponent implements Closeable {
 
         @Override
         public void onRemoval(RemovalNotification<CacheKey, CompiledScript> notification) {
+            if (notification.wasEvicted()) {
+                cacheEvictionsMetric.inc();
+            }
             if (logger.isDebugEnabled()) {
-                logger.debug("notifying script services of script removal due to: [{}]", notification.getCause());
+                logger.debug("notifying script services of script removal due to: [{}]", notification.getRemovalReason());
             }
             for (ScriptEngineService service : scriptEngines) {
                 try {
                     service.scriptRemoved(notification.getValue());
                 } catch (Exception e) {
                     logger.warn("exception calling script removal listener for script service", e);
-                    // We don't rethrow because Guava would just catch the
-                    // exception and log it, which we have already done
+                    // We don't rethrow, removing other scripts from the cache
+                    // must not fail because of a single script engine
                 }
             }
         }
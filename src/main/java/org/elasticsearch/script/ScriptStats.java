@@ -0,0 +1,157 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.script;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Statistics of the compilations of inline and indexed scripts and of the cache of their compiled form.
+ */
+public class ScriptStats implements Streamable, ToXContent {
+
+    private long compilations;
+    private long compilationTimeInMillis;
+    private long cacheCount;
+    private long cacheHitCount;
+    private long cacheMissCount;
+    private long cacheEvictions;
+    private long compilationLimitTriggered;
+
+    ScriptStats() {
+    }
+
+    public ScriptStats(long compilations, long compilationTimeInMillis, long cacheCount, long cacheHitCount, long cacheMissCount,
+                       long cacheEvictions, long compilationLimitTriggered) {
+        this.compilations = compilations;
+        this.compilationTimeInMillis = compilationTimeInMillis;
+        this.cacheCount = cacheCount;
+        this.cacheHitCount = cacheHitCount;
+        this.cacheMissCount = cacheMissCount;
+        this.cacheEvictions = cacheEvictions;
+        this.compilationLimitTriggered = compilationLimitTriggered;
+    }
+
+    /**
+     * The number of scripts that were compiled because they were missing from the cache.
+     */
+    public long getCompilations() {
+        return this.compilations;
+    }
+
+    /**
+     * The total time spent compiling scripts.
+     */
+    public TimeValue getCompilationTime() {
+        return new TimeValue(compilationTimeInMillis);
+    }
+
+    /**
+     * The number of compiled scripts that are cached.
+     */
+    public long getCacheCount() {
+        return this.cacheCount;
+    }
+
+    public long getCacheHitCount() {
+        return this.cacheHitCount;
+    }
+
+    public long getCacheMissCount() {
+        return this.cacheMissCount;
+    }
+
+    /**
+     * The number of compiled scripts that were evicted from the cache, because it was full or they expired.
+     */
+    public long getCacheEvictions() {
+        return this.cacheEvictions;
+    }
+
+    /**
+     * The number of compilations that were rejected because of the compilation rate limit.
+     */
+    public long getCompilationLimitTriggered() {
+        return this.compilationLimitTriggered;
+    }
+
+    public static ScriptStats readScriptStats(StreamInput in) throws IOException {
+        ScriptStats stats = new ScriptStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        compilations = in.readVLong();
+        compilationTimeInMillis = in.readVLong();
+        cacheCount = in.readVLong();
+        cacheHitCount = in.readVLong();
+        cacheMissCount = in.readVLong();
+        cacheEvictions = in.readVLong();
+        compilationLimitTriggered = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeVLong(compilations);
+        out.writeVLong(compilationTimeInMillis);
+        out.writeVLong(cacheCount);
+        out.writeVLong(cacheHitCount);
+        out.writeVLong(cacheMissCount);
+        out.writeVLong(cacheEvictions);
+        out.writeVLong(compilationLimitTriggered);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(Fields.SCRIPT);
+        builder.field(Fields.COMPILATIONS, compilations);
+        builder.timeValueField(Fields.COMPILATION_TIME_IN_MILLIS, Fields.COMPILATION_TIME, compilationTimeInMillis);
+        builder.field(Fields.COMPILATION_LIMIT_TRIGGERED, compilationLimitTriggered);
+        builder.startObject(Fields.CACHE);
+        builder.field(Fields.COUNT, cacheCount);
+        builder.field(Fields.HIT_COUNT, cacheHitCount);
+        builder.field(Fields.MISS_COUNT, cacheMissCount);
+        builder.field(Fields.EVICTIONS, cacheEvictions);
+        builder.endObject();
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString SCRIPT = new XContentBuilderString("script");
+        static final XContentBuilderString COMPILATIONS = new XContentBuilderString("compilations");
+        static final XContentBuilderString COMPILATION_TIME = new XContentBuilderString("compilation_time");
+        static final XContentBuilderString COMPILATION_TIME_IN_MILLIS = new XContentBuilderString("compilation_time_in_millis");
+        static final XContentBuilderString COMPILATION_LIMIT_TRIGGERED = new XContentBuilderString("compilation_limit_triggered");
+        static final XContentBuilderString CACHE = new XContentBuilderString("cache");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString HIT_COUNT = new XContentBuilderString("hit_count");
+        static final XContentBuilderString MISS_COUNT = new XContentBuilderString("miss_count");
+        static final XContentBuilderString EVICTIONS = new XContentBuilderString("evictions");
+    }
+}
@@ -29,6 +29,7 @@ import org.apache.lucene.search.Scorer;
 import org.elasticsearch.ElasticsearchIllegalStateException;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.script.LeafSearchScript;
+import org.elasticsearch.script.NumericLeafSearchScript;
 import org.elasticsearch.script.SearchScript;
 
 import java.io.IOException;
@@ -57,7 +58,8 @@ class ExpressionScript implements SearchScript {
 
     @Override
     public LeafSearchScript getLeafSearchScript(final LeafReaderContext leaf) throws IOException {
-        return new LeafSearchScript() {
+        // an expression always evaluates to a single double, which lets aggregations read it without boxing
+        return new NumericLeafSearchScript() {
 
             FunctionValues values = source.getValues(Collections.singletonMap("scorer", Lucene.illegalScorer("Scores are not available in the current context")), leaf);
 
@@ -23,6 +23,7 @@ import org.apache.lucene.expressions.Expression;
 import org.apache.lucene.expressions.SimpleBindings;
 import org.apache.lucene.expressions.js.JavascriptCompiler;
 import org.apache.lucene.expressions.js.VariableContext;
+import org.apache.lucene.queries.function.ValueSource;
 import org.apache.lucene.queries.function.valuesource.DoubleConstValueSource;
 import org.apache.lucene.search.SortField;
 import org.elasticsearch.common.Nullable;
@@ -37,6 +38,7 @@ import org.elasticsearch.script.CompiledScript;
 import org.elasticsearch.script.ExecutableScript;
 import org.elasticsearch.script.ScriptEngineService;
 import org.elasticsearch.script.SearchScript;
+import org.elasticsearch.search.MultiValueMode;
 import org.elasticsearch.search.lookup.SearchLookup;
 
 import java.text.ParseException;
@@ -119,8 +121,9 @@ public class ExpressionScriptEngineService extends AbstractComponent implements
                 if (parts.length < 2 || parts[1].type != VariableContext.Type.STR_INDEX) {
                     throw new ExpressionScriptCompilationException("Variable 'doc' in expression must be used with a specific field like: doc['myfield'].value");
                 }
-                if (parts.length < 3 || parts[2].type != VariableContext.Type.MEMBER || parts[2].text.equals("value") == false) {
-                    throw new ExpressionScriptCompilationException("Invalid member for field data in expression.  Only '.value' is currently supported.");
+                if (parts.length != 3) {
+                    throw new ExpressionScriptCompilationException("Variable 'doc' in expression must be used with a member or method of a field like: " +
+                            "doc['myfield'].value or doc['myfield'].min()");
                 }
                 String fieldname = parts[1].text;
 
@@ -133,13 +136,49 @@ public class ExpressionScriptEngineService extends AbstractComponent implements
                     throw new ExpressionScriptCompilationException("Field [" + fieldname + "] used in expression must be numeric");
                 }
                 IndexFieldData<?> fieldData = lookup.doc().fieldDataService().getForField((NumberFieldMapper)field);
-                bindings.add(variable, new FieldDataValueSource(fieldData));
+                bindings.add(variable, getFieldDataValueSource(fieldData, parts[2]));
             }
         }
 
         return new ExpressionScript((Expression)compiledScript, bindings, specialValue);
     }
 
+    /**
+     * Binds a member or method of a field, like {@code doc['myfield'].value} or {@code doc['myfield'].max()},
+     * directly to the field data of the field.
+     */
+    private static ValueSource getFieldDataValueSource(IndexFieldData<?> fieldData, VariableContext accessor) {
+        if (accessor.type == VariableContext.Type.MEMBER) {
+            switch (accessor.text) {
+                case "value":
+                    return new FieldDataValueSource(fieldData, MultiValueMode.MIN);
+                case "length":
+                    return new CountMethodValueSource(fieldData);
+                default:
+                    throw new ExpressionScriptCompilationException("Invalid member for field data in expression: [" + accessor.text + "]. " +
+                            "Only '.value' and '.length' are supported.");
+            }
+        } else if (accessor.type == VariableContext.Type.METHOD) {
+            switch (accessor.text) {
+                case "min":
+                    return new FieldDataValueSource(fieldData, MultiValueMode.MIN);
+                case "max":
+                    return new FieldDataValueSource(fieldData, MultiValueMode.MAX);
+                case "avg":
+                    return new FieldDataValueSource(fieldData, MultiValueMode.AVG);
+                case "sum":
+                    return new FieldDataValueSource(fieldData, MultiValueMode.SUM);
+                case "count":
+                    return new CountMethodValueSource(fieldData);
+                default:
+                    throw new ExpressionScriptCompilationException("Unknown method for field data in expression: [" + accessor.text + "]. " +
+                            "Supported methods are 'min()', 'max()', 'avg()', 'sum()' and 'count()'.");
+            }
+        }
+        throw new ExpressionScriptCompilationException("Invalid member for field data in expression. Only '.value', '.length' and " +
+                "the methods 'min()', 'max()', 'avg()', 'sum()' and 'count()' are supported.");
+    }
+
     @Override
     public ExecutableScript executable(Object compiledScript, @Nullable Map<String, Object> vars) {
         throw new UnsupportedOperationException("Cannot use expressions for updates");
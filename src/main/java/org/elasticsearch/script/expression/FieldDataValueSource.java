@@ -26,40 +26,52 @@ import org.apache.lucene.queries.function.ValueSource;
 import org.elasticsearch.index.fielddata.AtomicFieldData;
 import org.elasticsearch.index.fielddata.AtomicNumericFieldData;
 import org.elasticsearch.index.fielddata.IndexFieldData;
+import org.elasticsearch.search.MultiValueMode;
 
 import java.io.IOException;
+import java.util.Locale;
 import java.util.Map;
 
 /**
- * A {@link ValueSource} wrapper for field data.
+ * A {@link ValueSource} wrapper for field data. Documents with several values are reduced to a single
+ * value with a {@link MultiValueMode}, documents without values evaluate to 0.
  */
 class FieldDataValueSource extends ValueSource {
 
-    IndexFieldData<?> fieldData;
+    final IndexFieldData<?> fieldData;
+    final MultiValueMode multiValueMode;
 
-    FieldDataValueSource(IndexFieldData<?> d) {
+    FieldDataValueSource(IndexFieldData<?> d, MultiValueMode m) {
         fieldData = d;
+        multiValueMode = m;
     }
 
     @Override
     public FunctionValues getValues(Map context, LeafReaderContext leaf) throws IOException {
         AtomicFieldData leafData = fieldData.load(leaf);
         assert(leafData instanceof AtomicNumericFieldData);
-        return new FieldDataFunctionValues(this, (AtomicNumericFieldData)leafData);
+        return new FieldDataFunctionValues(this, multiValueMode, (AtomicNumericFieldData)leafData);
     }
 
     @Override
     public boolean equals(Object other) {
-        return fieldData.equals(other);
+        if (this == other) {
+            return true;
+        }
+        if (other == null || getClass() != other.getClass()) {
+            return false;
+        }
+        FieldDataValueSource that = (FieldDataValueSource) other;
+        return fieldData.equals(that.fieldData) && multiValueMode == that.multiValueMode;
     }
 
     @Override
     public int hashCode() {
-        return fieldData.hashCode();
+        return 31 * fieldData.hashCode() + multiValueMode.hashCode();
     }
 
     @Override
     public String description() {
-        return "field(" + fieldData.getFieldNames().toString() + ")";
+        return multiValueMode.name().toLowerCase(Locale.ROOT) + "(" + fieldData.getFieldNames().toString() + ")";
     }
 }
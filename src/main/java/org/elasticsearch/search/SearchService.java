@@ -41,6 +41,7 @@ import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.inject.Inject;
 import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.lucene.search.SegmentRangePruning;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
@@ -209,6 +210,31 @@ public class SearchService extends AbstractLifecycleComponent<SearchService> {
         FutureUtils.cancel(keepAliveReaper);
     }
 
+    /**
+     * Checks cheaply, without executing the query, whether the request can match any document of the shard. Only the
+     * min and max terms of the segments are looked at, so a shard is only ruled out if a required numeric range of the
+     * query does not overlap with any of its segments. Requests that produce results independently of the query (suggestions,
+     * global aggregations and other aggregations that see unmatched documents) always match.
+     */
+    public boolean canMatch(ShardSearchRequest request) throws IOException {
+        final SearchContext context = createContext(request, null);
+        try {
+            if (context.suggest() != null) {
+                return true;
+            }
+            if (context.aggregations() != null && context.aggregations().factories().needsUnmatchedDocs()) {
+                return true;
+            }
+            return SegmentRangePruning.matchingLeaves(context.query(), context.searcher().getIndexReader().leaves()).isEmpty() == false;
+        } finally {
+            try {
+                context.close();
+            } finally {
+                SearchContext.removeCurrent();
+            }
+        }
+    }
+
     public DfsSearchResult executeDfsPhase(ShardSearchRequest request) throws ElasticsearchException {
         final SearchContext context = createAndPutContext(request);
         try {
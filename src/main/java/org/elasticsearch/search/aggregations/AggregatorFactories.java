@@ -75,6 +75,19 @@ public class AggregatorFactories {
         return factories.length;
     }
 
+    /**
+     * Returns whether one of these factories or their sub factories needs to see documents that don't match the query,
+     * see {@link AggregatorFactory#needsUnmatchedDocs()}.
+     */
+    public boolean needsUnmatchedDocs() {
+        for (AggregatorFactory factory : factories) {
+            if (factory.needsUnmatchedDocs() || factory.factories.needsUnmatchedDocs()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     void setParent(AggregatorFactory parent) {
         for (AggregatorFactory factory : factories) {
             factory.parent = parent;
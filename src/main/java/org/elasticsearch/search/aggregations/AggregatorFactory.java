@@ -72,6 +72,15 @@ public abstract class AggregatorFactory {
         factories.validate();
     }
 
+    /**
+     * Whether the aggregation can produce results from documents that don't match the query, e.g. global aggregations
+     * or aggregations that return buckets with a doc count of zero. Shards that no document matches can't be skipped
+     * for such aggregations.
+     */
+    public boolean needsUnmatchedDocs() {
+        return false;
+    }
+
     /**
      * @return  The parent factory if one exists (will always return {@code null} for top level aggregator factories).
      */
@@ -71,6 +71,11 @@ public class GlobalAggregator extends SingleBucketAggregator {
             super(name, InternalGlobal.TYPE.name());
         }
 
+        @Override
+        public boolean needsUnmatchedDocs() {
+            return true;
+        }
+
         @Override
         public Aggregator createInternal(AggregationContext context, Aggregator parent, boolean collectsFromSingleBucket, Map<String, Object> metaData) throws IOException {
             if (parent != null) {
@@ -22,6 +22,7 @@ import org.apache.lucene.search.Scorer;
 import org.elasticsearch.common.lucene.ScorerAware;
 import org.elasticsearch.index.fielddata.SortingNumericDoubleValues;
 import org.elasticsearch.script.LeafSearchScript;
+import org.elasticsearch.script.NumericLeafSearchScript;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 
 import java.lang.reflect.Array;
@@ -43,6 +44,12 @@ public class ScriptDoubleValues extends SortingNumericDoubleValues implements Sc
     @Override
     public void setDocument(int docId) {
         script.setDocument(docId);
+        if (script instanceof NumericLeafSearchScript) {
+            // the script always returns a single number, read it without boxing
+            resize(1);
+            values[0] = script.runAsDouble();
+            return;
+        }
         final Object value = script.run();
 
         if (value == null) {
@@ -23,6 +23,7 @@ import org.apache.lucene.util.LongValues;
 import org.elasticsearch.common.lucene.ScorerAware;
 import org.elasticsearch.index.fielddata.SortingNumericDocValues;
 import org.elasticsearch.script.LeafSearchScript;
+import org.elasticsearch.script.NumericLeafSearchScript;
 import org.elasticsearch.search.aggregations.AggregationExecutionException;
 
 import java.lang.reflect.Array;
@@ -44,6 +45,12 @@ public class ScriptLongValues extends SortingNumericDocValues implements ScorerA
     @Override
     public void setDocument(int docId) {
         script.setDocument(docId);
+        if (script instanceof NumericLeafSearchScript) {
+            // the script always returns a single number, read it without boxing
+            resize(1);
+            values[0] = script.runAsLong();
+            return;
+        }
         final Object value = script.run();
 
         if (value == null) {
@@ -84,9 +84,23 @@ public class HighlightField implements Streamable {
         return field;
     }
 
+    /**
+     * Reads a highlighted field whose name has been read already, see {@link #writeFragmentsTo(StreamOutput)}.
+     */
+    public static HighlightField readHighlightField(String name, StreamInput in) throws IOException {
+        HighlightField field = new HighlightField();
+        field.name = name;
+        field.readFragmentsFrom(in);
+        return field;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         name = in.readString();
+        readFragmentsFrom(in);
+    }
+
+    private void readFragmentsFrom(StreamInput in) throws IOException {
         if (in.readBoolean()) {
             int size = in.readVInt();
             if (size == 0) {
@@ -103,6 +117,13 @@ public class HighlightField implements Streamable {
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeString(name);
+        writeFragmentsTo(out);
+    }
+
+    /**
+     * Writes the fragments of the field, without its name.
+     */
+    public void writeFragmentsTo(StreamOutput out) throws IOException {
         if (fragments == null) {
             out.writeBoolean(false);
         } else {
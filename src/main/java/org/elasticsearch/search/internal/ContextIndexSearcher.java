@@ -32,6 +32,7 @@ import org.elasticsearch.common.lease.Releasable;
 import org.elasticsearch.common.lucene.Lucene;
 import org.elasticsearch.common.lucene.MinimumScoreCollector;
 import org.elasticsearch.common.lucene.search.FilteredCollector;
+import org.elasticsearch.common.lucene.search.SegmentRangePruning;
 import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.search.dfs.CachedDfSource;
 import org.elasticsearch.search.internal.SearchContext.Lifetime;
@@ -134,6 +135,11 @@ public class ContextIndexSearcher extends IndexSearcher implements Releasable {
 
     @Override
     public void search(List<LeafReaderContext> leaves, Weight weight, Collector collector) throws IOException {
+        if (currentState == Stage.MAIN_QUERY && searchContext.parsedQuery() != null) {
+            // skip the segments a numeric range required by the query rules out, if that's all of them
+            // the shard is skipped without executing the query at all
+            leaves = SegmentRangePruning.matchingLeaves(searchContext.parsedQuery().query(), leaves);
+        }
         final boolean timeoutSet = searchContext.timeoutInMillis() != -1;
         final boolean terminateAfterSet = searchContext.terminateAfter() != SearchContext.DEFAULT_TERMINATE_AFTER;
 
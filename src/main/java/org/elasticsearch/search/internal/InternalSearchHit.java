@@ -428,6 +428,15 @@ public class InternalSearchHit implements SearchHit {
         static final XContentBuilderString INNER_HITS = new XContentBuilderString("inner_hits");
     }
 
+    /**
+     * Drops the references this hit holds to its source.
+     */
+    void releaseSource() {
+        this.source = null;
+        this.sourceAsMap = null;
+        this.sourceAsBytes = null;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         builder.startObject();
@@ -557,7 +566,7 @@ public class InternalSearchHit implements SearchHit {
     public void readFrom(StreamInput in, InternalSearchHits.StreamContext context) throws IOException {
         score = in.readFloat();
         id = in.readText();
-        type = in.readText();
+        type = context.readSharedText(in);
         nestedIdentity = in.readOptionalStreamable(new InternalNestedIdentity());
         version = in.readLong();
         source = in.readBytesReference();
@@ -571,34 +580,34 @@ public class InternalSearchHit implements SearchHit {
         if (size == 0) {
             fields = ImmutableMap.of();
         } else if (size == 1) {
-            SearchHitField hitField = readSearchHitField(in);
+            SearchHitField hitField = readSearchHitField(context.readSharedString(in), in);
             fields = ImmutableMap.of(hitField.name(), hitField);
         } else if (size == 2) {
-            SearchHitField hitField1 = readSearchHitField(in);
-            SearchHitField hitField2 = readSearchHitField(in);
+            SearchHitField hitField1 = readSearchHitField(context.readSharedString(in), in);
+            SearchHitField hitField2 = readSearchHitField(context.readSharedString(in), in);
             fields = ImmutableMap.of(hitField1.name(), hitField1, hitField2.name(), hitField2);
         } else if (size == 3) {
-            SearchHitField hitField1 = readSearchHitField(in);
-            SearchHitField hitField2 = readSearchHitField(in);
-            SearchHitField hitField3 = readSearchHitField(in);
+            SearchHitField hitField1 = readSearchHitField(context.readSharedString(in), in);
+            SearchHitField hitField2 = readSearchHitField(context.readSharedString(in), in);
+            SearchHitField hitField3 = readSearchHitField(context.readSharedString(in), in);
             fields = ImmutableMap.of(hitField1.name(), hitField1, hitField2.name(), hitField2, hitField3.name(), hitField3);
         } else if (size == 4) {
-            SearchHitField hitField1 = readSearchHitField(in);
-            SearchHitField hitField2 = readSearchHitField(in);
-            SearchHitField hitField3 = readSearchHitField(in);
-            SearchHitField hitField4 = readSearchHitField(in);
+            SearchHitField hitField1 = readSearchHitField(context.readSharedString(in), in);
+            SearchHitField hitField2 = readSearchHitField(context.readSharedString(in), in);
+            SearchHitField hitField3 = readSearchHitField(context.readSharedString(in), in);
+            SearchHitField hitField4 = readSearchHitField(context.readSharedString(in), in);
             fields = ImmutableMap.of(hitField1.name(), hitField1, hitField2.name(), hitField2, hitField3.name(), hitField3, hitField4.name(), hitField4);
         } else if (size == 5) {
-            SearchHitField hitField1 = readSearchHitField(in);
-            SearchHitField hitField2 = readSearchHitField(in);
-            SearchHitField hitField3 = readSearchHitField(in);
-            SearchHitField hitField4 = readSearchHitField(in);
-            SearchHitField hitField5 = readSearchHitField(in);
+            SearchHitField hitField1 = readSearchHitField(context.readSharedString(in), in);
+            SearchHitField hitField2 = readSearchHitField(context.readSharedString(in), in);
+            SearchHitField hitField3 = readSearchHitField(context.readSharedString(in), in);
+            SearchHitField hitField4 = readSearchHitField(context.readSharedString(in), in);
+            SearchHitField hitField5 = readSearchHitField(context.readSharedString(in), in);
             fields = ImmutableMap.of(hitField1.name(), hitField1, hitField2.name(), hitField2, hitField3.name(), hitField3, hitField4.name(), hitField4, hitField5.name(), hitField5);
         } else {
             ImmutableMap.Builder<String, SearchHitField> builder = ImmutableMap.builder();
             for (int i = 0; i < size; i++) {
-                SearchHitField hitField = readSearchHitField(in);
+                SearchHitField hitField = readSearchHitField(context.readSharedString(in), in);
                 builder.put(hitField.name(), hitField);
             }
             fields = builder.build();
@@ -608,27 +617,27 @@ public class InternalSearchHit implements SearchHit {
         if (size == 0) {
             highlightFields = ImmutableMap.of();
         } else if (size == 1) {
-            HighlightField field = readHighlightField(in);
+            HighlightField field = readHighlightField(context.readSharedString(in), in);
             highlightFields = ImmutableMap.of(field.name(), field);
         } else if (size == 2) {
-            HighlightField field1 = readHighlightField(in);
-            HighlightField field2 = readHighlightField(in);
+            HighlightField field1 = readHighlightField(context.readSharedString(in), in);
+            HighlightField field2 = readHighlightField(context.readSharedString(in), in);
             highlightFields = ImmutableMap.of(field1.name(), field1, field2.name(), field2);
         } else if (size == 3) {
-            HighlightField field1 = readHighlightField(in);
-            HighlightField field2 = readHighlightField(in);
-            HighlightField field3 = readHighlightField(in);
+            HighlightField field1 = readHighlightField(context.readSharedString(in), in);
+            HighlightField field2 = readHighlightField(context.readSharedString(in), in);
+            HighlightField field3 = readHighlightField(context.readSharedString(in), in);
             highlightFields = ImmutableMap.of(field1.name(), field1, field2.name(), field2, field3.name(), field3);
         } else if (size == 4) {
-            HighlightField field1 = readHighlightField(in);
-            HighlightField field2 = readHighlightField(in);
-            HighlightField field3 = readHighlightField(in);
-            HighlightField field4 = readHighlightField(in);
+            HighlightField field1 = readHighlightField(context.readSharedString(in), in);
+            HighlightField field2 = readHighlightField(context.readSharedString(in), in);
+            HighlightField field3 = readHighlightField(context.readSharedString(in), in);
+            HighlightField field4 = readHighlightField(context.readSharedString(in), in);
             highlightFields = ImmutableMap.of(field1.name(), field1, field2.name(), field2, field3.name(), field3, field4.name(), field4);
         } else {
             ImmutableMap.Builder<String, HighlightField> builder = ImmutableMap.builder();
             for (int i = 0; i < size; i++) {
-                HighlightField field = readHighlightField(in);
+                HighlightField field = readHighlightField(context.readSharedString(in), in);
                 builder.put(field.name(), field);
             }
             highlightFields = builder.build();
@@ -669,7 +678,7 @@ public class InternalSearchHit implements SearchHit {
         if (size > 0) {
             matchedQueries = new String[size];
             for (int i = 0; i < size; i++) {
-                matchedQueries[i] = in.readString();
+                matchedQueries[i] = context.readSharedString(in);
             }
         }
 
@@ -688,8 +697,9 @@ public class InternalSearchHit implements SearchHit {
         if (size > 0) {
             innerHits = new HashMap<>(size);
             for (int i = 0; i < size; i++) {
-                String key = in.readString();
-                InternalSearchHits value = InternalSearchHits.readSearchHits(in, InternalSearchHits.streamContext().streamShardTarget(InternalSearchHits.StreamContext.ShardTargetType.NO_STREAM));
+                String key = context.readSharedString(in);
+                // inner hits use their own context, the one of this hit is still in use
+                InternalSearchHits value = InternalSearchHits.readSearchHits(in, new InternalSearchHits.StreamContext().streamShardTarget(InternalSearchHits.StreamContext.ShardTargetType.NO_STREAM));
                 innerHits.put(key, value);
             }
         }
@@ -703,7 +713,7 @@ public class InternalSearchHit implements SearchHit {
     public void writeTo(StreamOutput out, InternalSearchHits.StreamContext context) throws IOException {
         out.writeFloat(score);
         out.writeText(id);
-        out.writeText(type);
+        context.writeSharedText(out, type);
         out.writeOptionalStreamable(nestedIdentity);
         out.writeLong(version);
         out.writeBytesReference(source);
@@ -718,7 +728,8 @@ public class InternalSearchHit implements SearchHit {
         } else {
             out.writeVInt(fields.size());
             for (SearchHitField hitField : fields().values()) {
-                hitField.writeTo(out);
+                context.writeSharedString(out, hitField.name());
+                ((InternalSearchHitField) hitField).writeValuesTo(out);
             }
         }
         if (highlightFields == null) {
@@ -726,7 +737,8 @@ public class InternalSearchHit implements SearchHit {
         } else {
             out.writeVInt(highlightFields.size());
             for (HighlightField highlightField : highlightFields.values()) {
-                highlightField.writeTo(out);
+                context.writeSharedString(out, highlightField.name());
+                highlightField.writeFragmentsTo(out);
             }
         }
 
@@ -778,7 +790,7 @@ public class InternalSearchHit implements SearchHit {
         } else {
             out.writeVInt(matchedQueries.length);
             for (String matchedFilter : matchedQueries) {
-                out.writeString(matchedFilter);
+                context.writeSharedString(out, matchedFilter);
             }
         }
 
@@ -802,8 +814,8 @@ public class InternalSearchHit implements SearchHit {
         } else {
             out.writeVInt(innerHits.size());
             for (Map.Entry<String, InternalSearchHits> entry : innerHits.entrySet()) {
-                out.writeString(entry.getKey());
-                entry.getValue().writeTo(out, InternalSearchHits.streamContext().streamShardTarget(InternalSearchHits.StreamContext.ShardTargetType.NO_STREAM));
+                context.writeSharedString(out, entry.getKey());
+                entry.getValue().writeTo(out, new InternalSearchHits.StreamContext().streamShardTarget(InternalSearchHits.StreamContext.ShardTargetType.NO_STREAM));
             }
         }
     }
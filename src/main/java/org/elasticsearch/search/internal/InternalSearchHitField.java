@@ -94,9 +94,23 @@ public class InternalSearchHitField implements SearchHitField {
         return result;
     }
 
+    /**
+     * Reads a field whose name has been read already, see {@link #writeValuesTo(StreamOutput)}.
+     */
+    public static InternalSearchHitField readSearchHitField(String name, StreamInput in) throws IOException {
+        InternalSearchHitField result = new InternalSearchHitField();
+        result.name = name;
+        result.readValuesFrom(in);
+        return result;
+    }
+
     @Override
     public void readFrom(StreamInput in) throws IOException {
         name = in.readString();
+        readValuesFrom(in);
+    }
+
+    private void readValuesFrom(StreamInput in) throws IOException {
         int size = in.readVInt();
         values = new ArrayList<>(size);
         for (int i = 0; i < size; i++) {
@@ -107,6 +121,13 @@ public class InternalSearchHitField implements SearchHitField {
     @Override
     public void writeTo(StreamOutput out) throws IOException {
         out.writeString(name);
+        writeValuesTo(out);
+    }
+
+    /**
+     * Writes the values of the field, without its name.
+     */
+    public void writeValuesTo(StreamOutput out) throws IOException {
         out.writeVInt(values.size());
         for (Object value : values) {
             out.writeGenericValue(value);
@@ -20,9 +20,12 @@
 package org.elasticsearch.search.internal;
 
 import com.carrotsearch.hppc.IntObjectOpenHashMap;
+import com.carrotsearch.hppc.ObjectIntOpenHashMap;
 import com.google.common.collect.Iterators;
 import org.elasticsearch.common.io.stream.StreamInput;
 import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.text.StringAndBytesText;
+import org.elasticsearch.common.text.Text;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentBuilderString;
 import org.elasticsearch.search.SearchHit;
@@ -30,8 +33,10 @@ import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.SearchShardTarget;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 import static org.elasticsearch.search.SearchShardTarget.readSearchShardTarget;
@@ -54,10 +59,17 @@ public class InternalSearchHits implements SearchHits {
         private IntObjectOpenHashMap<SearchShardTarget> handleShardLookup = new IntObjectOpenHashMap<>();
         private ShardTargetType streamShardTarget = ShardTargetType.STREAM;
 
+        // dictionary of the strings repeated across hits (types, field names...), a string is written in full
+        // the first time it is seen and referred to by its handle (starting from 1, 0 means a new string) afterwards
+        private ObjectIntOpenHashMap<String> stringHandleLookup = new ObjectIntOpenHashMap<>();
+        private List<Text> handleStringLookup = new ArrayList<>();
+
         public StreamContext reset() {
             shardHandleLookup.clear();
             handleShardLookup.clear();
             streamShardTarget = ShardTargetType.STREAM;
+            stringHandleLookup.clear();
+            handleStringLookup.clear();
             return this;
         }
 
@@ -77,6 +89,45 @@ public class InternalSearchHits implements SearchHits {
             this.streamShardTarget = streamShardTarget;
             return this;
         }
+
+        /**
+         * Writes a string that is likely to be repeated within the hits, only its first occurrence is written in full.
+         */
+        public void writeSharedString(StreamOutput out, String value) throws IOException {
+            int handle = stringHandleLookup.get(value);
+            if (handle == 0) {
+                out.writeVInt(0);
+                out.writeString(value);
+                stringHandleLookup.put(value, stringHandleLookup.size() + 1);
+            } else {
+                out.writeVInt(handle);
+            }
+        }
+
+        public void writeSharedText(StreamOutput out, Text value) throws IOException {
+            writeSharedString(out, value.string());
+        }
+
+        /**
+         * Reads a string written with {@link #writeSharedString(StreamOutput, String)}. The same instance is
+         * returned for all the occurrences of a string.
+         */
+        public Text readSharedText(StreamInput in) throws IOException {
+            int handle = in.readVInt();
+            if (handle == 0) {
+                Text value = new StringAndBytesText(in.readString());
+                handleStringLookup.add(value);
+                return value;
+            }
+            if (handle > handleStringLookup.size()) {
+                throw new IOException("unknown shared string handle [" + handle + "]");
+            }
+            return handleStringLookup.get(handle - 1);
+        }
+
+        public String readSharedString(StreamInput in) throws IOException {
+            return readSharedText(in).string();
+        }
     }
 
     private static final ThreadLocal<StreamContext> cache = new ThreadLocal<StreamContext>() {
@@ -163,6 +214,12 @@ public class InternalSearchHits implements SearchHits {
         return this.hits;
     }
 
+    /**
+     * When set, the source of each hit is released once it has been rendered. Used when the rendered
+     * response is streamed, so the sources of the hits already sent can be garbage collected early.
+     */
+    public static final String RELEASE_SOURCES_PARAM = "search.hits.release_sources";
+
     static final class Fields {
         static final XContentBuilderString HITS = new XContentBuilderString("hits");
         static final XContentBuilderString TOTAL = new XContentBuilderString("total");
@@ -171,6 +228,16 @@ public class InternalSearchHits implements SearchHits {
 
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        toXContentStart(builder, params);
+        toXContentHits(builder, params, 0, hits.length);
+        toXContentEnd(builder, params);
+        return builder;
+    }
+
+    /**
+     * Renders the beginning of {@link #toXContent(XContentBuilder, Params)}, up to the start of the hits array.
+     */
+    public void toXContentStart(XContentBuilder builder, Params params) throws IOException {
         builder.startObject(Fields.HITS);
         builder.field(Fields.TOTAL, totalHits);
         if (Float.isNaN(maxScore)) {
@@ -180,12 +247,27 @@ public class InternalSearchHits implements SearchHits {
         }
         builder.field(Fields.HITS);
         builder.startArray();
-        for (SearchHit hit : hits) {
-            hit.toXContent(builder, params);
+    }
+
+    /**
+     * Renders the hits from <tt>from</tt> (inclusive) to <tt>to</tt> (exclusive) as elements of the hits array.
+     */
+    public void toXContentHits(XContentBuilder builder, Params params, int from, int to) throws IOException {
+        boolean releaseSources = params.paramAsBoolean(RELEASE_SOURCES_PARAM, false);
+        for (int i = from; i < to; i++) {
+            hits[i].toXContent(builder, params);
+            if (releaseSources) {
+                hits[i].releaseSource();
+            }
         }
+    }
+
+    /**
+     * Renders the end of {@link #toXContent(XContentBuilder, Params)}, after the last hit.
+     */
+    public void toXContentEnd(XContentBuilder builder, Params params) throws IOException {
         builder.endArray();
         builder.endObject();
-        return builder;
     }
 
     public static InternalSearchHits readSearchHits(StreamInput in, StreamContext context) throws IOException {
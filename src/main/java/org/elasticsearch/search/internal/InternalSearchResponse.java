@@ -84,16 +84,27 @@ public class InternalSearchResponse implements Streamable, ToXContent {
         return suggest;
     }
 
+    public InternalSearchHits internalHits() {
+        return hits;
+    }
+
     @Override
     public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
         hits.toXContent(builder, params);
+        toXContentAfterHits(builder, params);
+        return builder;
+    }
+
+    /**
+     * Renders the part of {@link #toXContent(XContentBuilder, Params)} that follows the hits.
+     */
+    public void toXContentAfterHits(XContentBuilder builder, Params params) throws IOException {
         if (aggregations != null) {
             aggregations.toXContent(builder, params);
         }
         if (suggest != null) {
             suggest.toXContent(builder, params);
         }
-        return builder;
     }
 
     public static InternalSearchResponse readInternalSearchResponse(StreamInput in) throws IOException {
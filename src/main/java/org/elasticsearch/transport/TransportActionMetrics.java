@@ -0,0 +1,81 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.metrics.CounterMetric;
+import org.elasticsearch.common.metrics.HistogramMetric;
+import org.elasticsearch.common.metrics.MeanMetric;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per action transport metrics. Lookups are lock free, an entry is only created (with a put if absent)
+ * the first time an action is seen.
+ */
+final class TransportActionMetrics {
+
+    /**
+     * The inclusive upper bounds, in milliseconds, of the response time histogram
+     */
+    static final long[] RESPONSE_TIME_BOUNDS = new long[]{1, 5, 10, 50, 100, 500, 1000, 5000, 10000, 30000};
+
+    private final ConcurrentMap<String, ActionMetric> metrics = ConcurrentCollections.newConcurrentMap();
+
+    ActionMetric metric(String action) {
+        ActionMetric metric = metrics.get(action);
+        if (metric == null) {
+            metric = new ActionMetric();
+            ActionMetric existing = metrics.putIfAbsent(action, metric);
+            if (existing != null) {
+                metric = existing;
+            }
+        }
+        return metric;
+    }
+
+    void clear() {
+        metrics.clear();
+    }
+
+    TransportActionStats[] stats() {
+        List<TransportActionStats> stats = new ArrayList<>(metrics.size());
+        for (Map.Entry<String, ActionMetric> entry : metrics.entrySet()) {
+            ActionMetric metric = entry.getValue();
+            stats.add(new TransportActionStats(entry.getKey(), metric.sent.count(), metric.sent.sum(), metric.sentInFlight.count(),
+                    metric.responseTime.bounds(), metric.responseTime.counts(), metric.responseTime.sum(),
+                    metric.received.count(), metric.received.sum(), metric.receivedInFlight.count(), metric.responseSize.count()));
+        }
+        return stats.toArray(new TransportActionStats[stats.size()]);
+    }
+
+    static final class ActionMetric {
+        final MeanMetric sent = new MeanMetric();
+        final CounterMetric sentInFlight = new CounterMetric();
+        final HistogramMetric responseTime = new HistogramMetric(RESPONSE_TIME_BOUNDS);
+
+        final MeanMetric received = new MeanMetric();
+        final CounterMetric receivedInFlight = new CounterMetric();
+        final CounterMetric responseSize = new CounterMetric();
+    }
+}
@@ -0,0 +1,250 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.transport;
+
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.io.stream.StreamOutput;
+import org.elasticsearch.common.io.stream.Streamable;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentBuilderString;
+
+import java.io.IOException;
+
+/**
+ * Transport level statistics of a single action. The sent side covers requests this node sent for
+ * the action and the responses it waited for, the received side covers requests this node handled.
+ */
+public class TransportActionStats implements Streamable, ToXContent {
+
+    private String action;
+
+    private long sentCount;
+    private long sentSize;
+    private long sentInFlight;
+    private long[] responseTimeBounds;
+    private long[] responseTimeCounts;
+    private long responseTimeInMillis;
+
+    private long receivedCount;
+    private long receivedSize;
+    private long receivedInFlight;
+    private long responseSize;
+
+    TransportActionStats() {
+
+    }
+
+    public TransportActionStats(String action, long sentCount, long sentSize, long sentInFlight,
+                                long[] responseTimeBounds, long[] responseTimeCounts, long responseTimeInMillis,
+                                long receivedCount, long receivedSize, long receivedInFlight, long responseSize) {
+        assert responseTimeCounts.length == responseTimeBounds.length + 1;
+        this.action = action;
+        this.sentCount = sentCount;
+        this.sentSize = sentSize;
+        this.sentInFlight = sentInFlight;
+        this.responseTimeBounds = responseTimeBounds;
+        this.responseTimeCounts = responseTimeCounts;
+        this.responseTimeInMillis = responseTimeInMillis;
+        this.receivedCount = receivedCount;
+        this.receivedSize = receivedSize;
+        this.receivedInFlight = receivedInFlight;
+        this.responseSize = responseSize;
+    }
+
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * The number of requests sent by this node for the action.
+     */
+    public long getSentCount() {
+        return sentCount;
+    }
+
+    public ByteSizeValue getSentSize() {
+        return new ByteSizeValue(sentSize);
+    }
+
+    /**
+     * The number of requests sent by this node that are still waiting for a response.
+     */
+    public long getSentInFlight() {
+        return sentInFlight;
+    }
+
+    /**
+     * The number of responses (including failures) received for requests sent by this node.
+     */
+    public long getResponseCount() {
+        long count = 0;
+        for (long bucket : responseTimeCounts) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    public TimeValue getResponseTime() {
+        return new TimeValue(responseTimeInMillis);
+    }
+
+    /**
+     * The average time it took to get a response for a request sent by this node.
+     */
+    public TimeValue getAvgResponseTime() {
+        long count = getResponseCount();
+        return new TimeValue(count == 0 ? 0 : responseTimeInMillis / count);
+    }
+
+    /**
+     * The inclusive upper bounds, in milliseconds, of the response time histogram buckets.
+     */
+    public long[] getResponseTimeBounds() {
+        return responseTimeBounds;
+    }
+
+    /**
+     * The counts of the response time histogram, the last entry counts responses slower than the last bound.
+     */
+    public long[] getResponseTimeCounts() {
+        return responseTimeCounts;
+    }
+
+    /**
+     * The number of requests received by this node for the action.
+     */
+    public long getReceivedCount() {
+        return receivedCount;
+    }
+
+    public ByteSizeValue getReceivedSize() {
+        return new ByteSizeValue(receivedSize);
+    }
+
+    /**
+     * The number of requests received by this node that have not been responded to yet.
+     */
+    public long getReceivedInFlight() {
+        return receivedInFlight;
+    }
+
+    /**
+     * The size of the responses this node sent for received requests.
+     */
+    public ByteSizeValue getResponseSize() {
+        return new ByteSizeValue(responseSize);
+    }
+
+    public static TransportActionStats readTransportActionStats(StreamInput in) throws IOException {
+        TransportActionStats stats = new TransportActionStats();
+        stats.readFrom(in);
+        return stats;
+    }
+
+    @Override
+    public void readFrom(StreamInput in) throws IOException {
+        action = in.readString();
+        sentCount = in.readVLong();
+        sentSize = in.readVLong();
+        sentInFlight = in.readVLong();
+        responseTimeBounds = new long[in.readVInt()];
+        for (int i = 0; i < responseTimeBounds.length; i++) {
+            responseTimeBounds[i] = in.readVLong();
+        }
+        responseTimeCounts = new long[responseTimeBounds.length + 1];
+        for (int i = 0; i < responseTimeCounts.length; i++) {
+            responseTimeCounts[i] = in.readVLong();
+        }
+        responseTimeInMillis = in.readVLong();
+        receivedCount = in.readVLong();
+        receivedSize = in.readVLong();
+        receivedInFlight = in.readVLong();
+        responseSize = in.readVLong();
+    }
+
+    @Override
+    public void writeTo(StreamOutput out) throws IOException {
+        out.writeString(action);
+        out.writeVLong(sentCount);
+        out.writeVLong(sentSize);
+        out.writeVLong(sentInFlight);
+        out.writeVInt(responseTimeBounds.length);
+        for (long bound : responseTimeBounds) {
+            out.writeVLong(bound);
+        }
+        for (long count : responseTimeCounts) {
+            out.writeVLong(count);
+        }
+        out.writeVLong(responseTimeInMillis);
+        out.writeVLong(receivedCount);
+        out.writeVLong(receivedSize);
+        out.writeVLong(receivedInFlight);
+        out.writeVLong(responseSize);
+    }
+
+    @Override
+    public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+        builder.startObject(action);
+
+        builder.startObject(Fields.SENT);
+        builder.field(Fields.COUNT, sentCount);
+        builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, sentSize);
+        builder.field(Fields.IN_FLIGHT, sentInFlight);
+        builder.startObject(Fields.RESPONSE_TIME);
+        builder.field(Fields.COUNT, getResponseCount());
+        builder.timeValueField(Fields.TIME_IN_MILLIS, Fields.TIME, responseTimeInMillis);
+        builder.startObject(Fields.HISTOGRAM);
+        for (int i = 0; i < responseTimeBounds.length; i++) {
+            builder.field(new TimeValue(responseTimeBounds[i]).toString(), responseTimeCounts[i]);
+        }
+        builder.field("+inf", responseTimeCounts[responseTimeBounds.length]);
+        builder.endObject();
+        builder.endObject();
+        builder.endObject();
+
+        builder.startObject(Fields.RECEIVED);
+        builder.field(Fields.COUNT, receivedCount);
+        builder.byteSizeField(Fields.SIZE_IN_BYTES, Fields.SIZE, receivedSize);
+        builder.field(Fields.IN_FLIGHT, receivedInFlight);
+        builder.byteSizeField(Fields.RESPONSE_SIZE_IN_BYTES, Fields.RESPONSE_SIZE, responseSize);
+        builder.endObject();
+
+        builder.endObject();
+        return builder;
+    }
+
+    static final class Fields {
+        static final XContentBuilderString SENT = new XContentBuilderString("sent");
+        static final XContentBuilderString RECEIVED = new XContentBuilderString("received");
+        static final XContentBuilderString COUNT = new XContentBuilderString("count");
+        static final XContentBuilderString SIZE = new XContentBuilderString("size");
+        static final XContentBuilderString SIZE_IN_BYTES = new XContentBuilderString("size_in_bytes");
+        static final XContentBuilderString IN_FLIGHT = new XContentBuilderString("in_flight");
+        static final XContentBuilderString RESPONSE_TIME = new XContentBuilderString("response_time");
+        static final XContentBuilderString TIME = new XContentBuilderString("time");
+        static final XContentBuilderString TIME_IN_MILLIS = new XContentBuilderString("time_in_millis");
+        static final XContentBuilderString HISTOGRAM = new XContentBuilderString("histogram");
+        static final XContentBuilderString RESPONSE_SIZE = new XContentBuilderString("response_size");
+        static final XContentBuilderString RESPONSE_SIZE_IN_BYTES = new XContentBuilderString("response_size_in_bytes");
+    }
+}
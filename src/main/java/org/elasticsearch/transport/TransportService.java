@@ -47,6 +47,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -81,6 +82,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
     private final TransportService.Adapter adapter;
 
+    final TransportActionMetrics actionMetrics = new TransportActionMetrics();
+
     // tracer log
 
     public static final String SETTING_TRACE_LOG_INCLUDE = "transport.tracer.include";
@@ -163,6 +166,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
     protected void doStart() throws ElasticsearchException {
         adapter.rxMetric.clear();
         adapter.txMetric.clear();
+        actionMetrics.clear();
         transport.transportServiceAdapter(adapter);
         transport.start();
         if (transport.boundAddress() != null && logger.isInfoEnabled()) {
@@ -184,6 +188,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             for (Map.Entry<Long, RequestHolder> entry : clientHandlers.entrySet()) {
                 final RequestHolder holderToNotify = clientHandlers.remove(entry.getKey());
                 if (holderToNotify != null) {
+                    onRequestCompleted(holderToNotify, false);
                     // callback that an exception happened, but on a different thread since we don't
                     // want handlers to worry about stack overflows
                     threadPool.generic().execute(new Runnable() {
@@ -215,7 +220,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
     }
 
     public TransportStats stats() {
-        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum());
+        return new TransportStats(transport.serverOpen(), adapter.rxMetric.count(), adapter.rxMetric.sum(), adapter.txMetric.count(), adapter.txMetric.sum(),
+                actionMetrics.stats());
     }
 
     public BoundTransportAddress boundAddress() {
@@ -286,6 +292,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             } else {
                 timeoutHandler = new TimeoutHandler(requestId);
             }
+            actionMetrics.metric(action).sentInFlight.inc();
             clientHandlers.put(requestId, new RequestHolder<>(handler, node, action, timeoutHandler));
             if (started.get() == false) {
                 // if we are not started the exception handling will remove the RequestHolder again and calls the handler to notify the caller.
@@ -308,6 +315,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             // If holderToNotify == null then handler has already been taken care of.
             if (holderToNotify != null) {
                 holderToNotify.cancelTimeout();
+                onRequestCompleted(holderToNotify, false);
                 // callback that an exception happened, but on a different thread since we don't
                 // want handlers to worry about stack overflows
                 final SendRequestTransportException sendRequestException = new SendRequestTransportException(node, action, e);
@@ -368,6 +376,18 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
     }
 
+    /**
+     * Updates the per action metrics once a request holder has been removed from {@link #clientHandlers}. The
+     * response time is only recorded if a response (or remote failure) was actually received.
+     */
+    private void onRequestCompleted(RequestHolder holder, boolean responseReceived) {
+        TransportActionMetrics.ActionMetric metric = actionMetrics.metric(holder.action());
+        metric.sentInFlight.dec();
+        if (responseReceived) {
+            metric.responseTime.inc(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - holder.sentTimeNanos()));
+        }
+    }
+
     private boolean shouldTraceAction(String action) {
         if (tracerLogInclude.length > 0) {
             if (Regex.simpleMatch(tracerLogInclude, action) == false) {
@@ -443,6 +463,26 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             txMetric.inc(size);
         }
 
+        @Override
+        public void requestSent(String action, long size) {
+            actionMetrics.metric(action).sent.inc(size);
+        }
+
+        @Override
+        public void requestReceived(String action, long size) {
+            // only track registered actions, so unknown actions sent by remote nodes can't fill up the metrics
+            if (requestHandlers.containsKey(action)) {
+                actionMetrics.metric(action).received.inc(size);
+            }
+        }
+
+        @Override
+        public void responseSent(String action, long size) {
+            if (requestHandlers.containsKey(action)) {
+                actionMetrics.metric(action).responseSize.inc(size);
+            }
+        }
+
         @Override
         public void onRequestSent(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options) {
             if (traceEnabled() && shouldTraceAction(action)) {
@@ -456,6 +496,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         @Override
         public void onResponseSent(long requestId, String action, TransportResponse response, TransportResponseOptions options) {
+            onReceivedRequestCompleted(action);
             if (traceEnabled() && shouldTraceAction(action)) {
                 traceResponseSent(requestId, action);
             }
@@ -463,6 +504,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         @Override
         public void onResponseSent(long requestId, String action, Throwable t) {
+            onReceivedRequestCompleted(action);
             if (traceEnabled() && shouldTraceAction(action)) {
                 traceResponseSent(requestId, action, t);
             }
@@ -472,8 +514,17 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             tracerLog.trace("[{}][{}] sent error response (error: [{}])", requestId, action, t.getMessage());
         }
 
+        private void onReceivedRequestCompleted(String action) {
+            if (requestHandlers.containsKey(action)) {
+                actionMetrics.metric(action).receivedInFlight.dec();
+            }
+        }
+
         @Override
         public void onRequestReceived(long requestId, String action) {
+            if (requestHandlers.containsKey(action)) {
+                actionMetrics.metric(action).receivedInFlight.inc();
+            }
             if (traceEnabled() && shouldTraceAction(action)) {
                 traceReceivedRequest(requestId, action);
             }
@@ -492,6 +543,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
                 return null;
             }
             holder.cancelTimeout();
+            onRequestCompleted(holder, true);
             if (traceEnabled() && shouldTraceAction(holder.action())) {
                 traceReceivedResponse(requestId, holder.node(), holder.action());
             }
@@ -554,6 +606,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
                     if (holder.node().equals(node)) {
                         final RequestHolder holderToNotify = clientHandlers.remove(entry.getKey());
                         if (holderToNotify != null) {
+                            onRequestCompleted(holderToNotify, false);
                             // callback that an exception happened, but on a different thread since we don't
                             // want handlers to worry about stack overflows
                             threadPool.generic().execute(new Runnable() {
@@ -616,6 +669,7 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
                 final RequestHolder removedHolder = clientHandlers.remove(requestId);
                 if (removedHolder != null) {
                     assert removedHolder == holder : "two different holder instances for request [" + requestId + "]";
+                    onRequestCompleted(removedHolder, false);
                     removedHolder.handler().handleException(new ReceiveTimeoutTransportException(holder.node(), holder.action(), "request_id [" + requestId + "] timed out after [" + (timeoutTime - sentTime) + "ms]"));
                 } else {
                     // response was processed, remove timeout info.
@@ -675,6 +729,8 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
 
         private final TimeoutHandler timeoutHandler;
 
+        private final long sentTimeNanos = System.nanoTime();
+
         RequestHolder(TransportResponseHandler<T> handler, DiscoveryNode node, String action, TimeoutHandler timeoutHandler) {
             this.handler = handler;
             this.node = node;
@@ -694,6 +750,10 @@ public class TransportService extends AbstractLifecycleComponent<TransportServic
             return this.action;
         }
 
+        public long sentTimeNanos() {
+            return sentTimeNanos;
+        }
+
         public void cancelTimeout() {
             if (timeoutHandler != null) {
                 timeoutHandler.cancel();
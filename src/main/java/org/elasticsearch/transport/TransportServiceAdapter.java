@@ -30,6 +30,15 @@ public interface TransportServiceAdapter {
 
     void sent(long size);
 
+    /** called by the {@link Transport} implementation with the serialized size of a request sent for the given action */
+    void requestSent(String action, long size);
+
+    /** called by the {@link Transport} implementation with the serialized size of a request received for the given action */
+    void requestReceived(String action, long size);
+
+    /** called by the {@link Transport} implementation with the serialized size of a response sent for the given action */
+    void responseSent(String action, long size);
+
     /** called by the {@link Transport} implementation once a request has been sent */
     void onRequestSent(DiscoveryNode node, long requestId, String action, TransportRequest request, TransportRequestOptions options);
 
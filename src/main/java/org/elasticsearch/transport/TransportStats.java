@@ -36,17 +36,23 @@ public class TransportStats implements Streamable, ToXContent {
     private long rxSize;
     private long txCount;
     private long txSize;
+    private TransportActionStats[] actions;
 
     TransportStats() {
 
     }
 
     public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize) {
+        this(serverOpen, rxCount, rxSize, txCount, txSize, new TransportActionStats[0]);
+    }
+
+    public TransportStats(long serverOpen, long rxCount, long rxSize, long txCount, long txSize, TransportActionStats[] actions) {
         this.serverOpen = serverOpen;
         this.rxCount = rxCount;
         this.rxSize = rxSize;
         this.txCount = txCount;
         this.txSize = txSize;
+        this.actions = actions;
     }
 
     public long serverOpen() {
@@ -89,6 +95,17 @@ public class TransportStats implements Streamable, ToXContent {
         return txSize();
     }
 
+    /**
+     * Per action statistics, only actions that have been sent or received by this node are included.
+     */
+    public TransportActionStats[] actions() {
+        return actions;
+    }
+
+    public TransportActionStats[] getActions() {
+        return actions();
+    }
+
     public static TransportStats readTransportStats(StreamInput in) throws IOException {
         TransportStats stats = new TransportStats();
         stats.readFrom(in);
@@ -102,6 +119,10 @@ public class TransportStats implements Streamable, ToXContent {
         rxSize = in.readVLong();
         txCount = in.readVLong();
         txSize = in.readVLong();
+        actions = new TransportActionStats[in.readVInt()];
+        for (int i = 0; i < actions.length; i++) {
+            actions[i] = TransportActionStats.readTransportActionStats(in);
+        }
     }
 
     @Override
@@ -111,6 +132,10 @@ public class TransportStats implements Streamable, ToXContent {
         out.writeVLong(rxSize);
         out.writeVLong(txCount);
         out.writeVLong(txSize);
+        out.writeVInt(actions.length);
+        for (TransportActionStats action : actions) {
+            action.writeTo(out);
+        }
     }
 
     @Override
@@ -121,6 +146,13 @@ public class TransportStats implements Streamable, ToXContent {
         builder.byteSizeField(Fields.RX_SIZE_IN_BYTES, Fields.RX_SIZE, rxSize);
         builder.field(Fields.TX_COUNT, txCount);
         builder.byteSizeField(Fields.TX_SIZE_IN_BYTES, Fields.TX_SIZE, txSize);
+        if (actions.length > 0) {
+            builder.startObject(Fields.ACTIONS);
+            for (TransportActionStats action : actions) {
+                action.toXContent(builder, params);
+            }
+            builder.endObject();
+        }
         builder.endObject();
         return builder;
     }
@@ -134,5 +166,6 @@ public class TransportStats implements Streamable, ToXContent {
         static final XContentBuilderString TX_COUNT = new XContentBuilderString("tx_count");
         static final XContentBuilderString TX_SIZE = new XContentBuilderString("tx_size");
         static final XContentBuilderString TX_SIZE_IN_BYTES = new XContentBuilderString("tx_size_in_bytes");
+        static final XContentBuilderString ACTIONS = new XContentBuilderString("actions");
     }
 }
\ No newline at end of file
@@ -207,6 +207,7 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
             final byte[] data = stream.bytes().toBytes();
 
             transportServiceAdapter.sent(data.length);
+            transportServiceAdapter.requestSent(action, data.length);
             transportServiceAdapter.onRequestSent(node, requestId, action, request, options);
             targetTransport.workers().execute(new Runnable() {
                 @Override
@@ -233,7 +234,7 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
             boolean isRequest = TransportStatus.isRequest(status);
 
             if (isRequest) {
-                handleRequest(stream, requestId, sourceTransport, version);
+                handleRequest(stream, requestId, data.length, sourceTransport, version);
             } else {
                 final TransportResponseHandler handler = transportServiceAdapter.onResponseReceived(requestId);
                 // ignore if its null, the adapter logs it
@@ -257,8 +258,9 @@ public class LocalTransport extends AbstractLifecycleComponent<Transport> implem
         }
     }
 
-    private void handleRequest(StreamInput stream, long requestId, LocalTransport sourceTransport, Version version) throws Exception {
+    private void handleRequest(StreamInput stream, long requestId, long messageSize, LocalTransport sourceTransport, Version version) throws Exception {
         final String action = stream.readString();
+        transportServiceAdapter.requestReceived(action, messageSize);
         transportServiceAdapter.onRequestReceived(requestId, action);
         final LocalTransportChannel transportChannel = new LocalTransportChannel(this, transportServiceAdapter, sourceTransport, action, requestId, version);
         try {
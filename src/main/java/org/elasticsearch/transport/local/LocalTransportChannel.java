@@ -77,6 +77,7 @@ public class LocalTransportChannel implements TransportChannel {
                     targetTransport.messageReceived(data, action, sourceTransport, version, null);
                 }
             });
+            sourceTransportServiceAdapter.responseSent(action, data.length);
             sourceTransportServiceAdapter.onResponseSent(requestId, action, response, options);
         }
     }
@@ -105,6 +106,7 @@ public class LocalTransportChannel implements TransportChannel {
                 targetTransport.messageReceived(data, action, sourceTransport, version, null);
             }
         });
+        sourceTransportServiceAdapter.responseSent(action, data.length);
         sourceTransportServiceAdapter.onResponseSent(requestId, action, error);
     }
 
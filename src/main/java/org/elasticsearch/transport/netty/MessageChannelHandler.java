@@ -76,74 +76,85 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         int size = buffer.getInt(buffer.readerIndex() - 4);
         transportServiceAdapter.received(size + 6);
 
-        // we have additional bytes to read, outside of the header
-        boolean hasMessageBytesToRead = (size - (NettyHeader.HEADER_SIZE - 6)) != 0;
+        // the frame bytes of requests were reserved by the size header decoder, they are handed over to their
+        // transport channel, responses are not accounted for
+        boolean releaseFrameBytes = false;
+        try {
+            // we have additional bytes to read, outside of the header
+            boolean hasMessageBytesToRead = (size - (NettyHeader.HEADER_SIZE - 6)) != 0;
 
-        int markedReaderIndex = buffer.readerIndex();
-        int expectedIndexReader = markedReaderIndex + size;
+            int markedReaderIndex = buffer.readerIndex();
+            int expectedIndexReader = markedReaderIndex + size;
 
-        // netty always copies a buffer, either in NioWorker in its read handler, where it copies to a fresh
-        // buffer, or in the cumlation buffer, which is cleaned each time
-        StreamInput streamIn = ChannelBufferStreamInputFactory.create(buffer, size);
+            // netty always copies a buffer, either in NioWorker in its read handler, where it copies to a fresh
+            // buffer, or in the cumlation buffer, which is cleaned each time
+            StreamInput streamIn = ChannelBufferStreamInputFactory.create(buffer, size);
 
-        long requestId = buffer.readLong();
-        byte status = buffer.readByte();
-        Version version = Version.fromId(buffer.readInt());
+            long requestId = buffer.readLong();
+            byte status = buffer.readByte();
+            releaseFrameBytes = TransportStatus.isRequest(status);
+            Version version = Version.fromId(buffer.readInt());
 
-        StreamInput wrappedStream;
-        if (TransportStatus.isCompress(status) && hasMessageBytesToRead && buffer.readable()) {
-            Compressor compressor = CompressorFactory.compressor(buffer);
-            if (compressor == null) {
-                int maxToRead = Math.min(buffer.readableBytes(), 10);
-                int offset = buffer.readerIndex();
-                StringBuilder sb = new StringBuilder("stream marked as compressed, but no compressor found, first [").append(maxToRead).append("] content bytes out of [").append(buffer.readableBytes()).append("] readable bytes with message size [").append(size).append("] ").append("] are [");
-                for (int i = 0; i < maxToRead; i++) {
-                    sb.append(buffer.getByte(offset + i)).append(",");
+            StreamInput wrappedStream;
+            if (TransportStatus.isCompress(status) && hasMessageBytesToRead && buffer.readable()) {
+                Compressor compressor = CompressorFactory.compressor(buffer);
+                if (compressor == null) {
+                    int maxToRead = Math.min(buffer.readableBytes(), 10);
+                    int offset = buffer.readerIndex();
+                    StringBuilder sb = new StringBuilder("stream marked as compressed, but no compressor found, first [").append(maxToRead).append("] content bytes out of [").append(buffer.readableBytes()).append("] readable bytes with message size [").append(size).append("] ").append("] are [");
+                    for (int i = 0; i < maxToRead; i++) {
+                        sb.append(buffer.getByte(offset + i)).append(",");
+                    }
+                    sb.append("]");
+                    throw new ElasticsearchIllegalStateException(sb.toString());
                 }
-                sb.append("]");
-                throw new ElasticsearchIllegalStateException(sb.toString());
+                wrappedStream = compressor.streamInput(streamIn);
+            } else {
+                wrappedStream = streamIn;
             }
-            wrappedStream = compressor.streamInput(streamIn);
-        } else {
-            wrappedStream = streamIn;
-        }
-        wrappedStream.setVersion(version);
+            wrappedStream.setVersion(version);
 
-        if (TransportStatus.isRequest(status)) {
-            String action = handleRequest(ctx.getChannel(), wrappedStream, requestId, version);
-            if (buffer.readerIndex() != expectedIndexReader) {
-                if (buffer.readerIndex() < expectedIndexReader) {
-                    logger.warn("Message not fully read (request) for requestId [{}], action [{}], readerIndex [{}] vs expected [{}]; resetting",
-                                requestId, action, buffer.readerIndex(), expectedIndexReader);
-                } else {
-                    logger.warn("Message read past expected size (request) for requestId=[{}], action [{}], readerIndex [{}] vs expected [{}]; resetting",
-                                requestId, action, buffer.readerIndex(), expectedIndexReader);
-                }
-                buffer.readerIndex(expectedIndexReader);
-            }
-        } else {
-            TransportResponseHandler handler = transportServiceAdapter.onResponseReceived(requestId);
-            // ignore if its null, the adapter logs it
-            if (handler != null) {
-                if (TransportStatus.isError(status)) {
-                    handlerResponseError(wrappedStream, handler);
-                } else {
-                    handleResponse(ctx.getChannel(), wrappedStream, handler);
+            if (TransportStatus.isRequest(status)) {
+                releaseFrameBytes = false;
+                String action = handleRequest(ctx.getChannel(), wrappedStream, requestId, size + 6, version);
+                if (buffer.readerIndex() != expectedIndexReader) {
+                    if (buffer.readerIndex() < expectedIndexReader) {
+                        logger.warn("Message not fully read (request) for requestId [{}], action [{}], readerIndex [{}] vs expected [{}]; resetting",
+                                    requestId, action, buffer.readerIndex(), expectedIndexReader);
+                    } else {
+                        logger.warn("Message read past expected size (request) for requestId=[{}], action [{}], readerIndex [{}] vs expected [{}]; resetting",
+                                    requestId, action, buffer.readerIndex(), expectedIndexReader);
+                    }
+                    buffer.readerIndex(expectedIndexReader);
                 }
             } else {
-                // if its null, skip those bytes
-                buffer.readerIndex(markedReaderIndex + size);
-            }
-            if (buffer.readerIndex() != expectedIndexReader) {
-                if (buffer.readerIndex() < expectedIndexReader) {
-                    logger.warn("Message not fully read (response) for [{}] handler {}, error [{}], resetting", requestId, handler, TransportStatus.isError(status));
+                TransportResponseHandler handler = transportServiceAdapter.onResponseReceived(requestId);
+                // ignore if its null, the adapter logs it
+                if (handler != null) {
+                    if (TransportStatus.isError(status)) {
+                        handlerResponseError(wrappedStream, handler);
+                    } else {
+                        handleResponse(ctx.getChannel(), wrappedStream, handler);
+                    }
                 } else {
-                    logger.warn("Message read past expected size (response) for [{}] handler {}, error [{}], resetting", requestId, handler, TransportStatus.isError(status));
+                    // if its null, skip those bytes
+                    buffer.readerIndex(markedReaderIndex + size);
+                }
+                if (buffer.readerIndex() != expectedIndexReader) {
+                    if (buffer.readerIndex() < expectedIndexReader) {
+                        logger.warn("Message not fully read (response) for [{}] handler {}, error [{}], resetting", requestId, handler, TransportStatus.isError(status));
+                    } else {
+                        logger.warn("Message read past expected size (response) for [{}] handler {}, error [{}], resetting", requestId, handler, TransportStatus.isError(status));
+                    }
+                    buffer.readerIndex(expectedIndexReader);
                 }
-                buffer.readerIndex(expectedIndexReader);
+            }
+            wrappedStream.close();
+        } finally {
+            if (releaseFrameBytes) {
+                transport.releaseInFlightBytes(size + 6);
             }
         }
-        wrappedStream.close();
     }
 
     protected void handleResponse(Channel channel, StreamInput buffer, final TransportResponseHandler handler) {
@@ -204,15 +215,30 @@ public class MessageChannelHandler extends SimpleChannelUpstreamHandler {
         }
     }
 
-    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version) throws IOException {
-        final String action = buffer.readString();
+    /**
+     * Handles an incoming request. The in flight bytes of the message are released by the transport channel
+     * once a response has been sent.
+     */
+    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, long messageSize, Version version) throws IOException {
+        final String action;
+        try {
+            action = buffer.readString();
+        } catch (IOException e) {
+            transport.releaseInFlightBytes(messageSize);
+            throw e;
+        }
+        transportServiceAdapter.requestReceived(action, messageSize);
         transportServiceAdapter.onRequestReceived(requestId, action);
-        final NettyTransportChannel transportChannel = new NettyTransportChannel(transport, transportServiceAdapter, action, channel, requestId, version, profileName);
+        final NettyTransportChannel transportChannel = new NettyTransportChannel(transport, transportServiceAdapter, action, channel, requestId, version, profileName, messageSize);
         try {
             final RequestHandlerRegistry reg = transportServiceAdapter.getRequestHandler(action);
             if (reg == null) {
                 throw new ActionNotFoundTransportException(action);
             }
+            if (reg.isForceExecution() == false && ThreadPool.Names.SAME.equals(reg.getExecutor()) == false) {
+                // light weight and must not fail requests (e.g. pings, replication) are never rejected
+                transport.checkInFlightRequestsLimit(action);
+            }
             final TransportRequest request = reg.newRequest();
             request.remoteAddress(new InetSocketTransportAddress((InetSocketAddress) channel.getRemoteAddress()));
             request.readFrom(buffer);
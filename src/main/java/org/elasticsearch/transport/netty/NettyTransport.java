@@ -28,6 +28,8 @@ import org.elasticsearch.*;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.Booleans;
 import org.elasticsearch.common.Strings;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.bytes.ReleasablePagedBytesReference;
 import org.elasticsearch.common.component.AbstractLifecycleComponent;
 import org.elasticsearch.common.compress.CompressorFactory;
@@ -48,11 +50,15 @@ import org.elasticsearch.common.transport.BoundTransportAddress;
 import org.elasticsearch.common.transport.InetSocketTransportAddress;
 import org.elasticsearch.common.transport.PortsRange;
 import org.elasticsearch.common.transport.TransportAddress;
+import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.common.util.concurrent.ConcurrentCollections;
 import org.elasticsearch.common.util.concurrent.EsExecutors;
 import org.elasticsearch.common.util.concurrent.KeyedLock;
+import org.elasticsearch.indices.breaker.CircuitBreakerService;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
 import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.elasticsearch.transport.*;
@@ -77,6 +83,7 @@ import java.nio.channels.CancelledKeyException;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -111,7 +118,12 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     public static final String CONNECTIONS_PER_NODE_REG = "transport.connections_per_node.reg";
     public static final String CONNECTIONS_PER_NODE_STATE = "transport.connections_per_node.state";
     public static final String CONNECTIONS_PER_NODE_PING = "transport.connections_per_node.ping";
+    public static final String CONNECTIONS_PER_NODE_MAX_RECOVERY = "transport.connections_per_node.max_recovery";
+    public static final String CONNECTIONS_PER_NODE_MAX_BULK = "transport.connections_per_node.max_bulk";
+    public static final String CONNECTIONS_PER_NODE_MAX_REG = "transport.connections_per_node.max_reg";
+    public static final String CONNECTIONS_PER_NODE_GROW_QUEUED_SIZE = "transport.connections_per_node.grow_queued_size";
     public static final String PING_SCHEDULE = "transport.ping_schedule"; // the scheduled internal ping interval setting
+    public static final String INFLIGHT_REQUESTS_SUSPEND_READS = "transport.netty.inflight_requests.suspend_reads";
     public static final TimeValue DEFAULT_PING_SCHEDULE = TimeValue.timeValueMillis(-1); // the default ping schedule, defaults to disabled (-1)
     public static final String DEFAULT_PORT_RANGE = "9300-9400";
     public static final String DEFAULT_PROFILE = "default";
@@ -134,11 +146,21 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     protected final int connectionsPerNodeReg;
     protected final int connectionsPerNodeState;
     protected final int connectionsPerNodePing;
+    protected final int maxConnectionsPerNodeRecovery;
+    protected final int maxConnectionsPerNodeBulk;
+    protected final int maxConnectionsPerNodeReg;
+    // once the least loaded channel of a type has that many bytes queued, another connection is opened for the type
+    protected final ByteSizeValue growQueuedSize;
 
     private final TimeValue pingSchedule;
 
     protected final BigArrays bigArrays;
     protected final ThreadPool threadPool;
+    protected final CircuitBreakerService circuitBreakerService;
+
+    // when the in flight requests breaker is exceeded, either stop reading from channels or reject requests
+    protected final boolean suspendReadsOnInFlightLimit;
+    private final Set<Channel> suspendedChannels = ConcurrentCollections.newConcurrentSet();
     protected volatile OpenChannelsHandler serverOpenChannels;
     protected volatile ClientBootstrap clientBootstrap;
     // node id to actual channel
@@ -157,13 +179,20 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
     // package visibility for tests
     final ScheduledPing scheduledPing;
 
-    @Inject
     public NettyTransport(Settings settings, ThreadPool threadPool, NetworkService networkService, BigArrays bigArrays, Version version) {
+        this(settings, threadPool, networkService, bigArrays, version, new NoneCircuitBreakerService());
+    }
+
+    @Inject
+    public NettyTransport(Settings settings, ThreadPool threadPool, NetworkService networkService, BigArrays bigArrays, Version version,
+                          CircuitBreakerService circuitBreakerService) {
         super(settings);
         this.threadPool = threadPool;
         this.networkService = networkService;
         this.bigArrays = bigArrays;
         this.version = version;
+        this.circuitBreakerService = circuitBreakerService;
+        this.suspendReadsOnInFlightLimit = settings.getAsBoolean(INFLIGHT_REQUESTS_SUSPEND_READS, false);
 
         if (settings.getAsBoolean("netty.epollBugWorkaround", false)) {
             System.setProperty("org.jboss.netty.epollBugWorkaround", "true");
@@ -182,6 +211,11 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         this.connectionsPerNodeState = this.settings.getAsInt("transport.netty.connections_per_node.high", settings.getAsInt(CONNECTIONS_PER_NODE_STATE, 1));
         this.connectionsPerNodePing = this.settings.getAsInt("transport.netty.connections_per_node.ping", settings.getAsInt(CONNECTIONS_PER_NODE_PING, 1));
 
+        this.maxConnectionsPerNodeRecovery = settings.getAsInt(CONNECTIONS_PER_NODE_MAX_RECOVERY, connectionsPerNodeRecovery * 2);
+        this.maxConnectionsPerNodeBulk = settings.getAsInt(CONNECTIONS_PER_NODE_MAX_BULK, connectionsPerNodeBulk * 2);
+        this.maxConnectionsPerNodeReg = settings.getAsInt(CONNECTIONS_PER_NODE_MAX_REG, connectionsPerNodeReg * 2);
+        this.growQueuedSize = settings.getAsBytesSize(CONNECTIONS_PER_NODE_GROW_QUEUED_SIZE, new ByteSizeValue(1, ByteSizeUnit.MB));
+
         // we want to have at least 1 for reg/state/ping
         if (this.connectionsPerNodeReg == 0) {
             throw new ElasticsearchIllegalArgumentException("can't set [connection_per_node.reg] to 0");
@@ -233,6 +267,71 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         return threadPool;
     }
 
+    /**
+     * The breaker is looked up on every use since the breaker service replaces it when its settings are updated.
+     */
+    CircuitBreaker inFlightRequestsBreaker() {
+        return circuitBreakerService.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+    }
+
+    /**
+     * Accounts for the bytes of an incoming message that is being buffered.
+     */
+    void reserveInFlightBytes(long bytes) {
+        inFlightRequestsBreaker().addWithoutBreaking(bytes);
+    }
+
+    /**
+     * Releases the bytes of an incoming message once it has been handled, resuming reads on suspended
+     * channels if we got back under the limit.
+     */
+    void releaseInFlightBytes(long bytes) {
+        if (bytes > 0) {
+            inFlightRequestsBreaker().addWithoutBreaking(-bytes);
+        }
+        if (suspendedChannels.isEmpty() == false && inFlightLimitExceeded() == false) {
+            for (Channel channel : suspendedChannels) {
+                if (suspendedChannels.remove(channel)) {
+                    channel.setReadable(true);
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks, when rejection is enabled, that the in flight requests breaker (including the bytes of the
+     * request at hand, which have been reserved already) isn't over its limit, tripping it otherwise.
+     */
+    void checkInFlightRequestsLimit(String action) throws CircuitBreakingException {
+        if (suspendReadsOnInFlightLimit == false) {
+            inFlightRequestsBreaker().addEstimateBytesAndMaybeBreak(0, "<transport_request> [" + action + "]");
+        }
+    }
+
+    /**
+     * Stops reading from the given channel if suspending reads is enabled and the in flight requests are over
+     * their limit. This gives TCP backpressure to the sending node instead of buffering more messages. Only
+     * channels accepted by the server are suspended, responses are always read.
+     */
+    void maybeSuspendReads(Channel channel) {
+        if (suspendReadsOnInFlightLimit && inFlightLimitExceeded()) {
+            channel.setReadable(false);
+            suspendedChannels.add(channel);
+            // bytes might have been released concurrently, make sure we don't stay suspended
+            releaseInFlightBytes(0);
+        }
+    }
+
+    void forgetSuspendedChannel(Channel channel) {
+        suspendedChannels.remove(channel);
+    }
+
+    private boolean inFlightLimitExceeded() {
+        CircuitBreaker breaker = inFlightRequestsBreaker();
+        long limit = breaker.getLimit();
+        return limit > 0 && breaker.getUsed() * breaker.getOverhead() > limit;
+    }
+
     @Override
     protected void doStart() throws ElasticsearchException {
         boolean success = false;
@@ -446,8 +545,9 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         ByteSizeValue tcpSendBufferSize = settings.getAsBytesSize("tcp_send_buffer_size", TCP_DEFAULT_SEND_BUFFER_SIZE);
         ByteSizeValue tcpReceiveBufferSize = settings.getAsBytesSize("tcp_receive_buffer_size", TCP_DEFAULT_RECEIVE_BUFFER_SIZE);
 
-        logger.debug("using profile[{}], worker_count[{}], port[{}], bind_host[{}], publish_host[{}], compress[{}], connect_timeout[{}], connections_per_node[{}/{}/{}/{}/{}], receive_predictor[{}->{}]",
-                name, workerCount, port, bindHost, publishHost, compress, connectTimeout, connectionsPerNodeRecovery, connectionsPerNodeBulk, connectionsPerNodeReg, connectionsPerNodeState, connectionsPerNodePing, receivePredictorMin, receivePredictorMax);
+        logger.debug("using profile[{}], worker_count[{}], port[{}], bind_host[{}], publish_host[{}], compress[{}], connect_timeout[{}], connections_per_node[{}/{}/{}/{}/{}], max_connections_per_node[{}/{}/{}], receive_predictor[{}->{}]",
+                name, workerCount, port, bindHost, publishHost, compress, connectTimeout, connectionsPerNodeRecovery, connectionsPerNodeBulk, connectionsPerNodeReg, connectionsPerNodeState, connectionsPerNodePing,
+                maxConnectionsPerNodeRecovery, maxConnectionsPerNodeBulk, maxConnectionsPerNodeReg, receivePredictorMin, receivePredictorMax);
 
         final ThreadFactory bossFactory = daemonThreadFactory(this.settings, HTTP_SERVER_BOSS_THREAD_NAME_PREFIX, name);
         final ThreadFactory workerFactory = daemonThreadFactory(this.settings, HTTP_SERVER_WORKER_THREAD_NAME_PREFIX, name);
@@ -707,10 +807,13 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                 buffer = bytes.toChannelBuffer();
             }
             NettyHeader.writeHeader(buffer, requestId, status, version);
+            final int size = buffer.readableBytes();
             ChannelFuture future = targetChannel.write(buffer);
             ReleaseChannelFutureListener listener = new ReleaseChannelFutureListener(bytes);
             future.addListener(listener);
             addedReleaseListener = true;
+            NodeChannels.onWrite(targetChannel, future, size);
+            transportServiceAdapter.requestSent(action, size);
             transportServiceAdapter.onRequestSent(node, requestId, action, request, options);
         } finally {
             if (!addedReleaseListener) {
@@ -795,7 +898,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         Channel[] channels = new Channel[1];
         channels[0] = connect.getChannel();
         channels[0].getCloseFuture().addListener(new ChannelCloseListener(node));
-        return new NodeChannels(channels, channels, channels, channels, channels);
+        return new NodeChannels(channels, channels, channels, channels, channels, false);
     }
 
     protected void connectToChannels(NodeChannels nodeChannels, DiscoveryNode node) {
@@ -966,7 +1069,63 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         if (nodeChannels == null) {
             throw new NodeNotConnectedException(node, "Node not connected");
         }
-        return nodeChannels.channel(options.type());
+        Channel channel = nodeChannels.channel(options.type());
+        if (growQueuedSize.bytes() >= 0 && NodeChannels.queuedBytes(channel) >= growQueuedSize.bytes()) {
+            growNodeChannels(node, nodeChannels, options.type());
+        }
+        return channel;
+    }
+
+    protected int maxConnectionsPerNode(TransportRequestOptions.Type type) {
+        if (type == TransportRequestOptions.Type.RECOVERY) {
+            return maxConnectionsPerNodeRecovery;
+        } else if (type == TransportRequestOptions.Type.BULK) {
+            return maxConnectionsPerNodeBulk;
+        } else if (type == TransportRequestOptions.Type.REG) {
+            return maxConnectionsPerNodeReg;
+        }
+        // state and ping requests are small and rare, they don't get additional connections
+        return 0;
+    }
+
+    /**
+     * Opens an additional channel for the given type in the background, unless the type already has its maximum
+     * number of channels or another one is already being opened. The request that triggered it doesn't wait for it.
+     */
+    protected void growNodeChannels(final DiscoveryNode node, final NodeChannels nodeChannels, final TransportRequestOptions.Type type) {
+        if (!lifecycle.started() || !nodeChannels.tryStartGrowing(type, maxConnectionsPerNode(type))) {
+            return;
+        }
+        boolean success = false;
+        try {
+            InetSocketAddress address = ((InetSocketTransportAddress) node.address()).address();
+            clientBootstrap.connect(address).addListener(new ChannelFutureListener() {
+                @Override
+                public void operationComplete(ChannelFuture future) throws Exception {
+                    try {
+                        if (!future.isSuccess()) {
+                            logger.debug("[{}] failed to open an additional [{}] connection", future.getCause(), node, type);
+                            return;
+                        }
+                        Channel channel = future.getChannel();
+                        channel.getCloseFuture().addListener(new ChannelCloseListener(node));
+                        if (connectedNodes.get(node) != nodeChannels || !nodeChannels.addChannel(type, channel)) {
+                            // disconnected in the meantime
+                            channel.close();
+                            return;
+                        }
+                        logger.debug("[{}] opened an additional [{}] connection, now using [{}]", node, type, nodeChannels.size(type));
+                    } finally {
+                        nodeChannels.doneGrowing(type);
+                    }
+                }
+            });
+            success = true;
+        } finally {
+            if (!success) {
+                nodeChannels.doneGrowing(type);
+            }
+        }
     }
 
     public ChannelPipelineFactory configureClientChannelPipelineFactory() {
@@ -983,7 +1142,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         @Override
         public ChannelPipeline getPipeline() throws Exception {
             ChannelPipeline channelPipeline = Channels.pipeline();
-            SizeHeaderFrameDecoder sizeHeader = new SizeHeaderFrameDecoder();
+            SizeHeaderFrameDecoder sizeHeader = new SizeHeaderFrameDecoder(nettyTransport, false);
             if (nettyTransport.maxCumulationBufferCapacity != null) {
                 if (nettyTransport.maxCumulationBufferCapacity.bytes() > Integer.MAX_VALUE) {
                     sizeHeader.setMaxCumulationBufferCapacity(Integer.MAX_VALUE);
@@ -1021,7 +1180,7 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         public ChannelPipeline getPipeline() throws Exception {
             ChannelPipeline channelPipeline = Channels.pipeline();
             channelPipeline.addLast("openChannels", nettyTransport.serverOpenChannels);
-            SizeHeaderFrameDecoder sizeHeader = new SizeHeaderFrameDecoder();
+            SizeHeaderFrameDecoder sizeHeader = new SizeHeaderFrameDecoder(nettyTransport, true);
             if (nettyTransport.maxCumulationBufferCapacity != null) {
                 if (nettyTransport.maxCumulationBufferCapacity.bytes() > Integer.MAX_VALUE) {
                     sizeHeader.setMaxCumulationBufferCapacity(Integer.MAX_VALUE);
@@ -1060,30 +1219,71 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
         }
     }
 
+    /**
+     * The channels opened to a node, grouped by request type. A request is sent on the channel of its type that has the least
+     * bytes queued for writing (preferring writable channels), so small requests don't wait behind large ones that are still
+     * being flushed on another channel. Groups can grow while the node is connected, see {@link #tryStartGrowing}.
+     */
     public static class NodeChannels {
 
-        ImmutableList<Channel> allChannels = ImmutableList.of();
+        volatile ImmutableList<Channel> allChannels = ImmutableList.of();
         private Channel[] recovery;
-        private final AtomicInteger recoveryCounter = new AtomicInteger();
         private Channel[] bulk;
-        private final AtomicInteger bulkCounter = new AtomicInteger();
         private Channel[] reg;
-        private final AtomicInteger regCounter = new AtomicInteger();
         private Channel[] state;
-        private final AtomicInteger stateCounter = new AtomicInteger();
         private Channel[] ping;
-        private final AtomicInteger pingCounter = new AtomicInteger();
+        private final boolean growable;
+        private ChannelGroup recoveryGroup;
+        private ChannelGroup bulkGroup;
+        private ChannelGroup regGroup;
+        private ChannelGroup stateGroup;
+        private ChannelGroup pingGroup;
+        private boolean closed;
 
         public NodeChannels(Channel[] recovery, Channel[] bulk, Channel[] reg, Channel[] state, Channel[] ping) {
+            this(recovery, bulk, reg, state, ping, true);
+        }
+
+        public NodeChannels(Channel[] recovery, Channel[] bulk, Channel[] reg, Channel[] state, Channel[] ping, boolean growable) {
             this.recovery = recovery;
             this.bulk = bulk;
             this.reg = reg;
             this.state = state;
             this.ping = ping;
+            this.growable = growable;
+        }
+
+        public synchronized void start() {
+            // types that fall back to the channels of another type share its group
+            List<ChannelGroup> groups = new ArrayList<>();
+            recoveryGroup = group(groups, recovery);
+            bulkGroup = group(groups, bulk);
+            regGroup = group(groups, reg);
+            stateGroup = group(groups, state);
+            pingGroup = group(groups, ping);
+            for (Channel channel : allChannels()) {
+                if (channel.getAttachment() == null) {
+                    channel.setAttachment(new AtomicLong());
+                }
+            }
+            this.allChannels = allChannels();
         }
 
-        public void start() {
-            this.allChannels = ImmutableList.<Channel>builder().add(recovery).add(bulk).add(reg).add(state).add(ping).build();
+        private static ChannelGroup group(List<ChannelGroup> groups, Channel[] channels) {
+            for (ChannelGroup group : groups) {
+                if (group.initialChannels == channels) {
+                    return group;
+                }
+            }
+            ChannelGroup group = new ChannelGroup(channels);
+            groups.add(group);
+            return group;
+        }
+
+        private ImmutableList<Channel> allChannels() {
+            ImmutableList.Builder<Channel> builder = ImmutableList.builder();
+            builder.add(recoveryGroup.channels).add(bulkGroup.channels).add(regGroup.channels).add(stateGroup.channels).add(pingGroup.channels);
+            return builder.build();
         }
 
         public boolean hasChannel(Channel channel) {
@@ -1095,23 +1295,97 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
             return false;
         }
 
-        public Channel channel(TransportRequestOptions.Type type) {
+        private ChannelGroup group(TransportRequestOptions.Type type) {
             if (type == TransportRequestOptions.Type.REG) {
-                return reg[MathUtils.mod(regCounter.incrementAndGet(), reg.length)];
+                return regGroup;
             } else if (type == TransportRequestOptions.Type.STATE) {
-                return state[MathUtils.mod(stateCounter.incrementAndGet(), state.length)];
+                return stateGroup;
             } else if (type == TransportRequestOptions.Type.PING) {
-                return ping[MathUtils.mod(pingCounter.incrementAndGet(), ping.length)];
+                return pingGroup;
             } else if (type == TransportRequestOptions.Type.BULK) {
-                return bulk[MathUtils.mod(bulkCounter.incrementAndGet(), bulk.length)];
+                return bulkGroup;
             } else if (type == TransportRequestOptions.Type.RECOVERY) {
-                return recovery[MathUtils.mod(recoveryCounter.incrementAndGet(), recovery.length)];
+                return recoveryGroup;
             } else {
                 throw new ElasticsearchIllegalArgumentException("no type channel for [" + type + "]");
             }
         }
 
+        public Channel channel(TransportRequestOptions.Type type) {
+            return group(type).select();
+        }
+
+        /**
+         * The number of channels currently used for the given type.
+         */
+        public int size(TransportRequestOptions.Type type) {
+            return group(type).channels.length;
+        }
+
+        /**
+         * Reserves the right to open an additional channel for the given type, returns <tt>false</tt> if the group
+         * already has <tt>maxChannels</tt> channels, or another channel is already being opened for it.
+         * {@link #doneGrowing} must be called once the new channel was added (or failed to open).
+         */
+        public synchronized boolean tryStartGrowing(TransportRequestOptions.Type type, int maxChannels) {
+            ChannelGroup group = group(type);
+            if (!growable || closed || group.growing || group.channels.length >= maxChannels) {
+                return false;
+            }
+            group.growing = true;
+            return true;
+        }
+
+        public synchronized void doneGrowing(TransportRequestOptions.Type type) {
+            group(type).growing = false;
+        }
+
+        /**
+         * Adds a newly opened channel to the group of the given type. Returns <tt>false</tt> if these node channels
+         * have been closed in the meantime, in which case the caller is responsible for closing the channel.
+         */
+        public synchronized boolean addChannel(TransportRequestOptions.Type type, Channel channel) {
+            if (closed) {
+                return false;
+            }
+            if (channel.getAttachment() == null) {
+                channel.setAttachment(new AtomicLong());
+            }
+            ChannelGroup group = group(type);
+            Channel[] channels = Arrays.copyOf(group.channels, group.channels.length + 1);
+            channels[channels.length - 1] = channel;
+            group.channels = channels;
+            this.allChannels = allChannels();
+            return true;
+        }
+
+        /**
+         * The number of request bytes written to the channel that haven't been flushed to the socket yet.
+         */
+        static long queuedBytes(Channel channel) {
+            Object attachment = channel.getAttachment();
+            return attachment instanceof AtomicLong ? ((AtomicLong) attachment).get() : 0;
+        }
+
+        /**
+         * Accounts <tt>size</tt> bytes as queued on the channel until the given write completes.
+         */
+        static void onWrite(Channel channel, ChannelFuture future, final long size) {
+            Object attachment = channel.getAttachment();
+            if (attachment instanceof AtomicLong) {
+                final AtomicLong queued = (AtomicLong) attachment;
+                queued.addAndGet(size);
+                future.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        queued.addAndGet(-size);
+                    }
+                });
+            }
+        }
+
         public synchronized void close() {
+            closed = true;
             List<ChannelFuture> futures = new ArrayList<>();
             for (Channel channel : allChannels) {
                 try {
@@ -1126,6 +1400,45 @@ public class NettyTransport extends AbstractLifecycleComponent<Transport> implem
                 future.awaitUninterruptibly();
             }
         }
+
+        static class ChannelGroup {
+
+            final Channel[] initialChannels;
+            volatile Channel[] channels;
+            final AtomicInteger counter = new AtomicInteger();
+            boolean growing;
+
+            ChannelGroup(Channel[] channels) {
+                this.initialChannels = channels;
+                this.channels = channels;
+            }
+
+            /**
+             * Picks the writable channel with the least queued bytes, the scan starts at a round robin offset so
+             * idle channels are still used in turn.
+             */
+            Channel select() {
+                Channel[] channels = this.channels;
+                int offset = counter.incrementAndGet();
+                Channel selected = null;
+                boolean selectedWritable = false;
+                long selectedQueued = Long.MAX_VALUE;
+                for (int i = 0; i < channels.length; i++) {
+                    Channel channel = channels[MathUtils.mod(offset + i, channels.length)];
+                    boolean writable = channel.isWritable();
+                    long queued = queuedBytes(channel);
+                    if (selected == null || (writable && !selectedWritable) || (writable == selectedWritable && queued < selectedQueued)) {
+                        selected = channel;
+                        selectedWritable = writable;
+                        selectedQueued = queued;
+                        if (writable && queued == 0) {
+                            break;
+                        }
+                    }
+                }
+                return selected;
+            }
+        }
     }
 
     class ScheduledPing implements Runnable {
@@ -37,6 +37,7 @@ import org.jboss.netty.channel.ChannelFuture;
 
 import java.io.IOException;
 import java.io.NotSerializableException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  *
@@ -50,8 +51,18 @@ public class NettyTransportChannel implements TransportChannel {
     private final Channel channel;
     private final long requestId;
     private final String profileName;
+    private final AtomicLong reservedBytes;
 
     public NettyTransportChannel(NettyTransport transport, TransportServiceAdapter transportServiceAdapter, String action, Channel channel, long requestId, Version version, String profileName) {
+        this(transport, transportServiceAdapter, action, channel, requestId, version, profileName, 0);
+    }
+
+    /**
+     * @param reservedBytes the in flight bytes of the request, released once a response has been sent
+     */
+    public NettyTransportChannel(NettyTransport transport, TransportServiceAdapter transportServiceAdapter, String action, Channel channel, long requestId, Version version, String profileName,
+                                 long reservedBytes) {
+        this.reservedBytes = new AtomicLong(reservedBytes);
         this.transportServiceAdapter = transportServiceAdapter;
         this.version = version;
         this.transport = transport;
@@ -77,6 +88,7 @@ public class NettyTransportChannel implements TransportChannel {
 
     @Override
     public void sendResponse(TransportResponse response, TransportResponseOptions options) throws IOException {
+        releaseReservedBytes();
         if (transport.compress) {
             options.withCompress(true);
         }
@@ -100,10 +112,12 @@ public class NettyTransportChannel implements TransportChannel {
             ReleasablePagedBytesReference bytes = bStream.bytes();
             ChannelBuffer buffer = bytes.toChannelBuffer();
             NettyHeader.writeHeader(buffer, requestId, status, version);
+            final int size = buffer.readableBytes();
             ChannelFuture future = channel.write(buffer);
             ReleaseChannelFutureListener listener = new ReleaseChannelFutureListener(bytes);
             future.addListener(listener);
             addedReleaseListener = true;
+            transportServiceAdapter.responseSent(action, size);
             transportServiceAdapter.onResponseSent(requestId, action, response, options);
         } finally {
             if (!addedReleaseListener) {
@@ -114,6 +128,7 @@ public class NettyTransportChannel implements TransportChannel {
 
     @Override
     public void sendResponse(Throwable error) throws IOException {
+        releaseReservedBytes();
         BytesStreamOutput stream = new BytesStreamOutput();
         try {
             stream.skip(NettyHeader.HEADER_SIZE);
@@ -137,10 +152,16 @@ public class NettyTransportChannel implements TransportChannel {
         BytesReference bytes = stream.bytes();
         ChannelBuffer buffer = bytes.toChannelBuffer();
         NettyHeader.writeHeader(buffer, requestId, status, version);
+        final int size = buffer.readableBytes();
         channel.write(buffer);
+        transportServiceAdapter.responseSent(action, size);
         transportServiceAdapter.onResponseSent(requestId, action, error);
     }
 
+    private void releaseReservedBytes() {
+        transport.releaseInFlightBytes(reservedBytes.getAndSet(0));
+    }
+
     /**
      * Returns the underlying netty channel. This method is intended be used for access to netty to get additional
      * details when processing the request and may be used by plugins. Responses should be sent using the methods
@@ -24,20 +24,46 @@ import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.monitor.jvm.JvmInfo;
 import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.transport.support.TransportStatus;
 import org.jboss.netty.buffer.ChannelBuffer;
 import org.jboss.netty.channel.Channel;
 import org.jboss.netty.channel.ChannelHandlerContext;
+import org.jboss.netty.channel.ChannelStateEvent;
 import org.jboss.netty.handler.codec.frame.FrameDecoder;
 import org.jboss.netty.handler.codec.frame.TooLongFrameException;
 
 import java.io.StreamCorruptedException;
 
 /**
+ * Decodes size prefixed transport frames. The size of a request frame is accounted for in the in flight requests
+ * circuit breaker as soon as its header has been read, since from that point on its bytes are buffered. Once
+ * the frame is complete, the {@link MessageChannelHandler} takes over the responsibility to release them.
+ * <p>
+ * Response frames are never accounted for and never suspend reads: the in flight bytes of a request are only
+ * released once it has been responded to, and handling it might depend on responses from other nodes.
  */
 public class SizeHeaderFrameDecoder extends FrameDecoder {
 
     private static final long NINETY_PER_HEAP_SIZE = (long) (JvmInfo.jvmInfo().getMem().getHeapMax().bytes() * 0.9);
 
+    // the offset of the status byte from the start of a frame, after the marker, the size and the request id
+    private static final int STATUS_OFFSET = 2 + 4 + 8;
+
+    private final NettyTransport transport;
+    private final boolean suspendReads;
+
+    // the accounted bytes of the frame we are currently buffering, only accessed by the channel's worker thread
+    private long pendingFrameBytes = 0;
+
+    /**
+     * @param suspendReads whether reads may be suspended once the in flight requests are over their limit, which
+     *                     is only the case for channels accepted by the server, since these carry requests
+     */
+    public SizeHeaderFrameDecoder(NettyTransport transport, boolean suspendReads) {
+        this.transport = transport;
+        this.suspendReads = suspendReads;
+    }
+
     @Override
     protected Object decode(ChannelHandlerContext ctx, Channel channel, ChannelBuffer buffer) throws Exception {
         if (buffer.readableBytes() < 6) {
@@ -83,13 +109,44 @@ public class SizeHeaderFrameDecoder extends FrameDecoder {
                     "transport content length received [" + new ByteSizeValue(dataLen) + "] exceeded [" + new ByteSizeValue(NINETY_PER_HEAP_SIZE) + "]");
         }
 
+        if (pendingFrameBytes == 0 && dataLen > STATUS_OFFSET - 6) {
+            if (buffer.readableBytes() <= STATUS_OFFSET) {
+                // wait for the status to know whether this is a request
+                return null;
+            }
+            if (TransportStatus.isRequest(buffer.getByte(readerIndex + STATUS_OFFSET))) {
+                pendingFrameBytes = dataLen + 6;
+                transport.reserveInFlightBytes(pendingFrameBytes);
+            }
+        }
+
         if (buffer.readableBytes() < dataLen + 6) {
             return null;
         }
         buffer.skipBytes(6);
+        boolean request = pendingFrameBytes > 0;
+        // the message handler is now responsible for releasing the frame bytes
+        pendingFrameBytes = 0;
+        if (request && suspendReads) {
+            transport.maybeSuspendReads(channel);
+        }
         return buffer;
     }
 
+    @Override
+    protected void cleanup(ChannelHandlerContext ctx, ChannelStateEvent e) throws Exception {
+        try {
+            super.cleanup(ctx, e);
+        } finally {
+            // release the bytes of a frame that was only partially received before the channel got closed
+            if (pendingFrameBytes > 0) {
+                transport.releaseInFlightBytes(pendingFrameBytes);
+                pendingFrameBytes = 0;
+            }
+            transport.forgetSuspendedChannel(ctx.getChannel());
+        }
+    }
+
     private boolean bufferStartsWith(ChannelBuffer buffer, int readerIndex, String method) {
         char[] chars = method.toCharArray();
         for (int i = 0; i < chars.length; i++) {
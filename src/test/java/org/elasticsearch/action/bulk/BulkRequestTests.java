@@ -28,6 +28,7 @@ import org.elasticsearch.action.update.UpdateRequest;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.common.Strings;
 import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.test.ElasticsearchTestCase;
 import org.junit.Test;
 
@@ -55,6 +56,27 @@ public class BulkRequestTests extends ElasticsearchTestCase {
         assertThat(((IndexRequest) bulkRequest.requests().get(2)).source().toBytes(), equalTo(new BytesArray("{ \"field1\" : \"value3\" }").toBytes()));
     }
 
+    @Test
+    public void testAddCompleteLeavesPartialActions() throws Exception {
+        String bulkAction = "{ \"index\" : { \"_index\" : \"test\", \"_type\" : \"type1\", \"_id\" : \"1\" } }\n" +
+                "{ \"field1\" : \"value1\" }\n" +
+                "{ \"delete\" : { \"_index\" : \"test\", \"_type\" : \"type1\", \"_id\" : \"2\" } }\n" +
+                "{ \"index\" : { \"_index\" : \"test\", \"_type\" : \"type1\", \"_id\" : \"3\" } }\n" +
+                "{ \"field1\" : \"val";
+        BytesArray data = new BytesArray(bulkAction);
+        BulkRequest bulkRequest = new BulkRequest();
+        int consumed = bulkRequest.addComplete(data, XContentFactory.xContent(data), null, null, null, null, true);
+        assertThat(bulkRequest.numberOfActions(), equalTo(2));
+        assertThat(bulkAction.substring(consumed), equalTo("{ \"index\" : { \"_index\" : \"test\", \"_type\" : \"type1\", \"_id\" : \"3\" } }\n{ \"field1\" : \"val"));
+
+        String rest = bulkAction.substring(consumed) + "ue3\" }\n";
+        data = new BytesArray(rest);
+        consumed = bulkRequest.addComplete(data, XContentFactory.xContent(data), null, null, null, null, true);
+        assertThat(consumed, equalTo(rest.length()));
+        assertThat(bulkRequest.numberOfActions(), equalTo(3));
+        assertThat(((IndexRequest) bulkRequest.requests().get(2)).source().toBytes(), equalTo(new BytesArray("{ \"field1\" : \"value3\" }").toBytes()));
+    }
+
     @Test
     public void testSimpleBulk2() throws Exception {
         String bulkAction = copyToStringFromClasspath("/org/elasticsearch/action/bulk/simple-bulk2.json");
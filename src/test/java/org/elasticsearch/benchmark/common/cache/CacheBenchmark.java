@@ -0,0 +1,147 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.common.cache;
+
+import org.elasticsearch.common.cache.Cache;
+import org.elasticsearch.common.cache.CacheBuilder;
+import org.elasticsearch.common.cache.Weigher;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of {@link Cache} with the Guava cache it replaced for the node level caches, for a read
+ * heavy, weight bounded workload with a skewed key distribution and an increasing number of threads.
+ */
+public class CacheBenchmark {
+
+    private static final int NUM_KEYS = 100000;
+    private static final long MAXIMUM_WEIGHT = 16 * 1024 * 1024;
+    private static final int OPERATIONS_PER_THREAD = 1000000;
+    // one in WRITE_RATIO operations is a write, the others are reads that put the value if it's missing
+    private static final int WRITE_RATIO = 20;
+
+    interface BenchCache {
+        Object get(Integer key);
+
+        void put(Integer key, byte[] value);
+    }
+
+    static BenchCache esCache() {
+        final Cache<Integer, byte[]> cache = CacheBuilder.<Integer, byte[]>builder()
+                .setMaximumWeight(MAXIMUM_WEIGHT).setConcurrencyLevel(16)
+                .weigher(new Weigher<Integer, byte[]>() {
+                    @Override
+                    public long weigh(Integer key, byte[] value) {
+                        return value.length;
+                    }
+                }).build();
+        return new BenchCache() {
+            @Override
+            public Object get(Integer key) {
+                return cache.get(key);
+            }
+
+            @Override
+            public void put(Integer key, byte[] value) {
+                cache.put(key, value);
+            }
+        };
+    }
+
+    static BenchCache guavaCache() {
+        final com.google.common.cache.Cache<Integer, byte[]> cache = com.google.common.cache.CacheBuilder.newBuilder()
+                .maximumWeight(MAXIMUM_WEIGHT).concurrencyLevel(16)
+                .weigher(new com.google.common.cache.Weigher<Integer, byte[]>() {
+                    @Override
+                    public int weigh(Integer key, byte[] value) {
+                        return value.length;
+                    }
+                }).build();
+        return new BenchCache() {
+            @Override
+            public Object get(Integer key) {
+                return cache.getIfPresent(key);
+            }
+
+            @Override
+            public void put(Integer key, byte[] value) {
+                cache.put(key, value);
+            }
+        };
+    }
+
+    private static long bench(final BenchCache cache, int numThreads) throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final Thread[] threads = new Thread[numThreads];
+        for (int i = 0; i < numThreads; i++) {
+            final long seed = i;
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    final Random random = new Random(seed);
+                    try {
+                        latch.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < OPERATIONS_PER_THREAD; j++) {
+                        // skewed towards small keys, so that some entries are hot and others are evicted
+                        final int key = (int) (NUM_KEYS * Math.pow(random.nextDouble(), 3));
+                        if (random.nextInt(WRITE_RATIO) == 0 || cache.get(key) == null) {
+                            cache.put(key, new byte[256 + (key & 1023)]);
+                        }
+                    }
+                }
+            };
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        final long start = System.nanoTime();
+        latch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return System.nanoTime() - start;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        // warmup
+        for (int i = 0; i < 3; i++) {
+            bench(esCache(), 4);
+            bench(guavaCache(), 4);
+        }
+
+        for (int numThreads = 1; numThreads <= 64; numThreads *= 2) {
+            System.out.println("## " + numThreads + " threads\n");
+            for (int i = 0; i < 3; ++i) {
+                System.gc();
+                Thread.sleep(1000);
+                System.out.println("es\t" + TimeUnit.NANOSECONDS.toMillis(bench(esCache(), numThreads)));
+                System.gc();
+                Thread.sleep(1000);
+                System.out.println("guava\t" + TimeUnit.NANOSECONDS.toMillis(bench(guavaCache(), numThreads)));
+                System.out.println();
+            }
+        }
+    }
+}
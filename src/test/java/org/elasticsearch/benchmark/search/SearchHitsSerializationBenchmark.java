@@ -0,0 +1,105 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.benchmark.search;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.common.StopWatch;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.text.StringText;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.highlight.HighlightField;
+import org.elasticsearch.search.internal.InternalSearchHit;
+import org.elasticsearch.search.internal.InternalSearchHitField;
+import org.elasticsearch.search.internal.InternalSearchHits;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Measures the serialized size and the serialization / deserialization throughput of a page of search hits, as
+ * written by {@link InternalSearchHits} (with the shared string dictionary) compared to the hits written one by one.
+ */
+public class SearchHitsSerializationBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        final int NUMBER_OF_HITS = 10000;
+        final int NUMBER_OF_FIELDS = 10;
+        final int NUMBER_OF_SHARDS = 5;
+        final int NUMBER_OF_ITERATIONS = 100;
+
+        SearchShardTarget[] shards = new SearchShardTarget[NUMBER_OF_SHARDS];
+        for (int i = 0; i < shards.length; i++) {
+            shards[i] = new SearchShardTarget("node_" + (i % 3), "logs-2015.04.0" + (i % 2), i);
+        }
+        InternalSearchHit[] hits = new InternalSearchHit[NUMBER_OF_HITS];
+        for (int i = 0; i < hits.length; i++) {
+            Map<String, SearchHitField> fields = new HashMap<>();
+            for (int j = 0; j < NUMBER_OF_FIELDS; j++) {
+                String name = "request.headers.field_" + j;
+                fields.put(name, new InternalSearchHitField(name, Collections.<Object>singletonList(i * j)));
+            }
+            InternalSearchHit hit = new InternalSearchHit(i, Integer.toString(i), new StringText("access_log"), fields);
+            hit.sourceRef(new BytesArray("{\"message\":\"GET /index.html HTTP/1.1\",\"status\":200,\"bytes\":" + i + "}"));
+            hit.highlightFields(ImmutableMap.of("message", new HighlightField("message", new Text[]{new StringText("GET /<em>index</em>.html")})));
+            hit.shard(shards[i % shards.length]);
+            hits[i] = hit;
+        }
+        InternalSearchHits searchHits = new InternalSearchHits(hits, hits.length, 1.0f);
+
+        BytesStreamOutput perHit = new BytesStreamOutput();
+        for (InternalSearchHit hit : hits) {
+            hit.writeTo(perHit);
+        }
+        BytesStreamOutput shared = new BytesStreamOutput();
+        searchHits.writeTo(shared);
+        System.out.println("--> hits written one by one: " + new ByteSizeValue(perHit.size()) + " (" + (perHit.size() / NUMBER_OF_HITS) + " bytes per hit)");
+        System.out.println("--> hits written with InternalSearchHits: " + new ByteSizeValue(shared.size()) + " (" + (shared.size() / NUMBER_OF_HITS) + " bytes per hit)");
+
+        // warm up
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            BytesStreamOutput out = new BytesStreamOutput();
+            searchHits.writeTo(out);
+            InternalSearchHits.readSearchHits(out.bytes().streamInput());
+        }
+
+        StopWatch stopWatch = new StopWatch().start();
+        BytesReference bytes = null;
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            BytesStreamOutput out = new BytesStreamOutput();
+            searchHits.writeTo(out);
+            bytes = out.bytes();
+        }
+        stopWatch.stop();
+        System.out.println("--> serialization took " + stopWatch.totalTime() + ", " + (stopWatch.totalTime().millis() / NUMBER_OF_ITERATIONS) + "ms per page of " + NUMBER_OF_HITS + " hits");
+
+        stopWatch = new StopWatch().start();
+        for (int i = 0; i < NUMBER_OF_ITERATIONS; i++) {
+            InternalSearchHits.readSearchHits(bytes.streamInput());
+        }
+        stopWatch.stop();
+        System.out.println("--> deserialization took " + stopWatch.totalTime() + ", " + (stopWatch.totalTime().millis() / NUMBER_OF_ITERATIONS) + "ms per page of " + NUMBER_OF_HITS + " hits");
+    }
+}
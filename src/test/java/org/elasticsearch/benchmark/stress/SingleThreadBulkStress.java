@@ -19,15 +19,19 @@
 
 package org.elasticsearch.benchmark.stress;
 
+import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.bulk.BulkRequestBuilder;
 import org.elasticsearch.action.bulk.BulkResponse;
 import org.elasticsearch.client.Client;
 import org.elasticsearch.client.Requests;
 import org.elasticsearch.common.StopWatch;
 import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.SizeValue;
 import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.merge.MergeStats;
+import org.elasticsearch.index.merge.scheduler.ConcurrentMergeSchedulerProvider;
 import org.elasticsearch.node.Node;
 
 import java.io.IOException;
@@ -51,6 +55,8 @@ public class SingleThreadBulkStress {
         int shardsCount = Integer.parseInt(System.getProperty("es.shards", "1"));
         int replicaCount = Integer.parseInt(System.getProperty("es.replica", "1"));
         boolean autoGenerateId = true;
+        // lucene or backlog, to compare how the merge auto throttle modes keep up with indexing
+        String autoThrottleMode = System.getProperty("es.merge.auto_throttle_mode", "lucene");
 
         Settings settings = settingsBuilder()
                 .put("index.refresh_interval", "1s")
@@ -58,6 +64,7 @@ public class SingleThreadBulkStress {
                 .put("index.translog.flush_threshold_ops", 5000)
                 .put(SETTING_NUMBER_OF_SHARDS, shardsCount)
                 .put(SETTING_NUMBER_OF_REPLICAS, replicaCount)
+                .put(ConcurrentMergeSchedulerProvider.AUTO_THROTTLE_MODE, autoThrottleMode)
                 .build();
 
         Node[] nodes = new Node[1];
@@ -110,6 +117,13 @@ public class SingleThreadBulkStress {
         client.client().admin().indices().prepareRefresh().execute().actionGet();
         System.out.println("Count: " + client.client().prepareCount().setQuery(matchAllQuery()).execute().actionGet().getCount());
 
+        IndicesStatsResponse statsResponse = client1.admin().indices().prepareStats("test").clear().setMerge(true).execute().actionGet();
+        MergeStats mergeStats = statsResponse.getPrimaries().getMerge();
+        System.out.println("Merges [" + autoThrottleMode + "]: total " + mergeStats.getTotal() + ", took " + mergeStats.getTotalTime()
+                + ", throttled " + mergeStats.getTotalThrottledTime() + ", stopped " + mergeStats.getTotalStoppedTime()
+                + ", written " + mergeStats.getTotalWrittenSize() + ", rate " + new ByteSizeValue(mergeStats.getTotalBytesPerSec()) + "/s"
+                + ", current throttle " + new ByteSizeValue(mergeStats.getTotalBytesPerSecAutoThrottle()) + "/s");
+
         client.close();
 
         for (Node node : nodes) {
@@ -0,0 +1,106 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.bytes;
+
+import org.elasticsearch.common.io.Streams;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.jboss.netty.buffer.ChannelBuffer;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+public class CompositeBytesReferenceTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testSameBytesAsTheReferences() throws Exception {
+        byte[] bytes = randomBytes();
+        CompositeBytesReference reference = split(bytes);
+        BytesArray expected = new BytesArray(bytes);
+
+        assertThat(reference.length(), equalTo(bytes.length));
+        for (int i = 0; i < bytes.length; i++) {
+            assertThat(reference.get(i), equalTo(bytes[i]));
+        }
+        assertArrayEquals(bytes, reference.toBytes());
+        assertArrayEquals(bytes, reference.toBytesArray().toBytes());
+        ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+        Streams.copy(reference.streamInput(), streamed);
+        assertArrayEquals(bytes, streamed.toByteArray());
+        BytesStreamOutput out = new BytesStreamOutput();
+        reference.writeTo(out);
+        assertArrayEquals(bytes, out.bytes().toBytes());
+        ChannelBuffer buffer = reference.toChannelBuffer();
+        byte[] bufferBytes = new byte[buffer.readableBytes()];
+        buffer.readBytes(bufferBytes);
+        assertArrayEquals(bytes, bufferBytes);
+        assertThat(reference.toBytesRef().length, equalTo(bytes.length));
+        assertTrue(reference.equals(expected));
+        assertThat(reference.hashCode(), equalTo(expected.hashCode()));
+    }
+
+    @Test
+    public void testSlice() throws Exception {
+        byte[] bytes = randomBytes();
+        CompositeBytesReference reference = split(bytes);
+        for (int i = 0; i < 100; i++) {
+            int from = randomIntBetween(0, bytes.length);
+            int length = randomIntBetween(0, bytes.length - from);
+            BytesReference slice = reference.slice(from, length);
+            assertArrayEquals(Arrays.copyOfRange(bytes, from, from + length), slice.toBytes());
+        }
+        // slices of nested composites are still composites of the original references
+        CompositeBytesReference nested = new CompositeBytesReference(reference.slice(0, bytes.length / 2),
+                reference.slice(bytes.length / 2, bytes.length - bytes.length / 2));
+        assertArrayEquals(bytes, nested.toBytes());
+    }
+
+    @Test
+    public void testSliceWithinOneReferenceIsNotComposite() throws Exception {
+        CompositeBytesReference reference = new CompositeBytesReference(new BytesArray(new byte[]{1, 2, 3}), new BytesArray(new byte[]{4, 5, 6}));
+        assertThat(reference.slice(3, 2), instanceOf(BytesArray.class));
+        assertArrayEquals(new byte[]{4, 5}, reference.slice(3, 2).toBytes());
+        assertThat(reference.slice(2, 2), instanceOf(CompositeBytesReference.class));
+        assertArrayEquals(new byte[]{3, 4}, reference.slice(2, 2).toBytes());
+    }
+
+    private byte[] randomBytes() {
+        byte[] bytes = new byte[randomIntBetween(1, 10000)];
+        getRandom().nextBytes(bytes);
+        return bytes;
+    }
+
+    private CompositeBytesReference split(byte[] bytes) {
+        List<BytesReference> references = new ArrayList<>();
+        int offset = 0;
+        while (offset < bytes.length) {
+            int length = Math.min(randomIntBetween(0, 100), bytes.length - offset);
+            references.add(new BytesArray(bytes, offset, length));
+            offset += length;
+        }
+        return new CompositeBytesReference(references.toArray(new BytesReference[references.size()]));
+    }
+}
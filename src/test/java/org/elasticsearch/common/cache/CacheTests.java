@@ -0,0 +1,326 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.cache;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.*;
+
+public class CacheTests extends ElasticsearchTestCase {
+
+    private static final Weigher<Integer, Integer> VALUE_WEIGHER = new Weigher<Integer, Integer>() {
+        @Override
+        public long weigh(Integer key, Integer value) {
+            return value;
+        }
+    };
+
+    private static class RecordingListener implements RemovalListener<Integer, Integer> {
+        final List<RemovalNotification<Integer, Integer>> notifications = new CopyOnWriteArrayList<>();
+
+        @Override
+        public void onRemoval(RemovalNotification<Integer, Integer> notification) {
+            notifications.add(notification);
+        }
+    }
+
+    @Test
+    public void testPutGetInvalidate() {
+        RecordingListener listener = new RecordingListener();
+        Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>builder().removalListener(listener).build();
+        assertThat(cache.get(1), nullValue());
+        cache.put(1, 10);
+        cache.put(2, 20);
+        assertThat(cache.get(1), equalTo(10));
+        assertThat(cache.count(), equalTo(2L));
+        assertThat(cache.weight(), equalTo(2L));
+
+        cache.put(1, 11);
+        assertThat(cache.get(1), equalTo(11));
+        assertThat(cache.count(), equalTo(2L));
+        assertThat(listener.notifications.size(), equalTo(1));
+        assertThat(listener.notifications.get(0).getValue(), equalTo(10));
+        assertThat(listener.notifications.get(0).getRemovalReason(), equalTo(RemovalNotification.RemovalReason.REPLACED));
+        assertFalse(listener.notifications.get(0).wasEvicted());
+
+        cache.invalidate(1);
+        cache.invalidate(3);
+        assertThat(cache.get(1), nullValue());
+        assertThat(listener.notifications.size(), equalTo(2));
+        assertThat(listener.notifications.get(1).getRemovalReason(), equalTo(RemovalNotification.RemovalReason.INVALIDATED));
+
+        cache.invalidateAll();
+        assertThat(cache.count(), equalTo(0L));
+        assertThat(cache.weight(), equalTo(0L));
+        assertThat(listener.notifications.size(), equalTo(3));
+        assertThat(listener.notifications.get(2).getKey(), equalTo(2));
+    }
+
+    @Test
+    public void testEvictionKeepsReferencedEntries() {
+        RecordingListener listener = new RecordingListener();
+        Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>builder()
+                .setMaximumWeight(10).setConcurrencyLevel(1).removalListener(listener).build();
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, i);
+        }
+        assertThat(listener.notifications.size(), equalTo(0));
+        // the entry that was read gets a second chance, the oldest entry that was not read is evicted
+        assertThat(cache.get(0), equalTo(0));
+        cache.put(10, 10);
+        assertThat(cache.get(0), equalTo(0));
+        assertThat(cache.get(1), nullValue());
+        assertThat(cache.count(), equalTo(10L));
+        assertThat(listener.notifications.size(), equalTo(1));
+        assertThat(listener.notifications.get(0).getKey(), equalTo(1));
+        assertThat(listener.notifications.get(0).getRemovalReason(), equalTo(RemovalNotification.RemovalReason.EVICTED));
+        assertTrue(listener.notifications.get(0).wasEvicted());
+    }
+
+    @Test
+    public void testWeightAccounting() {
+        RecordingListener listener = new RecordingListener();
+        long maximumWeight = randomIntBetween(100, 1000);
+        Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>builder()
+                .setMaximumWeight(maximumWeight).weigher(VALUE_WEIGHER).setConcurrencyLevel(randomIntBetween(1, 32))
+                .removalListener(listener).build();
+        long added = 0;
+        int iterations = scaledRandomIntBetween(1000, 10000);
+        for (int i = 0; i < iterations; i++) {
+            int key = randomInt(200);
+            if (rarely()) {
+                cache.invalidate(key);
+            } else if (randomBoolean()) {
+                cache.get(key);
+            } else {
+                int value = randomIntBetween(1, 20);
+                cache.put(key, value);
+                added += value;
+            }
+            assertThat(cache.weight(), lessThanOrEqualTo(maximumWeight));
+        }
+        long removed = 0;
+        for (RemovalNotification<Integer, Integer> notification : listener.notifications) {
+            removed += notification.getValue();
+        }
+        long live = 0;
+        for (Integer value : cache.values()) {
+            live += value;
+        }
+        assertThat(cache.weight(), equalTo(live));
+        assertThat(added - removed, equalTo(live));
+    }
+
+    @Test
+    public void testOversizedEntryIsEvicted() {
+        Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>builder()
+                .setMaximumWeight(10).weigher(VALUE_WEIGHER).setConcurrencyLevel(1).build();
+        cache.put(1, 5);
+        cache.put(2, 100);
+        assertThat(cache.get(2), nullValue());
+        assertThat(cache.weight(), lessThanOrEqualTo(10L));
+    }
+
+    @Test
+    public void testComputeIfAbsentLoadsOnce() throws Exception {
+        final Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>builder().build();
+        final AtomicInteger loads = new AtomicInteger();
+        final CountDownLatch start = new CountDownLatch(1);
+        final CacheLoader<Integer, Integer> loader = new CacheLoader<Integer, Integer>() {
+            @Override
+            public Integer load(Integer key) throws Exception {
+                loads.incrementAndGet();
+                Thread.sleep(10);
+                return key * 2;
+            }
+        };
+        final List<Integer> results = new CopyOnWriteArrayList<>();
+        Thread[] threads = new Thread[randomIntBetween(2, 8)];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                        results.add(cache.computeIfAbsent(21, loader));
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(loads.get(), equalTo(1));
+        assertThat(results.size(), equalTo(threads.length));
+        for (Integer result : results) {
+            assertThat(result, equalTo(42));
+        }
+    }
+
+    @Test
+    public void testComputeIfAbsentFailure() throws Exception {
+        Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>builder().build();
+        try {
+            cache.computeIfAbsent(1, new CacheLoader<Integer, Integer>() {
+                @Override
+                public Integer load(Integer key) throws Exception {
+                    throw new IllegalArgumentException("boom");
+                }
+            });
+            fail("the failure of the loader should have been thrown");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), instanceOf(IllegalArgumentException.class));
+        }
+        assertThat(cache.count(), equalTo(0L));
+        int value = cache.computeIfAbsent(1, new CacheLoader<Integer, Integer>() {
+            @Override
+            public Integer load(Integer key) throws Exception {
+                return 3;
+            }
+        });
+        assertThat(value, equalTo(3));
+        assertThat(cache.get(1), equalTo(3));
+    }
+
+    @Test
+    public void testExpireAfterAccess() throws Exception {
+        RecordingListener listener = new RecordingListener();
+        Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>builder()
+                .setExpireAfterAccess(TimeValue.timeValueMillis(1)).removalListener(listener).build();
+        cache.put(1, 1);
+        cache.put(2, 2);
+        Thread.sleep(10);
+        assertThat(cache.get(1), nullValue());
+        cache.cleanUp();
+        assertThat(cache.count(), equalTo(0L));
+        assertThat(cache.weight(), equalTo(0L));
+        assertThat(listener.notifications.size(), equalTo(2));
+        for (RemovalNotification<Integer, Integer> notification : listener.notifications) {
+            assertThat(notification.getRemovalReason(), equalTo(RemovalNotification.RemovalReason.EXPIRED));
+        }
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        RecordingListener listener = new RecordingListener();
+        Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>builder().removalListener(listener).build();
+        int numEntries = randomIntBetween(10, 100);
+        for (int i = 0; i < numEntries; i++) {
+            cache.put(i, i);
+        }
+        int seen = 0;
+        for (Iterator<Integer> it = cache.keys().iterator(); it.hasNext(); ) {
+            int key = it.next();
+            seen++;
+            if (key % 2 == 0) {
+                it.remove();
+            }
+        }
+        assertThat(seen, equalTo(numEntries));
+        assertThat(cache.count(), equalTo((long) numEntries / 2));
+        assertThat(listener.notifications.size(), equalTo((numEntries + 1) / 2));
+        for (Integer key : cache.keys()) {
+            assertThat(key % 2, equalTo(1));
+        }
+    }
+
+    @Test
+    public void testConcurrentWeightAccounting() throws Exception {
+        final AtomicLong removed = new AtomicLong();
+        final long maximumWeight = randomIntBetween(100, 10000);
+        final Cache<Integer, Integer> cache = CacheBuilder.<Integer, Integer>builder()
+                .setMaximumWeight(maximumWeight).weigher(VALUE_WEIGHER).setConcurrencyLevel(randomIntBetween(1, 16))
+                .removalListener(new RemovalListener<Integer, Integer>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<Integer, Integer> notification) {
+                        removed.addAndGet(notification.getValue());
+                    }
+                }).build();
+        final AtomicLong added = new AtomicLong();
+        final CountDownLatch start = new CountDownLatch(1);
+        final int iterations = scaledRandomIntBetween(1000, 10000);
+        Thread[] threads = new Thread[randomIntBetween(2, 8)];
+        for (int i = 0; i < threads.length; i++) {
+            final long seed = randomLong();
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    for (int j = 0; j < iterations; j++) {
+                        int key = random.nextInt(500);
+                        switch (random.nextInt(10)) {
+                            case 0:
+                                cache.invalidate(key);
+                                break;
+                            case 1:
+                            case 2:
+                            case 3:
+                                int value = 1 + random.nextInt(20);
+                                cache.put(key, value);
+                                added.addAndGet(value);
+                                break;
+                            default:
+                                cache.get(key);
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Map<Integer, Integer> live = new HashMap<>();
+        for (Integer key : cache.keys()) {
+            live.put(key, cache.get(key));
+        }
+        long liveWeight = 0;
+        for (Integer value : live.values()) {
+            liveWeight += value;
+        }
+        assertThat(cache.weight(), lessThanOrEqualTo(maximumWeight));
+        assertThat(cache.weight(), equalTo(liveWeight));
+        assertThat(added.get() - removed.get(), equalTo(liveWeight));
+        assertThat(cache.count(), equalTo((long) live.size()));
+    }
+}
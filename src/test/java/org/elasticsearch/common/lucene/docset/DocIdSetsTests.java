@@ -0,0 +1,154 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.docset;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FilterLeafReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.search.DocIdSet;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BitDocIdSet;
+import org.apache.lucene.util.FixedBitSet;
+import org.apache.lucene.util.RoaringDocIdSet;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+public class DocIdSetsTests extends ElasticsearchTestCase {
+
+    private static final int MAX_DOC = 1 << 20;
+
+    private Directory dir;
+    private DirectoryReader directoryReader;
+    private LeafReader reader;
+
+    @Before
+    public void setUpReader() throws IOException {
+        dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new KeywordAnalyzer()));
+        writer.addDocument(new Document());
+        writer.close();
+        directoryReader = DirectoryReader.open(dir);
+        // only the number of docs of the reader matters to pick a representation
+        reader = new FilterLeafReader(directoryReader.leaves().get(0).reader()) {
+            @Override
+            public int maxDoc() {
+                return MAX_DOC;
+            }
+        };
+    }
+
+    @After
+    public void closeReader() throws IOException {
+        directoryReader.close();
+        dir.close();
+    }
+
+    @Test
+    public void testDenseBitSetIsKept() throws IOException {
+        FixedBitSet bits = new FixedBitSet(MAX_DOC);
+        for (int i = 0; i < MAX_DOC; i += 2) {
+            bits.set(i);
+        }
+        DocIdSet set = new BitDocIdSet(bits);
+        assertThat(DocIdSets.toCacheable(reader, set), sameInstance(set));
+        assertThat(DocIdSets.representation(set), equalTo(DocIdSets.Representation.BITSET));
+    }
+
+    @Test
+    public void testVerySparseSetUsesSortedInts() throws IOException {
+        FixedBitSet bits = new FixedBitSet(MAX_DOC);
+        for (int i = 0; i < 10; i++) {
+            bits.set(i * 100000);
+        }
+        DocIdSet set = new BitDocIdSet(bits);
+        DocIdSet cacheable = DocIdSets.toCacheable(reader, set);
+        assertThat(cacheable, instanceOf(SortedIntDocIdSet.class));
+        assertThat(DocIdSets.representation(cacheable), equalTo(DocIdSets.Representation.SORTED_INTS));
+        assertThat(cacheable.ramBytesUsed(), lessThan(set.ramBytesUsed()));
+        assertSameDocs(bits, cacheable);
+    }
+
+    @Test
+    public void testSparseSetUsesRoaring() throws IOException {
+        FixedBitSet bits = new FixedBitSet(MAX_DOC);
+        for (int i = 0; i < 3000; i++) {
+            bits.set(i);
+        }
+        DocIdSet set = new BitDocIdSet(bits);
+        DocIdSet cacheable = DocIdSets.toCacheable(reader, set);
+        assertThat(cacheable, instanceOf(RoaringDocIdSet.class));
+        assertThat(DocIdSets.representation(cacheable), equalTo(DocIdSets.Representation.ROARING));
+        assertThat(cacheable.ramBytesUsed(), lessThan(set.ramBytesUsed()));
+        assertSameDocs(bits, cacheable);
+    }
+
+    @Test
+    public void testRandomSets() throws IOException {
+        for (int iter = 0; iter < 10; iter++) {
+            FixedBitSet bits = new FixedBitSet(MAX_DOC);
+            int numDocs = randomIntBetween(1, 1 << randomIntBetween(1, 18));
+            for (int i = 0; i < numDocs; i++) {
+                bits.set(randomInt(MAX_DOC - 1));
+            }
+            DocIdSet cacheable = DocIdSets.toCacheable(reader, new BitDocIdSet(bits));
+            assertSameDocs(bits, cacheable);
+            // converting again never changes the representation
+            assertThat(DocIdSets.toCacheable(reader, cacheable), sameInstance(cacheable));
+        }
+        assertThat(DocIdSets.toCacheable(reader, new BitDocIdSet(new FixedBitSet(MAX_DOC))), sameInstance(DocIdSet.EMPTY));
+    }
+
+    private void assertSameDocs(FixedBitSet expected, DocIdSet actual) throws IOException {
+        DocIdSetIterator it = actual.iterator();
+        for (int doc = expected.nextSetBit(0); doc != DocIdSetIterator.NO_MORE_DOCS;
+             doc = doc + 1 < MAX_DOC ? expected.nextSetBit(doc + 1) : DocIdSetIterator.NO_MORE_DOCS) {
+            assertThat(it.nextDoc(), equalTo(doc));
+        }
+        assertThat(it.nextDoc(), equalTo(DocIdSetIterator.NO_MORE_DOCS));
+
+        // advancing to random targets returns the next set bit
+        it = actual.iterator();
+        int target = 0;
+        while (true) {
+            target += randomIntBetween(1, MAX_DOC / 64);
+            int expectedDoc = target < MAX_DOC ? expected.nextSetBit(target) : DocIdSetIterator.NO_MORE_DOCS;
+            assertThat(it.advance(target), equalTo(expectedDoc));
+            if (expectedDoc == DocIdSetIterator.NO_MORE_DOCS) {
+                break;
+            }
+            target = expectedDoc;
+        }
+    }
+}
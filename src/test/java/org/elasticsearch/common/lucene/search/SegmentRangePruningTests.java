@@ -0,0 +1,138 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.lucene.search;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleField;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FilteredQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.common.lucene.Lucene;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class SegmentRangePruningTests extends ElasticsearchTestCase {
+
+    private static void addSegment(IndexWriter writer, int from) throws Exception {
+        for (int i = from; i < from + 10; i++) {
+            Document document = new Document();
+            document.add(new LongField("long", i, Field.Store.NO));
+            document.add(new IntField("int", i, Field.Store.NO));
+            document.add(new DoubleField("double", i + 0.5, Field.Store.NO));
+            document.add(new TextField("text", "value", Field.Store.NO));
+            writer.addDocument(document);
+        }
+        writer.commit();
+    }
+
+    @Test
+    public void testSegmentsOutsideOfRangeAreSkipped() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.STANDARD_ANALYZER).setMergePolicy(NoMergePolicy.INSTANCE));
+        addSegment(writer, 0);
+        addSegment(writer, 100);
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        assertThat(reader.leaves().size(), equalTo(2));
+        LeafReader first = reader.leaves().get(0).reader();
+        LeafReader second = reader.leaves().get(1).reader();
+
+        NumericRangeQuery<Long> longRange = NumericRangeQuery.newLongRange("long", 50L, 200L, true, true);
+        assertThat(SegmentRangePruning.canMatch(longRange, first), equalTo(false));
+        assertThat(SegmentRangePruning.canMatch(longRange, second), equalTo(true));
+        assertThat(SegmentRangePruning.matchingLeaves(longRange, reader.leaves()).size(), equalTo(1));
+
+        // bounds are checked with their inclusiveness
+        assertThat(SegmentRangePruning.canMatch(NumericRangeQuery.newLongRange("long", 9L, null, true, true), first), equalTo(true));
+        assertThat(SegmentRangePruning.canMatch(NumericRangeQuery.newLongRange("long", 9L, null, false, true), first), equalTo(false));
+        assertThat(SegmentRangePruning.canMatch(NumericRangeQuery.newLongRange("long", null, 100L, true, true), second), equalTo(true));
+        assertThat(SegmentRangePruning.canMatch(NumericRangeQuery.newLongRange("long", null, 100L, true, false), second), equalTo(false));
+
+        assertThat(SegmentRangePruning.canMatch(NumericRangeQuery.newIntRange("int", 50, 200, true, true), first), equalTo(false));
+        assertThat(SegmentRangePruning.canMatch(NumericRangeQuery.newIntRange("int", 50, 200, true, true), second), equalTo(true));
+        assertThat(SegmentRangePruning.canMatch(NumericRangeQuery.newDoubleRange("double", 9.6, null, true, true), first), equalTo(false));
+        assertThat(SegmentRangePruning.canMatch(NumericRangeQuery.newDoubleRange("double", 9.5, null, true, true), first), equalTo(true));
+
+        // a field without values can't match
+        assertThat(SegmentRangePruning.canMatch(NumericRangeQuery.newLongRange("missing", 0L, 10L, true, true), first), equalTo(false));
+
+        reader.close();
+        writer.close();
+    }
+
+    @Test
+    public void testOnlyRequiredRangesPrune() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(Lucene.STANDARD_ANALYZER));
+        addSegment(writer, 0);
+        DirectoryReader reader = DirectoryReader.open(writer, true);
+        LeafReader leaf = reader.leaves().get(0).reader();
+
+        NumericRangeQuery<Long> outside = NumericRangeQuery.newLongRange("long", 50L, 200L, true, true);
+        NumericRangeQuery<Long> inside = NumericRangeQuery.newLongRange("long", 5L, 200L, true, true);
+        TermQuery term = new TermQuery(new Term("text", "value"));
+
+        assertThat(SegmentRangePruning.canMatch(new FilteredQuery(term, Queries.wrap(outside)), leaf), equalTo(false));
+        assertThat(SegmentRangePruning.canMatch(new ConstantScoreQuery(Queries.wrap(outside)), leaf), equalTo(false));
+        assertThat(SegmentRangePruning.canMatch(new FilteredQuery(term, Queries.wrap(inside)), leaf), equalTo(true));
+
+        BooleanQuery bool = new BooleanQuery();
+        bool.add(term, BooleanClause.Occur.MUST);
+        bool.add(outside, BooleanClause.Occur.FILTER);
+        assertThat(SegmentRangePruning.canMatch(bool, leaf), equalTo(false));
+
+        // a should clause is optional when there is a required one
+        bool = new BooleanQuery();
+        bool.add(term, BooleanClause.Occur.MUST);
+        bool.add(outside, BooleanClause.Occur.SHOULD);
+        assertThat(SegmentRangePruning.canMatch(bool, leaf), equalTo(true));
+
+        // but not when it is the only kind of clause
+        bool = new BooleanQuery();
+        bool.add(outside, BooleanClause.Occur.SHOULD);
+        assertThat(SegmentRangePruning.canMatch(bool, leaf), equalTo(false));
+        bool.add(inside, BooleanClause.Occur.SHOULD);
+        assertThat(SegmentRangePruning.canMatch(bool, leaf), equalTo(true));
+
+        bool = new BooleanQuery();
+        bool.add(term, BooleanClause.Occur.MUST);
+        bool.add(outside, BooleanClause.Occur.MUST_NOT);
+        assertThat(SegmentRangePruning.canMatch(bool, leaf), equalTo(true));
+
+        reader.close();
+        writer.close();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.metrics;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class HistogramMetricTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testBuckets() {
+        HistogramMetric histogram = new HistogramMetric(1, 10, 100);
+        histogram.inc(0);
+        histogram.inc(1);
+        histogram.inc(2);
+        histogram.inc(10);
+        histogram.inc(50);
+        histogram.inc(101);
+        histogram.inc(1000);
+
+        assertThat(histogram.counts(), equalTo(new long[]{2, 2, 1, 2}));
+        assertThat(histogram.count(), equalTo(7l));
+        assertThat(histogram.sum(), equalTo(1164l));
+
+        histogram.clear();
+        assertThat(histogram.counts(), equalTo(new long[]{0, 0, 0, 0}));
+        assertThat(histogram.count(), equalTo(0l));
+    }
+
+    @Test
+    public void testRandomValues() {
+        long[] bounds = new long[]{5, 50, 500};
+        HistogramMetric histogram = new HistogramMetric(bounds);
+        long[] expected = new long[bounds.length + 1];
+        int iters = scaledRandomIntBetween(10, 1000);
+        for (int i = 0; i < iters; i++) {
+            long value = randomIntBetween(0, 1000);
+            histogram.inc(value);
+            int bucket = 0;
+            while (bucket < bounds.length && value > bounds[bucket]) {
+                bucket++;
+            }
+            expected[bucket]++;
+        }
+        assertThat(histogram.counts(), equalTo(expected));
+        assertThat(histogram.count(), equalTo((long) iters));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBoundsMustIncrease() {
+        new HistogramMetric(10, 5);
+    }
+}
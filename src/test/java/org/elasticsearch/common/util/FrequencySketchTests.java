@@ -0,0 +1,77 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.common.util;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+
+public class FrequencySketchTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testFrequency() {
+        FrequencySketch sketch = new FrequencySketch(1024);
+        assertThat(sketch.frequency(42), equalTo(0));
+        for (int i = 1; i <= 10; i++) {
+            sketch.increment(42);
+            assertThat(sketch.frequency(42), greaterThanOrEqualTo(i));
+        }
+        for (int i = 0; i < 10; i++) {
+            sketch.increment(42);
+        }
+        assertThat(sketch.frequency(42), equalTo(FrequencySketch.MAX_FREQUENCY));
+    }
+
+    @Test
+    public void testNeverUnderCounts() {
+        FrequencySketch sketch = new FrequencySketch(1 << 16);
+        int[] counts = new int[100];
+        for (int i = 0; i < 1000; i++) {
+            int key = randomInt(counts.length - 1);
+            sketch.increment(key);
+            counts[key]++;
+        }
+        for (int key = 0; key < counts.length; key++) {
+            assertThat(sketch.frequency(key), greaterThanOrEqualTo(Math.min(counts[key], FrequencySketch.MAX_FREQUENCY)));
+        }
+    }
+
+    @Test
+    public void testAging() {
+        FrequencySketch sketch = new FrequencySketch(128);
+        for (int i = 0; i < 8; i++) {
+            sketch.increment(-1);
+        }
+        assertThat(sketch.frequency(-1), greaterThanOrEqualTo(8));
+        // other keys filling up the window make the counts of the old key decay
+        for (int i = 0; i < 1024; i++) {
+            sketch.increment(i);
+        }
+        assertThat(sketch.frequency(-1), lessThan(8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWindowSize() {
+        new FrequencySketch(0);
+    }
+}
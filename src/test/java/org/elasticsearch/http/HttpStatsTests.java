@@ -0,0 +1,67 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.http;
+
+import org.elasticsearch.common.io.stream.BytesStreamInput;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class HttpStatsTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testSerialization() throws Exception {
+        HttpStats stats = new HttpStats(randomIntBetween(0, 100), randomIntBetween(0, 1000), randomIntBetween(0, 1000),
+                randomIntBetween(0, 1 << 20), randomIntBetween(0, 1000), randomIntBetween(0, 1 << 20));
+        BytesStreamOutput out = new BytesStreamOutput();
+        stats.writeTo(out);
+        HttpStats read = HttpStats.readHttpStats(new BytesStreamInput(out.bytes()));
+        assertThat(read.getServerOpen(), equalTo(stats.getServerOpen()));
+        assertThat(read.getTotalOpen(), equalTo(stats.getTotalOpen()));
+        assertThat(read.getRecycledResponses(), equalTo(stats.getRecycledResponses()));
+        assertThat(read.getRecycledResponseSize(), equalTo(stats.getRecycledResponseSize()));
+        assertThat(read.getAllocatedResponses(), equalTo(stats.getAllocatedResponses()));
+        assertThat(read.getAllocatedResponseSize(), equalTo(stats.getAllocatedResponseSize()));
+    }
+
+    @Test
+    public void testToXContent() throws Exception {
+        HttpStats stats = new HttpStats(1, 2, 3, 4, 5, 6);
+        XContentBuilder builder = XContentFactory.jsonBuilder();
+        builder.startObject();
+        stats.toXContent(builder, ToXContent.EMPTY_PARAMS);
+        builder.endObject();
+        assertThat(builder.string(), equalTo("{\"http\":{\"current_open\":1,\"total_opened\":2,\"responses\":{" +
+                "\"recycled\":3,\"recycled_size_in_bytes\":4,\"allocated\":5,\"allocated_size_in_bytes\":6}}}"));
+    }
+
+    @Test
+    public void testTwoArgConstructorHasNoResponses() throws Exception {
+        HttpStats stats = new HttpStats(1, 2);
+        assertThat(stats.getRecycledResponses(), equalTo(0l));
+        assertThat(stats.getRecycledResponseSize().bytes(), equalTo(0l));
+        assertThat(stats.getAllocatedResponses(), equalTo(0l));
+        assertThat(stats.getAllocatedResponseSize().bytes(), equalTo(0l));
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.http.netty;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.common.bytes.BytesReference;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.http.HttpChannel;
+import org.elasticsearch.http.HttpRequest;
+import org.elasticsearch.http.HttpServerAdapter;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestContentConsumer;
+import org.elasticsearch.rest.RestRequest;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.test.cache.recycler.MockBigArrays;
+import org.elasticsearch.test.cache.recycler.MockPageCacheRecycler;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.http.netty.NettyHttpChannelStreamingTests.readHeaders;
+import static org.elasticsearch.http.netty.NettyHttpChannelStreamingTests.readLine;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Tests that chunked requests, streamed or aggregated, are answered in order when http pipelining is enabled
+ */
+public class HttpStreamingHandlerTests extends ElasticsearchTestCase {
+
+    private static final Pattern CONTENT_LENGTH = Pattern.compile("Content-Length: (\\d+)", Pattern.CASE_INSENSITIVE);
+
+    private ThreadPool threadPool;
+    private NettyHttpServerTransport httpServerTransport;
+
+    @Before
+    public void setup() throws Exception {
+        threadPool = new ThreadPool("test");
+        MockBigArrays bigArrays = new MockBigArrays(new MockPageCacheRecycler(ImmutableSettings.EMPTY, threadPool), new NoneCircuitBreakerService());
+        httpServerTransport = new NettyHttpServerTransport(settingsBuilder().put("http.pipelining", true).build(),
+                new NetworkService(ImmutableSettings.EMPTY), bigArrays);
+        httpServerTransport.httpServerAdapter(new SlowServerAdapter());
+        httpServerTransport.start();
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        if (httpServerTransport != null) {
+            httpServerTransport.close();
+        }
+        if (threadPool != null) {
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testStreamedRequestIsAnsweredInOrder() throws Exception {
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(chunkedRequest("/_stream", "first", "second").getBytes(Charsets.US_ASCII));
+            out.write("GET /_plain HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(Charsets.US_ASCII));
+            out.flush();
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertThat(readResponse(in), equalTo("/_stream firstsecond"));
+            assertThat(readResponse(in), equalTo("/_plain "));
+        }
+    }
+
+    @Test
+    public void testAggregatedRequestIsAnsweredInOrder() throws Exception {
+        try (Socket socket = connect()) {
+            OutputStream out = socket.getOutputStream();
+            out.write(chunkedRequest("/_aggregate", "first", "second").getBytes(Charsets.US_ASCII));
+            out.write("GET /_plain HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(Charsets.US_ASCII));
+            out.flush();
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertThat(readResponse(in), equalTo("/_aggregate firstsecond"));
+            assertThat(readResponse(in), equalTo("/_plain "));
+        }
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket();
+        socket.connect(((InetSocketTransportAddress) httpServerTransport.boundAddress().boundAddress()).address());
+        return socket;
+    }
+
+    private static String chunkedRequest(String uri, String... chunks) {
+        StringBuilder request = new StringBuilder("POST ").append(uri).append(" HTTP/1.1\r\nHost: localhost\r\nTransfer-Encoding: chunked\r\n\r\n");
+        for (String chunk : chunks) {
+            request.append(Integer.toHexString(chunk.length())).append("\r\n").append(chunk).append("\r\n");
+        }
+        return request.append("0\r\n\r\n").toString();
+    }
+
+    private static String readResponse(InputStream in) throws IOException {
+        assertThat(readLine(in), equalTo("HTTP/1.1 200 OK"));
+        Matcher matcher = CONTENT_LENGTH.matcher(readHeaders(in));
+        assertTrue(matcher.find());
+        byte[] content = new byte[Integer.parseInt(matcher.group(1))];
+        int read = 0;
+        while (read < content.length) {
+            int len = in.read(content, read, content.length - read);
+            if (len == -1) {
+                throw new EOFException();
+            }
+            read += len;
+        }
+        return new String(content, Charsets.UTF_8);
+    }
+
+    /**
+     * Answers requests with their uri and content, chunked requests only after a delay so that the response of
+     * the next request would be ready first if responses weren't ordered. Requests to <tt>/_stream</tt> are streamed.
+     */
+    private class SlowServerAdapter implements HttpServerAdapter {
+
+        @Override
+        public void dispatchRequest(HttpRequest request, HttpChannel channel) {
+            String content = request.hasContent() ? request.content().toUtf8() : "";
+            if (request.method() == RestRequest.Method.POST) {
+                respondLater(channel, request.uri() + " " + content);
+            } else {
+                channel.sendResponse(new BytesRestResponse(RestStatus.OK, request.uri() + " " + content));
+            }
+        }
+
+        @Override
+        public RestContentConsumer dispatchStreamingRequest(final HttpRequest request, final HttpChannel channel) {
+            if (request.uri().equals("/_stream") == false) {
+                return null;
+            }
+            return new RestContentConsumer() {
+                final StringBuilder content = new StringBuilder();
+
+                @Override
+                public void onContent(BytesReference chunk) {
+                    content.append(chunk.toUtf8());
+                }
+
+                @Override
+                public void onContentEnd() {
+                    respondLater(channel, request.uri() + " " + content);
+                }
+
+                @Override
+                public void onFailure(Throwable t) {
+                    channel.sendResponse(new BytesRestResponse(RestStatus.INTERNAL_SERVER_ERROR, t.toString()));
+                }
+            };
+        }
+
+        private void respondLater(final HttpChannel channel, final String content) {
+            threadPool.schedule(TimeValue.timeValueMillis(200), ThreadPool.Names.GENERIC, new Runnable() {
+                @Override
+                public void run() {
+                    channel.sendResponse(new BytesRestResponse(RestStatus.OK, content));
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,349 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.http.netty;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.transport.InetSocketTransportAddress;
+import org.elasticsearch.http.HttpChannel;
+import org.elasticsearch.http.HttpRequest;
+import org.elasticsearch.http.HttpServerAdapter;
+import org.elasticsearch.http.HttpStats;
+import org.elasticsearch.indices.breaker.NoneCircuitBreakerService;
+import org.elasticsearch.rest.BytesRestResponse;
+import org.elasticsearch.rest.RestContentConsumer;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.rest.StreamingRestResponse;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.test.cache.recycler.MockBigArrays;
+import org.elasticsearch.test.cache.recycler.MockPageCacheRecycler;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Tests the chunked writing of {@link StreamingRestResponse}s by the netty http channel
+ */
+public class NettyHttpChannelStreamingTests extends ElasticsearchTestCase {
+
+    private static final int PART_SIZE = 1024;
+
+    private ThreadPool threadPool;
+    private MockBigArrays bigArrays;
+    private NettyHttpServerTransport httpServerTransport;
+
+    @Before
+    public void setup() throws Exception {
+        threadPool = new ThreadPool("test");
+        bigArrays = new MockBigArrays(new MockPageCacheRecycler(ImmutableSettings.EMPTY, threadPool), new NoneCircuitBreakerService());
+    }
+
+    @After
+    public void shutdown() throws Exception {
+        if (httpServerTransport != null) {
+            httpServerTransport.close();
+        }
+        if (threadPool != null) {
+            threadPool.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGenerationPausesForSlowClient() throws Exception {
+        // large enough to exceed the socket buffers of both sides
+        final int numParts = 16 * 1024;
+        PartsResponse response = new PartsResponse(numParts, -1);
+        CountDownLatch sent = startServer(response);
+
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(serverAddress());
+            sendRequest(socket);
+            // the thread sending the response doesn't wait for the client
+            assertTrue(sent.await(10, TimeUnit.SECONDS));
+            // and generating the content paused as the client doesn't read
+            final AtomicInteger generated = response.generated;
+            int before;
+            do {
+                before = generated.get();
+                Thread.sleep(100);
+            } while (generated.get() != before);
+            assertThat(generated.get(), lessThan(numParts));
+
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertThat(readLine(in), equalTo("HTTP/1.1 200 OK"));
+            assertThat(readHeaders(in), containsString("Transfer-Encoding: chunked"));
+            byte[] content = readChunkedContent(in);
+            assertThat(content.length, equalTo(numParts * PART_SIZE));
+            for (int i = 0; i < numParts; i++) {
+                assertThat(content[i * PART_SIZE], equalTo(PartsResponse.partByte(i)));
+                assertThat(content[(i + 1) * PART_SIZE - 1], equalTo(PartsResponse.partByte(i)));
+            }
+            assertThat(generated.get(), equalTo(numParts));
+        }
+    }
+
+    @Test
+    public void testFailureBeforeFirstChunkIsReported() throws Exception {
+        startServer(new PartsResponse(10, 0));
+        try (Socket socket = new Socket()) {
+            socket.connect(serverAddress());
+            sendRequest(socket);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertThat(readLine(in), equalTo("HTTP/1.1 500 Internal Server Error"));
+            assertThat(readHeaders(in), not(containsString("Transfer-Encoding: chunked")));
+        }
+    }
+
+    @Test
+    public void testFailureAfterFirstChunkAbortsResponse() throws Exception {
+        // fails once a few chunks have been written
+        startServer(new PartsResponse(1024, 100));
+        try (Socket socket = new Socket()) {
+            socket.connect(serverAddress());
+            sendRequest(socket);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertThat(readLine(in), equalTo("HTTP/1.1 200 OK"));
+            readHeaders(in);
+            try {
+                readChunkedContent(in);
+                fail("the response should have been aborted");
+            } catch (EOFException e) {
+                // expected, the connection is closed without the last chunk
+            }
+        }
+    }
+
+    @Test
+    public void testChunksAreWrittenFromRecycledPages() throws Exception {
+        final int numParts = randomIntBetween(1, 100);
+        startServer(new PartsResponse(numParts, -1));
+        try (Socket socket = new Socket()) {
+            socket.connect(serverAddress());
+            sendRequest(socket);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertThat(readLine(in), equalTo("HTTP/1.1 200 OK"));
+            readHeaders(in);
+            assertThat(readChunkedContent(in).length, equalTo(numParts * PART_SIZE));
+        }
+        // the pages of every chunk are released once it is written
+        MockBigArrays.ensureAllArraysAreReleased();
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                HttpStats stats = httpServerTransport.stats();
+                assertThat(stats.getRecycledResponses(), equalTo(1l));
+                assertThat(stats.getRecycledResponseSize().bytes(), equalTo((long) numParts * PART_SIZE));
+                assertThat(stats.getAllocatedResponses(), equalTo(0l));
+            }
+        });
+    }
+
+    @Test
+    public void testPagesAreReleasedWhenGenerationFails() throws Exception {
+        // fails after the first chunk was written, while another one is partially filled
+        int partsPerChunk = NettyHttpChannel.STREAMING_CHUNK_SIZE / PART_SIZE;
+        startServer(new PartsResponse(1024, randomIntBetween(1, 5) * partsPerChunk + randomIntBetween(1, partsPerChunk - 1)));
+        try (Socket socket = new Socket()) {
+            socket.connect(serverAddress());
+            sendRequest(socket);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertThat(readLine(in), equalTo("HTTP/1.1 200 OK"));
+            readHeaders(in);
+            try {
+                readChunkedContent(in);
+                fail("the response should have been aborted");
+            } catch (EOFException e) {
+                // expected
+            }
+        }
+        // including the ones of the chunk that was being filled when generating failed
+        MockBigArrays.ensureAllArraysAreReleased();
+    }
+
+    @Test
+    public void testHeapResponsesAreCountedAsAllocated() throws Exception {
+        startServer(new BytesRestResponse(RestStatus.OK, "hello"));
+        try (Socket socket = new Socket()) {
+            socket.connect(serverAddress());
+            sendRequest(socket);
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            assertThat(readLine(in), equalTo("HTTP/1.1 200 OK"));
+            readHeaders(in);
+        }
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                HttpStats stats = httpServerTransport.stats();
+                assertThat(stats.getAllocatedResponses(), equalTo(1l));
+                assertThat(stats.getAllocatedResponseSize().bytes(), equalTo(5l));
+                assertThat(stats.getRecycledResponses(), equalTo(0l));
+                assertThat(stats.getRecycledResponseSize().bytes(), equalTo(0l));
+            }
+        });
+    }
+
+    private CountDownLatch startServer(final RestResponse response) {
+        final CountDownLatch sent = new CountDownLatch(1);
+        httpServerTransport = new NettyHttpServerTransport(settingsBuilder().put("http.pipelining", randomBoolean()).build(),
+                new NetworkService(ImmutableSettings.EMPTY), bigArrays);
+        httpServerTransport.httpServerAdapter(new HttpServerAdapter() {
+            @Override
+            public void dispatchRequest(HttpRequest request, HttpChannel channel) {
+                try {
+                    channel.sendResponse(response);
+                } catch (Throwable t) {
+                    // like the rest controller, report failures to send the response
+                    try {
+                        channel.sendResponse(new BytesRestResponse(channel, t));
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                sent.countDown();
+            }
+
+            @Override
+            public RestContentConsumer dispatchStreamingRequest(HttpRequest request, HttpChannel channel) {
+                return null;
+            }
+        });
+        httpServerTransport.start();
+        return sent;
+    }
+
+    private java.net.InetSocketAddress serverAddress() {
+        return ((InetSocketTransportAddress) httpServerTransport.boundAddress().boundAddress()).address();
+    }
+
+    static void sendRequest(Socket socket) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write("GET /_stream HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(Charsets.US_ASCII));
+        out.flush();
+    }
+
+    static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                throw new EOFException("connection closed after [" + line.toString("US-ASCII") + "]");
+            }
+            if (b != '\r') {
+                line.write(b);
+            }
+        }
+        return line.toString("US-ASCII");
+    }
+
+    static String readHeaders(InputStream in) throws IOException {
+        StringBuilder headers = new StringBuilder();
+        String line;
+        while ((line = readLine(in)).isEmpty() == false) {
+            headers.append(line).append('\n');
+        }
+        return headers.toString();
+    }
+
+    private static byte[] readChunkedContent(InputStream in) throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        int size;
+        while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+            byte[] chunk = new byte[size];
+            int read = 0;
+            while (read < size) {
+                int len = in.read(chunk, read, size - read);
+                if (len == -1) {
+                    throw new EOFException("connection closed in the middle of a chunk");
+                }
+                read += len;
+            }
+            content.write(chunk);
+            assertThat(readLine(in), isEmptyString());
+        }
+        assertThat(readLine(in), isEmptyString());
+        return content.toByteArray();
+    }
+
+    /**
+     * Generates parts of {@link #PART_SIZE} bytes, each filled with a byte derived from its index
+     */
+    private static class PartsResponse extends StreamingRestResponse {
+
+        final AtomicInteger generated = new AtomicInteger();
+        private final int numParts;
+        private final int failAt;
+
+        /**
+         * @param failAt the part to fail on or <tt>-1</tt> to not fail
+         */
+        PartsResponse(int numParts, int failAt) {
+            this.numParts = numParts;
+            this.failAt = failAt;
+        }
+
+        static byte partByte(int part) {
+            return (byte) ('a' + part % 26);
+        }
+
+        @Override
+        public boolean writeNext(OutputStream out) throws IOException {
+            int part = generated.get();
+            if (part == numParts) {
+                return false;
+            }
+            if (part == failAt) {
+                throw new IOException("failed to generate part [" + part + "]");
+            }
+            byte[] bytes = new byte[PART_SIZE];
+            Arrays.fill(bytes, partByte(part));
+            out.write(bytes);
+            generated.incrementAndGet();
+            return true;
+        }
+
+        @Override
+        public String contentType() {
+            return "text/plain";
+        }
+
+        @Override
+        public RestStatus status() {
+            return RestStatus.OK;
+        }
+    }
+}
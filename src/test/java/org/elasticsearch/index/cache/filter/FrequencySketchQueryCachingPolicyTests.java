@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.cache.filter;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Filter;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.QueryCachingPolicy;
+import org.apache.lucene.search.QueryWrapperFilter;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+public class FrequencySketchQueryCachingPolicyTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testAdmission() throws Exception {
+        Directory dir = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(dir, new IndexWriterConfig(new KeywordAnalyzer()));
+        for (int i = 0; i < 20; i++) {
+            Document doc = new Document();
+            doc.add(new StringField("field", "value" + (i % 5), Field.Store.NO));
+            writer.addDocument(doc);
+        }
+        writer.commit();
+        DirectoryReader reader = DirectoryReader.open(dir);
+        LeafReaderContext context = reader.leaves().get(0);
+
+        FrequencySketchQueryCachingPolicy policy = new FrequencySketchQueryCachingPolicy(1024, 3, 2, 10, QueryCachingPolicy.ALWAYS_CACHE);
+        Filter term = new QueryWrapperFilter(new TermQuery(new Term("field", "value1")));
+        Filter prefix = new QueryWrapperFilter(new PrefixQuery(new Term("field", "val")));
+        for (int i = 0; i < 2; i++) {
+            assertFalse(policy.shouldCache(term, context));
+            policy.onUse(term);
+        }
+        assertFalse(policy.shouldCache(prefix, context));
+        policy.onUse(prefix);
+        assertFalse(policy.shouldCache(prefix, context));
+        policy.onUse(prefix);
+        // the prefix filter visits all its matches anyway so it's admitted sooner
+        assertTrue(policy.shouldCache(prefix, context));
+        assertFalse(policy.shouldCache(term, context));
+        policy.onUse(term);
+        assertTrue(policy.shouldCache(term, context));
+
+        // but never on tiny segments
+        policy = new FrequencySketchQueryCachingPolicy(1024, 1, 1, 100, QueryCachingPolicy.ALWAYS_CACHE);
+        policy.onUse(term);
+        assertFalse(policy.shouldCache(term, context));
+
+        reader.close();
+        writer.close();
+        dir.close();
+    }
+}
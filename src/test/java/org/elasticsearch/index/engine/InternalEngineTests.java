@@ -71,6 +71,7 @@ import org.elasticsearch.index.merge.policy.LogByteSizeMergePolicyProvider;
 import org.elasticsearch.index.merge.policy.MergePolicyProvider;
 import org.elasticsearch.index.merge.scheduler.ConcurrentMergeSchedulerProvider;
 import org.elasticsearch.index.merge.scheduler.MergeSchedulerProvider;
+import org.elasticsearch.index.seqno.SequenceNumbers;
 import org.elasticsearch.index.settings.IndexDynamicSettingsModule;
 import org.elasticsearch.index.settings.IndexSettingsService;
 import org.elasticsearch.index.shard.ShardId;
@@ -94,6 +95,7 @@ import org.junit.Test;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -494,6 +496,75 @@ public class InternalEngineTests extends ElasticsearchTestCase {
         assertThat(stats2.getUserData().get(Translog.TRANSLOG_ID_KEY), not(equalTo(stats1.getUserData().get(Translog.TRANSLOG_ID_KEY))));
     }
 
+    @Test
+    public void testSequenceNumbers() throws Exception {
+        assertThat(engine.maxSeqNo(), equalTo(SequenceNumbers.NO_OPS_PERFORMED));
+        for (int i = 0; i < 3; i++) {
+            ParsedDocument doc = testParsedDocument(Integer.toString(i), Integer.toString(i), "test", null, -1, -1, testDocumentWithTextField(), B_1, null);
+            Engine.Index index = new Engine.Index(null, newUid(Integer.toString(i)), doc);
+            engine.index(index);
+            assertThat(index.seqNo(), equalTo((long) i));
+        }
+        Engine.Delete delete = new Engine.Delete("test", "0", newUid("0"));
+        engine.delete(delete);
+        assertThat(delete.seqNo(), equalTo(3l));
+        assertThat(engine.localCheckpoint(), equalTo(3l));
+
+        engine.flush(true, true);
+        Map<String, String> userData = engine.commitStats().getUserData();
+        assertThat(userData.get(SequenceNumbers.HISTORY_UUID_KEY), equalTo(engine.historyUUID()));
+        assertThat(userData.get(SequenceNumbers.LOCAL_CHECKPOINT_KEY), equalTo("3"));
+        assertThat(userData.get(SequenceNumbers.MAX_SEQ_NO_KEY), equalTo("3"));
+        assertThat(userData.get(SequenceNumbers.TRANSLOG_START_SEQ_NO_KEY), equalTo("3"));
+
+        // replicas apply the primary's sequence numbers and only move the checkpoint once the gaps are filled
+        ParsedDocument doc = testParsedDocument("1", "1", "test", null, -1, -1, testDocumentWithTextField(), B_1, null);
+        Engine.Index replicaIndex = new Engine.Index(null, newUid("1"), doc, 1, VersionType.EXTERNAL, REPLICA, System.nanoTime());
+        replicaIndex.seqNo(5);
+        replicaEngine.index(replicaIndex);
+        assertThat(replicaEngine.maxSeqNo(), equalTo(5l));
+        assertThat(replicaEngine.localCheckpoint(), equalTo(SequenceNumbers.NO_OPS_PERFORMED));
+        assertThat(replicaEngine.historyUUID(), not(equalTo(engine.historyUUID())));
+
+        replicaEngine.adoptHistory(engine.historyUUID(), engine.maxSeqNo());
+        assertThat(replicaEngine.historyUUID(), equalTo(engine.historyUUID()));
+        assertThat(replicaEngine.localCheckpoint(), equalTo(3l));
+
+        String historyUUID = engine.historyUUID();
+        engine.startNewHistory();
+        assertThat(engine.historyUUID(), not(equalTo(historyUUID)));
+        assertThat(engine.localCheckpoint(), equalTo(3l));
+    }
+
+    @Test
+    public void testSyncFlush() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            ParsedDocument doc = testParsedDocument(Integer.toString(i), Integer.toString(i), "test", null, -1, -1, testDocumentWithTextField(), B_1, null);
+            engine.index(new Engine.Index(null, newUid(Integer.toString(i)), doc));
+        }
+        final String historyUUID = engine.historyUUID();
+        assertFalse("history differs", engine.syncFlush("sync", "other", 2));
+        assertFalse("primary reported more operations", engine.syncFlush("sync", historyUUID, 3));
+        assertNull(engine.commitStats().getUserData().get(Engine.SYNC_COMMIT_ID));
+
+        assertTrue(engine.syncFlush("sync", historyUUID, 2));
+        assertThat(engine.commitStats().getUserData().get(Engine.SYNC_COMMIT_ID), equalTo("sync"));
+        assertThat(engine.commitStats().getUserData().get(SequenceNumbers.LOCAL_CHECKPOINT_KEY), equalTo("2"));
+
+        // the commit made when the engine is opened again keeps the sync id
+        engine.close();
+        engine = new InternalEngine(engine.config(), randomBoolean());
+        assertThat(engine.commitStats().getUserData().get(Engine.SYNC_COMMIT_ID), equalTo("sync"));
+        assertThat(engine.maxSeqNo(), equalTo(2l));
+
+        // new operations drop the sync id with the next commit
+        ParsedDocument doc = testParsedDocument("3", "3", "test", null, -1, -1, testDocumentWithTextField(), B_1, null);
+        engine.index(new Engine.Index(null, newUid("3"), doc));
+        assertFalse(engine.syncFlush("sync2", historyUUID, 2));
+        engine.flush(true, true);
+        assertNull(engine.commitStats().getUserData().get(Engine.SYNC_COMMIT_ID));
+    }
+
     @Test
     public void testSimpleOperations() throws Exception {
         Engine.Searcher searchResult = engine.acquireSearcher("test");
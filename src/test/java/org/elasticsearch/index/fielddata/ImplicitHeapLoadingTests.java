@@ -0,0 +1,97 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata;
+
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.test.ElasticsearchSingleNodeTest;
+import org.junit.Test;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertFailures;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class ImplicitHeapLoadingTests extends ElasticsearchSingleNodeTest {
+
+    @Test
+    public void testForbidImplicitHeapLoading() throws Exception {
+        Settings settings = ImmutableSettings.builder()
+                .put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1)
+                .put(IndexFieldDataService.FIELDDATA_IMPLICIT_HEAP_LOADING, false)
+                .build();
+        createIndex("test", settings, "type", XContentFactory.jsonBuilder().startObject().startObject("type")
+                .startObject("properties")
+                    .startObject("keyword")
+                        .field("type", "string")
+                        .field("index", "not_analyzed")
+                    .endObject()
+                    .startObject("text")
+                        .field("type", "string")
+                    .endObject()
+                    .startObject("explicit")
+                        .field("type", "string")
+                        .startObject("fielddata")
+                            .field("format", "paged_bytes")
+                        .endObject()
+                    .endObject()
+                .endObject()
+                .endObject().endObject());
+        // two segments, so that global ordinals need to be built on top of the doc values
+        for (int i = 0; i < 2; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("keyword", "value" + i, "text", "value" + i, "explicit", "value" + i).get();
+            client().admin().indices().prepareRefresh("test").get();
+        }
+
+        SearchResponse resp = client().prepareSearch("test").addAggregation(AggregationBuilders.terms("t").field("keyword")).get();
+        assertNoFailures(resp);
+        resp = client().prepareSearch("test").addAggregation(AggregationBuilders.terms("t").field("explicit")).get();
+        assertNoFailures(resp);
+        try {
+            resp = client().prepareSearch("test").addAggregation(AggregationBuilders.terms("t").field("text")).get();
+            assertFailures(resp);
+        } catch (SearchPhaseExecutionException e) {
+            // expected
+        }
+
+        FieldDataStats stats = client().admin().indices().prepareStats("test").clear().setFieldData(true).get().getTotal().getFieldData();
+        assertThat(stats.getDocValuesLoads(), greaterThan(0l));
+        assertThat(stats.getHeapLoads(), greaterThan(0l));
+    }
+
+    @Test
+    public void testImplicitHeapLoadingAllowedByDefault() throws Exception {
+        createIndex("test", ImmutableSettings.builder().put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1).build(), "type", "text", "type=string");
+        client().prepareIndex("test", "type", "1").setSource("text", "value").setRefresh(true).get();
+
+        FieldDataStats stats = client().admin().indices().prepareStats("test").clear().setFieldData(true).get().getTotal().getFieldData();
+        assertThat(stats.getHeapLoads(), equalTo(0l));
+
+        SearchResponse resp = client().prepareSearch("test").addAggregation(AggregationBuilders.terms("t").field("text")).get();
+        assertNoFailures(resp);
+
+        stats = client().admin().indices().prepareStats("test").clear().setFieldData(true).get().getTotal().getFieldData();
+        assertThat(stats.getHeapLoads(), greaterThan(0l));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.index.fielddata.plain.MMapBytesIndexFieldData;
+import org.elasticsearch.index.mapper.ContentPath;
+import org.elasticsearch.index.mapper.FieldMapper;
+import org.elasticsearch.index.mapper.Mapper.BuilderContext;
+import org.elasticsearch.index.mapper.MapperBuilders;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class MMapBytesStringFieldDataTests extends AbstractStringFieldDataTests {
+
+    @Override
+    protected FieldDataType getFieldDataType() {
+        return new FieldDataType("string", ImmutableSettings.builder().put("format", "mmap"));
+    }
+
+    @Test
+    public void testUninvertingIsAccountedToTheBreaker() throws Exception {
+        for (int i = 0; i < 5000; i++) {
+            Document d = new Document();
+            d.add(new StringField("value", "term-" + i, Field.Store.NO));
+            writer.addDocument(d);
+        }
+        LeafReaderContext context = refreshReader();
+
+        HierarchyCircuitBreakerService breakerService = breakerService("1kb");
+        try {
+            fieldData(breakerService).loadDirect(context);
+            fail("expected the transient memory to trip the breaker");
+        } catch (CircuitBreakingException e) {
+            // expected
+        }
+        assertThat(breakerService.getBreaker(CircuitBreaker.FIELDDATA).getUsed(), equalTo(0l));
+
+        // once loaded only the field data itself remains accounted
+        breakerService = breakerService("100mb");
+        AtomicOrdinalsFieldData data = fieldData(breakerService).loadDirect(context);
+        assertThat(breakerService.getBreaker(CircuitBreaker.FIELDDATA).getUsed(), equalTo(data.ramBytesUsed()));
+        data.close();
+    }
+
+    private HierarchyCircuitBreakerService breakerService(String limit) {
+        return new HierarchyCircuitBreakerService(
+                ImmutableSettings.builder().put(HierarchyCircuitBreakerService.FIELDDATA_CIRCUIT_BREAKER_LIMIT_SETTING, limit).build(),
+                new NodeSettingsService(ImmutableSettings.EMPTY));
+    }
+
+    private IndexOrdinalsFieldData fieldData(HierarchyCircuitBreakerService breakerService) {
+        final BuilderContext context = new BuilderContext(indexService.settingsService().getSettings(), new ContentPath(1));
+        final FieldMapper<?> mapper = MapperBuilders.stringField("value").tokenized(false)
+                .fieldDataSettings(getFieldDataType().getSettings()).build(context);
+        return new MMapBytesIndexFieldData.Builder().build(indexService.index(), indexService.settingsService().getSettings(), mapper,
+                new IndexFieldDataCache.None(), breakerService, mapperService);
+    }
+}
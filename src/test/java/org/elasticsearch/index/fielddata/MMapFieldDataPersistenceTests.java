@@ -0,0 +1,92 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.index.fielddata;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.IndexService;
+import org.elasticsearch.index.shard.ShardPath;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.test.ElasticsearchSingleNodeTest;
+import org.junit.Test;
+
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+
+public class MMapFieldDataPersistenceTests extends ElasticsearchSingleNodeTest {
+
+    @Test
+    public void testFieldDataIsPersistedAndReused() throws Exception {
+        IndexService indexService = createIndex("test", ImmutableSettings.builder().put(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1).build(), "type",
+                XContentFactory.jsonBuilder().startObject().startObject("type")
+                        .startObject("properties")
+                            .startObject("text")
+                                .field("type", "string")
+                                .startObject("fielddata")
+                                    .field("format", "mmap")
+                                .endObject()
+                            .endObject()
+                        .endObject()
+                        .endObject().endObject());
+        final int numDocs = scaledRandomIntBetween(10, 100);
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex("test", "type", Integer.toString(i)).setSource("text", String.format(Locale.ROOT, "%03d", i)).get();
+        }
+        client().admin().indices().prepareRefresh("test").get();
+
+        SearchResponse resp = client().prepareSearch("test").addSort("text", SortOrder.DESC).get();
+        assertNoFailures(resp);
+        assertThat(resp.getHits().getAt(0).id(), equalTo(Integer.toString(numDocs - 1)));
+
+        Path fieldDataPath = indexService.shard(0).shardPath().getDataPath().resolve(ShardPath.FIELDDATA_FOLDER_NAME);
+        Map<Path, FileTime> files = listFiles(fieldDataPath);
+        assertThat(files.isEmpty(), equalTo(false));
+
+        // evicting the field data must not rebuild the files
+        client().admin().indices().prepareClearCache("test").setFieldDataCache(true).get();
+        resp = client().prepareSearch("test").addSort("text", SortOrder.DESC).get();
+        assertNoFailures(resp);
+        assertThat(resp.getHits().getAt(0).id(), equalTo(Integer.toString(numDocs - 1)));
+        assertThat(listFiles(fieldDataPath), equalTo(files));
+
+        // the field data is hardly on the heap
+        FieldDataStats stats = client().admin().indices().prepareStats("test").clear().setFieldData(true).get().getTotal().getFieldData();
+        assertThat(stats.getMemorySizeInBytes() < 1024 * files.size(), equalTo(true));
+    }
+
+    private static Map<Path, FileTime> listFiles(Path path) throws Exception {
+        Map<Path, FileTime> files = new HashMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path)) {
+            for (Path file : stream) {
+                files.put(file, Files.getLastModifiedTime(file));
+            }
+        }
+        return files;
+    }
+}
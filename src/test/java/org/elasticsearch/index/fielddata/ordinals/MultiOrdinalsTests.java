@@ -31,6 +31,7 @@ import java.io.IOException;
 import java.util.*;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 
 /**
  */
@@ -46,6 +47,22 @@ public class MultiOrdinalsTests extends ElasticsearchTestCase {
     }
 
 
+    @Test
+    public void testRamBytesUsedGrowsWithOrdinals() throws IOException {
+        int numDocs = 100 + getRandom().nextInt(1000);
+        OrdinalsBuilder builder = new OrdinalsBuilder(numDocs);
+        long emptyBytes = builder.ramBytesUsed();
+        assertThat(emptyBytes, greaterThan(0l));
+        for (int i = 0; i < 50; i++) {
+            builder.nextOrdinal();
+            for (int docId = 0; docId < numDocs; docId++) {
+                builder.addDoc(docId);
+            }
+        }
+        assertThat(builder.ramBytesUsed(), greaterThan(emptyBytes));
+        builder.close();
+    }
+
     @Test
     public void testRandomValues() throws IOException {
         Random random = getRandom();
@@ -0,0 +1,142 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.policy;
+
+import org.apache.lucene.codecs.Codec;
+import org.apache.lucene.codecs.PostingsFormat;
+import org.apache.lucene.codecs.lucene50.Lucene50Codec;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.MergePolicy;
+import org.apache.lucene.index.MergeTrigger;
+import org.apache.lucene.index.NoMergePolicy;
+import org.apache.lucene.index.SegmentCommitInfo;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.elasticsearch.index.codec.postingsformat.TimeRangePostingsFormat;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+public class TimeSeriesMergePolicyTests extends ElasticsearchTestCase {
+
+    private static final String TIME_FIELD = "@timestamp";
+
+    private static Codec timeRangeCodec() {
+        final PostingsFormat timeRangePostingsFormat = new TimeRangePostingsFormat();
+        return new Lucene50Codec() {
+            @Override
+            public PostingsFormat getPostingsFormatForField(String field) {
+                return TIME_FIELD.equals(field) ? timeRangePostingsFormat : super.getPostingsFormatForField(field);
+            }
+        };
+    }
+
+    private static void flushSegment(IndexWriter writer, long from, int numDocs) throws IOException {
+        for (int i = 0; i < numDocs; i++) {
+            Document doc = new Document();
+            doc.add(new LongField(TIME_FIELD, from + i, Field.Store.NO));
+            writer.addDocument(doc);
+        }
+        writer.commit();
+    }
+
+    @Test
+    public void testRangeIsRecordedOnFlushAndMerge() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null).setCodec(timeRangeCodec()).setMergePolicy(new TimeSeriesMergePolicy(TIME_FIELD));
+        IndexWriter writer = new IndexWriter(dir, iwc);
+        flushSegment(writer, 1000, 10);
+        SegmentInfos infos = SegmentInfos.readLatestCommit(dir);
+        assertThat(infos.size(), equalTo(1));
+        assertThat(TimeRangePostingsFormat.readRange(infos.info(0).info, TIME_FIELD), equalTo(new long[]{1000, 1009}));
+        assertThat(TimeRangePostingsFormat.readRange(infos.info(0).info, "other"), nullValue());
+
+        flushSegment(writer, 0, 10);
+        writer.forceMerge(1);
+        writer.commit();
+        infos = SegmentInfos.readLatestCommit(dir);
+        assertThat(infos.size(), equalTo(1));
+        assertThat(TimeRangePostingsFormat.readRange(infos.info(0).info, TIME_FIELD), equalTo(new long[]{0, 1009}));
+        writer.close();
+        dir.close();
+    }
+
+    @Test
+    public void testOnlyMergesSegmentsAdjacentInTime() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null).setCodec(timeRangeCodec()).setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter writer = new IndexWriter(dir, iwc);
+        // segments are written out of time order
+        flushSegment(writer, 200, 10);
+        flushSegment(writer, 0, 10);
+        flushSegment(writer, 300, 10);
+        flushSegment(writer, 100, 10);
+        SegmentInfos infos = SegmentInfos.readLatestCommit(dir);
+        assertThat(infos.size(), equalTo(4));
+
+        TimeSeriesMergePolicy mergePolicy = new TimeSeriesMergePolicy(TIME_FIELD);
+        mergePolicy.setMergeFactor(2);
+        MergePolicy.MergeSpecification spec = mergePolicy.findMerges(MergeTrigger.EXPLICIT, infos, writer);
+        assertThat(spec, notNullValue());
+        assertThat(spec.merges.size(), equalTo(2));
+        for (MergePolicy.OneMerge merge : spec.merges) {
+            assertThat(merge.segments.size(), equalTo(2));
+            long[] first = TimeRangePostingsFormat.readRange(merge.segments.get(0).info, TIME_FIELD);
+            long[] second = TimeRangePostingsFormat.readRange(merge.segments.get(1).info, TIME_FIELD);
+            // each merge covers two consecutive time ranges
+            assertThat(second[0] - first[0], equalTo(100L));
+            assertThat(first[0] % 200, equalTo(0L));
+        }
+        writer.close();
+        dir.close();
+    }
+
+    @Test
+    public void testSegmentsWithoutRangeAreSortedLast() throws Exception {
+        Directory dir = newDirectory();
+        IndexWriterConfig iwc = new IndexWriterConfig(null).setCodec(timeRangeCodec()).setMergePolicy(NoMergePolicy.INSTANCE);
+        IndexWriter writer = new IndexWriter(dir, iwc);
+        writer.addDocument(new Document());
+        writer.commit();
+        flushSegment(writer, 100, 1);
+        flushSegment(writer, 0, 1);
+        SegmentInfos infos = SegmentInfos.readLatestCommit(dir);
+
+        SegmentInfos sorted = new TimeSeriesMergePolicy(TIME_FIELD).sortByTime(infos);
+        assertThat(sorted.size(), equalTo(3));
+        assertThat(TimeRangePostingsFormat.readRange(sorted.info(0).info, TIME_FIELD)[0], equalTo(0L));
+        assertThat(TimeRangePostingsFormat.readRange(sorted.info(1).info, TIME_FIELD)[0], equalTo(100L));
+        assertThat(TimeRangePostingsFormat.readRange(sorted.info(2).info, TIME_FIELD), nullValue());
+        for (SegmentCommitInfo info : sorted) {
+            assertThat(infos.asList().contains(info), equalTo(true));
+        }
+        writer.close();
+        dir.close();
+    }
+}
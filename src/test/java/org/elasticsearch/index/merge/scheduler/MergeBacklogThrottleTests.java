@@ -0,0 +1,80 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.merge.scheduler;
+
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class MergeBacklogThrottleTests extends ElasticsearchTestCase {
+
+    private static final long MB = 1024 * 1024;
+
+    @Test
+    public void testIdleShardIsThrottledToMinimum() {
+        MergeBacklogThrottle throttle = new MergeBacklogThrottle(TimeValue.timeValueSeconds(30));
+        assertThat(throttle.targetMBPerSec(0), equalTo(MergeBacklogThrottle.MIN_MB_PER_SEC));
+    }
+
+    @Test
+    public void testBacklogIsDrainedWithinDrainTime() {
+        MergeBacklogThrottle throttle = new MergeBacklogThrottle(TimeValue.timeValueSeconds(10));
+        assertThat(throttle.targetMBPerSec(1000 * MB), closeTo(100.0, 0.001));
+        throttle.drainTime(TimeValue.timeValueSeconds(100));
+        assertThat(throttle.targetMBPerSec(1000 * MB), closeTo(10.0, 0.001));
+    }
+
+    @Test
+    public void testRateIsBounded() {
+        MergeBacklogThrottle throttle = new MergeBacklogThrottle(TimeValue.timeValueMillis(1));
+        assertThat(throttle.targetMBPerSec(Long.MAX_VALUE / 2), equalTo(MergeBacklogThrottle.MAX_MB_PER_SEC));
+    }
+
+    @Test
+    public void testKeepsUpWithIncomingMerges() {
+        MergeBacklogThrottle throttle = new MergeBacklogThrottle(TimeValue.timeValueSeconds(30));
+        long now = 0;
+        throttle.onMerge(50 * MB, now);
+        for (int i = 0; i < 50; i++) {
+            now += 1000;
+            throttle.onMerge(50 * MB, now);
+        }
+        assertThat(throttle.incomingBytesPerSec() / MB, closeTo(50.0, 0.1));
+        // the incoming rate wins over a small backlog
+        assertThat(throttle.targetMBPerSec(10 * MB), closeTo(50.0, 0.1));
+        // and a large backlog wins over the incoming rate
+        assertThat(throttle.targetMBPerSec(3000 * MB), closeTo(100.0, 0.1));
+    }
+
+    @Test
+    public void testBurstOfMergesDoesNotSpikeRate() {
+        MergeBacklogThrottle throttle = new MergeBacklogThrottle(TimeValue.timeValueSeconds(30));
+        throttle.onMerge(10 * MB, 0);
+        for (int i = 0; i < 5; i++) {
+            throttle.onMerge(10 * MB, 0);
+        }
+        assertThat(throttle.incomingBytesPerSec(), greaterThan(0.0));
+        assertThat(throttle.incomingBytesPerSec() / MB, closeTo(10.0 * (1 - Math.pow(1 - MergeBacklogThrottle.INCOMING_RATE_ALPHA, 5)), 0.001));
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.index.seqno;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.hamcrest.Matchers.equalTo;
+
+public class LocalCheckpointTrackerTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testInOrder() {
+        LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED, SequenceNumbers.NO_OPS_PERFORMED);
+        for (int i = 0; i < 10; i++) {
+            long seqNo = tracker.generateSeqNo();
+            assertThat(seqNo, equalTo((long) i));
+            tracker.markSeqNoAsCompleted(seqNo);
+            assertThat(tracker.checkpoint(), equalTo(seqNo));
+        }
+        assertThat(tracker.maxSeqNo(), equalTo(9l));
+    }
+
+    @Test
+    public void testOutOfOrder() {
+        LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED, SequenceNumbers.NO_OPS_PERFORMED);
+        int numOps = scaledRandomIntBetween(10, 1000);
+        List<Long> seqNos = new ArrayList<>();
+        for (int i = 0; i < numOps; i++) {
+            seqNos.add(tracker.generateSeqNo());
+        }
+        Collections.shuffle(seqNos, getRandom());
+        long expected = SequenceNumbers.NO_OPS_PERFORMED;
+        boolean[] completed = new boolean[numOps];
+        for (long seqNo : seqNos) {
+            tracker.markSeqNoAsCompleted(seqNo);
+            completed[(int) seqNo] = true;
+            while (expected + 1 < numOps && completed[(int) expected + 1]) {
+                expected++;
+            }
+            assertThat(tracker.checkpoint(), equalTo(expected));
+        }
+        assertThat(tracker.checkpoint(), equalTo((long) numOps - 1));
+        assertThat(tracker.pendingCount(), equalTo(0));
+    }
+
+    @Test
+    public void testGapStallsCheckpoint() {
+        LocalCheckpointTracker tracker = new LocalCheckpointTracker(4, 4);
+        tracker.markSeqNoAsCompleted(5);
+        tracker.markSeqNoAsCompleted(7);
+        tracker.markSeqNoAsCompleted(8);
+        assertThat(tracker.checkpoint(), equalTo(5l));
+        assertThat(tracker.maxSeqNo(), equalTo(8l));
+        tracker.markSeqNoAsCompleted(6);
+        assertThat(tracker.checkpoint(), equalTo(8l));
+        // already processed operations are ignored
+        tracker.markSeqNoAsCompleted(3);
+        assertThat(tracker.checkpoint(), equalTo(8l));
+        assertThat(tracker.pendingCount(), equalTo(0));
+    }
+
+    @Test
+    public void testFastForward() {
+        LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED, SequenceNumbers.NO_OPS_PERFORMED);
+        tracker.markSeqNoAsCompleted(3);
+        tracker.markSeqNoAsCompleted(11);
+        tracker.markSeqNoAsCompleted(12);
+        assertThat(tracker.checkpoint(), equalTo(SequenceNumbers.NO_OPS_PERFORMED));
+        tracker.fastForward(10);
+        assertThat(tracker.checkpoint(), equalTo(12l));
+        assertThat(tracker.pendingCount(), equalTo(0));
+        // never moves backwards
+        tracker.fastForward(5);
+        assertThat(tracker.checkpoint(), equalTo(12l));
+        assertThat(tracker.generateSeqNo(), equalTo(13l));
+    }
+
+    @Test
+    public void testLargeGapIsNotForgotten() {
+        LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED, SequenceNumbers.NO_OPS_PERFORMED);
+        final int numOps = scaledRandomIntBetween(10, 20) * LocalCheckpointTracker.BIT_SET_SIZE;
+        for (int i = 1; i <= numOps; i++) {
+            tracker.markSeqNoAsCompleted(i);
+        }
+        assertThat(tracker.checkpoint(), equalTo(SequenceNumbers.NO_OPS_PERFORMED));
+        assertThat(tracker.pendingCount(), equalTo(numOps));
+        tracker.markSeqNoAsCompleted(0);
+        assertThat(tracker.checkpoint(), equalTo((long) numOps));
+        assertThat(tracker.pendingCount(), equalTo(0));
+        // only the bit set the next operation falls into is kept
+        assertThat(tracker.bitSetCount(), equalTo(1));
+    }
+
+    @Test
+    public void testFastForwardDropsBitSets() {
+        LocalCheckpointTracker tracker = new LocalCheckpointTracker(SequenceNumbers.NO_OPS_PERFORMED, SequenceNumbers.NO_OPS_PERFORMED);
+        final int gapEnd = 3 * LocalCheckpointTracker.BIT_SET_SIZE;
+        for (int i = 1; i < gapEnd; i += 2) {
+            tracker.markSeqNoAsCompleted(i);
+        }
+        tracker.markSeqNoAsCompleted(gapEnd + 1);
+        assertThat(tracker.bitSetCount(), equalTo(4));
+        tracker.fastForward(gapEnd);
+        assertThat(tracker.checkpoint(), equalTo((long) gapEnd + 1));
+        assertThat(tracker.bitSetCount(), equalTo(1));
+        assertThat(tracker.pendingCount(), equalTo(0));
+    }
+}
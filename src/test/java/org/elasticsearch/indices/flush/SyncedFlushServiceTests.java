@@ -0,0 +1,148 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.flush;
+
+import org.elasticsearch.cluster.ClusterState;
+import org.elasticsearch.cluster.routing.ShardRouting;
+import org.elasticsearch.index.engine.Engine;
+import org.elasticsearch.index.shard.IndexShard;
+import org.elasticsearch.index.shard.ShardId;
+import org.elasticsearch.index.translog.TranslogService;
+import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.elasticsearch.test.ElasticsearchIntegrationTest.Scope;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.hamcrest.Matchers.*;
+
+@ClusterScope(scope = Scope.TEST, numDataNodes = 0)
+public class SyncedFlushServiceTests extends ElasticsearchIntegrationTest {
+
+    private static final String INDEX = "test";
+
+    @Test
+    public void testAllCopiesShareSyncId() throws Exception {
+        internalCluster().startNodesAsync(2).get();
+        createIndex(1);
+        indexDocs(between(1, 50));
+
+        attemptSyncedFlush();
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                List<IndexShard> copies = copies();
+                assertThat(copies.size(), equalTo(2));
+                String syncId = syncId(copies.get(0));
+                assertNotNull(syncId);
+                for (IndexShard copy : copies) {
+                    assertThat(syncId(copy), equalTo(syncId));
+                    assertThat(copy.engine().maxSeqNo(), equalTo(copies.get(0).engine().maxSeqNo()));
+                }
+            }
+        });
+    }
+
+    @Test
+    public void testNewOperationsDropSyncId() throws Exception {
+        internalCluster().startNodesAsync(2).get();
+        createIndex(1);
+        indexDocs(between(1, 50));
+
+        attemptSyncedFlush();
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                for (IndexShard copy : copies()) {
+                    assertNotNull(syncId(copy));
+                }
+            }
+        });
+
+        client().prepareIndex(INDEX, "type").setSource("field", "value").get();
+        flush(INDEX);
+        for (IndexShard copy : copies()) {
+            assertNull(syncId(copy));
+        }
+    }
+
+    @Test
+    public void testUnassignedReplicasDontPreventSync() throws Exception {
+        internalCluster().startNode();
+        createIndex(1);
+        indexDocs(between(1, 50));
+
+        attemptSyncedFlush();
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                List<IndexShard> copies = copies();
+                assertThat(copies.size(), equalTo(1));
+                assertNotNull(syncId(copies.get(0)));
+            }
+        });
+    }
+
+    private void createIndex(int numberOfReplicas) {
+        assertAcked(prepareCreate(INDEX).setSettings(settingsBuilder()
+                .put("number_of_shards", 1)
+                .put("number_of_replicas", numberOfReplicas)
+                .put(TranslogService.INDEX_TRANSLOG_DISABLE_FLUSH, true)));
+        ensureYellow(INDEX);
+        if (internalCluster().numDataNodes() > numberOfReplicas) {
+            ensureGreen(INDEX);
+        }
+    }
+
+    private void indexDocs(int numDocs) {
+        for (int i = 0; i < numDocs; i++) {
+            client().prepareIndex(INDEX, "type", Integer.toString(i)).setSource("field", i).get();
+        }
+    }
+
+    private void attemptSyncedFlush() {
+        ClusterState state = client().admin().cluster().prepareState().get().getState();
+        String primaryNode = state.nodes().get(state.routingTable().index(INDEX).shard(0).primaryShard().currentNodeId()).name();
+        internalCluster().getInstance(SyncedFlushService.class, primaryNode).attemptSyncedFlush(new ShardId(INDEX, 0));
+    }
+
+    /**
+     * The started copies of the shard
+     */
+    private List<IndexShard> copies() {
+        ClusterState state = client().admin().cluster().prepareState().get().getState();
+        List<IndexShard> copies = new ArrayList<>();
+        for (ShardRouting shard : state.routingTable().index(INDEX).shard(0)) {
+            if (shard.started()) {
+                String node = state.nodes().get(shard.currentNodeId()).name();
+                copies.add(internalCluster().getInstance(IndicesService.class, node).indexServiceSafe(INDEX).shardSafe(0));
+            }
+        }
+        return copies;
+    }
+
+    private static String syncId(IndexShard shard) {
+        return shard.commitStats().getUserData().get(Engine.SYNC_COMMIT_ID);
+    }
+}
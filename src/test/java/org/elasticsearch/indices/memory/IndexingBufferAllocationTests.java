@@ -0,0 +1,74 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.memory;
+
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class IndexingBufferAllocationTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testEqualSplitWithoutIndexing() {
+        long[] sizes = IndexingMemoryController.allocateIndexingBuffers(100, new double[]{0, 0, 0, 0}, 10, 1000);
+        assertThat(sizes, equalTo(new long[]{25, 25, 25, 25}));
+    }
+
+    @Test
+    public void testProportionalToIndexingRate() {
+        long[] sizes = IndexingMemoryController.allocateIndexingBuffers(100, new double[]{3, 1}, 0, 1000);
+        assertThat(sizes, equalTo(new long[]{75, 25}));
+    }
+
+    @Test
+    public void testCappedShardsShareIsRedistributed() {
+        long[] sizes = IndexingMemoryController.allocateIndexingBuffers(100, new double[]{9, 1, 0}, 5, 50);
+        assertThat(sizes, equalTo(new long[]{50, 50, 5}));
+    }
+
+    @Test
+    public void testMinimumPerShard() {
+        long[] sizes = IndexingMemoryController.allocateIndexingBuffers(100, new double[]{1000, 1}, 20, 1000);
+        assertThat(sizes[0], equalTo(99L));
+        assertThat(sizes[1], equalTo(20L));
+    }
+
+    @Test
+    public void testRandomRatesStayWithinBounds() {
+        int shards = randomIntBetween(1, 20);
+        double[] rates = new double[shards];
+        for (int i = 0; i < shards; i++) {
+            rates[i] = randomBoolean() ? 0 : randomIntBetween(1, 1000000);
+        }
+        long budget = randomIntBetween(1000, 1000000);
+        long min = randomIntBetween(0, 100);
+        long max = randomIntBetween(100, 1000000);
+        long[] sizes = IndexingMemoryController.allocateIndexingBuffers(budget, rates, min, max);
+        long total = 0;
+        for (long size : sizes) {
+            assertThat(size, lessThanOrEqualTo(max));
+            assertTrue(size >= min);
+            total += Math.max(0, size - min);
+        }
+        // only the minimums may push the total over the budget
+        assertThat(total, lessThanOrEqualTo(budget));
+    }
+}
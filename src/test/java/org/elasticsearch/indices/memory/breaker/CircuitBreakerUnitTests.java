@@ -20,6 +20,7 @@
 package org.elasticsearch.indices.memory.breaker;
 
 import org.elasticsearch.common.breaker.CircuitBreaker;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.indices.breaker.BreakerSettings;
 import org.elasticsearch.indices.breaker.CircuitBreakerService;
@@ -79,4 +80,35 @@ public class CircuitBreakerUnitTests extends ElasticsearchTestCase {
         assertThat(breaker.getName(), is(customName));
     }
 
+    @Test
+    public void testInFlightRequestsBreakerCountsTowardsParent() throws Exception {
+        HierarchyCircuitBreakerService service = new HierarchyCircuitBreakerService(ImmutableSettings.builder()
+                .put(HierarchyCircuitBreakerService.TOTAL_CIRCUIT_BREAKER_LIMIT_SETTING, "100b")
+                .put(HierarchyCircuitBreakerService.IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_LIMIT_SETTING, "80b")
+                .build(), new NodeSettingsService(ImmutableSettings.EMPTY));
+        CircuitBreaker inFlight = service.getBreaker(CircuitBreaker.IN_FLIGHT_REQUESTS);
+        assertThat(inFlight, notNullValue());
+        assertThat(inFlight.getLimit(), equalTo(80l));
+
+        // bytes of buffered messages are always accounted for, even above the limit
+        inFlight.addWithoutBreaking(90);
+        assertThat(inFlight.getUsed(), equalTo(90l));
+        try {
+            inFlight.addEstimateBytesAndMaybeBreak(0, "<transport_request>");
+            fail("in flight requests breaker should have tripped");
+        } catch (CircuitBreakingException e) {
+            assertThat(e.getMessage(), containsString("[in_flight_requests]"));
+        }
+
+        // in flight bytes reduce what other breakers may use
+        inFlight.addWithoutBreaking(-60);
+        CircuitBreaker request = service.getBreaker(CircuitBreaker.REQUEST);
+        request.addEstimateBytesAndMaybeBreak(50, "agg");
+        try {
+            request.addEstimateBytesAndMaybeBreak(30, "agg");
+            fail("parent breaker should have tripped");
+        } catch (CircuitBreakingException e) {
+            assertThat(e.getMessage(), containsString("[parent]"));
+        }
+    }
 }
@@ -0,0 +1,87 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.indices.recovery;
+
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import static org.elasticsearch.common.settings.ImmutableSettings.settingsBuilder;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ */
+public class AdaptiveFileChunkSizeTest extends ElasticsearchTestCase {
+
+    @Test
+    public void testAdaptsToRoundTripTime() {
+        Settings settings = settingsBuilder()
+                .put(RecoverySettings.INDICES_RECOVERY_FILE_CHUNK_SIZE, "64kb")
+                .put(RecoverySettings.INDICES_RECOVERY_MAX_FILE_CHUNK_SIZE, "256kb")
+                .put(RecoverySettings.INDICES_RECOVERY_FILE_CHUNK_TARGET_TIME, "100ms")
+                .build();
+        RecoverySettings recoverySettings = new RecoverySettings(settings, new NodeSettingsService(settings));
+        try {
+            AdaptiveFileChunkSize chunkSize = new AdaptiveFileChunkSize(recoverySettings);
+            assertThat(chunkSize.chunkSize(), equalTo(64 * 1024));
+
+            // fast acknowledgements double the chunk size up to the max
+            chunkSize.onChunkAcknowledged(TimeValue.timeValueMillis(10).nanos());
+            assertThat(chunkSize.chunkSize(), equalTo(128 * 1024));
+            chunkSize.onChunkAcknowledged(TimeValue.timeValueMillis(50).nanos());
+            assertThat(chunkSize.chunkSize(), equalTo(256 * 1024));
+            chunkSize.onChunkAcknowledged(TimeValue.timeValueMillis(10).nanos());
+            assertThat(chunkSize.chunkSize(), equalTo(256 * 1024));
+
+            // within the target the size is kept
+            chunkSize.onChunkAcknowledged(TimeValue.timeValueMillis(80).nanos());
+            assertThat(chunkSize.chunkSize(), equalTo(256 * 1024));
+
+            // slow acknowledgements halve it down to the configured chunk size
+            chunkSize.onChunkAcknowledged(TimeValue.timeValueMillis(200).nanos());
+            assertThat(chunkSize.chunkSize(), equalTo(128 * 1024));
+            chunkSize.onChunkAcknowledged(TimeValue.timeValueMillis(200).nanos());
+            assertThat(chunkSize.chunkSize(), equalTo(64 * 1024));
+            chunkSize.onChunkAcknowledged(TimeValue.timeValueMillis(200).nanos());
+            assertThat(chunkSize.chunkSize(), equalTo(64 * 1024));
+        } finally {
+            recoverySettings.close();
+        }
+    }
+
+    @Test
+    public void testMaxBelowChunkSizeDisablesAdaptation() {
+        Settings settings = settingsBuilder()
+                .put(RecoverySettings.INDICES_RECOVERY_FILE_CHUNK_SIZE, "64kb")
+                .put(RecoverySettings.INDICES_RECOVERY_MAX_FILE_CHUNK_SIZE, "32kb")
+                .build();
+        RecoverySettings recoverySettings = new RecoverySettings(settings, new NodeSettingsService(settings));
+        try {
+            AdaptiveFileChunkSize chunkSize = new AdaptiveFileChunkSize(recoverySettings);
+            for (int i = 0; i < 10; i++) {
+                chunkSize.onChunkAcknowledged(randomIntBetween(0, 1000));
+                assertThat(chunkSize.chunkSize(), equalTo(64 * 1024));
+            }
+        } finally {
+            recoverySettings.close();
+        }
+    }
+}
@@ -34,23 +34,30 @@ import org.elasticsearch.action.admin.indices.stats.IndicesStatsResponse;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.cluster.ClusterService;
+import org.elasticsearch.cluster.ClusterState;
 import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.cluster.routing.ShardRouting;
 import org.elasticsearch.cluster.routing.allocation.command.MoveAllocationCommand;
 import org.elasticsearch.cluster.routing.allocation.decider.FilterAllocationDecider;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.discovery.DiscoveryService;
+import org.elasticsearch.index.engine.Engine;
 import org.elasticsearch.index.recovery.RecoveryStats;
+import org.elasticsearch.index.shard.IndexShard;
 import org.elasticsearch.index.shard.ShardId;
 import org.elasticsearch.index.store.Store;
+import org.elasticsearch.index.translog.TranslogService;
 import org.elasticsearch.indices.IndicesService;
+import org.elasticsearch.indices.flush.SyncedFlushService;
 import org.elasticsearch.indices.recovery.RecoveryState.Stage;
 import org.elasticsearch.indices.recovery.RecoveryState.Type;
 import org.elasticsearch.snapshots.SnapshotState;
 import org.elasticsearch.test.ElasticsearchIntegrationTest;
 import org.elasticsearch.test.ElasticsearchIntegrationTest.ClusterScope;
+import org.elasticsearch.test.InternalTestCluster;
 import org.elasticsearch.test.junit.annotations.TestLogging;
 import org.elasticsearch.test.store.MockDirectoryHelper;
 import org.elasticsearch.test.transport.MockTransportService;
@@ -419,6 +426,142 @@ public class IndexRecoveryTests extends ElasticsearchIntegrationTest {
         validateIndexRecoveryState(nodeCResponses.get(0).recoveryState().getIndex());
     }
 
+    @Test
+    public void operationBasedRecoveryTest() throws Exception {
+        logger.info("--> start nodes");
+        internalCluster().startNode();
+        internalCluster().startNode();
+
+        logger.info("--> create index with one replica");
+        assertAcked(prepareCreate(INDEX_NAME, 2, settingsBuilder().put("number_of_shards", 1).put("number_of_replicas", 1)
+                .put(TranslogService.INDEX_TRANSLOG_DISABLE_FLUSH, true)));
+        ensureGreen();
+        final String primaryNode = primaryNodeName(INDEX_NAME);
+        final String replicaNode = replicaNodeName(INDEX_NAME);
+        // the replica adopted the primary's history when its (file based) recovery finalized
+        assertSameHistory(INDEX_NAME, primaryNode, replicaNode);
+
+        final int flushedDocs = between(10, 100);
+        indexDocs(0, flushedDocs);
+        flush();
+        // operations after the flush are only in the primary's translog
+        final int translogDocs = between(10, 100);
+        indexDocs(flushedDocs, translogDocs);
+        assertSameHistory(INDEX_NAME, primaryNode, replicaNode);
+
+        logger.info("--> restarting replica node [{}]", replicaNode);
+        internalCluster().restartNode(replicaNode, new InternalTestCluster.RestartCallback() {
+        });
+        ensureGreen();
+
+        RecoveryResponse response = client().admin().indices().prepareRecoveries(INDEX_NAME).execute().actionGet();
+        List<ShardRecoveryResponse> replicaResponses = findRecoveriesForTargetNode(replicaNode, response.shardResponses().get(INDEX_NAME));
+        assertThat(replicaResponses.size(), equalTo(1));
+        RecoveryState state = replicaResponses.get(0).recoveryState();
+        assertRecoveryState(state, 0, Type.REPLICA, Stage.DONE, primaryNode, replicaNode, false);
+        // the replica holds all operations the primary's translog can't give it, its files are kept as they are
+        assertThat(state.getIndex().totalFileCount(), greaterThan(0));
+        assertThat(state.getIndex().recoveredFileCount(), equalTo(0));
+        assertThat(state.getIndex().reusedFileCount(), equalTo(state.getIndex().totalFileCount()));
+        assertThat(state.getIndex().recoveredBytes(), equalTo(0l));
+        assertThat(state.getTranslog().recoveredOperations(), greaterThan(0));
+
+        assertSameHistory(INDEX_NAME, primaryNode, replicaNode);
+        IndexShard replica = internalCluster().getInstance(IndicesService.class, replicaNode).indexServiceSafe(INDEX_NAME).shardSafe(0);
+        assertThat(replica.engine().maxSeqNo(), equalTo((long) flushedDocs + translogDocs - 1));
+        refresh();
+        assertHitCount(client().prepareCount(INDEX_NAME).setPreference("_only_node:" + replica.routingEntry().currentNodeId()).get(), flushedDocs + translogDocs);
+    }
+
+    @Test
+    public void syncedFlushRecoveryTest() throws Exception {
+        logger.info("--> start nodes");
+        internalCluster().startNode();
+        internalCluster().startNode();
+
+        logger.info("--> create index with one replica");
+        assertAcked(prepareCreate(INDEX_NAME, 2, settingsBuilder().put("number_of_shards", 1).put("number_of_replicas", 1)
+                .put(TranslogService.INDEX_TRANSLOG_DISABLE_FLUSH, true)));
+        ensureGreen();
+        final int numDocs = between(10, 100);
+        indexDocs(0, numDocs);
+
+        logger.info("--> sync the commits of both copies");
+        final String primaryNode = primaryNodeName(INDEX_NAME);
+        final String replicaNode = replicaNodeName(INDEX_NAME);
+        internalCluster().getInstance(SyncedFlushService.class, primaryNode).attemptSyncedFlush(new ShardId(INDEX_NAME, 0));
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                String syncId = syncId(primaryNode);
+                assertNotNull(syncId);
+                assertThat(syncId(replicaNode), equalTo(syncId));
+            }
+        });
+        final String syncId = syncId(primaryNode);
+
+        logger.info("--> full cluster restart");
+        // the primary starts a new operation history, only the sync id tells that the replica has the same documents
+        internalCluster().fullRestart();
+        ensureGreen();
+
+        RecoveryResponse response = client().admin().indices().prepareRecoveries(INDEX_NAME).execute().actionGet();
+        RecoveryState state = null;
+        for (ShardRecoveryResponse shardResponse : response.shardResponses().get(INDEX_NAME)) {
+            if (shardResponse.recoveryState().getType() == Type.REPLICA) {
+                assertNull("more than one replica recovery", state);
+                state = shardResponse.recoveryState();
+            }
+        }
+        assertNotNull(state);
+        assertThat(state.getStage(), equalTo(Stage.DONE));
+        assertThat(state.getIndex().totalFileCount(), greaterThan(0));
+        assertThat(state.getIndex().recoveredFileCount(), equalTo(0));
+        assertThat(state.getIndex().reusedFileCount(), equalTo(state.getIndex().totalFileCount()));
+        assertThat(state.getIndex().recoveredBytes(), equalTo(0l));
+
+        // both copies still share the sync id, and hold all documents
+        assertThat(syncId(primaryNodeName(INDEX_NAME)), equalTo(syncId));
+        assertThat(syncId(replicaNodeName(INDEX_NAME)), equalTo(syncId));
+        refresh();
+        ClusterState clusterState = client().admin().cluster().prepareState().get().getState();
+        for (ShardRouting shard : clusterState.routingTable().index(INDEX_NAME).shard(0)) {
+            assertHitCount(client().prepareCount(INDEX_NAME).setPreference("_only_node:" + shard.currentNodeId()).get(), numDocs);
+        }
+    }
+
+    private String syncId(String node) {
+        IndexShard shard = internalCluster().getInstance(IndicesService.class, node).indexServiceSafe(INDEX_NAME).shardSafe(0);
+        return shard.commitStats().getUserData().get(Engine.SYNC_COMMIT_ID);
+    }
+
+    private void indexDocs(int from, int numDocs) {
+        // indexed one by one, indexRandom may flush in between
+        for (int i = from; i < from + numDocs; i++) {
+            client().prepareIndex(INDEX_NAME, INDEX_TYPE, Integer.toString(i)).setSource("foo-int", randomInt()).get();
+        }
+    }
+
+    private String primaryNodeName(String index) {
+        ClusterState state = client().admin().cluster().prepareState().get().getState();
+        return state.nodes().get(state.routingTable().index(index).shard(0).primaryShard().currentNodeId()).name();
+    }
+
+    private String replicaNodeName(String index) {
+        ClusterState state = client().admin().cluster().prepareState().get().getState();
+        ShardRouting replica = state.routingTable().index(index).shard(0).replicaShards().get(0);
+        return state.nodes().get(replica.currentNodeId()).name();
+    }
+
+    private void assertSameHistory(String index, String primaryNode, String replicaNode) {
+        Engine primary = internalCluster().getInstance(IndicesService.class, primaryNode).indexServiceSafe(index).shardSafe(0).engine();
+        Engine replica = internalCluster().getInstance(IndicesService.class, replicaNode).indexServiceSafe(index).shardSafe(0).engine();
+        assertNotNull(primary.historyUUID());
+        assertThat(replica.historyUUID(), equalTo(primary.historyUUID()));
+        assertThat(replica.maxSeqNo(), equalTo(primary.maxSeqNo()));
+        assertThat(replica.localCheckpoint(), equalTo(primary.localCheckpoint()));
+    }
+
     @Test
     public void snapshotRecoveryTest() throws Exception {
         logger.info("--> start node A");
@@ -325,6 +325,9 @@ public class RecoveryStateTest extends ElasticsearchTestCase {
             assertThat((double) index.recoveredFilesPercent(), closeTo(100.0 * index.recoveredFileCount() / index.totalRecoverFiles(), 0.1));
             assertThat((double) index.recoveredBytesPercent(), closeTo(100.0 * index.recoveredBytes() / index.totalRecoverBytes(), 0.1));
         }
+        if (completeRecovery) {
+            assertThat(index.recoveredBytesPerSec(), equalTo(index.time() == 0 ? 0 : index.recoveredBytes() * 1000 / index.time()));
+        }
     }
 
     public void testStageSequenceEnforcement() {
@@ -429,6 +432,7 @@ public class RecoveryStateTest extends ElasticsearchTestCase {
 
         if (stopped) {
             assertThat(lastRead.time(), equalTo(translog.time()));
+            assertThat(translog.recoveredOperationsPerSec(), equalTo(translog.time() == 0 ? 0 : ops * 1000l / translog.time()));
         } else {
             assertThat(lastRead.time(), lessThanOrEqualTo(translog.time()));
         }
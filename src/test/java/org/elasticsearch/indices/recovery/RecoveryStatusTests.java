@@ -19,9 +19,12 @@
 package org.elasticsearch.indices.recovery;
 
 import com.google.common.collect.Sets;
+import org.apache.lucene.store.IOContext;
+import org.apache.lucene.store.IndexInput;
 import org.apache.lucene.store.IndexOutput;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.bytes.BytesArray;
 import org.elasticsearch.common.transport.LocalTransportAddress;
 import org.elasticsearch.index.IndexService;
 import org.elasticsearch.index.shard.IndexShard;
@@ -74,4 +77,35 @@ public class RecoveryStatusTests extends ElasticsearchSingleNodeTest {
         // we must fail the recovery because marking it as done will try to move the shard to POST_RECOVERY, which will fail because it's started
         status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
     }
+
+    public void testWriteFileChunksOutOfOrder() throws IOException {
+        IndexService service = createIndex("foo");
+
+        IndexShard indexShard = service.shard(0);
+        DiscoveryNode node = new DiscoveryNode("foo", new LocalTransportAddress("bar"), Version.CURRENT);
+        RecoveryStatus status = new RecoveryStatus(indexShard, node, new RecoveryTarget.RecoveryListener() {
+            @Override
+            public void onRecoveryDone(RecoveryState state) {
+            }
+
+            @Override
+            public void onRecoveryFailure(RecoveryState state, RecoveryFailedException e, boolean sendShardFailure) {
+            }
+        });
+        StoreFileMetaData md = new StoreFileMetaData("foo.bar", 6);
+        status.state().getIndex().addFileDetail("foo.bar", 6, false);
+        status.writeFileChunk(md, 4, new BytesArray(new byte[]{5, 6}), true);
+        status.writeFileChunk(md, 2, new BytesArray(new byte[]{3, 4}), false);
+        assertNull("nothing is written before the first chunk arrives", status.getOpenIndexOutput("foo.bar"));
+        status.writeFileChunk(md, 0, new BytesArray(new byte[]{1, 2}), false);
+        assertNull("the file is closed once the last chunk was written", status.getOpenIndexOutput("foo.bar"));
+
+        byte[] bytes = new byte[6];
+        try (IndexInput input = status.store().directory().openInput(status.getTempNameForFile("foo.bar"), IOContext.READONCE)) {
+            assertEquals(6, input.length());
+            input.readBytes(bytes, 0, bytes.length);
+        }
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5, 6}, bytes);
+        status.fail(new RecoveryFailedException(status.state(), "end of test. OK.", null), false);
+    }
 }
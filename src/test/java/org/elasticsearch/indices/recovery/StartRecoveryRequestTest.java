@@ -51,8 +51,10 @@ public class StartRecoveryRequestTest extends ElasticsearchTestCase {
                 true,
                 Collections.<String, StoreFileMetaData>emptyMap(),
                 RecoveryState.Type.RELOCATION,
-                1l
-
+                1l,
+                randomBoolean() ? null : randomAsciiOfLength(10),
+                randomLong(),
+                randomBoolean() ? null : randomAsciiOfLength(10)
         );
         ByteArrayOutputStream outBuffer = new ByteArrayOutputStream();
         OutputStreamStreamOutput out = new OutputStreamStreamOutput(outBuffer);
@@ -72,6 +74,9 @@ public class StartRecoveryRequestTest extends ElasticsearchTestCase {
         assertThat(outRequest.existingFiles(), equalTo(inRequest.existingFiles()));
         assertThat(outRequest.recoveryId(), equalTo(inRequest.recoveryId()));
         assertThat(outRequest.recoveryType(), equalTo(inRequest.recoveryType()));
+        assertThat(outRequest.historyUUID(), equalTo(inRequest.historyUUID()));
+        assertThat(outRequest.localCheckpoint(), equalTo(inRequest.localCheckpoint()));
+        assertThat(outRequest.syncId(), equalTo(inRequest.syncId()));
     }
 
 
@@ -45,6 +45,7 @@ import java.util.Arrays;
 
 import static org.elasticsearch.cluster.metadata.IndexMetaData.*;
 import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.*;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.nullValue;
 
@@ -339,6 +340,27 @@ public class UpdateSettingsTests extends ElasticsearchIntegrationTest {
         }
     }
 
+    @Test
+    public void testUpdateAutoThrottleModeSettings() {
+        createIndex("test");
+        client().admin().indices().prepareUpdateSettings("test")
+                .setSettings(ImmutableSettings.builder().put(ConcurrentMergeSchedulerProvider.AUTO_THROTTLE_MODE, "backlog"))
+                .get();
+        GetSettingsResponse getSettingsResponse = client().admin().indices().prepareGetSettings("test").get();
+        assertThat(getSettingsResponse.getSetting("test", ConcurrentMergeSchedulerProvider.AUTO_THROTTLE_MODE), equalTo("backlog"));
+
+        try {
+            client().admin().indices().prepareUpdateSettings("test")
+                    .setSettings(ImmutableSettings.builder().put(ConcurrentMergeSchedulerProvider.AUTO_THROTTLE_MODE, "fast"))
+                    .get();
+            fail("unknown auto throttle modes should be rejected");
+        } catch (ElasticsearchIllegalArgumentException e) {
+            assertThat(e.getMessage(), containsString("must be one of: [lucene, backlog]"));
+        }
+        getSettingsResponse = client().admin().indices().prepareGetSettings("test").get();
+        assertThat(getSettingsResponse.getSetting("test", ConcurrentMergeSchedulerProvider.AUTO_THROTTLE_MODE), equalTo("backlog"));
+    }
+
     // #6882: make sure we can change index.merge.scheduler.max_thread_count live
     @Test
     public void testUpdateMergeMaxThreadCount() {
@@ -0,0 +1,115 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest;
+
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.xcontent.ToXContent;
+import org.elasticsearch.common.xcontent.XContentBuilder;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.test.rest.FakeRestRequest;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+public class XContentStreamingRestResponseTests extends ElasticsearchTestCase {
+
+    private static final ToXContent CONTENT = new ToXContent() {
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.startArray("values");
+            for (int i = 0; i < 1000; i++) {
+                builder.value("value_" + i);
+            }
+            builder.endArray();
+            return builder;
+        }
+    };
+
+    private static final ToXContent CONTENT_2 = new ToXContent() {
+        @Override
+        public XContentBuilder toXContent(XContentBuilder builder, Params params) throws IOException {
+            builder.field("total", 1000);
+            return builder;
+        }
+    };
+
+    @Test
+    public void testStreamedContentMatchesBufferedContent() throws Exception {
+        RestRequest request = new FakeRestRequest();
+        RestChannel channel = new TestRestChannel(request);
+
+        XContentBuilder builder = channel.newBuilder();
+        builder.startObject();
+        CONTENT.toXContent(builder, request);
+        builder.endObject();
+        BytesRestResponse expected = new BytesRestResponse(RestStatus.OK, builder);
+
+        XContentStreamingRestResponse response = new XContentStreamingRestResponse(channel, RestStatus.OK, CONTENT, request);
+        assertThat(response.contentType(), equalTo(expected.contentType()));
+        assertThat(response.status(), equalTo(RestStatus.OK));
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        while (response.writeNext(out)) {
+        }
+        assertThat(out.bytes().toUtf8(), equalTo(expected.content().toUtf8()));
+
+        // channels that can't stream fall back to the buffered content
+        response = new XContentStreamingRestResponse(channel, RestStatus.OK, CONTENT, request);
+        assertThat(response.content().toUtf8(), equalTo(expected.content().toUtf8()));
+    }
+
+    @Test
+    public void testPartsAreRenderedOneAtATime() throws Exception {
+        RestRequest request = new FakeRestRequest();
+        RestChannel channel = new TestRestChannel(request);
+
+        XContentBuilder builder = channel.newBuilder();
+        builder.startObject();
+        CONTENT.toXContent(builder, request);
+        CONTENT_2.toXContent(builder, request);
+        builder.endObject();
+        BytesRestResponse expected = new BytesRestResponse(RestStatus.OK, builder);
+
+        XContentStreamingRestResponse response = new XContentStreamingRestResponse(channel, RestStatus.OK, Arrays.asList(CONTENT, CONTENT_2), request);
+        BytesStreamOutput out = new BytesStreamOutput();
+        assertTrue(response.writeNext(out));
+        int afterFirstPart = out.size();
+        assertThat(afterFirstPart, greaterThan(0));
+        assertTrue(response.writeNext(out));
+        assertThat(out.size(), greaterThan(afterFirstPart));
+        assertFalse(response.writeNext(out));
+        assertThat(out.bytes().toUtf8(), equalTo(expected.content().toUtf8()));
+    }
+
+    private static class TestRestChannel extends RestChannel {
+
+        TestRestChannel(RestRequest request) {
+            super(request, true);
+        }
+
+        @Override
+        public void sendResponse(RestResponse response) {
+        }
+    }
+}
@@ -0,0 +1,302 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.rest.action.bulk;
+
+import com.google.common.base.Charsets;
+import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ElasticsearchIllegalArgumentException;
+import org.elasticsearch.action.Action;
+import org.elasticsearch.action.ActionFuture;
+import org.elasticsearch.action.ActionListener;
+import org.elasticsearch.action.ActionRequest;
+import org.elasticsearch.action.ActionRequestBuilder;
+import org.elasticsearch.action.ActionResponse;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.index.IndexResponse;
+import org.elasticsearch.client.AdminClient;
+import org.elasticsearch.client.Client;
+import org.elasticsearch.client.support.AbstractClient;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.unit.ByteSizeUnit;
+import org.elasticsearch.common.unit.ByteSizeValue;
+import org.elasticsearch.common.xcontent.XContentHelper;
+import org.elasticsearch.rest.RestChannel;
+import org.elasticsearch.rest.RestResponse;
+import org.elasticsearch.rest.RestStatus;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.test.rest.FakeRestRequest;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+public class RestBulkContentConsumerTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testActionsAreExecutedInBatchesAcrossChunks() throws Exception {
+        int numDocs = randomIntBetween(1, 50);
+        int batchActions = randomIntBetween(1, 10);
+        RecordingClient client = new RecordingClient();
+        TestRestChannel channel = new TestRestChannel();
+        RestBulkContentConsumer consumer = new RestBulkContentConsumer(channel.request(), channel, client, true,
+                batchActions, new ByteSizeValue(1, ByteSizeUnit.MB), Integer.MAX_VALUE, new ByteSizeValue(1, ByteSizeUnit.MB));
+
+        // the sources span several chunks
+        feedInChunks(consumer, bulkContent(0, numDocs, 2048), 64);
+        consumer.onContentEnd();
+
+        int numActions = 0;
+        for (BulkRequest request : client.requests) {
+            assertThat(request.numberOfActions(), lessThanOrEqualTo(batchActions));
+            for (ActionRequest action : request.requests()) {
+                assertThat(((IndexRequest) action).id(), equalTo(Integer.toString(numActions++)));
+            }
+        }
+        assertThat(numActions, equalTo(numDocs));
+
+        // batches can complete in any order, the items are still returned in request order
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < client.requests.size(); i++) {
+            order.add(i);
+        }
+        Collections.shuffle(order, getRandom());
+        for (int i : order) {
+            assertThat(channel.responses.size(), equalTo(0));
+            client.respond(i);
+        }
+        assertThat(channel.responses.size(), equalTo(1));
+        RestResponse response = channel.responses.get(0);
+        assertThat(response.status(), equalTo(RestStatus.OK));
+        List<?> items = (List<?>) XContentHelper.convertToMap(response.content(), false).v2().get("items");
+        assertThat(items.size(), equalTo(numDocs));
+        for (int i = 0; i < numDocs; i++) {
+            Map<?, ?> item = (Map<?, ?>) ((Map<?, ?>) items.get(i)).get("index");
+            assertThat((String) item.get("_id"), equalTo(Integer.toString(i)));
+        }
+    }
+
+    @Test
+    public void testReadingIsSuspendedWhileTooManyBatchesExecute() throws Exception {
+        RecordingClient client = new RecordingClient();
+        TestRestChannel channel = new TestRestChannel();
+        RestBulkContentConsumer consumer = new RestBulkContentConsumer(channel.request(), channel, client, true,
+                1, new ByteSizeValue(1, ByteSizeUnit.MB), 1, new ByteSizeValue(1, ByteSizeUnit.MB));
+
+        consumer.onContent(new BytesArray(bulkContent(0, 1, 10)));
+        assertThat(client.requests.size(), equalTo(1));
+        assertThat(channel.suspended, equalTo(0));
+
+        consumer.onContent(new BytesArray(bulkContent(1, 2, 10)));
+        assertThat(client.requests.size(), equalTo(2));
+        assertThat(channel.suspended, equalTo(1));
+
+        client.respond(1);
+        assertThat(channel.resumed, equalTo(1));
+
+        consumer.onContent(new BytesArray(bulkContent(2, 3, 10)));
+        assertThat(channel.suspended, equalTo(2));
+        consumer.onContentEnd();
+        client.respond(0);
+        assertThat(channel.resumed, equalTo(2));
+        assertThat(channel.responses.size(), equalTo(0));
+        client.respond(2);
+        assertThat(channel.suspended, equalTo(2));
+        assertThat(channel.responses.size(), equalTo(1));
+        assertThat(channel.responses.get(0).status(), equalTo(RestStatus.OK));
+    }
+
+    @Test
+    public void testFailureInTheMiddleOfTheContent() throws Exception {
+        RecordingClient client = new RecordingClient();
+        TestRestChannel channel = new TestRestChannel();
+        RestBulkContentConsumer consumer = new RestBulkContentConsumer(channel.request(), channel, client, true,
+                1, new ByteSizeValue(1, ByteSizeUnit.MB), 1, new ByteSizeValue(1, ByteSizeUnit.MB));
+
+        consumer.onContent(new BytesArray(bulkContent(0, 1, 10)));
+        consumer.onContent(new BytesArray(bulkContent(1, 2, 10)));
+        assertThat(client.requests.size(), equalTo(2));
+        assertThat(channel.suspended, equalTo(1));
+        byte[] partial = bulkContent(2, 3, 10);
+        consumer.onContent(new BytesArray(partial, 0, partial.length / 2));
+
+        // for instance the connection got closed
+        consumer.onFailure(new ClosedChannelException());
+        assertThat(channel.resumed, equalTo(1));
+        assertThat(channel.responses.size(), equalTo(1));
+        assertThat(channel.responses.get(0).status(), equalTo(RestStatus.INTERNAL_SERVER_ERROR));
+
+        // the rest of the content and the executing batches are ignored
+        consumer.onContent(new BytesArray(partial, partial.length / 2, partial.length - partial.length / 2));
+        consumer.onContentEnd();
+        client.respond(0);
+        client.respond(1);
+        assertThat(client.requests.size(), equalTo(2));
+        assertThat(channel.responses.size(), equalTo(1));
+    }
+
+    @Test
+    public void testFailedBatchFailsTheRequest() throws Exception {
+        RecordingClient client = new RecordingClient();
+        TestRestChannel channel = new TestRestChannel();
+        RestBulkContentConsumer consumer = new RestBulkContentConsumer(channel.request(), channel, client, true,
+                1, new ByteSizeValue(1, ByteSizeUnit.MB), Integer.MAX_VALUE, new ByteSizeValue(1, ByteSizeUnit.MB));
+
+        for (int i = 0; i < 3; i++) {
+            consumer.onContent(new BytesArray(bulkContent(i, i + 1, 10)));
+        }
+        consumer.onContentEnd();
+        assertThat(client.requests.size(), equalTo(3));
+        client.respond(0);
+        client.listeners.get(1).onFailure(new ElasticsearchException("batch failed"));
+        client.respond(2);
+        assertThat(channel.responses.size(), equalTo(1));
+        assertThat(channel.responses.get(0).status(), equalTo(RestStatus.INTERNAL_SERVER_ERROR));
+    }
+
+    @Test
+    public void testActionLargerThanTheMaximumFails() throws Exception {
+        RecordingClient client = new RecordingClient();
+        TestRestChannel channel = new TestRestChannel();
+        RestBulkContentConsumer consumer = new RestBulkContentConsumer(channel.request(), channel, client, true,
+                1, new ByteSizeValue(1, ByteSizeUnit.MB), 1, new ByteSizeValue(512));
+
+        // small actions are fine
+        consumer.onContent(new BytesArray(bulkContent(0, 1, 10)));
+        assertThat(client.requests.size(), equalTo(1));
+        try {
+            feedInChunks(consumer, bulkContent(1, 2, 1024), 16);
+            fail("expected the action to be rejected");
+        } catch (ElasticsearchIllegalArgumentException e) {
+            assertThat(e.getMessage(), equalTo("bulk action is larger than [512b]"));
+        }
+        assertThat(client.requests.size(), equalTo(1));
+    }
+
+    private void feedInChunks(RestBulkContentConsumer consumer, byte[] content, int maxChunkSize) throws Exception {
+        int offset = 0;
+        while (offset < content.length) {
+            int length = Math.min(randomIntBetween(1, maxChunkSize), content.length - offset);
+            consumer.onContent(new BytesArray(content, offset, length));
+            offset += length;
+        }
+    }
+
+    /**
+     * Returns index actions with ids from <code>from</code> (inclusive) to <code>to</code> (exclusive).
+     */
+    private byte[] bulkContent(int from, int to, int maxValueLength) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = from; i < to; i++) {
+            String action = "{\"index\":{\"_index\":\"test\",\"_type\":\"type\",\"_id\":\"" + i + "\"}}\n";
+            String source = "{\"field\":\"" + randomAsciiOfLength(maxValueLength) + "\"}\n";
+            out.write(action.getBytes(Charsets.UTF_8));
+            out.write(source.getBytes(Charsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    private static class TestRestChannel extends RestChannel {
+
+        final List<RestResponse> responses = new ArrayList<>();
+        int suspended;
+        int resumed;
+
+        TestRestChannel() {
+            super(new FakeRestRequest(), true);
+        }
+
+        @Override
+        public void suspendContent() {
+            suspended++;
+        }
+
+        @Override
+        public void resumeContent() {
+            resumed++;
+        }
+
+        @Override
+        public void sendResponse(RestResponse response) {
+            responses.add(response);
+        }
+    }
+
+    /**
+     * Records the bulk requests, which are only completed when the test responds to them.
+     */
+    private static class RecordingClient extends AbstractClient {
+
+        final List<BulkRequest> requests = new ArrayList<>();
+        final List<ActionListener<BulkResponse>> listeners = new ArrayList<>();
+
+        void respond(int request) {
+            List<BulkItemResponse> items = new ArrayList<>();
+            for (ActionRequest action : requests.get(request).requests()) {
+                IndexRequest indexRequest = (IndexRequest) action;
+                items.add(new BulkItemResponse(items.size(), "index",
+                        new IndexResponse(indexRequest.index(), indexRequest.type(), indexRequest.id(), 1, true)));
+            }
+            listeners.get(request).onResponse(new BulkResponse(items.toArray(new BulkItemResponse[items.size()]), 1));
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <Request extends ActionRequest, Response extends ActionResponse, RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder, Client>> void execute(Action<Request, Response, RequestBuilder, Client> action, Request request, ActionListener<Response> listener) {
+            requests.add((BulkRequest) request);
+            listeners.add((ActionListener<BulkResponse>) listener);
+        }
+
+        @Override
+        public <Request extends ActionRequest, Response extends ActionResponse, RequestBuilder extends ActionRequestBuilder<Request, Response, RequestBuilder, Client>> ActionFuture<Response> execute(Action<Request, Response, RequestBuilder, Client> action, Request request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public AdminClient admin() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Settings settings() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ThreadPool threadPool() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() throws ElasticsearchException {
+        }
+    }
+}
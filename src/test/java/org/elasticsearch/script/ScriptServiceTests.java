@@ -22,6 +22,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import org.elasticsearch.ElasticsearchIllegalArgumentException;
 import org.elasticsearch.common.Nullable;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
 import org.elasticsearch.common.io.Streams;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
@@ -358,6 +359,43 @@ public class ScriptServiceTests extends ElasticsearchTestCase {
         }
     }
 
+    @Test
+    public void testCompilationStats() throws IOException {
+        buildScriptService(ImmutableSettings.builder().put(ScriptService.SCRIPT_CACHE_SIZE_SETTING, 1).build());
+        scriptService.compile(new Script("test", "script1", ScriptType.INLINE, null), randomFrom(scriptContexts));
+        scriptService.compile(new Script("test", "script1", ScriptType.INLINE, null), randomFrom(scriptContexts));
+        scriptService.compile(new Script("test", "script2", ScriptType.INLINE, null), randomFrom(scriptContexts));
+        ScriptStats stats = scriptService.stats();
+        assertThat(stats.getCompilations(), equalTo(2l));
+        assertThat(stats.getCacheHitCount(), equalTo(1l));
+        assertThat(stats.getCacheMissCount(), equalTo(2l));
+        assertThat(stats.getCacheEvictions(), equalTo(1l));
+        assertThat(stats.getCacheCount(), equalTo(1l));
+        assertThat(stats.getCompilationLimitTriggered(), equalTo(0l));
+    }
+
+    @Test
+    public void testCompilationLimit() throws IOException {
+        buildScriptService(ImmutableSettings.builder().put(ScriptService.SCRIPT_MAX_COMPILATIONS_PER_MINUTE_SETTING, 2).build());
+        scriptService.compile(new Script("test", "script1", ScriptType.INLINE, null), randomFrom(scriptContexts));
+        scriptService.compile(new Script("test", "script2", ScriptType.INLINE, null), randomFrom(scriptContexts));
+        try {
+            scriptService.compile(new Script("test", "script3", ScriptType.INLINE, null), randomFrom(scriptContexts));
+            fail("the compilation should have been rejected by the compilation rate limit");
+        } catch (CircuitBreakingException e) {
+            assertThat(e.getMessage(), containsString(ScriptService.SCRIPT_MAX_COMPILATIONS_PER_MINUTE_SETTING));
+            assertThat(e.getMessage(), containsString("[params]"));
+        }
+        // cached and file scripts don't need a compilation
+        scriptService.compile(new Script("test", "script1", ScriptType.INLINE, null), randomFrom(scriptContexts));
+        createFileScripts("test");
+        scriptService.compile(new Script("test", "file_script", ScriptType.FILE, null), randomFrom(scriptContexts));
+
+        ScriptStats stats = scriptService.stats();
+        assertThat(stats.getCompilations(), equalTo(2l));
+        assertThat(stats.getCompilationLimitTriggered(), equalTo(1l));
+    }
+
     private void createFileScripts(String... langs) throws IOException {
         for (String lang : langs) {
             Path scriptPath = scriptsFilePath.resolve("file_script." + lang);
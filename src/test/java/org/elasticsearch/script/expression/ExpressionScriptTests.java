@@ -30,6 +30,7 @@ import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
 import org.elasticsearch.search.SearchHits;
 import org.elasticsearch.search.aggregations.AggregationBuilders;
 import org.elasticsearch.search.aggregations.metrics.stats.Stats;
+import org.elasticsearch.search.aggregations.metrics.sum.Sum;
 import org.elasticsearch.search.sort.SortBuilders;
 import org.elasticsearch.search.sort.SortOrder;
 import org.elasticsearch.test.ElasticsearchIntegrationTest;
@@ -239,6 +240,67 @@ public class ExpressionScriptTests extends ElasticsearchIntegrationTest {
         assertEquals(0.1, stats.getMin(), 0.0001);
     }
 
+    public void testMultiValueMethods() throws Exception {
+        ElasticsearchAssertions.assertAcked(prepareCreate("test").addMapping("doc", "x", "type=double"));
+        ensureGreen("test");
+        indexRandom(true,
+                client().prepareIndex("test", "doc", "1").setSource("x", new double[]{1, 2, 6}),
+                client().prepareIndex("test", "doc", "2").setSource("x", 3),
+                client().prepareIndex("test", "doc", "3").setSource("y", 1));
+
+        String[] scripts = new String[]{"doc['x'].min()", "doc['x'].max()", "doc['x'].avg()", "doc['x'].sum()", "doc['x'].count()", "doc['x'].length"};
+        double[][] expected = new double[][]{{1, 6, 3, 9, 3, 3}, {3, 3, 3, 3, 1, 1}, {0, 0, 0, 0, 0, 0}};
+        for (int i = 0; i < scripts.length; i++) {
+            SearchResponse rsp = buildRequest(scripts[i]).get();
+            assertSearchResponse(rsp);
+            SearchHits hits = rsp.getHits();
+            assertEquals(3, hits.getTotalHits());
+            for (int doc = 0; doc < expected.length; doc++) {
+                assertEquals(scripts[i], expected[doc][i], (Double) hits.getAt(doc).field("foo").getValue(), 0.0001);
+            }
+        }
+    }
+
+    public void testInvalidFieldMethod() {
+        client().prepareIndex("test", "doc", "1").setSource("foo", 5).setRefresh(true).get();
+        try {
+            buildRequest("doc['foo'].bogus()").get();
+            fail("Expected bogus field method to cause execution failure");
+        } catch (SearchPhaseExecutionException e) {
+            assertThat(e.toString() + "should have contained ExpressionScriptCompilationException",
+                    e.toString().contains("ExpressionScriptCompilationException"), equalTo(true));
+            assertThat(e.toString() + "should have contained field method error",
+                    e.toString().contains("Unknown method for field"), equalTo(true));
+        }
+    }
+
+    public void testScriptAggregation() throws Exception {
+        // a computed field aggregated without a value source field
+        ElasticsearchAssertions.assertAcked(prepareCreate("test").addMapping("doc", "x", "type=long", "y", "type=double"));
+        ensureGreen("test");
+        indexRandom(true,
+                client().prepareIndex("test", "doc", "1").setSource("x", 5, "y", new double[]{1.5, 2.5}),
+                client().prepareIndex("test", "doc", "2").setSource("x", 10, "y", 1.0),
+                client().prepareIndex("test", "doc", "3").setSource("x", 13));
+
+        SearchRequestBuilder req = new SearchRequestBuilder(client()).setIndices("test");
+        req.setQuery(QueryBuilders.matchAllQuery())
+           .addAggregation(AggregationBuilders.stats("computed").script("doc['x'].value * doc['y'].sum()").lang(ExpressionScriptEngineService.NAME))
+           .addAggregation(AggregationBuilders.sum("sum").script("doc['x'].value + 0.5").lang(ExpressionScriptEngineService.NAME));
+
+        SearchResponse rsp = req.get();
+        assertSearchResponse(rsp);
+
+        Stats stats = rsp.getAggregations().get("computed");
+        assertEquals(3, stats.getCount());
+        assertEquals(20.0, stats.getMax(), 0.0001);
+        assertEquals(0.0, stats.getMin(), 0.0001);
+        assertEquals(30.0, stats.getSum(), 0.0001);
+
+        Sum sum = rsp.getAggregations().get("sum");
+        assertEquals(29.5, sum.getValue(), 0.0001);
+    }
+
     public void testStringSpecialValueVariable() throws Exception {
         // i.e. expression script for term aggregations, which is not allowed
         createIndex("test");
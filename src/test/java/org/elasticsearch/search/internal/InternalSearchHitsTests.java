@@ -0,0 +1,82 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.internal;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.common.io.stream.BytesStreamOutput;
+import org.elasticsearch.common.io.stream.StreamInput;
+import org.elasticsearch.common.text.StringText;
+import org.elasticsearch.common.text.Text;
+import org.elasticsearch.search.SearchHitField;
+import org.elasticsearch.search.SearchShardTarget;
+import org.elasticsearch.search.highlight.HighlightField;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.Matchers.*;
+
+public class InternalSearchHitsTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testSerializationRoundTrip() throws Exception {
+        SearchShardTarget[] shards = new SearchShardTarget[]{new SearchShardTarget("node_1", "index_1", 0), new SearchShardTarget("node_2", "index_2", 1)};
+        InternalSearchHit[] hits = new InternalSearchHit[randomIntBetween(1, 50)];
+        for (int i = 0; i < hits.length; i++) {
+            String type = "type_" + randomIntBetween(0, 3);
+            String otherField = "field_" + randomIntBetween(2, 5);
+            ImmutableMap<String, SearchHitField> fields = ImmutableMap.<String, SearchHitField>of(
+                    "field_1", new InternalSearchHitField("field_1", Collections.<Object>singletonList("value_" + i)),
+                    otherField, new InternalSearchHitField(otherField, Arrays.<Object>asList(i, (long) i)));
+            InternalSearchHit hit = new InternalSearchHit(i, Integer.toString(i), new StringText(type), fields);
+            hit.sourceRef(new BytesArray("{\"field_1\":\"value_" + i + "\"}"));
+            hit.highlightFields(ImmutableMap.of("field_1", new HighlightField("field_1", new Text[]{new StringText("<em>value</em>_" + i)})));
+            hit.matchedQueries(new String[]{"query_" + randomIntBetween(0, 2)});
+            hit.shard(shards[randomIntBetween(0, 1)]);
+            hits[i] = hit;
+        }
+        InternalSearchHits searchHits = new InternalSearchHits(hits, hits.length, 1.0f);
+
+        BytesStreamOutput out = new BytesStreamOutput();
+        searchHits.writeTo(out);
+        StreamInput in = out.bytes().streamInput();
+        InternalSearchHits read = InternalSearchHits.readSearchHits(in);
+
+        assertThat(read.totalHits(), equalTo(searchHits.totalHits()));
+        assertThat(read.internalHits().length, equalTo(hits.length));
+        for (int i = 0; i < hits.length; i++) {
+            InternalSearchHit expected = hits[i];
+            InternalSearchHit actual = read.internalHits()[i];
+            assertThat(actual.id(), equalTo(expected.id()));
+            assertThat(actual.type(), equalTo(expected.type()));
+            assertThat(actual.sourceAsString(), equalTo(expected.sourceAsString()));
+            assertThat(actual.fields().keySet(), equalTo(expected.fields().keySet()));
+            for (SearchHitField field : expected.fields().values()) {
+                assertThat(actual.field(field.name()).values(), equalTo(field.values()));
+            }
+            assertThat(actual.highlightFields().get("field_1").fragments()[0].string(), equalTo(expected.highlightFields().get("field_1").fragments()[0].string()));
+            assertThat(actual.matchedQueries(), equalTo(expected.matchedQueries()));
+            assertThat(actual.shard(), equalTo(expected.shard()));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.elasticsearch.search.query;
+
+import org.elasticsearch.action.index.IndexRequestBuilder;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.search.type.TransportSearchTypeAction;
+import org.elasticsearch.cluster.metadata.IndexMetaData;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.search.aggregations.bucket.filter.Filter;
+import org.elasticsearch.search.aggregations.bucket.terms.Terms;
+import org.elasticsearch.test.ElasticsearchIntegrationTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.elasticsearch.index.query.FilterBuilders.matchAllFilter;
+import static org.elasticsearch.index.query.QueryBuilders.rangeQuery;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.filter;
+import static org.elasticsearch.search.aggregations.AggregationBuilders.terms;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertAcked;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertHitCount;
+import static org.elasticsearch.test.hamcrest.ElasticsearchAssertions.assertNoFailures;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+/**
+ * Tests that shards a range query can't match are skipped before the query phase.
+ */
+public class SearchPreFilterTests extends ElasticsearchIntegrationTest {
+
+    @Override
+    protected Settings nodeSettings(int nodeOrdinal) {
+        return ImmutableSettings.builder()
+                .put(super.nodeSettings(nodeOrdinal))
+                .put(TransportSearchTypeAction.PRE_FILTER_SHARD_SIZE, 1)
+                .build();
+    }
+
+    @Test
+    public void testSkipShardsOutsideOfRange() throws Exception {
+        createLogsIndices();
+
+        SearchResponse response = client().prepareSearch("logs-*").setQuery(rangeQuery("timestamp").from(100).to(105)).get();
+        assertNoFailures(response);
+        assertHitCount(response, 6);
+        assertThat(response.getTotalShards(), equalTo(3));
+        assertThat(response.getSuccessfulShards(), equalTo(3));
+
+        assertThat(queryCount("logs-0"), equalTo(0l));
+        assertThat(queryCount("logs-1"), greaterThan(0l));
+        assertThat(queryCount("logs-2"), equalTo(0l));
+
+        // when no shard can match, one shard is still searched to build the response
+        response = client().prepareSearch("logs-*").setQuery(rangeQuery("timestamp").from(1000)).get();
+        assertNoFailures(response);
+        assertHitCount(response, 0);
+        assertThat(response.getSuccessfulShards(), equalTo(3));
+    }
+
+    @Test
+    public void testAggregationsOnUnmatchedDocsSearchAllShards() throws Exception {
+        createLogsIndices();
+
+        // terms with a doc count of zero come from all shards, not only from the ones the query matches
+        SearchResponse response = client().prepareSearch("logs-*").setQuery(rangeQuery("timestamp").from(100).to(105))
+                .addAggregation(terms("tags").field("tag").minDocCount(0)).get();
+        assertNoFailures(response);
+        assertHitCount(response, 6);
+        Terms tags = response.getAggregations().get("tags");
+        assertThat(tags.getBuckets().size(), equalTo(3));
+        assertThat(tags.getBucketByKey("tag-0").getDocCount(), equalTo(0l));
+        assertThat(tags.getBucketByKey("tag-1").getDocCount(), equalTo(6l));
+        assertThat(tags.getBucketByKey("tag-2").getDocCount(), equalTo(0l));
+        for (int i = 0; i < 3; i++) {
+            assertThat(queryCount("logs-" + i), greaterThan(0l));
+        }
+
+        // also when nested under an aggregation that does depend on the query
+        response = client().prepareSearch("logs-*").setQuery(rangeQuery("timestamp").from(100).to(105))
+                .addAggregation(filter("filtered").filter(matchAllFilter()).subAggregation(terms("tags").field("tag").minDocCount(0))).get();
+        assertNoFailures(response);
+        Filter filtered = response.getAggregations().get("filtered");
+        tags = filtered.getAggregations().get("tags");
+        assertThat(tags.getBuckets().size(), equalTo(3));
+
+        // the default min_doc_count only returns terms of matching documents, other shards can be skipped
+        long skippedQueries = queryCount("logs-0");
+        response = client().prepareSearch("logs-*").setQuery(rangeQuery("timestamp").from(100).to(105))
+                .addAggregation(terms("tags").field("tag")).get();
+        assertNoFailures(response);
+        tags = response.getAggregations().get("tags");
+        assertThat(tags.getBuckets().size(), equalTo(1));
+        assertThat(queryCount("logs-0"), equalTo(skippedQueries));
+    }
+
+    private void createLogsIndices() throws Exception {
+        List<IndexRequestBuilder> docs = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String index = "logs-" + i;
+            assertAcked(prepareCreate(index)
+                    .setSettings(IndexMetaData.SETTING_NUMBER_OF_SHARDS, 1, IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
+                    .addMapping("type", "timestamp", "type=long", "tag", "type=string,index=not_analyzed"));
+            for (int j = 0; j < 10; j++) {
+                docs.add(client().prepareIndex(index, "type").setSource("timestamp", i * 100 + j, "tag", "tag-" + i));
+            }
+        }
+        indexRandom(true, docs);
+    }
+
+    private long queryCount(String index) {
+        return client().admin().indices().prepareStats(index).setSearch(true).get().getTotal().getSearch().getTotal().getQueryCount();
+    }
+}
@@ -23,6 +23,8 @@ import org.apache.lucene.util.English;
 import org.apache.lucene.util.LuceneTestCase.Slow;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.Version;
+import org.elasticsearch.action.admin.cluster.node.stats.NodeStats;
+import org.elasticsearch.action.admin.cluster.node.stats.NodesStatsResponse;
 import org.elasticsearch.action.admin.indices.create.CreateIndexRequestBuilder;
 import org.elasticsearch.action.index.IndexRequestBuilder;
 import org.elasticsearch.action.search.SearchPhaseExecutionException;
@@ -33,6 +35,8 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.settings.ImmutableSettings;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.xcontent.XContentFactory;
+import org.elasticsearch.index.VersionType;
+import org.elasticsearch.index.engine.VersionConflictEngineException;
 import org.elasticsearch.index.mapper.MapperParsingException;
 import org.elasticsearch.index.query.*;
 import org.elasticsearch.index.query.CommonTermsQueryBuilder.Operator;
@@ -1226,6 +1230,125 @@ public class SearchQueryTests extends ElasticsearchIntegrationTest {
         assertHitCount(searchResponse, 0l);
     }
 
+    @Test
+    public void testTermsLookupFilterSeesLookupDocumentChanges() throws Exception {
+        assertAcked(prepareCreate("lookup").addMapping("type", "terms", "type=string"));
+        assertAcked(prepareCreate("test").addMapping("type", "term", "type=string"));
+        ensureGreen();
+
+        indexRandom(true,
+                client().prepareIndex("lookup", "type", "1").setSource("terms", new String[]{"1", "3"}),
+                client().prepareIndex("test", "type", "1").setSource("term", "1"),
+                client().prepareIndex("test", "type", "2").setSource("term", "2"),
+                client().prepareIndex("test", "type", "3").setSource("term", "3"));
+
+        // search the primaries so that both searches use the cache of the same nodes
+        for (int i = 0; i < 2; i++) {
+            SearchResponse searchResponse = client().prepareSearch("test").setPreference("_primary")
+                    .setQuery(filteredQuery(matchAllQuery(), termsLookupFilter("term").lookupIndex("lookup").lookupType("type").lookupId("1").lookupPath("terms")))
+                    .get();
+            assertHitCount(searchResponse, 2l);
+            assertSearchHits(searchResponse, "1", "3");
+        }
+
+        // the new version of the lookup document must be used, even though it is not refreshed yet
+        client().prepareIndex("lookup", "type", "1").setSource("terms", new String[]{"2"}).get();
+        SearchResponse searchResponse = client().prepareSearch("test").setPreference("_primary")
+                .setQuery(filteredQuery(matchAllQuery(), termsLookupFilter("term").lookupIndex("lookup").lookupType("type").lookupId("1").lookupPath("terms")))
+                .get();
+        assertHitCount(searchResponse, 1l);
+        assertSearchHits(searchResponse, "2");
+
+        client().prepareDelete("lookup", "type", "1").get();
+        searchResponse = client().prepareSearch("test").setPreference("_primary")
+                .setQuery(filteredQuery(matchAllQuery(), termsLookupFilter("term").lookupIndex("lookup").lookupType("type").lookupId("1").lookupPath("terms")))
+                .get();
+        assertHitCount(searchResponse, 0l);
+
+        NodesStatsResponse nodesStats = client().admin().cluster().prepareNodesStats().clear().setTermsLookupCache(true).get();
+        long hitCount = 0;
+        long missCount = 0;
+        for (NodeStats nodeStats : nodesStats.getNodes()) {
+            hitCount += nodeStats.getTermsLookupCache().getHitCount();
+            missCount += nodeStats.getTermsLookupCache().getMissCount();
+        }
+        assertThat(hitCount, greaterThan(0l));
+        assertThat(missCount, greaterThanOrEqualTo(2l));
+    }
+
+    @Test
+    public void testTermsLookupFilterSeesRecreatedLookupIndex() throws Exception {
+        assertAcked(prepareCreate("lookup").addMapping("type", "terms", "type=string"));
+        assertAcked(prepareCreate("test").addMapping("type", "term", "type=string"));
+        ensureGreen();
+
+        indexRandom(true,
+                client().prepareIndex("lookup", "type", "1").setSource("terms", new String[]{"1", "3"}),
+                client().prepareIndex("test", "type", "1").setSource("term", "1"),
+                client().prepareIndex("test", "type", "2").setSource("term", "2"),
+                client().prepareIndex("test", "type", "3").setSource("term", "3"));
+
+        SearchResponse searchResponse = client().prepareSearch("test").setPreference("_primary")
+                .setQuery(filteredQuery(matchAllQuery(), termsLookupFilter("term").lookupIndex("lookup").lookupType("type").lookupId("1").lookupPath("terms")))
+                .get();
+        assertHitCount(searchResponse, 2l);
+        assertSearchHits(searchResponse, "1", "3");
+
+        // the recreated lookup document has the same version as the cached one
+        assertAcked(client().admin().indices().prepareDelete("lookup"));
+        assertAcked(prepareCreate("lookup").addMapping("type", "terms", "type=string"));
+        ensureGreen("lookup");
+        assertThat(client().prepareIndex("lookup", "type", "1").setSource("terms", new String[]{"2"}).get().getVersion(), equalTo(1l));
+
+        searchResponse = client().prepareSearch("test").setPreference("_primary")
+                .setQuery(filteredQuery(matchAllQuery(), termsLookupFilter("term").lookupIndex("lookup").lookupType("type").lookupId("1").lookupPath("terms")))
+                .get();
+        assertHitCount(searchResponse, 1l);
+        assertSearchHits(searchResponse, "2");
+    }
+
+    @Test
+    public void testTermsLookupFilterSeesRecreatedLookupDocument() throws Exception {
+        // forget deletes right away so that the lookup document can be recreated with the version of the cached one
+        assertAcked(prepareCreate("lookup").addMapping("type", "terms", "type=string")
+                .setSettings(settingsBuilder().put("index.gc_deletes", "0ms")));
+        assertAcked(prepareCreate("test").addMapping("type", "term", "type=string"));
+        ensureGreen();
+
+        indexRandom(true,
+                client().prepareIndex("lookup", "type", "1").setSource("terms", new String[]{"1", "3"})
+                        .setVersion(5).setVersionType(VersionType.EXTERNAL),
+                client().prepareIndex("test", "type", "1").setSource("term", "1"),
+                client().prepareIndex("test", "type", "2").setSource("term", "2"),
+                client().prepareIndex("test", "type", "3").setSource("term", "3"));
+
+        SearchResponse searchResponse = client().prepareSearch("test").setPreference("_primary")
+                .setQuery(filteredQuery(matchAllQuery(), termsLookupFilter("term").lookupIndex("lookup").lookupType("type").lookupId("1").lookupPath("terms")))
+                .get();
+        assertHitCount(searchResponse, 2l);
+        assertSearchHits(searchResponse, "1", "3");
+
+        client().prepareDelete("lookup", "type", "1").setVersion(6).setVersionType(VersionType.EXTERNAL).get();
+        // the version of the delete conflicts until it is forgotten
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    client().prepareIndex("lookup", "type", "1").setSource("terms", new String[]{"2"})
+                            .setVersion(5).setVersionType(VersionType.EXTERNAL).get();
+                } catch (VersionConflictEngineException e) {
+                    fail("the delete of the lookup document is not forgotten yet");
+                }
+            }
+        });
+
+        searchResponse = client().prepareSearch("test").setPreference("_primary")
+                .setQuery(filteredQuery(matchAllQuery(), termsLookupFilter("term").lookupIndex("lookup").lookupType("type").lookupId("1").lookupPath("terms")))
+                .get();
+        assertHitCount(searchResponse, 1l);
+        assertSearchHits(searchResponse, "2");
+    }
+
     @Test
     public void testBasicFilterById() throws Exception {
         createIndex("test");
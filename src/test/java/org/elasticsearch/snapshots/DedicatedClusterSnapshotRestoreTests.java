@@ -52,6 +52,7 @@ import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.discovery.zen.elect.ElectMasterService;
 import org.elasticsearch.index.store.IndexStore;
 import org.elasticsearch.indices.ttl.IndicesTTLService;
+import org.elasticsearch.repositories.FileTransferLimiter;
 import org.elasticsearch.repositories.RepositoryMissingException;
 import org.elasticsearch.snapshots.mockstore.MockRepositoryModule;
 import org.elasticsearch.snapshots.mockstore.MockRepositoryPlugin;
@@ -382,6 +383,58 @@ public class DedicatedClusterSnapshotRestoreTests extends AbstractSnapshotTests
         logger.info("--> done");
     }
 
+    @Test
+    public void concurrentFileTransfersAreLimitedPerNodeTest() throws Exception {
+        final int maxConcurrentFileTransfers = randomIntBetween(1, 3);
+        logger.info("--> start node with [{}] concurrent file transfers", maxConcurrentFileTransfers);
+        String node = internalCluster().startNode(settingsBuilder().put(FileTransferLimiter.MAX_CONCURRENT_FILE_TRANSFERS, maxConcurrentFileTransfers));
+        Client client = client();
+
+        assertAcked(prepareCreate("test-idx", 1, settingsBuilder().put("number_of_shards", 2).put("number_of_replicas", 0)));
+        ensureGreen();
+
+        logger.info("--> indexing some data into several segments");
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 20; j++) {
+                index("test-idx", "doc", Integer.toString(i * 20 + j), "foo", "bar" + j);
+            }
+            flush();
+        }
+
+        logger.info("--> create two repositories");
+        for (String repo : new String[]{"test-repo-1", "test-repo-2"}) {
+            assertAcked(client.admin().cluster().preparePutRepository(repo)
+                    .setType("fs").setSettings(ImmutableSettings.settingsBuilder()
+                            .put("location", createTempDir())
+                            .put("chunk_size", randomIntBetween(100, 1000))));
+        }
+
+        logger.info("--> snapshot to both repositories at the same time");
+        ListenableActionFuture<CreateSnapshotResponse> first = client.admin().cluster().prepareCreateSnapshot("test-repo-1", "test-snap")
+                .setWaitForCompletion(true).setIndices("test-idx").execute();
+        ListenableActionFuture<CreateSnapshotResponse> second = client.admin().cluster().prepareCreateSnapshot("test-repo-2", "test-snap")
+                .setWaitForCompletion(true).setIndices("test-idx").execute();
+        for (ListenableActionFuture<CreateSnapshotResponse> future : ImmutableList.of(first, second)) {
+            CreateSnapshotResponse response = future.get();
+            assertThat(response.getSnapshotInfo().successfulShards(), equalTo(2));
+            assertThat(response.getSnapshotInfo().failedShards(), equalTo(0));
+        }
+
+        // both repositories share the permits of the node, and all of them were returned
+        FileTransferLimiter limiter = internalCluster().getInstance(FileTransferLimiter.class, node);
+        assertThat(limiter.maxConcurrentFileTransfers(), equalTo(maxConcurrentFileTransfers));
+        assertThat(limiter.availablePermits(), equalTo(maxConcurrentFileTransfers));
+
+        logger.info("--> restore from the second repository");
+        cluster().wipeIndices("test-idx");
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo-2", "test-snap")
+                .setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+        assertThat(client.prepareCount("test-idx").get().getCount(), equalTo(60l));
+        assertThat(limiter.availablePermits(), equalTo(maxConcurrentFileTransfers));
+    }
+
     @Test
     public void restoreIndexWithMissingShards() throws Exception {
         logger.info("--> start 2 nodes");
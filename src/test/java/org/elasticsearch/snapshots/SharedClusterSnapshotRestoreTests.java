@@ -60,6 +60,7 @@ import org.elasticsearch.snapshots.mockstore.MockRepositoryModule;
 import org.junit.Test;
 
 import java.nio.channels.SeekableByteChannel;
+import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -1574,6 +1575,110 @@ public class SharedClusterSnapshotRestoreTests extends AbstractSnapshotTests {
         }
     }
 
+    @Test
+    public void sharedBlobsAcrossIndicesTest() throws Exception {
+        Client client = client();
+
+        Path repo = createTempDir();
+        logger.info("-->  creating repository at " + repo.toAbsolutePath());
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(ImmutableSettings.settingsBuilder()
+                        .put("location", repo)
+                        .put("compress", randomBoolean())
+                        .put("chunk_size", randomIntBetween(100, 1000))));
+
+        assertAcked(prepareCreate("test-idx").setSettings(ImmutableSettings.builder().put(SETTING_NUMBER_OF_SHARDS, 1).put(SETTING_NUMBER_OF_REPLICAS, 0)));
+        ensureGreen();
+
+        logger.info("--> indexing some data");
+        final int numdocs = randomIntBetween(10, 100);
+        IndexRequestBuilder[] builders = new IndexRequestBuilder[numdocs];
+        for (int i = 0; i < builders.length; i++) {
+            builders[i] = client().prepareIndex("test-idx", "doc", Integer.toString(i)).setSource("foo", "bar" + i);
+        }
+        indexRandom(true, builders);
+        assertNoFailures(client().admin().indices().prepareOptimize("test-idx").setFlush(true).setMaxNumSegments(1).get());
+
+        logger.info("--> snapshot");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-1").setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+
+        logger.info("--> restore the index under a different name, its files are exact copies");
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap-1")
+                .setRenamePattern("test-idx").setRenameReplacement("copy-idx").setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+
+        logger.info("--> snapshot both indices, the copy shouldn't upload the segment files again");
+        createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap-2").setWaitForCompletion(true).setIndices("test-idx", "copy-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+        SnapshotStatus snapshotStatus = client.admin().cluster().prepareSnapshotStatus("test-repo").setSnapshots("test-snap-2").get().getSnapshots().get(0);
+        for (SnapshotIndexShardStatus status : snapshotStatus.getIndices().get("copy-idx")) {
+            // only the segments_N file might have changed when the restored shard was opened
+            assertThat(status.getStats().getProcessedFiles(), lessThanOrEqualTo(1));
+        }
+
+        logger.info("--> delete the first snapshot, the shared files are still referenced by the second one");
+        client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-1").get();
+        cluster().wipeIndices("test-idx", "copy-idx");
+        restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap-2").setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+        assertThat(client.prepareCount("test-idx").get().getCount(), equalTo((long) numdocs));
+        assertThat(client.prepareCount("copy-idx").get().getCount(), equalTo((long) numdocs));
+
+        logger.info("--> delete the second snapshot, all shared files should be gone");
+        client.admin().cluster().prepareDeleteSnapshot("test-repo", "test-snap-2").get();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(repo.resolve("blobs"), "blob-*")) {
+            assertThat(stream.iterator().hasNext(), equalTo(false));
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(repo.resolve("refs"))) {
+            assertThat(stream.iterator().hasNext(), equalTo(false));
+        }
+    }
+
+    @Test
+    public void concurrentFileTransfersTest() throws Exception {
+        Client client = client();
+
+        logger.info("-->  creating repository");
+        assertAcked(client.admin().cluster().preparePutRepository("test-repo")
+                .setType("fs").setSettings(ImmutableSettings.settingsBuilder()
+                        .put("location", createTempDir())
+                        .put("compress", randomBoolean())
+                        .put("chunk_size", randomIntBetween(100, 1000))));
+
+        createIndex("test-idx");
+        ensureGreen();
+
+        logger.info("--> indexing some data into several segments");
+        int numberOfDocs = 0;
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 20; j++) {
+                index("test-idx", "doc", Integer.toString(numberOfDocs++), "foo", "bar" + i * 20 + j);
+            }
+            flush();
+        }
+
+        logger.info("--> snapshot");
+        CreateSnapshotResponse createSnapshotResponse = client.admin().cluster().prepareCreateSnapshot("test-repo", "test-snap").setWaitForCompletion(true).setIndices("test-idx").get();
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), greaterThan(0));
+        assertThat(createSnapshotResponse.getSnapshotInfo().successfulShards(), equalTo(createSnapshotResponse.getSnapshotInfo().totalShards()));
+        SnapshotStatus snapshotStatus = client.admin().cluster().prepareSnapshotStatus("test-repo").setSnapshots("test-snap").get().getSnapshots().get(0);
+        for (SnapshotIndexShardStatus status : snapshotStatus.getShards()) {
+            assertThat(status.getStats().getProcessedFiles(), equalTo(status.getStats().getNumberOfFiles()));
+            assertThat(status.getStats().getProcessedSize(), equalTo(status.getStats().getTotalSize()));
+        }
+
+        logger.info("--> delete index and restore it");
+        cluster().wipeIndices("test-idx");
+        RestoreSnapshotResponse restoreSnapshotResponse = client.admin().cluster().prepareRestoreSnapshot("test-repo", "test-snap").setWaitForCompletion(true).get();
+        assertThat(restoreSnapshotResponse.getRestoreInfo().totalShards(), greaterThan(0));
+        assertThat(restoreSnapshotResponse.getRestoreInfo().failedShards(), equalTo(0));
+        ensureGreen();
+        assertThat(client.prepareCount("test-idx").get().getCount(), equalTo((long) numberOfDocs));
+    }
+
     @Test
     public void changeSettingsOnRestoreTest() throws Exception {
         Client client = client();
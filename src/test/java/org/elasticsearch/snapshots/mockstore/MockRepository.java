@@ -225,8 +225,14 @@ public class MockRepository extends FsRepository {
                 }
             }
 
+            private boolean isDataFile(String blobName) {
+                // shard local data files start with "__", shared data files are all files in the "blobs" container
+                String[] paths = path().toArray();
+                return blobName.startsWith("__") || (paths.length > 0 && "blobs".equals(paths[paths.length - 1]));
+            }
+
             private void maybeIOExceptionOrBlock(String blobName) throws IOException {
-                if (blobName.startsWith("__")) {
+                if (isDataFile(blobName)) {
                     if (shouldFail(blobName, randomDataFileIOExceptionRate)) {
                         logger.info("throwing random IOException for file [{}] at path [{}]", blobName, path());
                         addFailure();
@@ -41,6 +41,7 @@ import org.elasticsearch.index.IndexService;
 import org.elasticsearch.indices.IndicesService;
 import org.elasticsearch.node.Node;
 import org.elasticsearch.node.NodeBuilder;
+import org.elasticsearch.script.ScriptService;
 import org.elasticsearch.search.internal.SearchContext;
 import org.elasticsearch.threadpool.ThreadPool;
 import org.junit.After;
@@ -127,6 +128,7 @@ public abstract class ElasticsearchSingleNodeTest extends ElasticsearchTestCase
             .put(IndexMetaData.SETTING_NUMBER_OF_REPLICAS, 0)
             .put("script.inline", "on")
             .put("script.indexed", "on")
+            .put(ScriptService.SCRIPT_MAX_COMPILATIONS_PER_MINUTE_SETTING, -1)
             .put(EsExecutors.PROCESSORS, 1) // limit the number of threads created
             .put("http.enabled", false)
             .put("config.ignore_system_properties", true) // make sure we get what we set :)
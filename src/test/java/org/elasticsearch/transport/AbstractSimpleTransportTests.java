@@ -20,6 +20,7 @@
 package org.elasticsearch.transport;
 
 import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.Version;
 import org.elasticsearch.cluster.node.DiscoveryNode;
 import org.elasticsearch.common.io.stream.StreamInput;
@@ -203,6 +204,153 @@ public abstract class AbstractSimpleTransportTests extends ElasticsearchTestCase
         serviceA.removeHandler("sayHello");
     }
 
+    @Test
+    public void testActionStats() throws Exception {
+        final CountDownLatch requestReceived = new CountDownLatch(1);
+        final CountDownLatch sendResponse = new CountDownLatch(1);
+        serviceB.registerRequestHandler("stats", StringMessageRequest.class, ThreadPool.Names.GENERIC, new TransportRequestHandler<StringMessageRequest>() {
+            @Override
+            public void messageReceived(StringMessageRequest request, TransportChannel channel) throws Exception {
+                requestReceived.countDown();
+                assertTrue(sendResponse.await(10, TimeUnit.SECONDS));
+                if (request.message.equals("fail")) {
+                    channel.sendResponse(new ElasticsearchException("failed on purpose"));
+                } else {
+                    channel.sendResponse(new StringMessageResponse("hello " + request.message));
+                }
+            }
+        });
+
+        TransportFuture<StringMessageResponse> res = serviceA.submitRequest(nodeB, "stats", new StringMessageRequest("moshe"), new StringMessageResponseHandler());
+        assertTrue(requestReceived.await(10, TimeUnit.SECONDS));
+
+        // the request is in flight on both sides, and only counted on the side it was sent from or received on
+        TransportActionStats sent = actionStats(serviceA, "stats");
+        assertThat(sent.getSentCount(), equalTo(1l));
+        assertThat(sent.getSentSize().bytes(), greaterThan(0l));
+        assertThat(sent.getSentInFlight(), equalTo(1l));
+        assertThat(sent.getResponseCount(), equalTo(0l));
+        assertThat(sent.getReceivedCount(), equalTo(0l));
+        TransportActionStats received = actionStats(serviceB, "stats");
+        assertThat(received.getReceivedCount(), equalTo(1l));
+        assertThat(received.getReceivedSize().bytes(), greaterThan(0l));
+        assertThat(received.getReceivedInFlight(), equalTo(1l));
+        assertThat(received.getResponseSize().bytes(), equalTo(0l));
+        assertThat(received.getSentCount(), equalTo(0l));
+        final long requestSize = sent.getSentSize().bytes();
+
+        sendResponse.countDown();
+        assertThat(res.txGet().message, equalTo("hello moshe"));
+        sent = actionStats(serviceA, "stats");
+        assertThat(sent.getSentInFlight(), equalTo(0l));
+        assertThat(sent.getResponseCount(), equalTo(1l));
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                TransportActionStats received = actionStats(serviceB, "stats");
+                assertThat(received.getReceivedInFlight(), equalTo(0l));
+                assertThat(received.getResponseSize().bytes(), greaterThan(0l));
+            }
+        });
+        final long responseSize = actionStats(serviceB, "stats").getResponseSize().bytes();
+
+        // error responses complete the request as well
+        res = serviceA.submitRequest(nodeB, "stats", new StringMessageRequest("fail"), new StringMessageResponseHandler());
+        try {
+            res.txGet();
+            fail("expected the request to fail");
+        } catch (RemoteTransportException e) {
+            assertThat(e.getCause().getMessage(), equalTo("failed on purpose"));
+        }
+        sent = actionStats(serviceA, "stats");
+        assertThat(sent.getSentCount(), equalTo(2l));
+        assertThat(sent.getSentSize().bytes(), greaterThan(requestSize));
+        assertThat(sent.getSentInFlight(), equalTo(0l));
+        assertThat(sent.getResponseCount(), equalTo(2l));
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                TransportActionStats received = actionStats(serviceB, "stats");
+                assertThat(received.getReceivedCount(), equalTo(2l));
+                assertThat(received.getReceivedInFlight(), equalTo(0l));
+                assertThat(received.getResponseSize().bytes(), greaterThan(responseSize));
+            }
+        });
+
+        serviceB.removeHandler("stats");
+    }
+
+    @Test
+    public void testActionStatsOnTimeout() throws Exception {
+        final CountDownLatch requestReceived = new CountDownLatch(1);
+        final CountDownLatch sendResponse = new CountDownLatch(1);
+        serviceB.registerRequestHandler("stats", StringMessageRequest.class, ThreadPool.Names.GENERIC, new TransportRequestHandler<StringMessageRequest>() {
+            @Override
+            public void messageReceived(StringMessageRequest request, TransportChannel channel) throws Exception {
+                requestReceived.countDown();
+                assertTrue(sendResponse.await(10, TimeUnit.SECONDS));
+                channel.sendResponse(new StringMessageResponse("hello " + request.message));
+            }
+        });
+
+        TransportFuture<StringMessageResponse> res = serviceA.submitRequest(nodeB, "stats", new StringMessageRequest("moshe"),
+                options().withTimeout(100), new StringMessageResponseHandler());
+        try {
+            res.txGet();
+            fail("expected the request to time out");
+        } catch (ReceiveTimeoutTransportException e) {
+            // expected
+        }
+        // a timed out request is no longer in flight, but didn't get a response
+        TransportActionStats sent = actionStats(serviceA, "stats");
+        assertThat(sent.getSentCount(), equalTo(1l));
+        assertThat(sent.getSentInFlight(), equalTo(0l));
+        assertThat(sent.getResponseCount(), equalTo(0l));
+        assertTrue(requestReceived.await(10, TimeUnit.SECONDS));
+        assertThat(actionStats(serviceB, "stats").getReceivedInFlight(), equalTo(1l));
+
+        sendResponse.countDown();
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                assertThat(actionStats(serviceB, "stats").getReceivedInFlight(), equalTo(0l));
+            }
+        });
+        assertThat(actionStats(serviceA, "stats").getResponseCount(), equalTo(0l));
+
+        serviceB.removeHandler("stats");
+    }
+
+    private static TransportActionStats actionStats(TransportService service, String action) {
+        for (TransportActionStats stats : service.stats().getActions()) {
+            if (stats.getAction().equals(action)) {
+                return stats;
+            }
+        }
+        throw new AssertionError("no stats for action [" + action + "]");
+    }
+
+    private static class StringMessageResponseHandler extends BaseTransportResponseHandler<StringMessageResponse> {
+
+        @Override
+        public StringMessageResponse newInstance() {
+            return new StringMessageResponse();
+        }
+
+        @Override
+        public String executor() {
+            return ThreadPool.Names.GENERIC;
+        }
+
+        @Override
+        public void handleResponse(StringMessageResponse response) {
+        }
+
+        @Override
+        public void handleException(TransportException exp) {
+        }
+    }
+
     @Test
     public void testLocalNodeConnection() throws InterruptedException {
         assertTrue("serviceA is not connected to nodeA", serviceA.nodeConnected(nodeA));
@@ -0,0 +1,167 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport.netty;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.ExceptionsHelper;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.breaker.CircuitBreakingException;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.indices.breaker.HierarchyCircuitBreakerService;
+import org.elasticsearch.node.settings.NodeSettingsService;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.test.transport.MockTransportService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+
+/**
+ * Tests the in flight requests accounting of the netty transport: node A has a tiny in flight requests limit,
+ * node B none.
+ */
+public class NettyTransportInFlightRequestsTests extends ElasticsearchTestCase {
+
+    private ThreadPool threadPool;
+    private MockTransportService serviceA;
+    private MockTransportService serviceB;
+    private DiscoveryNode nodeA;
+    private DiscoveryNode nodeB;
+
+    // requests node A received and holds on to without responding
+    private final CopyOnWriteArrayList<TransportChannel> heldChannels = new CopyOnWriteArrayList<>();
+    private final CountDownLatch countReceived = new CountDownLatch(1);
+
+    @Before
+    public void startThreadPool() {
+        threadPool = new ThreadPool(getClass().getName());
+    }
+
+    @After
+    public void stopServices() throws Exception {
+        for (TransportChannel channel : heldChannels) {
+            channel.sendResponse(TransportResponse.Empty.INSTANCE);
+        }
+        Releasables.close(serviceA, serviceB);
+        terminate(threadPool);
+    }
+
+    private void startServices(boolean suspendReads) {
+        int startPort = 11000 + randomIntBetween(0, 255);
+        Settings settings = ImmutableSettings.builder().put("transport.tcp.port", startPort + "-" + (startPort + 10)).build();
+        Settings limitedSettings = ImmutableSettings.builder().put(settings)
+                .put(HierarchyCircuitBreakerService.IN_FLIGHT_REQUESTS_CIRCUIT_BREAKER_LIMIT_SETTING, "1b")
+                .put(NettyTransport.INFLIGHT_REQUESTS_SUSPEND_READS, suspendReads)
+                .build();
+
+        NettyTransport nettyA = new NettyTransport(limitedSettings, threadPool, new NetworkService(settings), BigArrays.NON_RECYCLING_INSTANCE,
+                Version.CURRENT, new HierarchyCircuitBreakerService(limitedSettings, new NodeSettingsService(limitedSettings)));
+        serviceA = new MockTransportService(limitedSettings, nettyA, threadPool);
+        serviceA.start();
+        NettyTransport nettyB = new NettyTransport(settings, threadPool, new NetworkService(settings), BigArrays.NON_RECYCLING_INSTANCE, Version.CURRENT);
+        serviceB = new MockTransportService(settings, nettyB, threadPool);
+        serviceB.start();
+
+        nodeA = new DiscoveryNode("TS_A", "TS_A", serviceA.boundAddress().publishAddress(), ImmutableMap.<String, String>of(), Version.CURRENT);
+        nodeB = new DiscoveryNode("TS_B", "TS_B", serviceB.boundAddress().publishAddress(), ImmutableMap.<String, String>of(), Version.CURRENT);
+        serviceA.connectToNode(nodeB);
+        serviceB.connectToNode(nodeA);
+
+        serviceA.registerRequestHandler("hold", TransportRequest.Empty.class, ThreadPool.Names.GENERIC, new TransportRequestHandler<TransportRequest.Empty>() {
+            @Override
+            public void messageReceived(TransportRequest.Empty request, TransportChannel channel) {
+                heldChannels.add(channel);
+            }
+        });
+        serviceA.registerRequestHandler("count", TransportRequest.Empty.class, ThreadPool.Names.GENERIC, new TransportRequestHandler<TransportRequest.Empty>() {
+            @Override
+            public void messageReceived(TransportRequest.Empty request, TransportChannel channel) throws Exception {
+                countReceived.countDown();
+                channel.sendResponse(TransportResponse.Empty.INSTANCE);
+            }
+        });
+        serviceB.registerRequestHandler("echo", TransportRequest.Empty.class, ThreadPool.Names.GENERIC, new TransportRequestHandler<TransportRequest.Empty>() {
+            @Override
+            public void messageReceived(TransportRequest.Empty request, TransportChannel channel) throws Exception {
+                channel.sendResponse(TransportResponse.Empty.INSTANCE);
+            }
+        });
+    }
+
+    private TransportFuture<TransportResponse.Empty> send(MockTransportService service, DiscoveryNode node, String action) {
+        return service.submitRequest(node, action, TransportRequest.Empty.INSTANCE, EmptyTransportResponseHandler.INSTANCE_SAME);
+    }
+
+    @Test
+    public void testRequestsRejectedResponsesReceived() throws Exception {
+        startServices(false);
+        try {
+            send(serviceB, nodeA, "count").txGet(10, TimeUnit.SECONDS);
+            fail("the request should have been rejected by the in flight requests breaker");
+        } catch (TransportException e) {
+            assertThat(ExceptionsHelper.unwrapCause(e), instanceOf(CircuitBreakingException.class));
+        }
+        assertThat(countReceived.getCount(), equalTo(1l));
+
+        // responses to requests node A sent are not accounted for, nor rejected
+        int rounds = randomIntBetween(2, 10);
+        for (int i = 0; i < rounds; i++) {
+            send(serviceA, nodeB, "echo").txGet(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testReadsSuspendedResponsesReceived() throws Exception {
+        startServices(true);
+        // a held request keeps node A over its limit, which suspends reading requests from node B
+        send(serviceB, nodeA, "hold");
+        assertBusy(new Runnable() {
+            @Override
+            public void run() {
+                assertThat(heldChannels.size(), equalTo(1));
+            }
+        });
+        TransportFuture<TransportResponse.Empty> count = send(serviceB, nodeA, "count");
+
+        // responses of node B are still read while node A is over its limit
+        int rounds = randomIntBetween(2, 10);
+        for (int i = 0; i < rounds; i++) {
+            send(serviceA, nodeB, "echo").txGet(10, TimeUnit.SECONDS);
+        }
+        assertFalse("the request should not be read while reads are suspended", countReceived.await(100, TimeUnit.MILLISECONDS));
+
+        // responding releases the held bytes and resumes reading
+        heldChannels.remove(0).sendResponse(TransportResponse.Empty.INSTANCE);
+        count.txGet(10, TimeUnit.SECONDS);
+        assertThat(countReceived.getCount(), equalTo(0l));
+    }
+}
@@ -0,0 +1,304 @@
+/*
+ * Licensed to Elasticsearch under one or more contributor
+ * license agreements. See the NOTICE file distributed with
+ * this work for additional information regarding copyright
+ * ownership. Elasticsearch licenses this file to you under
+ * the Apache License, Version 2.0 (the "License"); you may
+ * not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.elasticsearch.transport.netty;
+
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.Version;
+import org.elasticsearch.cluster.node.DiscoveryNode;
+import org.elasticsearch.common.lease.Releasables;
+import org.elasticsearch.common.network.NetworkService;
+import org.elasticsearch.common.settings.ImmutableSettings;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.util.BigArrays;
+import org.elasticsearch.test.ElasticsearchTestCase;
+import org.elasticsearch.test.transport.MockTransportService;
+import org.elasticsearch.threadpool.ThreadPool;
+import org.elasticsearch.transport.*;
+import org.jboss.netty.channel.*;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+
+/**
+ * Tests how {@link NettyTransport.NodeChannels} selects and grows the channels of a connected node.
+ */
+public class NettyTransportNodeChannelsTests extends ElasticsearchTestCase {
+
+    @Test
+    public void testSelectPrefersLeastQueuedBytes() {
+        Channel[] reg = new Channel[]{new TestChannel(), new TestChannel(), new TestChannel()};
+        NettyTransport.NodeChannels nodeChannels = nodeChannels(reg);
+        queue(reg[0], 100);
+        queue(reg[1], 10);
+        queue(reg[2], 50);
+        for (int i = 0; i < reg.length * 2; i++) {
+            assertThat(nodeChannels.channel(TransportRequestOptions.Type.REG), sameInstance(reg[1]));
+        }
+
+        // once the write completes the bytes are no longer accounted as queued
+        ChannelFuture future = new DefaultChannelFuture(reg[0], false);
+        NettyTransport.NodeChannels.onWrite(reg[0], future, 1000);
+        assertThat(NettyTransport.NodeChannels.queuedBytes(reg[0]), equalTo(1100l));
+        future.setSuccess();
+        assertThat(NettyTransport.NodeChannels.queuedBytes(reg[0]), equalTo(100l));
+    }
+
+    @Test
+    public void testSelectUsesIdleChannelsInTurn() {
+        Channel[] reg = new Channel[]{new TestChannel(), new TestChannel(), new TestChannel()};
+        NettyTransport.NodeChannels nodeChannels = nodeChannels(reg);
+        int[] selected = new int[reg.length];
+        for (int i = 0; i < reg.length * 10; i++) {
+            Channel channel = nodeChannels.channel(TransportRequestOptions.Type.REG);
+            for (int j = 0; j < reg.length; j++) {
+                if (reg[j] == channel) {
+                    selected[j]++;
+                }
+            }
+        }
+        for (int count : selected) {
+            assertThat(count, equalTo(10));
+        }
+    }
+
+    @Test
+    public void testSelectPrefersWritableChannels() {
+        TestChannel[] reg = new TestChannel[]{new TestChannel(), new TestChannel()};
+        NettyTransport.NodeChannels nodeChannels = nodeChannels(reg);
+        reg[0].writable = false;
+        queue(reg[1], 1000);
+        for (int i = 0; i < reg.length * 2; i++) {
+            assertThat(nodeChannels.channel(TransportRequestOptions.Type.REG), sameInstance((Channel) reg[1]));
+        }
+        // if none is writable, the least queued one is still used
+        reg[1].writable = false;
+        for (int i = 0; i < reg.length * 2; i++) {
+            assertThat(nodeChannels.channel(TransportRequestOptions.Type.REG), sameInstance((Channel) reg[0]));
+        }
+    }
+
+    @Test
+    public void testGrowing() {
+        Channel[] reg = new Channel[]{new TestChannel()};
+        NettyTransport.NodeChannels nodeChannels = nodeChannels(reg);
+        assertThat(nodeChannels.size(TransportRequestOptions.Type.REG), equalTo(1));
+
+        assertFalse(nodeChannels.tryStartGrowing(TransportRequestOptions.Type.REG, 1));
+        assertTrue(nodeChannels.tryStartGrowing(TransportRequestOptions.Type.REG, 2));
+        // only one channel is opened at a time per type
+        assertFalse(nodeChannels.tryStartGrowing(TransportRequestOptions.Type.REG, 2));
+        // other types grow independently
+        assertTrue(nodeChannels.tryStartGrowing(TransportRequestOptions.Type.BULK, 2));
+        nodeChannels.doneGrowing(TransportRequestOptions.Type.BULK);
+
+        TestChannel added = new TestChannel();
+        assertTrue(nodeChannels.addChannel(TransportRequestOptions.Type.REG, added));
+        nodeChannels.doneGrowing(TransportRequestOptions.Type.REG);
+        assertThat(nodeChannels.size(TransportRequestOptions.Type.REG), equalTo(2));
+        assertTrue(nodeChannels.hasChannel(added));
+        assertThat(NettyTransport.NodeChannels.queuedBytes(added), equalTo(0l));
+
+        // the new channel is idle, it is used instead of the busy one
+        queue(reg[0], 100);
+        assertThat(nodeChannels.channel(TransportRequestOptions.Type.REG), sameInstance((Channel) added));
+
+        assertFalse(nodeChannels.tryStartGrowing(TransportRequestOptions.Type.REG, 2));
+        assertTrue(nodeChannels.tryStartGrowing(TransportRequestOptions.Type.REG, 3));
+        nodeChannels.doneGrowing(TransportRequestOptions.Type.REG);
+
+        nodeChannels.close();
+        assertFalse(nodeChannels.tryStartGrowing(TransportRequestOptions.Type.REG, 3));
+        assertFalse(nodeChannels.addChannel(TransportRequestOptions.Type.REG, new TestChannel()));
+        assertThat(nodeChannels.size(TransportRequestOptions.Type.REG), equalTo(2));
+    }
+
+    @Test
+    public void testLightChannelsDontGrow() {
+        Channel[] channels = new Channel[]{new TestChannel()};
+        NettyTransport.NodeChannels nodeChannels = new NettyTransport.NodeChannels(channels, channels, channels, channels, channels, false);
+        nodeChannels.start();
+        assertFalse(nodeChannels.tryStartGrowing(TransportRequestOptions.Type.REG, 10));
+    }
+
+    @Test
+    public void testMaxConnectionsPerNodeSettings() {
+        ThreadPool threadPool = new ThreadPool(getClass().getName());
+        try {
+            Settings settings = ImmutableSettings.builder()
+                    .put(NettyTransport.CONNECTIONS_PER_NODE_RECOVERY, 1)
+                    .put(NettyTransport.CONNECTIONS_PER_NODE_BULK, 2)
+                    .put(NettyTransport.CONNECTIONS_PER_NODE_REG, 3)
+                    .put(NettyTransport.CONNECTIONS_PER_NODE_MAX_BULK, 5)
+                    .build();
+            NettyTransport transport = new NettyTransport(settings, threadPool, new NetworkService(settings), BigArrays.NON_RECYCLING_INSTANCE, Version.CURRENT);
+            // defaults to twice the initial number of connections
+            assertThat(transport.maxConnectionsPerNode(TransportRequestOptions.Type.RECOVERY), equalTo(2));
+            assertThat(transport.maxConnectionsPerNode(TransportRequestOptions.Type.BULK), equalTo(5));
+            assertThat(transport.maxConnectionsPerNode(TransportRequestOptions.Type.REG), equalTo(6));
+            assertThat(transport.maxConnectionsPerNode(TransportRequestOptions.Type.STATE), equalTo(0));
+            assertThat(transport.maxConnectionsPerNode(TransportRequestOptions.Type.PING), equalTo(0));
+        } finally {
+            terminate(threadPool);
+        }
+    }
+
+    @Test
+    public void testChannelsGrowWhenBytesAreQueued() throws Exception {
+        // with a zero threshold every request opens another channel until the maximum is reached
+        assertRegChannelsAfterRequests("0b", 3, 3);
+    }
+
+    @Test
+    public void testChannelsDontGrowWhenDisabled() throws Exception {
+        assertRegChannelsAfterRequests("-1", 3, 1);
+    }
+
+    /**
+     * Sends requests from one transport to another that starts with a single reg channel, and checks how many
+     * reg channels the sending side ends up with.
+     */
+    private void assertRegChannelsAfterRequests(String growQueuedSize, int maxReg, final int expectedReg) throws Exception {
+        ThreadPool threadPool = new ThreadPool(getClass().getName());
+        int startPort = 11000 + randomIntBetween(0, 255);
+        int endPort = startPort + 10;
+        Settings settings = ImmutableSettings.builder()
+                .put("transport.tcp.port", startPort + "-" + endPort)
+                .put(NettyTransport.CONNECTIONS_PER_NODE_REG, 1)
+                .put(NettyTransport.CONNECTIONS_PER_NODE_MAX_REG, maxReg)
+                .put(NettyTransport.CONNECTIONS_PER_NODE_GROW_QUEUED_SIZE, growQueuedSize)
+                .build();
+
+        NettyTransport nettyA = new NettyTransport(settings, threadPool, new NetworkService(settings), BigArrays.NON_RECYCLING_INSTANCE, Version.CURRENT);
+        MockTransportService serviceA = new MockTransportService(settings, nettyA, threadPool);
+        NettyTransport nettyB = new NettyTransport(settings, threadPool, new NetworkService(settings), BigArrays.NON_RECYCLING_INSTANCE, Version.CURRENT);
+        MockTransportService serviceB = new MockTransportService(settings, nettyB, threadPool);
+        try {
+            serviceA.start();
+            serviceB.start();
+            DiscoveryNode nodeA = new DiscoveryNode("TS_A", "TS_A", serviceA.boundAddress().publishAddress(), ImmutableMap.<String, String>of(), Version.CURRENT);
+
+            serviceA.registerRequestHandler("sayHello", TransportRequest.Empty.class, ThreadPool.Names.GENERIC, new TransportRequestHandler<TransportRequest.Empty>() {
+                @Override
+                public void messageReceived(TransportRequest.Empty request, TransportChannel channel) throws Exception {
+                    channel.sendResponse(TransportResponse.Empty.INSTANCE);
+                }
+            });
+            serviceB.connectToNode(nodeA);
+            final NettyTransport.NodeChannels nodeChannels = nettyB.connectedNodes.get(nodeA);
+            assertThat(nodeChannels.size(TransportRequestOptions.Type.REG), equalTo(1));
+
+            for (int i = 0; i < maxReg * 10; i++) {
+                serviceB.submitRequest(nodeA, "sayHello", TransportRequest.Empty.INSTANCE, TransportRequestOptions.options(),
+                        new EmptyTransportResponseHandler(ThreadPool.Names.SAME)).txGet();
+            }
+            assertBusy(new Runnable() {
+                @Override
+                public void run() {
+                    assertThat(nodeChannels.size(TransportRequestOptions.Type.REG), equalTo(expectedReg));
+                }
+            });
+            // growing never goes beyond the maximum, and state requests never grow
+            serviceB.submitRequest(nodeA, "sayHello", TransportRequest.Empty.INSTANCE, TransportRequestOptions.options(),
+                    new EmptyTransportResponseHandler(ThreadPool.Names.SAME)).txGet();
+            serviceB.submitRequest(nodeA, "sayHello", TransportRequest.Empty.INSTANCE, TransportRequestOptions.options().withType(TransportRequestOptions.Type.STATE),
+                    new EmptyTransportResponseHandler(ThreadPool.Names.SAME)).txGet();
+            assertThat(nodeChannels.size(TransportRequestOptions.Type.REG), equalTo(expectedReg));
+            assertThat(nodeChannels.size(TransportRequestOptions.Type.STATE), equalTo(1));
+        } finally {
+            Releasables.close(serviceA, serviceB);
+            terminate(threadPool);
+        }
+    }
+
+    private static NettyTransport.NodeChannels nodeChannels(Channel[] reg) {
+        Channel[] other = new Channel[]{new TestChannel()};
+        Channel[] bulk = new Channel[]{new TestChannel()};
+        NettyTransport.NodeChannels nodeChannels = new NettyTransport.NodeChannels(other, bulk, reg, other, other);
+        nodeChannels.start();
+        return nodeChannels;
+    }
+
+    private static void queue(Channel channel, long bytes) {
+        ((AtomicLong) channel.getAttachment()).addAndGet(bytes);
+    }
+
+    /**
+     * A channel that isn't connected to anything, closing it completes its close future right away.
+     */
+    static class TestChannel extends AbstractChannel {
+
+        private static final ChannelSink SINK = new AbstractChannelSink() {
+            @Override
+            public void eventSunk(ChannelPipeline pipeline, ChannelEvent e) throws Exception {
+                if (e instanceof ChannelStateEvent && ((ChannelStateEvent) e).getState() == ChannelState.OPEN
+                        && Boolean.FALSE.equals(((ChannelStateEvent) e).getValue())) {
+                    ((TestChannel) e.getChannel()).setClosed();
+                    e.getFuture().setSuccess();
+                }
+            }
+        };
+
+        private final ChannelConfig config = new DefaultChannelConfig();
+        volatile boolean writable = true;
+
+        TestChannel() {
+            super(null, null, Channels.pipeline(), SINK);
+        }
+
+        @Override
+        protected boolean setClosed() {
+            return super.setClosed();
+        }
+
+        @Override
+        public boolean isWritable() {
+            return writable;
+        }
+
+        @Override
+        public ChannelConfig getConfig() {
+            return config;
+        }
+
+        @Override
+        public boolean isBound() {
+            return isOpen();
+        }
+
+        @Override
+        public boolean isConnected() {
+            return isOpen();
+        }
+
+        @Override
+        public SocketAddress getLocalAddress() {
+            return new InetSocketAddress(0);
+        }
+
+        @Override
+        public SocketAddress getRemoteAddress() {
+            return new InetSocketAddress(0);
+        }
+    }
+}
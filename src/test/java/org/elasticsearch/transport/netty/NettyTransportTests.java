@@ -107,7 +107,7 @@ public class NettyTransportTests extends ElasticsearchIntegrationTest {
                 pipeline.replace("dispatcher", "dispatcher", new MessageChannelHandler(nettyTransport, logger, NettyTransport.DEFAULT_PROFILE) {
 
                     @Override
-                    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, Version version) throws IOException {
+                    protected String handleRequest(Channel channel, StreamInput buffer, long requestId, long messageSize, Version version) throws IOException {
                         final String action = buffer.readString();
 
                         final NettyTransportChannel transportChannel = new NettyTransportChannel(transport, transportServiceAdapter, action, channel, requestId, version, name);